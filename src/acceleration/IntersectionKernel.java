@@ -0,0 +1,57 @@
+package acceleration;
+
+/**
+ * Kernel which intersects one ray with all the spheres or all the triangles of a {@link PrimitiveBatch}.<br>
+ * The kernels follow the exact arithmetic of {@link geometries.Sphere} and {@link geometries.Triangle}
+ * (including the {@link primitives.Util#isZero(double)} tolerance), so all of them find the same closest
+ * primitive at the same distance. The SIMD kernel is used when it is compiled (the Maven {@code simd} profile)
+ * and the {@code jdk.incubator.vector} module is available (run with {@code --add-modules jdk.incubator.vector})
+ * unless the system property {@value #SIMD_PROPERTY} is false, otherwise the scalar kernel is used
+ */
+interface IntersectionKernel {
+    /**
+     * System property which disables the SIMD kernel when it is false
+     */
+    String SIMD_PROPERTY = "acceleration.simd";
+    /**
+     * Absolute values below this bound are treated as zero - the same as {@link primitives.Util#isZero(double)}
+     */
+    double ZERO_BOUND = 0x1p-40;
+
+    /**
+     * Finds the closest sphere of a batch which the ray hits in front of its head
+     *
+     * @param batch    the batch
+     * @param ray      the ray's head coordinates followed by its direction components
+     * @param distance receives the distance of the closest hit along the ray
+     * @return index of the closest sphere, or -1 if the ray misses all the spheres
+     */
+    int closestSphere(PrimitiveBatch batch, double[] ray, double[] distance);
+
+    /**
+     * Finds the closest triangle of a batch which the ray hits in front of its head
+     *
+     * @param batch    the batch
+     * @param ray      the ray's head coordinates followed by its direction components
+     * @param distance receives the distance of the closest hit along the ray
+     * @return index of the closest triangle, or -1 if the ray misses all the triangles
+     */
+    int closestTriangle(PrimitiveBatch batch, double[] ray, double[] distance);
+
+    /**
+     * Selects the fastest available kernel
+     *
+     * @return the SIMD kernel if it is available and enabled, otherwise the scalar kernel
+     */
+    static IntersectionKernel select() {
+        if (!Boolean.parseBoolean(System.getProperty(SIMD_PROPERTY, "true"))
+                || ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty())
+            return new ScalarIntersectionKernel();
+        try {
+            return (IntersectionKernel) Class.forName("acceleration.VectorIntersectionKernel")
+                    .getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return new ScalarIntersectionKernel();
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package acceleration;
+
+import geometries.Intersectable;
+import geometries.Sphere;
+import geometries.Triangle;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static geometries.Intersectable.Intersection;
+
+/**
+ * The geometries of a voxel prepared for the intersection kernels.<br>
+ * The spheres and the triangles are kept in structure-of-arrays form - one array per coordinate, so an
+ * {@link IntersectionKernel} can load the same coordinate of several primitives into one SIMD register.
+ * The other geometries (and subclasses of the sphere and the triangle, which may intersect differently)
+ * are kept as they are
+ */
+final class PrimitiveBatch {
+    /**
+     * The spheres of the batch
+     */
+    final Sphere[] spheres;
+    /**
+     * X coordinates of the sphere centers
+     */
+    final double[] sphereX;
+    /**
+     * Y coordinates of the sphere centers
+     */
+    final double[] sphereY;
+    /**
+     * Z coordinates of the sphere centers
+     */
+    final double[] sphereZ;
+    /**
+     * Squared radii of the spheres
+     */
+    final double[] sphereRadiusSquared;
+
+    /**
+     * The triangles of the batch
+     */
+    final Triangle[] triangles;
+    /**
+     * X coordinates of the first vertices of the triangles
+     */
+    final double[] vertexX;
+    /**
+     * Y coordinates of the first vertices of the triangles
+     */
+    final double[] vertexY;
+    /**
+     * Z coordinates of the first vertices of the triangles
+     */
+    final double[] vertexZ;
+    /**
+     * X components of the first edges (second vertex - first vertex) of the triangles
+     */
+    final double[] edge1X;
+    /**
+     * Y components of the first edges of the triangles
+     */
+    final double[] edge1Y;
+    /**
+     * Z components of the first edges of the triangles
+     */
+    final double[] edge1Z;
+    /**
+     * X components of the second edges (third vertex - first vertex) of the triangles
+     */
+    final double[] edge2X;
+    /**
+     * Y components of the second edges of the triangles
+     */
+    final double[] edge2Y;
+    /**
+     * Z components of the second edges of the triangles
+     */
+    final double[] edge2Z;
+
+    /**
+     * The geometries which are not handled by the kernels
+     */
+    final List<Intersectable> others;
+
+    /**
+     * Grid slots (see {@link RegularGrid#geometrySlot(Intersectable)}) of the spheres and the triangles
+     * which the kernels test
+     */
+    final int[] kernelSlots;
+    /**
+     * Grid slots of the other geometries, in the order of {@link #others}
+     */
+    final int[] otherSlots;
+
+    /**
+     * Prepares geometries which are not in a grid - the slot of each geometry is its index in the list
+     *
+     * @param geometries the geometries
+     */
+    PrimitiveBatch(List<Intersectable> geometries) {
+        this(geometries, null);
+    }
+
+    /**
+     * Prepares the geometries of a voxel
+     *
+     * @param geometries the geometries
+     * @param grid       the grid of the voxel, which gives the geometries' slots, null if there is no grid
+     */
+    PrimitiveBatch(List<Intersectable> geometries, RegularGrid grid) {
+        List<Sphere> sphereList = new ArrayList<>();
+        List<Triangle> triangleList = new ArrayList<>();
+        List<Intersectable> otherList = new ArrayList<>();
+        for (Intersectable geometry : geometries) {
+            if (geometry.getClass() == Sphere.class) sphereList.add((Sphere) geometry);
+            else if (geometry.getClass() == Triangle.class) triangleList.add((Triangle) geometry);
+            else otherList.add(geometry);
+        }
+        others = List.copyOf(otherList);
+        kernelSlots = new int[sphereList.size() + triangleList.size()];
+        int slot = 0;
+        for (Sphere sphere : sphereList) kernelSlots[slot++] = slotOf(sphere, geometries, grid);
+        for (Triangle triangle : triangleList) kernelSlots[slot++] = slotOf(triangle, geometries, grid);
+        otherSlots = new int[others.size()];
+        for (int k = 0; k < otherSlots.length; ++k) otherSlots[k] = slotOf(others.get(k), geometries, grid);
+
+        spheres = sphereList.toArray(new Sphere[0]);
+        sphereX = new double[spheres.length];
+        sphereY = new double[spheres.length];
+        sphereZ = new double[spheres.length];
+        sphereRadiusSquared = new double[spheres.length];
+        for (int k = 0; k < spheres.length; ++k) {
+            Point center = spheres[k].getCenter();
+            double radius = spheres[k].getRadius();
+            sphereX[k] = center.getX();
+            sphereY[k] = center.getY();
+            sphereZ[k] = center.getZ();
+            sphereRadiusSquared[k] = radius * radius;
+        }
+
+        triangles = triangleList.toArray(new Triangle[0]);
+        vertexX = new double[triangles.length];
+        vertexY = new double[triangles.length];
+        vertexZ = new double[triangles.length];
+        edge1X = new double[triangles.length];
+        edge1Y = new double[triangles.length];
+        edge1Z = new double[triangles.length];
+        edge2X = new double[triangles.length];
+        edge2Y = new double[triangles.length];
+        edge2Z = new double[triangles.length];
+        for (int k = 0; k < triangles.length; ++k) {
+            List<Point> vertices = triangles[k].getVertices();
+            Point v0 = vertices.get(0);
+            Point v1 = vertices.get(1);
+            Point v2 = vertices.get(2);
+            vertexX[k] = v0.getX();
+            vertexY[k] = v0.getY();
+            vertexZ[k] = v0.getZ();
+            edge1X[k] = v1.getX() - v0.getX();
+            edge1Y[k] = v1.getY() - v0.getY();
+            edge1Z[k] = v1.getZ() - v0.getZ();
+            edge2X[k] = v2.getX() - v0.getX();
+            edge2Y[k] = v2.getY() - v0.getY();
+            edge2Z[k] = v2.getZ() - v0.getZ();
+        }
+    }
+
+    /**
+     * Gets the slot of a geometry of the batch
+     *
+     * @param geometry   the geometry
+     * @param geometries the geometries of the batch
+     * @param grid       the grid of the batch, null if there is no grid
+     * @return the geometry's slot in the grid, or its index in the geometries if there is no grid
+     */
+    private static int slotOf(Intersectable geometry, List<Intersectable> geometries, RegularGrid grid) {
+        if (grid != null) return grid.geometrySlot(geometry);
+        for (int k = 0; ; ++k) if (geometries.get(k) == geometry) return k;
+    }
+
+    /**
+     * Gets the components of a ray in the form which the kernels receive
+     *
+     * @param ray the ray
+     * @return the ray's head coordinates followed by its direction components
+     */
+    static double[] components(Ray ray) {
+        Point head = ray.getHead();
+        Vector direction = ray.getDirection();
+        return new double[]{head.getX(), head.getY(), head.getZ(),
+                direction.getX(), direction.getY(), direction.getZ()};
+    }
+
+    /**
+     * Finds the closest intersection of a ray with the spheres and the triangles of the batch
+     *
+     * @param ray         the ray
+     * @param components  the ray's components (see {@link #components(Ray)})
+     * @param kernel      the intersection kernel
+     * @param maxDistance only intersections closer than this distance are returned
+     * @return the closest intersection, or null if there is none closer than the maximal distance
+     */
+    Intersection findClosestIntersection(Ray ray, double[] components, IntersectionKernel kernel, double maxDistance) {
+        if (spheres.length == 0 && triangles.length == 0) return null;
+        Point head = ray.getHead();
+        double[] distance = new double[1];
+
+        Intersection closest = null;
+        int sphere = kernel.closestSphere(this, components, distance);
+        if (sphere >= 0) {
+            Intersection intersection = new Intersection(spheres[sphere], ray.getPoint(distance[0]));
+            double d = intersection.point.distance(head);
+            if (d < maxDistance) {
+                maxDistance = d;
+                closest = intersection;
+            }
+        }
+        int triangle = kernel.closestTriangle(this, components, distance);
+        if (triangle >= 0) {
+            Intersection intersection = new Intersection(triangles[triangle], ray.getPoint(distance[0]));
+            if (intersection.point.distance(head) < maxDistance) closest = intersection;
+        }
+        return closest;
+    }
+}
@@ -91,6 +91,11 @@ public class RegularGrid {
      */
     private final List<Intersectable> infiniteGeometries;
 
+    /**
+     * Slot of each finite geometry of the grid - its index among the finite geometries
+     */
+    private final Map<Intersectable, Integer> geometrySlots = new IdentityHashMap<>();
+
     /**
      * Constructs the regular grid from a scene and configuration.
      *
@@ -224,6 +229,26 @@ public class RegularGrid {
         return new double[]{voxelSizeX, voxelSizeY, voxelSizeZ};
     }
 
+    /**
+     * Gets the amount of the finite geometries in the grid's voxels
+     *
+     * @return the amount of the geometry slots
+     */
+    int geometryCount() {
+        return geometrySlots.size();
+    }
+
+    /**
+     * Gets the slot of a finite geometry of the grid, so the traversal can mark the tested geometries
+     * in an array instead of a set
+     *
+     * @param geometry a geometry of the grid's voxels
+     * @return the geometry's slot, from 0 to {@link #geometryCount()} - 1
+     */
+    int geometrySlot(Intersectable geometry) {
+        return geometrySlots.get(geometry);
+    }
+
     // ======================= Private Helper Methods =======================
 
     /**
@@ -259,6 +284,7 @@ public class RegularGrid {
      * @param bounds The bounding box of the geometry.
      */
     private void distributeGeometryToVoxels(Intersectable geometry, BoundingBox bounds) {
+        geometrySlots.putIfAbsent(geometry, geometrySlots.size());
         int[] minGrid = worldToGrid(bounds.min());
         int[] maxGrid = worldToGrid(bounds.max());
 
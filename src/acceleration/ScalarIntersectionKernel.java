@@ -0,0 +1,105 @@
+package acceleration;
+
+import static primitives.Util.alignZero;
+import static primitives.Util.isZero;
+
+/**
+ * Scalar intersection kernel - tests the primitives of a batch one by one with the arithmetic of
+ * the geometries themselves. It is the fallback when the Vector API is not available
+ */
+final class ScalarIntersectionKernel implements IntersectionKernel {
+    /**
+     * Constructs the scalar kernel
+     */
+    ScalarIntersectionKernel() {
+    }
+
+    @Override
+    public int closestSphere(PrimitiveBatch batch, double[] ray, double[] distance) {
+        return closestSphere(batch, ray, 0, distance);
+    }
+
+    @Override
+    public int closestTriangle(PrimitiveBatch batch, double[] ray, double[] distance) {
+        return closestTriangle(batch, ray, 0, distance);
+    }
+
+    /**
+     * Finds the closest sphere of a batch, starting from a given index, which the ray hits in front of its head
+     *
+     * @param batch    the batch
+     * @param ray      the ray's head coordinates followed by its direction components
+     * @param from     index of the first tested sphere
+     * @param distance receives the distance of the closest hit along the ray
+     * @return index of the closest sphere, or -1 if the ray misses all the tested spheres
+     */
+    static int closestSphere(PrimitiveBatch batch, double[] ray, int from, double[] distance) {
+        int closest = -1;
+        double best = Double.POSITIVE_INFINITY;
+        for (int k = from; k < batch.spheres.length; ++k) {
+            double ux = batch.sphereX[k] - ray[0];
+            double uy = batch.sphereY[k] - ray[1];
+            double uz = batch.sphereZ[k] - ray[2];
+            double tm = alignZero(ray[3] * ux + ray[4] * uy + ray[5] * uz);
+            double dSquared = alignZero(ux * ux + uy * uy + uz * uz - tm * tm);
+            double thSquared = alignZero(batch.sphereRadiusSquared[k] - dSquared);
+            if (thSquared <= 0) continue;
+            double th = Math.sqrt(thSquared);
+            double t2 = alignZero(tm + th);
+            if (t2 <= 0) continue;
+            double t1 = alignZero(tm - th);
+            double t = t1 > 0 ? t1 : t2;
+            if (t < best) {
+                best = t;
+                closest = k;
+            }
+        }
+        distance[0] = best;
+        return closest;
+    }
+
+    /**
+     * Finds the closest triangle of a batch, starting from a given index, which the ray hits in front of its head
+     *
+     * @param batch    the batch
+     * @param ray      the ray's head coordinates followed by its direction components
+     * @param from     index of the first tested triangle
+     * @param distance receives the distance of the closest hit along the ray
+     * @return index of the closest triangle, or -1 if the ray misses all the tested triangles
+     */
+    static int closestTriangle(PrimitiveBatch batch, double[] ray, int from, double[] distance) {
+        int closest = -1;
+        double best = Double.POSITIVE_INFINITY;
+        for (int k = from; k < batch.triangles.length; ++k) {
+            double e1x = batch.edge1X[k], e1y = batch.edge1Y[k], e1z = batch.edge1Z[k];
+            double e2x = batch.edge2X[k], e2y = batch.edge2Y[k], e2z = batch.edge2Z[k];
+            // pVec = direction x edge2
+            double px = ray[4] * e2z - ray[5] * e2y;
+            double py = ray[5] * e2x - ray[3] * e2z;
+            double pz = ray[3] * e2y - ray[4] * e2x;
+            double det = e1x * px + e1y * py + e1z * pz;
+            if (isZero(det)) continue;
+            double invDet = 1.0 / det;
+            // tVec = head - vertex
+            double tx = ray[0] - batch.vertexX[k];
+            double ty = ray[1] - batch.vertexY[k];
+            double tz = ray[2] - batch.vertexZ[k];
+            double u = (tx * px + ty * py + tz * pz) * invDet;
+            if (alignZero(u) <= 0) continue;
+            // qVec = tVec x edge1
+            double qx = ty * e1z - tz * e1y;
+            double qy = tz * e1x - tx * e1z;
+            double qz = tx * e1y - ty * e1x;
+            double v = (ray[3] * qx + ray[4] * qy + ray[5] * qz) * invDet;
+            if (alignZero(v) <= 0 || alignZero(u + v - 1) >= 0) continue;
+            double t = (e2x * qx + e2y * qy + e2z * qz) * invDet;
+            if (alignZero(t) <= 0) continue;
+            if (t < best) {
+                best = t;
+                closest = k;
+            }
+        }
+        distance[0] = best;
+        return closest;
+    }
+}
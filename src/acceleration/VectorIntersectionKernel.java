@@ -0,0 +1,121 @@
+package acceleration;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import static acceleration.IntersectionKernel.ZERO_BOUND;
+
+/**
+ * SIMD intersection kernel - tests as many primitives at once as the preferred vector species holds
+ * (4 doubles with AVX2, 8 with AVX-512). The lanes perform the same operations in the same order as
+ * the scalar kernel, so the results are identical. The primitives which do not fill a whole vector
+ * are tested by the scalar kernel.<br>
+ * The class is loaded only when the {@code jdk.incubator.vector} module is available
+ */
+final class VectorIntersectionKernel implements IntersectionKernel {
+    /**
+     * The vector species used by the kernel
+     */
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    /**
+     * Constructs the SIMD kernel
+     */
+    VectorIntersectionKernel() {
+    }
+
+    @Override
+    public int closestSphere(PrimitiveBatch batch, double[] ray, double[] distance) {
+        int closest = -1;
+        double best = Double.POSITIVE_INFINITY;
+        int k = 0;
+        for (; k + SPECIES.length() <= batch.spheres.length; k += SPECIES.length()) {
+            DoubleVector ux = DoubleVector.fromArray(SPECIES, batch.sphereX, k).sub(ray[0]);
+            DoubleVector uy = DoubleVector.fromArray(SPECIES, batch.sphereY, k).sub(ray[1]);
+            DoubleVector uz = DoubleVector.fromArray(SPECIES, batch.sphereZ, k).sub(ray[2]);
+            DoubleVector tm = alignZero(ux.mul(ray[3]).add(uy.mul(ray[4])).add(uz.mul(ray[5])));
+            DoubleVector dSquared = alignZero(ux.mul(ux).add(uy.mul(uy)).add(uz.mul(uz)).sub(tm.mul(tm)));
+            DoubleVector thSquared = alignZero(DoubleVector.fromArray(SPECIES, batch.sphereRadiusSquared, k)
+                    .sub(dSquared));
+            VectorMask<Double> hit = thSquared.compare(VectorOperators.GT, 0);
+            if (!hit.anyTrue()) continue;
+            DoubleVector th = thSquared.sqrt();
+            DoubleVector t2 = alignZero(tm.add(th));
+            DoubleVector t1 = alignZero(tm.sub(th));
+            hit = hit.and(t2.compare(VectorOperators.GT, 0));
+            DoubleVector t = t2.blend(t1, t1.compare(VectorOperators.GT, 0))
+                    .blend(Double.POSITIVE_INFINITY, hit.not());
+            double min = t.reduceLanes(VectorOperators.MIN);
+            if (min < best) {
+                best = min;
+                closest = k + t.compare(VectorOperators.EQ, min).firstTrue();
+            }
+        }
+        int tail = ScalarIntersectionKernel.closestSphere(batch, ray, k, distance);
+        if (tail >= 0 && distance[0] < best) return tail;
+        distance[0] = best;
+        return closest;
+    }
+
+    @Override
+    public int closestTriangle(PrimitiveBatch batch, double[] ray, double[] distance) {
+        int closest = -1;
+        double best = Double.POSITIVE_INFINITY;
+        int k = 0;
+        for (; k + SPECIES.length() <= batch.triangles.length; k += SPECIES.length()) {
+            DoubleVector e1x = DoubleVector.fromArray(SPECIES, batch.edge1X, k);
+            DoubleVector e1y = DoubleVector.fromArray(SPECIES, batch.edge1Y, k);
+            DoubleVector e1z = DoubleVector.fromArray(SPECIES, batch.edge1Z, k);
+            DoubleVector e2x = DoubleVector.fromArray(SPECIES, batch.edge2X, k);
+            DoubleVector e2y = DoubleVector.fromArray(SPECIES, batch.edge2Y, k);
+            DoubleVector e2z = DoubleVector.fromArray(SPECIES, batch.edge2Z, k);
+            // pVec = direction x edge2
+            DoubleVector px = e2z.mul(ray[4]).sub(e2y.mul(ray[5]));
+            DoubleVector py = e2x.mul(ray[5]).sub(e2z.mul(ray[3]));
+            DoubleVector pz = e2y.mul(ray[3]).sub(e2x.mul(ray[4]));
+            DoubleVector det = e1x.mul(px).add(e1y.mul(py)).add(e1z.mul(pz));
+            VectorMask<Double> hit = det.abs().compare(VectorOperators.GE, ZERO_BOUND);
+            if (!hit.anyTrue()) continue;
+            DoubleVector invDet = DoubleVector.broadcast(SPECIES, 1.0).div(det);
+            // tVec = head - vertex
+            DoubleVector tx = DoubleVector.broadcast(SPECIES, ray[0]).sub(DoubleVector.fromArray(SPECIES, batch.vertexX, k));
+            DoubleVector ty = DoubleVector.broadcast(SPECIES, ray[1]).sub(DoubleVector.fromArray(SPECIES, batch.vertexY, k));
+            DoubleVector tz = DoubleVector.broadcast(SPECIES, ray[2]).sub(DoubleVector.fromArray(SPECIES, batch.vertexZ, k));
+            DoubleVector u = tx.mul(px).add(ty.mul(py)).add(tz.mul(pz)).mul(invDet);
+            hit = hit.and(alignZero(u).compare(VectorOperators.GT, 0));
+            if (!hit.anyTrue()) continue;
+            // qVec = tVec x edge1
+            DoubleVector qx = ty.mul(e1z).sub(tz.mul(e1y));
+            DoubleVector qy = tz.mul(e1x).sub(tx.mul(e1z));
+            DoubleVector qz = tx.mul(e1y).sub(ty.mul(e1x));
+            DoubleVector v = qx.mul(ray[3]).add(qy.mul(ray[4])).add(qz.mul(ray[5])).mul(invDet);
+            hit = hit.and(alignZero(v).compare(VectorOperators.GT, 0))
+                    .and(alignZero(u.add(v).sub(1)).compare(VectorOperators.LT, 0));
+            DoubleVector t = e2x.mul(qx).add(e2y.mul(qy)).add(e2z.mul(qz)).mul(invDet);
+            hit = hit.and(alignZero(t).compare(VectorOperators.GT, 0));
+            if (!hit.anyTrue()) continue;
+            t = t.blend(Double.POSITIVE_INFINITY, hit.not());
+            double min = t.reduceLanes(VectorOperators.MIN);
+            if (min < best) {
+                best = min;
+                closest = k + t.compare(VectorOperators.EQ, min).firstTrue();
+            }
+        }
+        int tail = ScalarIntersectionKernel.closestTriangle(batch, ray, k, distance);
+        if (tail >= 0 && distance[0] < best) return tail;
+        distance[0] = best;
+        return closest;
+    }
+
+    /**
+     * Rounds the lanes which are almost zero to zero, as {@link primitives.Util#alignZero(double)}
+     *
+     * @param vector the values
+     * @return the values with the almost zero lanes set to zero
+     */
+    private static DoubleVector alignZero(DoubleVector vector) {
+        return vector.blend(0.0, vector.abs().compare(VectorOperators.LT, ZERO_BOUND));
+    }
+}
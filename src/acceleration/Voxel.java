@@ -14,6 +14,11 @@ public class Voxel {
      */
     private final List<Intersectable> geometries = new ArrayList<>();
 
+    /**
+     * The geometries prepared for the intersection kernels, built on the first use
+     */
+    private volatile PrimitiveBatch batch = null;
+
     /**
      * Default constructor for Voxel.
      * Initializes an empty voxel with no geometries.
@@ -33,6 +38,7 @@ public class Voxel {
     public Voxel addGeometry(Intersectable geom) {
         if (geom == null) throw new IllegalArgumentException("Cannot add null geometry to voxel");
         geometries.add(geom);
+        batch = null;
         return this;
     }
 
@@ -45,6 +51,19 @@ public class Voxel {
         return Collections.unmodifiableList(geometries);
     }
 
+    /**
+     * Gets the geometries of this voxel prepared for the intersection kernels.
+     * Racing threads may prepare the batch twice, which gives equal batches
+     *
+     * @param grid the grid of the voxel, which gives the geometries' slots
+     * @return the batch of the geometries
+     */
+    PrimitiveBatch getBatch(RegularGrid grid) {
+        PrimitiveBatch current = batch;
+        if (current == null) batch = current = new PrimitiveBatch(geometries, grid);
+        return current;
+    }
+
     /**
      * Indicates whether this voxel is empty (contains no geometries).
      *
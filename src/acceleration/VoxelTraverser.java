@@ -1,5 +1,7 @@
 package acceleration;
 
+import geometries.BoundingBox;
+import geometries.Geometry;
 import geometries.Intersectable;
 import primitives.*;
 import primitives.Vector;
@@ -14,6 +16,21 @@ import static geometries.Intersectable.Intersection;
  */
 public class VoxelTraverser {
 
+    /**
+     * Smallest direction component along the packet's slicing axis which keeps the packet coherent
+     */
+    private static final double MIN_SLICING_COMPONENT = 1e-10;
+
+    /**
+     * Tolerance of the packet's slice footprint in voxels, so rays on a voxel boundary do not miss the voxel
+     */
+    private static final double FOOTPRINT_TOLERANCE = 1e-9;
+
+    /**
+     * The kernel which intersects a ray with the spheres and the triangles of a voxel
+     */
+    private static final IntersectionKernel KERNEL = IntersectionKernel.select();
+
     /**
      * The regular grid used for voxel traversal.
      */
@@ -24,6 +41,17 @@ public class VoxelTraverser {
      */
     private final Set<Intersectable> testedGeometries;
 
+    /**
+     * Stamp of the closest intersection traversal in which each geometry slot of the grid
+     * (see {@link RegularGrid#geometrySlot(Intersectable)}) was tested
+     */
+    private final int[] testedStamps;
+
+    /**
+     * Stamp of the current closest intersection traversal, so the tested slots need no clearing
+     */
+    private int stamp = 0;
+
     /**
      * Constructs a voxel traverser for the specified regular grid.
      *
@@ -33,6 +61,7 @@ public class VoxelTraverser {
         if (grid == null) throw new IllegalArgumentException("Grid cannot be null");
         this.grid = grid;
         this.testedGeometries = new HashSet<>();
+        this.testedStamps = new int[grid.geometryCount()];
     }
 
     /**
@@ -59,6 +88,37 @@ public class VoxelTraverser {
         }
     }
 
+    /**
+     * Finds the closest intersections of a packet of coherent rays, e.g. the primary rays of a block of pixels.
+     * The rays share an origin and are traversed together slice by slice along their dominant axis: the
+     * voxels of each slice are taken from the footprint of the packet's bounding frustum, every geometry is
+     * visited once for the whole packet and skipped if its bounding box is outside the frustum, and a ray
+     * stops taking part once its closest hit is in front of the current slice.<br>
+     * A diverged packet (different origins, or a ray goes against the others along their dominant axis) is
+     * traced ray by ray
+     *
+     * @param rays the rays of the packet
+     * @return the closest intersection of each ray (null where there is none)
+     */
+    public Intersection[] findClosestIntersections(Ray[] rays) {
+        int axis = slicingAxis(rays);
+        if (axis < 0) {
+            Intersection[] closest = new Intersection[rays.length];
+            for (int r = 0; r < rays.length; ++r) closest[r] = findClosestIntersection(rays[r]);
+            return closest;
+        }
+
+        Intersection[] closest = new Intersection[rays.length];
+        double[] distances = new double[rays.length];
+        Arrays.fill(distances, Double.MAX_VALUE);
+        if (grid.hasInfiniteGeometries)
+            for (Intersectable geometry : grid.getInfiniteGeometries())
+                for (int r = 0; r < rays.length; ++r)
+                    testClosest(geometry, rays[r], r, closest, distances);
+        if (grid.hasFiniteGeometries) traversePacket(rays, axis, closest, distances);
+        return closest;
+    }
+
     /**
      * Finds the closest intersection with infinite geometries only
      *
@@ -94,8 +154,11 @@ public class VoxelTraverser {
      * @return The closest intersection with voxel geometries, or null if none
      */
     private Intersection findClosestVoxelIntersection(Ray ray) {
-        testedGeometries.clear();
         if (!grid.hasFiniteGeometries) return null;
+        if (++stamp == 0) {
+            Arrays.fill(testedStamps, 0);
+            stamp = 1;
+        }
 
         // Calculate ray entry point into scene bounds
         Point entryPoint = grid.getSceneBounds().getRayEntryPoint(ray);
@@ -103,6 +166,7 @@ public class VoxelTraverser {
 
         // Initialize 3D-DDA variables
         DDAState ddaState = initializeDDA(ray, entryPoint);
+        double[] components = PrimitiveBatch.components(ray);
 
         Intersection closest = null;
         double minDistance = Double.MAX_VALUE;
@@ -112,7 +176,7 @@ public class VoxelTraverser {
         while (isValidVoxel(ddaState.currentVoxel, resolution)) {
 
             // Test geometries in current voxel
-            Intersection voxelClosest = castRayToClosestFiniteObjects(ddaState.currentVoxel, ray, minDistance);
+            Intersection voxelClosest = castRayToClosestFiniteObjects(ddaState.currentVoxel, ray, components, minDistance);
             if (voxelClosest != null) {
                 double distance = voxelClosest.point.distance(ray.getHead());
                 if (distance < minDistance) {
@@ -223,19 +287,26 @@ public class VoxelTraverser {
      *
      * @param voxelCoords        The grid coordinates of the voxel.
      * @param ray                The ray to test for intersections.
+     * @param components         The ray's components for the intersection kernel.
      * @param currentMinDistance The current minimum distance to beat.
      * @return The closest intersection, or null if none exist.
      */
-    private Intersection castRayToClosestFiniteObjects(int[] voxelCoords, Ray ray, double currentMinDistance) {
+    private Intersection castRayToClosestFiniteObjects(int[] voxelCoords, Ray ray, double[] components,
+                                                       double currentMinDistance) {
         Optional<Voxel> voxelOpt = grid.getVoxel(voxelCoords[0], voxelCoords[1], voxelCoords[2]);
         if (voxelOpt.isEmpty()) return null;
 
-        Intersection closest = null;
-        double minDistance = currentMinDistance;
+        // spheres and triangles are tested all at once by the kernel, the rest one by one
+        PrimitiveBatch batch = voxelOpt.get().getBatch(grid);
+        Intersection closest = markTested(batch.kernelSlots)
+                ? batch.findClosestIntersection(ray, components, KERNEL, currentMinDistance)
+                : null;
+        double minDistance = closest == null ? currentMinDistance : closest.point.distance(ray.getHead());
 
-        for (Intersectable geometry : voxelOpt.get().getGeometries()) {
-            if (testedGeometries.contains(geometry)) continue;
-            testedGeometries.add(geometry);
+        for (int k = 0; k < batch.others.size(); ++k) {
+            if (testedStamps[batch.otherSlots[k]] == stamp) continue;
+            testedStamps[batch.otherSlots[k]] = stamp;
+            Intersectable geometry = batch.others.get(k);
 
             List<Intersection> geoIntersections = geometry.calculateIntersections(ray);
             if (geoIntersections != null) {
@@ -252,6 +323,257 @@ public class VoxelTraverser {
         return closest;
     }
 
+    /**
+     * Marks the geometry slots of a voxel's kernel primitives as tested in the current traversal.
+     * The kernel tests all the primitives of a batch together, so a batch is skipped only when all
+     * its primitives have been tested in the voxels before it (e.g. the neighbouring voxels of a large triangle)
+     *
+     * @param slots the grid slots of the primitives
+     * @return true if any of the primitives has not been tested yet
+     */
+    private boolean markTested(int[] slots) {
+        boolean untested = false;
+        for (int slot : slots)
+            if (testedStamps[slot] != stamp) {
+                testedStamps[slot] = stamp;
+                untested = true;
+            }
+        return untested;
+    }
+
+    /**
+     * Chooses the axis along which a packet is traversed slice by slice - the dominant axis of the
+     * packet's directions, where all the rays must go the same way
+     *
+     * @param rays the rays of the packet
+     * @return the axis index, or -1 if the packet is not coherent
+     */
+    private int slicingAxis(Ray[] rays) {
+        if (rays.length < 2) return -1;
+        Point origin = rays[0].getHead();
+        double[] sum = new double[3];
+        for (Ray ray : rays) {
+            if (!ray.getHead().equals(origin)) return -1;
+            Vector direction = ray.getDirection();
+            sum[0] += direction.getX();
+            sum[1] += direction.getY();
+            sum[2] += direction.getZ();
+        }
+        int axis = 0;
+        if (Math.abs(sum[1]) > Math.abs(sum[axis])) axis = 1;
+        if (Math.abs(sum[2]) > Math.abs(sum[axis])) axis = 2;
+        for (Ray ray : rays) {
+            double component = component(ray.getDirection(), axis);
+            if (Math.abs(component) < MIN_SLICING_COMPONENT || (component > 0) != (sum[axis] > 0)) return -1;
+        }
+        return axis;
+    }
+
+    /**
+     * Traverses the grid with a coherent packet slice by slice along the slicing axis.
+     * The packet's frustum is bounded by the minimal and maximal slopes of its rays relative
+     * to the slicing axis, and its footprint in a slice is the range of voxels it covers there
+     *
+     * @param rays      the rays of the packet
+     * @param axis      the slicing axis
+     * @param closest   receives the closest intersection of each ray
+     * @param distances the distance of each ray's closest intersection so far
+     */
+    private void traversePacket(Ray[] rays, int axis, Intersection[] closest, double[] distances) {
+        testedGeometries.clear();
+        int u = (axis + 1) % 3;
+        int v = (axis + 2) % 3;
+        BoundingBox bounds = grid.getSceneBounds();
+        double[] min = {bounds.min().getX(), bounds.min().getY(), bounds.min().getZ()};
+        double[] max = {bounds.max().getX(), bounds.max().getY(), bounds.max().getZ()};
+        Point head = rays[0].getHead();
+        double[] origin = {head.getX(), head.getY(), head.getZ()};
+        double sign = component(rays[0].getDirection(), axis) > 0 ? 1 : -1;
+
+        // the frustum slopes and the range of the slicing axis where the rays are inside the scene bounds
+        double uMinSlope = Double.MAX_VALUE, uMaxSlope = -Double.MAX_VALUE;
+        double vMinSlope = Double.MAX_VALUE, vMaxSlope = -Double.MAX_VALUE;
+        double near = Double.MAX_VALUE, far = -Double.MAX_VALUE;
+        boolean[] active = new boolean[rays.length];
+        int activeCount = 0;
+        for (int r = 0; r < rays.length; ++r) {
+            Vector direction = rays[r].getDirection();
+            double d = component(direction, axis);
+            double uSlope = component(direction, u) / d;
+            double vSlope = component(direction, v) / d;
+            uMinSlope = Math.min(uMinSlope, uSlope);
+            uMaxSlope = Math.max(uMaxSlope, uSlope);
+            vMinSlope = Math.min(vMinSlope, vSlope);
+            vMaxSlope = Math.max(vMaxSlope, vSlope);
+
+            double tEntry = 0;
+            double tExit = Double.MAX_VALUE;
+            for (int a = 0; a < 3 && tEntry <= tExit; ++a) {
+                double da = component(direction, a);
+                if (Math.abs(da) < BoundingBox.EPSILON) {
+                    if (origin[a] < min[a] || origin[a] > max[a]) tExit = -1;
+                    continue;
+                }
+                double t1 = (min[a] - origin[a]) / da;
+                double t2 = (max[a] - origin[a]) / da;
+                tEntry = Math.max(tEntry, Math.min(t1, t2));
+                tExit = Math.min(tExit, Math.max(t1, t2));
+            }
+            if (tEntry > tExit) continue;
+            active[r] = true;
+            ++activeCount;
+            near = Math.min(near, tEntry * d * sign);
+            far = Math.max(far, tExit * d * sign);
+        }
+        if (activeCount == 0) return;
+
+        int[] resolution = grid.getResolution();
+        double[] voxelSize = grid.getVoxelSize();
+        int first = sliceOf(origin[axis] + sign * near, min[axis], voxelSize[axis], resolution[axis]);
+        int last = sliceOf(origin[axis] + sign * far, min[axis], voxelSize[axis], resolution[axis]);
+        int[] voxel = new int[3];
+        int[] uRange = new int[2];
+        int[] vRange = new int[2];
+        for (int slice = first; activeCount > 0; slice += (int) sign) {
+            // distances along the slicing axis from the origin to the slice's near and far planes
+            double plane0 = min[axis] + (sign > 0 ? slice : slice + 1) * voxelSize[axis];
+            double plane1 = plane0 + sign * voxelSize[axis];
+            double k0 = Math.max(0, (plane0 - origin[axis]) * sign) * sign;
+            double k1 = (plane1 - origin[axis]);
+            if (k1 * sign > 0) {
+                // the rays whose closest hit is in front of the slice are done
+                for (int r = 0; r < rays.length; ++r)
+                    if (active[r] && distances[r] < k0 / component(rays[r].getDirection(), axis)) {
+                        active[r] = false;
+                        --activeCount;
+                    }
+                if (activeCount == 0) break;
+
+                footprint(Math.min(Math.min(uMinSlope * k0, uMinSlope * k1), Math.min(uMaxSlope * k0, uMaxSlope * k1)),
+                        Math.max(Math.max(uMinSlope * k0, uMinSlope * k1), Math.max(uMaxSlope * k0, uMaxSlope * k1)),
+                        origin[u] - min[u], voxelSize[u], resolution[u], uRange);
+                footprint(Math.min(Math.min(vMinSlope * k0, vMinSlope * k1), Math.min(vMaxSlope * k0, vMaxSlope * k1)),
+                        Math.max(Math.max(vMinSlope * k0, vMinSlope * k1), Math.max(vMaxSlope * k0, vMaxSlope * k1)),
+                        origin[v] - min[v], voxelSize[v], resolution[v], vRange);
+                voxel[axis] = slice;
+                for (int a = uRange[0]; a <= uRange[1]; ++a)
+                    for (int b = vRange[0]; b <= vRange[1]; ++b) {
+                        voxel[u] = a;
+                        voxel[v] = b;
+                        Optional<Voxel> voxelOpt = grid.getVoxel(voxel[0], voxel[1], voxel[2]);
+                        if (voxelOpt.isEmpty()) continue;
+                        for (Intersectable geometry : voxelOpt.get().getGeometries()) {
+                            if (!testedGeometries.add(geometry)) continue;
+                            if (geometry instanceof Geometry finite && finite.getBoundingBox() != null
+                                    && isOutsideFrustum(finite.getBoundingBox(), origin, axis, sign,
+                                    uMinSlope, uMaxSlope, vMinSlope, vMaxSlope))
+                                continue;
+                            for (int r = 0; r < rays.length; ++r)
+                                if (active[r]) testClosest(geometry, rays[r], r, closest, distances);
+                        }
+                    }
+            }
+            if (slice == last) break;
+        }
+    }
+
+    /**
+     * Checks whether a bounding box is entirely outside the frustum of a packet, i.e. entirely
+     * on the outer side of one of the frustum's four side planes or behind the origin
+     *
+     * @param box       the bounding box
+     * @param origin    the common origin of the packet's rays
+     * @param axis      the slicing axis
+     * @param sign      the direction of the rays along the slicing axis
+     * @param uMinSlope minimal slope of the rays along the first side axis
+     * @param uMaxSlope maximal slope of the rays along the first side axis
+     * @param vMinSlope minimal slope of the rays along the second side axis
+     * @param vMaxSlope maximal slope of the rays along the second side axis
+     * @return true if no ray of the packet can hit the box
+     */
+    private boolean isOutsideFrustum(BoundingBox box, double[] origin, int axis, double sign,
+                                     double uMinSlope, double uMaxSlope, double vMinSlope, double vMaxSlope) {
+        int u = (axis + 1) % 3;
+        int v = (axis + 2) % 3;
+        double[] min = {box.min().getX(), box.min().getY(), box.min().getZ()};
+        double[] max = {box.max().getX(), box.max().getY(), box.max().getZ()};
+        // the part of the box's range along the slicing axis in front of the origin
+        double k0 = min[axis] - origin[axis];
+        double k1 = max[axis] - origin[axis];
+        if (sign > 0) k0 = Math.max(k0, 0);
+        else k1 = Math.min(k1, 0);
+        if (k0 > k1) return true;
+        return min[u] - origin[u] > Math.max(Math.max(uMinSlope * k0, uMinSlope * k1), Math.max(uMaxSlope * k0, uMaxSlope * k1))
+                || max[u] - origin[u] < Math.min(Math.min(uMinSlope * k0, uMinSlope * k1), Math.min(uMaxSlope * k0, uMaxSlope * k1))
+                || min[v] - origin[v] > Math.max(Math.max(vMinSlope * k0, vMinSlope * k1), Math.max(vMaxSlope * k0, vMaxSlope * k1))
+                || max[v] - origin[v] < Math.min(Math.min(vMinSlope * k0, vMinSlope * k1), Math.min(vMaxSlope * k0, vMaxSlope * k1));
+    }
+
+    /**
+     * Intersects a geometry with one ray of a packet and keeps the ray's closest intersection
+     *
+     * @param geometry  the geometry to intersect
+     * @param ray       the ray
+     * @param r         index of the ray in the packet
+     * @param closest   the closest intersection of each ray
+     * @param distances the distance of each ray's closest intersection
+     */
+    private void testClosest(Intersectable geometry, Ray ray, int r, Intersection[] closest, double[] distances) {
+        List<Intersection> geoIntersections = geometry.calculateIntersections(ray);
+        if (geoIntersections == null) return;
+        for (Intersection intersection : geoIntersections) {
+            double distance = intersection.point.distance(ray.getHead());
+            if (distance < distances[r]) {
+                distances[r] = distance;
+                closest[r] = intersection;
+            }
+        }
+    }
+
+    /**
+     * Calculates the index of the grid slice which contains a coordinate, clamped into the grid
+     *
+     * @param coordinate the coordinate along an axis
+     * @param min        the scene bounds minimum along the axis
+     * @param voxelSize  the voxel size along the axis
+     * @param resolution the grid resolution along the axis
+     * @return the slice index
+     */
+    private static int sliceOf(double coordinate, double min, double voxelSize, int resolution) {
+        return Math.max(0, Math.min(resolution - 1, (int) Math.floor((coordinate - min) / voxelSize)));
+    }
+
+    /**
+     * Calculates the range of voxels which a packet's footprint covers along a side axis of a slice,
+     * widened by the footprint tolerance and clamped into the grid (the range is empty if it is out of the grid)
+     *
+     * @param low        the lower bound of the footprint relative to the origin
+     * @param high       the upper bound of the footprint relative to the origin
+     * @param origin     the origin relative to the scene bounds minimum
+     * @param voxelSize  the voxel size along the axis
+     * @param resolution the grid resolution along the axis
+     * @param range      receives the first and the last voxel index
+     */
+    private static void footprint(double low, double high, double origin, double voxelSize, int resolution, int[] range) {
+        range[0] = Math.max(0, (int) Math.floor((origin + low) / voxelSize - FOOTPRINT_TOLERANCE));
+        range[1] = Math.min(resolution - 1, (int) Math.floor((origin + high) / voxelSize + FOOTPRINT_TOLERANCE));
+    }
+
+    /**
+     * Gets a vector's component along an axis
+     *
+     * @param vector the vector
+     * @param axis   the axis index (0 - x, 1 - y, 2 - z)
+     * @return the component
+     */
+    private static double component(Vector vector, int axis) {
+        return switch (axis) {
+            case 0 -> vector.getX();
+            case 1 -> vector.getY();
+            default -> vector.getZ();
+        };
+    }
+
     /**
      * Initializes the 3D-DDA traversal state for a ray.
      *
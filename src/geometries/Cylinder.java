@@ -63,4 +63,10 @@ public class Cylinder extends Tube {
     protected List<Intersection> calculateIntersectionsHelper(Ray ray, double maxDistance) {
         return null;
     }
+
+    @Override
+    public void describe(StringBuilder description) {
+        super.describe(description);
+        description.append(',').append(height);
+    }
 }
@@ -131,4 +131,11 @@ public class Geometries extends Intersectable {
         }
         return infiniteGeometries;
     }
+
+    @Override
+    public void describe(StringBuilder description) {
+        description.append('[');
+        for (Intersectable intersectable : geometries) intersectable.describe(description);
+        description.append(']');
+    }
 }
@@ -78,4 +78,12 @@ abstract public class Geometry extends Intersectable {
      * @return A string describing the geometry.
      */
     public abstract BoundingBox getBoundingBox();
+
+    @Override
+    public void describe(StringBuilder description) {
+        description.append(getClass().getName()).append(emission)
+                .append(material.kA).append(material.kD).append(material.kS).append(material.kT).append(material.kR)
+                .append(material.nShininess).append(',').append(material.ior).append(',')
+                .append(material.roughness).append(',').append(material.reflectionRoughness);
+    }
 }
@@ -131,4 +131,12 @@ public abstract class Intersectable {
      * @return A list of intersections, or null if no intersections exist.
      */
     protected abstract List<Intersection> calculateIntersectionsHelper(Ray ray, double maxDistance);
+
+    /**
+     * Appends the parameters which define the intersectable - its shape and, for a geometry, its emission
+     * and material - to a description, which recognizes the same scene (e.g. by the render checkpoints)
+     *
+     * @param description the description to append the parameters to
+     */
+    public abstract void describe(StringBuilder description);
 }
@@ -80,4 +80,10 @@ public class Plane extends Geometry {
     public BoundingBox getBoundingBox() {
         return null;
     }
+
+    @Override
+    public void describe(StringBuilder description) {
+        super.describe(description);
+        description.append(q).append(normal);
+    }
 }
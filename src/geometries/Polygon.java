@@ -86,6 +86,15 @@ public class Polygon extends Geometry {
         }
     }
 
+    /**
+     * Gets the vertices of the polygon in their edge path order
+     *
+     * @return unmodifiable list of the vertices
+     */
+    public List<Point> getVertices() {
+        return vertices;
+    }
+
     /**
      * Calculates the normal vector to the polygon at a given point.
      *
@@ -108,4 +117,10 @@ public class Polygon extends Geometry {
     protected List<Intersection> calculateIntersectionsHelper(Ray ray, double maxDistance) {
         return this.plane.calculateIntersections(ray, maxDistance);
     }
+
+    @Override
+    public void describe(StringBuilder description) {
+        super.describe(description);
+        for (Point vertex : vertices) description.append(vertex);
+    }
 }
@@ -26,4 +26,19 @@ abstract public class RadialGeometry extends Geometry {
         this.radius = radius;
         this.radiusSquared = radius * radius;
     }
+
+    /**
+     * Gets the radius of the geometry
+     *
+     * @return the radius
+     */
+    public double getRadius() {
+        return radius;
+    }
+
+    @Override
+    public void describe(StringBuilder description) {
+        super.describe(description);
+        description.append(',').append(radius);
+    }
 }
@@ -27,6 +27,15 @@ public class Sphere extends RadialGeometry {
         this.center = center;
     }
 
+    /**
+     * Gets the center point of the sphere
+     *
+     * @return the center point
+     */
+    public Point getCenter() {
+        return center;
+    }
+
     /**
      * Calculates the normal vector to the sphere at a given point.
      *
@@ -77,4 +86,10 @@ public class Sphere extends RadialGeometry {
                 new Point(maxX, maxY, maxZ)
         );
     }
+
+    @Override
+    public void describe(StringBuilder description) {
+        super.describe(description);
+        description.append(center);
+    }
 }
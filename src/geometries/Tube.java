@@ -49,4 +49,10 @@ public class Tube extends RadialGeometry {
     protected List<Intersection> calculateIntersectionsHelper(Ray ray, double maxDistance) {
         return null;
     }
+
+    @Override
+    public void describe(StringBuilder description) {
+        super.describe(description);
+        description.append(axis);
+    }
 }
@@ -0,0 +1,88 @@
+package lighting;
+
+import primitives.*;
+
+/**
+ * Represents a spherical area light source in the scene.
+ * The light is emitted by a sphere around its position - its intensity, direction and distance are
+ * those of the sphere's center (as of a {@link PointLight}), while the shadows it casts are soft:
+ * a point is fully lit only if it sees the whole emitter, which is sampled on the disk of the sphere
+ * that faces the point.
+ */
+public class AreaLight extends PointLight {
+    /**
+     * The radius of the emitting sphere
+     */
+    private final double radius;
+
+    /**
+     * Constructs an area light with the given intensity, position and radius.
+     *
+     * @param intensity the color intensity of the light
+     * @param position  the center of the emitting sphere
+     * @param radius    the radius of the emitting sphere
+     * @throws IllegalArgumentException if the radius is not positive
+     */
+    public AreaLight(Color intensity, Point position, double radius) {
+        super(intensity, position);
+        if (radius <= 0) throw new IllegalArgumentException("Area light radius must be positive");
+        this.radius = radius;
+    }
+
+    /**
+     * Returns the center of the emitting sphere.
+     *
+     * @return The center of the light.
+     */
+    public Point getPosition() {
+        return position;
+    }
+
+    /**
+     * Returns the radius of the emitting sphere.
+     *
+     * @return The radius of the light.
+     */
+    public double getRadius() {
+        return radius;
+    }
+
+    /**
+     * Sets the constant attenuation coefficient.
+     *
+     * @param kC The constant attenuation coefficient.
+     * @return The current instance of AreaLight.
+     */
+    @Override
+    public AreaLight setKc(double kC) {
+        return (AreaLight) super.setKc(kC);
+    }
+
+    /**
+     * Sets the linear attenuation coefficient.
+     *
+     * @param kL The linear attenuation coefficient.
+     * @return The current instance of AreaLight.
+     */
+    @Override
+    public AreaLight setKl(double kL) {
+        return (AreaLight) super.setKl(kL);
+    }
+
+    /**
+     * Sets the quadratic attenuation coefficient.
+     *
+     * @param kQ The quadratic attenuation coefficient.
+     * @return The current instance of AreaLight.
+     */
+    @Override
+    public AreaLight setKq(double kQ) {
+        return (AreaLight) super.setKq(kQ);
+    }
+
+    @Override
+    public void describe(StringBuilder description) {
+        super.describe(description);
+        description.append(',').append(radius);
+    }
+}
@@ -28,6 +28,11 @@ public class DirectionalLight extends Light implements LightSource {
         return intensity;
     }
 
+    @Override
+    public Color getMaxIntensity() {
+        return intensity;
+    }
+
     @Override
     public Vector getL(Point p) {
         return direction;
@@ -38,4 +43,9 @@ public class DirectionalLight extends Light implements LightSource {
         return Double.POSITIVE_INFINITY;
     }
 
+    @Override
+    public void describe(StringBuilder description) {
+        super.describe(description);
+        description.append(direction);
+    }
 }
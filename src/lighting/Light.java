@@ -31,4 +31,13 @@ abstract class Light {
         return intensity;
     }
 
+    /**
+     * Appends the parameters which define the light to a description, which recognizes the same scene
+     * (e.g. by the render checkpoints)
+     *
+     * @param description the description to append the parameters to
+     */
+    public void describe(StringBuilder description) {
+        description.append(getClass().getName()).append(intensity);
+    }
 }
@@ -15,6 +15,13 @@ public interface LightSource {
      */
     Color getIntensity(Point p);
 
+    /**
+     * Returns the highest intensity of the light at any point in space.
+     *
+     * @return The upper bound of {@link #getIntensity(Point)}.
+     */
+    Color getMaxIntensity();
+
     /**
      * Calculates the direction of the light at a given point.
      *
@@ -30,4 +37,12 @@ public interface LightSource {
      * @return The distance from the light source to the point.
      */
     double getDistance(Point point);
+
+    /**
+     * Appends the parameters which define the light to a description, which recognizes the same scene
+     * (e.g. by the render checkpoints)
+     *
+     * @param description the description to append the parameters to
+     */
+    void describe(StringBuilder description);
 }
@@ -53,6 +53,17 @@ public class PointLight extends Light implements LightSource {
         return intensity.scale(attenuationFactor);
     }
 
+    /**
+     * Returns the highest intensity of the light - at its own position, where only the constant
+     * attenuation applies.
+     *
+     * @return The upper bound of the light's intensity at any point.
+     */
+    @Override
+    public Color getMaxIntensity() {
+        return intensity.scale(1d / kC);
+    }
+
     /**
      * Returns the direction of the light from the given point.
      *
@@ -107,4 +118,10 @@ public class PointLight extends Light implements LightSource {
         this.kQ = kQ;
         return this;
     }
+
+    @Override
+    public void describe(StringBuilder description) {
+        super.describe(description);
+        description.append(position).append(',').append(kC).append(',').append(kL).append(',').append(kQ);
+    }
 }
@@ -76,6 +76,26 @@ public class Color {
         return new java.awt.Color(ir > 255 ? 255 : ir, ig > 255 ? 255 : ig, ib > 255 ? 255 : ib);
     }
 
+    /**
+     * Gets the highest component of the color (without limiting it to 255)
+     *
+     * @return the highest of the Red/Green/Blue components
+     */
+    public double maxComponent() {
+        return Math.max(rgb.d1(), Math.max(rgb.d2(), rgb.d3()));
+    }
+
+    /**
+     * Gets the highest absolute difference between the components of this and another color
+     *
+     * @param other the other color
+     * @return the highest of the Red/Green/Blue absolute differences
+     */
+    public double maxDifference(Color other) {
+        return Math.max(Math.abs(rgb.d1() - other.rgb.d1()),
+                Math.max(Math.abs(rgb.d2() - other.rgb.d2()), Math.abs(rgb.d3() - other.rgb.d3())));
+    }
+
     /**
      * Operation of adding this and one or more other colors (by component)
      *
@@ -54,6 +54,12 @@ public class Material {
      */
     public double roughness = 0.0; // Roughness factor for surface texture, default is 0 (smooth)
 
+    /**
+     * Roughness factor of the reflection.
+     * Spreads the mirror reflection into a glossy one (e.g. brushed metal), with 0 being a perfect mirror.
+     */
+    public double reflectionRoughness = 0.0; // default is 0 (mirror)
+
     /**
      * Default constructor for Material.
      */
@@ -202,4 +208,15 @@ public class Material {
         this.roughness = roughness;
         return this;
     }
+
+    /**
+     * Set the roughness factor of the reflection.
+     *
+     * @param reflectionRoughness the roughness factor of the reflection (between 0 and 1)
+     * @return the Material object
+     */
+    public Material setReflectionRoughness(double reflectionRoughness) {
+        this.reflectionRoughness = reflectionRoughness;
+        return this;
+    }
 }
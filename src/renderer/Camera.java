@@ -2,12 +2,24 @@ package renderer;
 
 import acceleration.AccelerationMode;
 import acceleration.RegularGrid;
+import lighting.LightSource;
 import primitives.*;
 import primitives.Vector;
 import sampling.*;
 import scene.Scene;
 
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.IntStream;
 
 import static primitives.Util.*;
@@ -43,7 +55,6 @@ public class Camera implements Cloneable {
         public Builder() {
             camera.targetAreas.put(EffectType.DIFFUSIVE_GLASS, null);
             camera.targetAreas.put(EffectType.DEPTH_OF_FIELD, null);
-            camera.targetAreas.put(EffectType.ANTI_ALIASING, null);
             camera.targetAreas.put(EffectType.SOFT_SHADOW, null);
             camera.targetAreas.put(EffectType.GLOSSY_REFLECTION, null);
         }
@@ -52,6 +63,14 @@ public class Camera implements Cloneable {
          * The camera instance being built
          */
         private final Camera camera = new Camera();
+        /**
+         * The scene of the ray tracer, the ray tracer is created for each built camera
+         */
+        private Scene scene = null;
+        /**
+         * The type of the ray tracer, null if no ray tracer is set
+         */
+        private RayTracerType rayTracerType = null;
 
         /**
          * Sets the location of the camera
@@ -153,14 +172,16 @@ public class Camera implements Cloneable {
         }
 
         /**
-         * Sets the effect type and its configuration for the camera
+         * Sets the effect type and its configuration for the camera.
+         * Anti-aliasing samples the pixels, the other effects sample around the intersections
          *
          * @param type   The type of effect to apply
          * @param config The sampling configuration for the effect
          * @return The builder instance for method chaining
          */
         public Builder setEffect(EffectType type, SamplingConfiguration config) {
-            camera.targetAreas.put(type, SamplerFactory.createSampler(type, config));
+            if (type == EffectType.ANTI_ALIASING) camera.antiAliasing = new AntiAliasingTargetArea(config);
+            else camera.targetAreas.put(type, SamplerFactory.createSampler(type, config));
             return this;
         }
 
@@ -176,32 +197,37 @@ public class Camera implements Cloneable {
         }
 
         /**
-         * Sets the ray that would identify and paint the intersected pixels
+         * Sets the ray that would identify and paint the intersected pixels.
+         * Each built camera gets its own ray tracer of the type, so the ray tracing options of
+         * one camera never leak into another camera of the same builder
          *
          * @param scene the scene of objects
          * @param type  the type of requested ray
          * @return the builder instance
          */
         public Builder setRayTracer(Scene scene, RayTracerType type) {
-            switch (type) {
-                case SIMPLE:
-                    camera.rayTracer = new SimpleRayTracer(scene);
-                    break;
-                case GRID:
-                    camera.rayTracer = new RegularGridRayTracer(scene, camera.regularGrid);
-                    break;
-                case EXTENDED:
-                    camera.rayTracer = new ExtendedRayTracer(scene, camera.targetAreas);
-                    break;
-                case GRID_EXTENDED:
-                    camera.rayTracer = new RegularGridRayTracer(scene, camera.regularGrid, camera.targetAreas);
-                    break;
-                default:
-                    throw new IllegalArgumentException("The type: " + type + " is invalid for the ray tracer");
-            }
+            if (type == null) throw new IllegalArgumentException("The ray tracer type must not be null");
+            this.scene = scene;
+            this.rayTracerType = type;
             return this;
         }
 
+        /**
+         * Creates the ray tracer of a built camera by the set scene and type
+         *
+         * @return the new ray tracer
+         */
+        private RayTracerBase createRayTracer() {
+            if (rayTracerType == null) return new SimpleRayTracer(null);
+            return switch (rayTracerType) {
+                case SIMPLE -> new SimpleRayTracer(scene);
+                case GRID -> new RegularGridRayTracer(scene, camera.regularGrid);
+                case EXTENDED -> new ExtendedRayTracer(scene, camera.targetAreas);
+                case GRID_EXTENDED -> new RegularGridRayTracer(scene, camera.regularGrid, camera.targetAreas);
+                case WAVEFRONT -> new WavefrontRayTracer(scene, camera.regularGrid, camera.targetAreas);
+            };
+        }
+
         /**
          * Set multi-threading <br>
          * Parameter value meaning:
@@ -238,6 +264,223 @@ public class Camera implements Cloneable {
             return this;
         }
 
+        /**
+         * Turns on selective supersampling. Before shading, a visibility pass records the geometry,
+         * normal and depth of every pixel's primary hit; only the pixels whose neighbourhood shows
+         * a discontinuity (a silhouette, a material boundary or a crease) are then supersampled,
+         * while the pixels inside flat areas are shaded by a single ray. It replaces anti-aliasing and ray
+         * packets, so {@link #build()} rejects a camera which has either of them too
+         *
+         * @param config sampling configuration of the discontinuity pixels - the mode defines the
+         *               sample grid and the pattern defines the placement of the samples in its cells
+         * @return builder object itself
+         */
+        public Builder setSelectiveSupersampling(SamplingConfiguration config) {
+            camera.selectiveSampling = config;
+            return this;
+        }
+
+        /**
+         * Streams the rendered image directly into a png file instead of keeping it in memory.<br>
+         * The image is compressed band by band while it is being rendered, so the full image is never
+         * resident in memory. In this mode the image is written by {@link Camera#renderImage()} itself
+         * and {@link Camera#writeToImage(String)} and {@link Camera#printGrid(int, Color)} are not available.
+         *
+         * @param imageName  the name of the png file
+         * @param bandHeight amount of rows in each compressed band
+         * @return builder object itself
+         */
+        public Builder setStreamingOutput(String imageName, int bandHeight) {
+            if (imageName == null || imageName.isBlank())
+                throw new IllegalArgumentException("Streaming output image name must not be empty");
+            if (bandHeight <= 0) throw new IllegalArgumentException("Band height must be positive");
+            camera.streamingImageName = imageName;
+            camera.streamingBandHeight = bandHeight;
+            return this;
+        }
+
+        /**
+         * Enables checkpointing of the render into a memory-mapped file, so a long render survives
+         * restarts and preemption. The image is divided into square tiles and the finished tiles are
+         * flushed to the file periodically. When the render is started again with the same checkpoint
+         * (and the same camera and scene), its finished tiles are restored and only the rest are rendered.
+         * The checkpoint file is deleted when the render is completed. Only {@link Camera#renderImage()}
+         * is checkpointed - the progressive, time-budgeted and distributed renders reject a checkpoint
+         *
+         * @param checkpointName the name of the checkpoint file (in the images directory)
+         * @param tileSize       size of the tile's side in pixels
+         * @param flushInterval  minimal time between two flushes to the disk in seconds
+         * @return builder object itself
+         */
+        public Builder setCheckpoint(String checkpointName, int tileSize, double flushInterval) {
+            return setCheckpoint(checkpointName, tileSize, flushInterval, 0);
+        }
+
+        /**
+         * Enables checkpointing of the render like {@link #setCheckpoint(String, int, double)}, with a version
+         * of the scene. A checkpoint is resumed only by a render of the same camera, resolution, ray tracer,
+         * sampling effects and scene - the parameters of the scene's geometries, materials and lights are a part
+         * of the render's fingerprint. The version is an explicit opt-in for the changes which the parameters
+         * do not show, e.g. an edited behaviour of a geometry class - a new version discards the checkpoint
+         *
+         * @param checkpointName the name of the checkpoint file (in the images directory)
+         * @param tileSize       size of the tile's side in pixels
+         * @param flushInterval  minimal time between two flushes to the disk in seconds
+         * @param sceneVersion   the version of the rendered scene
+         * @return builder object itself
+         */
+        public Builder setCheckpoint(String checkpointName, int tileSize, double flushInterval, long sceneVersion) {
+            if (checkpointName == null || checkpointName.isBlank())
+                throw new IllegalArgumentException("Checkpoint name must not be empty");
+            if (tileSize <= 0) throw new IllegalArgumentException("Tile size must be positive");
+            if (flushInterval < 0) throw new IllegalArgumentException("Flush interval must be non-negative");
+            camera.checkpointName = checkpointName;
+            camera.checkpointTileSize = tileSize;
+            camera.checkpointInterval = flushInterval;
+            camera.sceneVersion = sceneVersion;
+            return this;
+        }
+
+        /**
+         * Traces the primary rays in packets of packetSize x packetSize neighbouring pixels. The rays of a
+         * packet are coherent, so the grid ray tracer traverses the acceleration structure with the whole
+         * packet at once (see {@link acceleration.VoxelTraverser#findClosestIntersections}), other ray tracers
+         * trace the packet's rays one by one. Packets apply to the single ray per pixel renders of
+         * {@link Camera#renderImage()} - {@link #build()} rejects them together with anti-aliasing or
+         * selective supersampling, which sample the pixels one by one
+         *
+         * @param packetSize size of the packet's side in pixels (e.g. 4 or 8), 0 to trace single rays
+         * @return builder object itself
+         */
+        public Builder setRayPackets(int packetSize) {
+            if (packetSize < 0 || packetSize > MAX_PACKET_SIZE)
+                throw new IllegalArgumentException("Packet size must be between 0 and " + MAX_PACKET_SIZE);
+            camera.rayPacketSize = packetSize;
+            return this;
+        }
+
+        /**
+         * Traces the secondary rays (reflection and refraction) of each ray packet breadth-first: every
+         * generation of the packet's secondary rays is sorted by the scene cell of the rays' origins and by
+         * their directions' octants, and then traced in batches, so that rays which travel through the same
+         * parts of the scene are traced together (see {@link RayTracerBase#traceRaysReordered}).
+         * The rendered image is the same up to rounding. Requires ray packets ({@link #setRayPackets(int)})
+         *
+         * @param reorder true to reorder the secondary rays, false to trace them recursively per pixel
+         * @return builder object itself
+         */
+        public Builder setSecondaryRayReordering(boolean reorder) {
+            camera.secondaryRayReordering = reorder;
+            return this;
+        }
+
+        /**
+         * Calculates the colors of the hits iteratively: the reflection and refraction rays are kept on an
+         * explicit work stack of each thread instead of being traced by recursive calls, which saves the
+         * deep call chains (and their allocations) of highly reflective or diffusive glass scenes.
+         * The rendered image is the same up to rounding
+         *
+         * @param iterative true for the iterative calculation, false for the recursive (reference) one
+         * @return builder object itself
+         */
+        public Builder setIterativeColor(boolean iterative) {
+            camera.iterativeColor = iterative;
+            return this;
+        }
+
+        /**
+         * Terminates the reflection and refraction ray paths by the bound of their contribution to the pixel's
+         * 8-bit color - the path's attenuation factor times the highest radiance which the scene's lights,
+         * emissions and background may bring along the rest of the path. A path bounded below half a level
+         * cannot change the pixel and is dropped, a path of a small bound goes on by Russian roulette with
+         * a probability proportional to the bound and is reweighted by that probability, so a surviving path
+         * adds a few levels at most. Deep bounces (e.g. between facing mirrors) are partly skipped, while
+         * the pixels change by rounding only
+         *
+         * @param terminate true to terminate the paths by their contribution, false to trace them up to
+         *                  the fixed recursion depth and attenuation limits
+         * @return builder object itself
+         */
+        public Builder setPathTermination(boolean terminate) {
+            camera.pathTermination = terminate;
+            return this;
+        }
+
+        /**
+         * Samples the diffusive glass and the glossy reflections adaptively: the samples of a rough hit are traced in small
+         * batches, and the sampling stops once the 95% confidence interval of their mean contribution to the
+         * pixel is narrower than the threshold. At least a quarter of the samples is taken, so hits in front
+         * of a uniform background take a quarter of the samples, while the sampling mode still caps the
+         * amount of samples. A rarely hit feature behind the glass may be missed in some pixels. Requires the recursive
+         * color calculation (not {@link #setIterativeColor(boolean)}, {@link #setSecondaryRayReordering(boolean)}
+         * or the wavefront ray tracer), which traces the samples of a hit one after another
+         *
+         * @param threshold half-width of the confidence interval in 8-bit color units, 0 to always take
+         *                  all the samples
+         * @return builder object itself
+         */
+        public Builder setAdaptiveSampling(double threshold) {
+            if (threshold < 0) throw new IllegalArgumentException("Adaptive sampling threshold must not be negative");
+            camera.adaptiveThreshold = threshold;
+            return this;
+        }
+
+        /**
+         * Sets the order of the pixels handed out to the rendering threads. With a space-filling curve
+         * (Morton or Hilbert) the image is divided into square tiles, each thread takes whole tiles in
+         * the curve order and walks the tile's pixels in the same order, so consecutive rays of a thread
+         * reuse the cached voxels and geometry data. The rendered image does not change.
+         * The order applies to rendering without threads and with raw threads (not to parallel streams)
+         *
+         * @param order    the order of the tiles and of the pixels inside each tile
+         * @param tileSize size of the tile's side in pixels, a power of 2
+         * @return builder object itself
+         */
+        public Builder setPixelOrder(PixelOrder order, int tileSize) {
+            if (order == null) throw new IllegalArgumentException("Pixel order must not be null");
+            if (tileSize <= 0 || Integer.bitCount(tileSize) != 1)
+                throw new IllegalArgumentException("Tile size must be a power of 2");
+            camera.pixelOrder = order;
+            camera.pixelOrderTileSize = tileSize;
+            return this;
+        }
+
+        /**
+         * Restricts the render to a region of interest - only the pixels of the rectangle are traced,
+         * while the rays keep the geometry of the full frame. The output image is the cropped region
+         *
+         * @param x0     column of the region's top left pixel
+         * @param y0     row of the region's top left pixel
+         * @param width  amount of pixel columns in the region
+         * @param height amount of pixel rows in the region
+         * @return builder object itself
+         */
+        public Builder setRegionOfInterest(int x0, int y0, int width, int height) {
+            return setRegionOfInterest(x0, y0, width, height, null);
+        }
+
+        /**
+         * Restricts the render to a region of interest - only the pixels of the rectangle are traced,
+         * while the rays keep the geometry of the full frame. The region is composited onto a previous
+         * full render, e.g. to iterate quickly on a local fix of a large image
+         *
+         * @param x0            column of the region's top left pixel
+         * @param y0            row of the region's top left pixel
+         * @param width         amount of pixel columns in the region
+         * @param height        amount of pixel rows in the region
+         * @param baseImageName the name of the png file of the previous full render (in the images directory),
+         *                      null for a cropped output image
+         * @return builder object itself
+         */
+        public Builder setRegionOfInterest(int x0, int y0, int width, int height, String baseImageName) {
+            if (x0 < 0 || y0 < 0) throw new IllegalArgumentException("Region of interest must start inside the image");
+            if (width <= 0 || height <= 0)
+                throw new IllegalArgumentException("Region of interest width and height must be positive");
+            camera.regionOfInterest = new Tile(x0, y0, width, height);
+            camera.baseImageName = baseImageName;
+            return this;
+        }
+
         /**
          * Builds and validates the camera instance
          *
@@ -276,11 +519,39 @@ public class Camera implements Cloneable {
                 throw new IllegalArgumentException("The resolution (nX) should have a positive non zero value");
             if (camera.nY <= 0)
                 throw new IllegalArgumentException("The resolution (nY) should have a positive non zero value");
-            camera.imageWriter = new ImageWriter(camera.nX, camera.nY);
+            Tile roi = camera.regionOfInterest;
+            if (roi != null) {
+                if (roi.x0() + roi.width() > camera.nX || roi.y0() + roi.height() > camera.nY)
+                    throw new IllegalArgumentException("Region of interest exceeds the image resolution");
+                if (camera.checkpointName != null)
+                    throw new IllegalArgumentException("Region of interest render cannot be checkpointed");
+                if (camera.baseImageName != null && camera.streamingImageName != null)
+                    throw new IllegalArgumentException("Region of interest composite cannot be streamed");
+            }
+            boolean antiAliasing = camera.antiAliasing != null;
+            if (camera.selectiveSampling != null && antiAliasing)
+                throw new IllegalArgumentException("Selective supersampling and anti-aliasing cannot be combined");
+            if (camera.rayPacketSize > 0 && (camera.selectiveSampling != null || antiAliasing))
+                throw new IllegalArgumentException("Ray packets cannot be combined with per-pixel sampling");
+            if (camera.secondaryRayReordering && camera.rayPacketSize == 0)
+                throw new IllegalArgumentException("Secondary ray reordering requires ray packets");
+            if (camera.adaptiveThreshold > 0 && (camera.iterativeColor || camera.secondaryRayReordering
+                    || rayTracerType == RayTracerType.WAVEFRONT))
+                throw new IllegalArgumentException("Adaptive sampling requires the recursive color calculation");
+            if (camera.streamingImageName != null) camera.imageWriter = null;
+            else if (roi == null) camera.imageWriter = new ImageWriter(camera.nX, camera.nY);
+            else if (camera.baseImageName == null) camera.imageWriter = new ImageWriter(roi.width(), roi.height());
+            else camera.imageWriter = ImageWriter.readImage(camera.baseImageName, camera.nX, camera.nY);
             camera.pixelWidth = camera.width / camera.nX;
             camera.pixelHeight = camera.height / camera.nY;
 
-            if (camera.rayTracer == null) camera.rayTracer = new SimpleRayTracer(null);
+            camera.rayTracer = createRayTracer();
+            if (camera.rayTracer instanceof SimpleRayTracer simpleRayTracer) {
+                simpleRayTracer.iterative = camera.iterativeColor;
+                simpleRayTracer.pathTermination = camera.pathTermination;
+            }
+            if (camera.rayTracer instanceof ExtendedRayTracer extendedRayTracer)
+                extendedRayTracer.adaptiveThreshold = camera.adaptiveThreshold;
 
             return camera.clone();
         }
@@ -296,6 +567,40 @@ public class Camera implements Cloneable {
      * Spare threads if trying to use all the cores
      */
     private static final int SPARE_THREADS = 2;
+    /**
+     * Background executor for asynchronous image encoding - uses the spare threads,
+     * its threads are daemons so pending encodings do not keep the JVM alive
+     */
+    private static final ExecutorService IMAGE_ENCODER = Executors.newFixedThreadPool(SPARE_THREADS, task -> {
+        Thread thread = new Thread(task, "image-encoder");
+        thread.setDaemon(true);
+        return thread;
+    });
+    /**
+     * Size of the side of the pixel blocks in the first pass of a progressive render
+     */
+    private static final int PROGRESSIVE_BLOCK = 8;
+    /**
+     * Maximal amount of samples of a pixel in a time-budgeted render
+     */
+    private static final int MAX_BUDGET_SAMPLES = 64;
+    /**
+     * Maximal size of the side of a primary rays packet
+     */
+    private static final int MAX_PACKET_SIZE = 16;
+    /**
+     * Sample index of the random stream of a pixel corner (anti-aliasing), distinct from the pixels' samples
+     */
+    private static final int CORNER_SAMPLE = -1;
+    /**
+     * Sample index of the random stream of a pixel's center sample (anti-aliasing), distinct from the pixels'
+     * refinement samples
+     */
+    private static final int CENTER_SAMPLE = -2;
+    /**
+     * Deadline value of a render without a time budget
+     */
+    private static final long NO_DEADLINE = Long.MIN_VALUE;
     /**
      * Debug print interval in seconds (for progress percentage)<br>
      * if it is zero - there is no progress output
@@ -360,6 +665,120 @@ public class Camera implements Cloneable {
      */
     private ImageWriter imageWriter;
 
+    /**
+     * The name of the image which is streamed into a file during rendering,
+     * null if the image is kept in memory by the image writer
+     */
+    private String streamingImageName = null;
+
+    /**
+     * Amount of rows in each compressed band of the streamed image
+     */
+    private int streamingBandHeight = 0;
+
+    /**
+     * The streaming png writer of the render in progress (streaming output only)
+     */
+    private StreamingPngWriter streamingWriter = null;
+
+    /**
+     * The name of the render checkpoint file, null if checkpointing is disabled
+     */
+    private String checkpointName = null;
+
+    /**
+     * Size of the checkpoint tile's side in pixels
+     */
+    private int checkpointTileSize = 0;
+
+    /**
+     * Minimal time between two checkpoint flushes in seconds
+     */
+    private double checkpointInterval = 0;
+
+    /**
+     * Version of the rendered scene, a part of the checkpoint's render fingerprint
+     */
+    private long sceneVersion = 0;
+
+    /**
+     * The checkpoint of the render in progress (checkpointing only)
+     */
+    private RenderCheckpoint checkpoint = null;
+
+    /**
+     * Colors of the pixel corners of the render in progress, shared by the adaptive anti-aliasing
+     * of neighbouring pixels (anti-aliasing only)
+     */
+    private AtomicReferenceArray<Color> pixelCorners = null;
+
+    /**
+     * Colors of the pixel centers of the render in progress, compared by the adaptive anti-aliasing
+     * of neighbouring pixels (anti-aliasing only)
+     */
+    private AtomicReferenceArray<Color> pixelCenters = null;
+
+    /**
+     * Size of the side of the primary rays packets, 0 if the primary rays are traced one by one
+     */
+    private int rayPacketSize = 0;
+
+    /**
+     * Whether the secondary rays of each ray packet are reordered and traced breadth-first
+     */
+    private boolean secondaryRayReordering = false;
+
+    /**
+     * Whether the colors are calculated iteratively instead of recursively
+     */
+    private boolean iterativeColor = false;
+
+    /**
+     * Whether the secondary ray paths are terminated by their estimated contribution
+     */
+    private boolean pathTermination = false;
+
+    /**
+     * Threshold of the adaptive sampling of the distributed effects, 0 to always take all the samples
+     */
+    private double adaptiveThreshold = 0;
+
+    /**
+     * Order of the pixels handed out to the rendering threads, null for plain scanline order
+     */
+    private PixelOrder pixelOrder = null;
+
+    /**
+     * Size of the side of the pixel order tiles
+     */
+    private int pixelOrderTileSize = 1;
+
+    /**
+     * The region of interest of the render, null for the full frame
+     */
+    private Tile regionOfInterest = null;
+
+    /**
+     * The name of the previous full render which the region of interest is composited onto,
+     * null if the output image is the cropped region
+     */
+    private String baseImageName = null;
+
+    /**
+     * Sampling configuration of the discontinuity pixels, null if selective supersampling is disabled
+     */
+    private SamplingConfiguration selectiveSampling = null;
+
+    /**
+     * The primary hits buffer of the render in progress (selective supersampling only)
+     */
+    private GeometryBuffer geometryBuffer = null;
+
+    /**
+     * The rendered area - the whole image or the region of interest, the pixel corners cache covers it
+     */
+    private Tile renderArea = null;
+
     /**
      * The regular grid used for acceleration.
      */
@@ -381,6 +800,11 @@ public class Camera implements Cloneable {
      */
     private final Map<EffectType, TargetAreaBase> targetAreas = new HashMap<>();
 
+    /**
+     * The adaptive anti-aliasing sampler of the pixels, null if anti-aliasing is off
+     */
+    private AntiAliasingTargetArea antiAliasing = null;
+
     /**
      * The number of pixels in the view plane (Rows)
      */
@@ -434,26 +858,556 @@ public class Camera implements Cloneable {
      * @return the camera object itself
      */
     public Camera renderImage() {
-        pixelManager = new PixelManager(nY, nX, printInterval);
-        return switch (threadsCount) {
-            case 0 -> renderImageNoThreads();
-            case -1 -> renderImageStream();
-            default -> renderImageRawThreads();
-        };
+        renderArea = regionOfInterest != null ? regionOfInterest : new Tile(0, 0, nX, nY);
+        boolean packets = rayPacketSize > 0;
+        // in the packets mode the pixel manager hands out whole packets
+        Tile packetArea = !packets ? null : new Tile(0, 0, (renderArea.width() + rayPacketSize - 1) / rayPacketSize,
+                (renderArea.height() + rayPacketSize - 1) / rayPacketSize);
+        pixelManager = packets
+                ? new PixelManager(packetArea.height(), packetArea.width(), pixelOrder, pixelOrderTileSize, printInterval)
+                : new PixelManager(renderArea.height(), renderArea.width(), pixelOrder, pixelOrderTileSize, printInterval);
+        if (streamingImageName != null)
+            streamingWriter = new StreamingPngWriter(streamingImageName,
+                    renderArea.width(), renderArea.height(), streamingBandHeight);
+        if (checkpointName != null) openCheckpoint();
+        if (antiAliasing != null) {
+            pixelCorners = new AtomicReferenceArray<>((renderArea.width() + 1) * (renderArea.height() + 1));
+            pixelCenters = new AtomicReferenceArray<>((renderArea.width() + 2) * (renderArea.height() + 2));
+        }
+        boolean completed = false;
+        try {
+            if (selectiveSampling != null) {
+                // the neighbours around the rendered area are recorded too, so its border is compared properly
+                int x0 = Math.max(0, renderArea.x0() - 1);
+                int y0 = Math.max(0, renderArea.y0() - 1);
+                Tile recorded = new Tile(x0, y0,
+                        Math.min(nX, renderArea.x0() + renderArea.width() + 1) - x0,
+                        Math.min(nY, renderArea.y0() + renderArea.height() + 1) - y0);
+                geometryBuffer = new GeometryBuffer(nX, nY);
+                renderPixels(recorded, new PixelManager(recorded.height(), recorded.width(),
+                        pixelOrder, pixelOrderTileSize, 0), this::recordPrimaryHit);
+                geometryBuffer.detectDiscontinuities();
+            }
+            if (packets) renderPixels(packetArea, pixelManager, this::castPacket);
+            else renderPixels(renderArea, pixelManager, this::castRay);
+            completed = true;
+        } finally {
+            pixelCorners = null;
+            pixelCenters = null;
+            geometryBuffer = null;
+            if (checkpoint != null) {
+                if (checkpoint.isComplete()) checkpoint.delete();
+                else checkpoint.close();
+                checkpoint = null;
+            }
+            closeStreamingWriter(completed);
+        }
+        return this;
+    }
+
+    /**
+     * Renders the image progressively - a coarse pass traces one ray per {@value #PROGRESSIVE_BLOCK}x
+     * {@value #PROGRESSIVE_BLOCK} block of pixels and fills the block with its color, and every next pass
+     * halves the block size down to a single pixel. A pass traces only the pixels which were not sampled
+     * by the previous passes, so the whole render still traces one ray per pixel. The listener receives
+     * the image after each pass, e.g. to show or write a low-resolution preview within seconds.<br>
+     * The pixels are traced by single rays through their centers (anti-aliasing and selective
+     * supersampling are not applied), and the streaming output and checkpointing are not available since
+     * the blocks are written repeatedly
+     *
+     * @param listener the listener of the passes
+     * @return the camera object itself
+     * @throws IllegalStateException if the image is streamed, a region of interest or a checkpoint is set
+     */
+    public Camera renderImageProgressive(RenderPassListener listener) {
+        requireImageWriter();
+        requireFullFrame();
+        if (checkpointName != null)
+            throw new IllegalStateException("Checkpointing is not supported by a progressive render");
+        for (int block = PROGRESSIVE_BLOCK; block >= 1; block /= 2) {
+            renderBlockPass(block, NO_DEADLINE, null, null);
+            listener.passDone(this, block);
+        }
+        return this;
+    }
+
+    /**
+     * Renders the image within a wall-clock budget and stops cleanly at the deadline with the best
+     * quality available. Coverage is scheduled first - the progressive passes (see
+     * {@link #renderImageProgressive(RenderPassListener)}) give every pixel a sample. The first (coarsest)
+     * pass is always finished, even past the deadline, so even a tiny budget yields a complete (coarse)
+     * frame; the finer passes stop at the deadline. The time left is spent on adaptive refinement: in each
+     * round every pixel which contrasts with a neighbour gets another jittered sample, up to
+     * {@value #MAX_BUDGET_SAMPLES} samples per pixel. The render ends earlier when no pixel needs
+     * refinement any more.<br>
+     * The streaming output is not available since the pixels are written repeatedly. The render samples
+     * the pixels by its own schedule, so the options of the pixel sampling of {@link #renderImage()}
+     * (anti-aliasing, selective supersampling, ray packets and checkpointing) are rejected
+     *
+     * @param budget the wall-clock time budget
+     * @return statistics of the render - the achieved samples per pixel and the rays traced
+     * @throws IllegalStateException if the camera has an option which the render does not support
+     */
+    public RenderStatistics renderImage(Duration budget) {
+        requireImageWriter();
+        requireFullFrame();
+        requireBudgetOptions();
+        long start = System.nanoTime();
+        long deadline = start + budget.toNanos();
+        int pixels = nX * nY;
+        Color[] sums = new Color[pixels];
+        int[] counts = new int[pixels];
+        LongAdder primaryRays = new LongAdder();
+        LongAdder secondaryRays = new LongAdder();
+        SimpleRayTracer countedTracer = rayTracer instanceof SimpleRayTracer simpleRayTracer ? simpleRayTracer : null;
+        if (countedTracer != null) countedTracer.secondaryRays = secondaryRays;
+
+        boolean covered = true;
+        try {
+            for (int block = PROGRESSIVE_BLOCK; block >= 1 && covered; block /= 2)
+                covered = renderBlockPass(block, block == PROGRESSIVE_BLOCK ? NO_DEADLINE : deadline,
+                        sums, primaryRays);
+            for (int index = 0; index < pixels; ++index)
+                if (sums[index] != null) counts[index] = 1;
+            if (covered) {
+                boolean[] refine = new boolean[pixels];
+                while (!isExpired(deadline) && markContrastPixels(sums, counts, refine))
+                    renderPixels(new Tile(0, 0, nX, nY), new PixelManager(nY, nX, 0), (j, i) -> {
+                        int index = i * nX + j;
+                        if (!refine[index] || isExpired(deadline)) return;
+                        SampleRandom random = SampleRandom.seed(j, i, counts[index]);
+                        sums[index] = sums[index].add(traceSubPixel(j - 0.5 + random.nextDouble(), i - 0.5 + random.nextDouble()));
+                        imageWriter.writePixel(j, i, sums[index].reduce(++counts[index]));
+                        primaryRays.increment();
+                    });
+            }
+        } finally {
+            if (countedTracer != null) countedTracer.secondaryRays = null;
+        }
+
+        int maxSamples = 0;
+        for (int count : counts) maxSamples = Math.max(maxSamples, count);
+        return new RenderStatistics(primaryRays.sum(), secondaryRays.sum(), (double) primaryRays.sum() / pixels,
+                maxSamples, covered, Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    /**
+     * Checks that the camera has no options of the pixel sampling of {@link #renderImage()}, since the
+     * time-budgeted render would silently render the image without them
+     *
+     * @throws IllegalStateException if the camera has anti-aliasing, selective supersampling, ray packets
+     *                               or checkpointing
+     */
+    private void requireBudgetOptions() {
+        if (antiAliasing != null)
+            throw new IllegalStateException("Anti-aliasing is not supported by a time-budgeted render");
+        if (selectiveSampling != null)
+            throw new IllegalStateException("Selective supersampling is not supported by a time-budgeted render");
+        if (rayPacketSize > 0)
+            throw new IllegalStateException("Ray packets are not supported by a time-budgeted render");
+        if (checkpointName != null)
+            throw new IllegalStateException("Checkpointing is not supported by a time-budgeted render");
+    }
+
+    /**
+     * Renders a single pass of the progressive render - traces the top left pixel of each block
+     * which was not sampled by the previous (coarser) passes and fills the block with its color
+     *
+     * @param size     size of the side of the blocks
+     * @param deadline the deadline in {@link System#nanoTime()} units, {@link #NO_DEADLINE} for none
+     * @param samples  array receiving the traced colors by pixel index, may be null
+     * @param rays     counter of the traced primary rays, may be null
+     * @return true if the pass was finished before the deadline
+     */
+    private boolean renderBlockPass(int size, long deadline, Color[] samples, LongAdder rays) {
+        AtomicBoolean expired = new AtomicBoolean(false);
+        renderPixels(new Tile(0, 0, nX, nY), new PixelManager(nY, nX, 0), (j, i) -> {
+            if (j % size != 0 || i % size != 0) return;
+            // the pixel was sampled by a previous pass - its block keeps the color
+            if (size < PROGRESSIVE_BLOCK && j % (2 * size) == 0 && i % (2 * size) == 0) return;
+            if (isExpired(deadline)) {
+                expired.set(true);
+                return;
+            }
+            SampleRandom.seed(j, i, 0);
+            Color color = rayTracer.traceRay(constructRay(nX, nY, j, i));
+            if (samples != null) samples[i * nX + j] = color;
+            if (rays != null) rays.increment();
+            for (int y = i; y < Math.min(i + size, nY); ++y)
+                for (int x = j; x < Math.min(j + size, nX); ++x)
+                    imageWriter.writePixel(x, y, color);
+        });
+        return !expired.get();
+    }
+
+    /**
+     * Checks whether the deadline of a time-budgeted render has passed
+     *
+     * @param deadline the deadline in {@link System#nanoTime()} units, {@link #NO_DEADLINE} for none
+     * @return true if the deadline has passed
+     */
+    private static boolean isExpired(long deadline) {
+        return deadline != NO_DEADLINE && System.nanoTime() - deadline >= 0;
+    }
+
+    /**
+     * Marks the pixels which need another sample - the pixels whose average color contrasts with
+     * a neighbouring pixel and which have not reached the samples limit
+     *
+     * @param sums   sums of the samples of each pixel
+     * @param counts amounts of the samples of each pixel
+     * @param refine receives the marks of the pixels
+     * @return true if any pixel was marked
+     */
+    private boolean markContrastPixels(Color[] sums, int[] counts, boolean[] refine) {
+        int[] rgb = new int[sums.length];
+        for (int index = 0; index < sums.length; ++index)
+            rgb[index] = sums[index].reduce(counts[index]).getColor().getRGB();
+        Arrays.fill(refine, false);
+        boolean marked = false;
+        for (int i = 0; i < nY; ++i)
+            for (int j = 0; j < nX; ++j) {
+                int index = i * nX + j;
+                if (j + 1 < nX && isContrast(rgb[index], rgb[index + 1]))
+                    refine[index] = refine[index + 1] = true;
+                if (i + 1 < nY && isContrast(rgb[index], rgb[index + nX]))
+                    refine[index] = refine[index + nX] = true;
+            }
+        for (int index = 0; index < refine.length; ++index) {
+            if (counts[index] >= MAX_BUDGET_SAMPLES) refine[index] = false;
+            marked |= refine[index];
+        }
+        return marked;
+    }
+
+    /**
+     * Checks whether two pixel colors differ beyond the anti-aliasing contrast threshold
+     *
+     * @param rgb1 the first RGB value
+     * @param rgb2 the second RGB value
+     * @return true if any color component differs beyond the threshold
+     */
+    private static boolean isContrast(int rgb1, int rgb2) {
+        for (int shift = 0; shift <= 16; shift += 8)
+            if (Math.abs(((rgb1 >> shift) & 0xFF) - ((rgb2 >> shift) & 0xFF)) > AntiAliasingTargetArea.DEFAULT_THRESHOLD)
+                return true;
+        return false;
+    }
+
+    /**
+     * Renders the image by worker processes (see {@link RenderWorker}) over TCP connections.
+     * The image is divided into square tiles which are handed out to the workers; a tile of a worker
+     * which dies, fails or hangs during the render is reassigned to another worker. Every worker builds its
+     * own camera and scene from the description, so this camera should be built from the same description
+     * (e.g. by {@link scene.XMLParser#BuildCameraFromXML(java.io.InputStream)}).
+     * A worker which does not answer in 10 minutes is considered hung
+     *
+     * @param description the camera and scene XML document
+     * @param workers     addresses of the workers, an address may be repeated to render several tiles on it at once
+     * @param tileSize    size of the tile's side in pixels
+     * @return the camera object itself
+     * @throws IllegalStateException if the camera has options which the description cannot pass to the workers
+     *                               or a checkpoint, or if all the workers have failed before the render is finished
+     */
+    public Camera renderImageDistributed(String description, List<InetSocketAddress> workers, int tileSize) {
+        return renderImageDistributed(description, workers, tileSize,
+                Duration.ofMillis(RenderCoordinator.DEFAULT_TILE_TIMEOUT));
+    }
+
+    /**
+     * Renders the image by worker processes (see {@link RenderWorker}) over TCP connections,
+     * with a timeout of the workers' answers (see {@link #renderImageDistributed(String, List, int)})
+     *
+     * @param description the camera and scene XML document
+     * @param workers     addresses of the workers, an address may be repeated to render several tiles on it at once
+     * @param tileSize    size of the tile's side in pixels
+     * @param tileTimeout timeout of rendering a tile by a worker - a worker which does not answer in time
+     *                    is dropped and its tile is reassigned
+     * @return the camera object itself
+     * @throws IllegalStateException if the camera has options which the description cannot pass to the workers
+     *                               or a checkpoint, or if all the workers have failed before the render is finished
+     */
+    public Camera renderImageDistributed(String description, List<InetSocketAddress> workers, int tileSize,
+                                         Duration tileTimeout) {
+        requireFullFrame();
+        requireDescribedOptions();
+        if (checkpointName != null)
+            throw new IllegalStateException("Checkpointing is not supported by a distributed render");
+        int timeout = (int) Math.min(Integer.MAX_VALUE, tileTimeout.toMillis());
+        if (streamingImageName != null)
+            streamingWriter = new StreamingPngWriter(streamingImageName, nX, nY, streamingBandHeight);
+        boolean completed = false;
+        try {
+            new RenderCoordinator(description, nX, nY, tileSize, timeout, (tile, rgb) -> {
+                int k = 0;
+                for (int i = tile.y0(); i < tile.y0() + tile.height(); ++i)
+                    for (int j = tile.x0(); j < tile.x0() + tile.width(); ++j)
+                        writePixel(j, i, new Color(new java.awt.Color(rgb[k++])));
+            }).render(workers);
+            completed = true;
+        } finally {
+            closeStreamingWriter(completed);
+        }
+        return this;
+    }
+
+    /**
+     * Checks that the camera has no rendering options which the XML description does not carry,
+     * since the workers of a distributed render would silently render the image without them
+     *
+     * @throws IllegalStateException if the camera has sampling effects, selective supersampling,
+     *                               path termination or adaptive sampling
+     */
+    private void requireDescribedOptions() {
+        for (Map.Entry<EffectType, TargetAreaBase> effect : targetAreas.entrySet())
+            if (effect.getValue() != null)
+                throw new IllegalStateException("Effect " + effect.getKey() + " is not supported by a distributed render");
+        if (antiAliasing != null)
+            throw new IllegalStateException("Anti-aliasing is not supported by a distributed render");
+        if (selectiveSampling != null)
+            throw new IllegalStateException("Selective supersampling is not supported by a distributed render");
+        if (pathTermination || adaptiveThreshold > 0)
+            throw new IllegalStateException("Path termination and adaptive sampling are not supported by a distributed render");
+    }
+
+    /**
+     * Closes the streaming image writer of a render, if there is one. The image of a completed render
+     * is finished, the partial image of a failed render is deleted
+     *
+     * @param completed whether the render has completed
+     */
+    private void closeStreamingWriter(boolean completed) {
+        if (streamingWriter == null) return;
+        StreamingPngWriter writer = streamingWriter;
+        streamingWriter = null;
+        if (completed) writer.close();
+        else writer.abort();
+    }
+
+    /**
+     * Renders the pixels of a single tile
+     *
+     * @param tile the tile to render
+     * @return RGB values of the tile's pixels in row-major order
+     */
+    int[] renderTile(Tile tile) {
+        if (tile.x0() < 0 || tile.y0() < 0 || tile.x0() + tile.width() > nX || tile.y0() + tile.height() > nY)
+            throw new IllegalArgumentException("Tile is out of the image bounds");
+        AtomicReferenceArray<Color> corners = antiAliasing == null ? null
+                : new AtomicReferenceArray<>((tile.width() + 1) * (tile.height() + 1));
+        AtomicReferenceArray<Color> centers = antiAliasing == null ? null
+                : new AtomicReferenceArray<>((tile.width() + 2) * (tile.height() + 2));
+        int[] rgb = new int[tile.pixels()];
+        int k = 0;
+        for (int i = tile.y0(); i < tile.y0() + tile.height(); ++i)
+            for (int j = tile.x0(); j < tile.x0() + tile.width(); ++j)
+                rgb[k++] = tracePixel(j, i, tile, corners, centers).getColor().getRGB();
+        return rgb;
+    }
+
+    /**
+     * Calculates the color of a pixel - by a single ray through its center, by a sample grid at a
+     * discontinuity of selective supersampling, or by the adaptive anti-aliasing sampler if it is configured
+     *
+     * @param j       pixel column index
+     * @param i       pixel row index
+     * @param area    the rendered area which the corner and center colors caches cover
+     * @param corners cache of the area's pixel corner colors (anti-aliasing only)
+     * @param centers cache of the pixel center colors of the area and its border (anti-aliasing only)
+     * @return the pixel's color
+     */
+    private Color tracePixel(int j, int i, Tile area, AtomicReferenceArray<Color> corners,
+                             AtomicReferenceArray<Color> centers) {
+        if (geometryBuffer != null) {
+            SampleRandom.seed(j, i, 0);
+            return geometryBuffer.isDiscontinuity(j, i)
+                    ? supersamplePixel(j, i)
+                    : rayTracer.traceRay(constructRay(nX, nY, j, i));
+        }
+        if (antiAliasing == null) {
+            SampleRandom.seed(j, i, 0);
+            return rayTracer.traceRay(constructRay(nX, nY, j, i));
+        }
+        Color center = centerColor(j, i, area, centers);
+        if ((j == 0 || antiAliasing.isFlat(center, centerColor(j - 1, i, area, centers)))
+                && (j == nX - 1 || antiAliasing.isFlat(center, centerColor(j + 1, i, area, centers)))
+                && (i == 0 || antiAliasing.isFlat(center, centerColor(j, i - 1, area, centers)))
+                && (i == nY - 1 || antiAliasing.isFlat(center, centerColor(j, i + 1, area, centers))))
+            return center;
+        Color topLeft = cornerColor(j, i, area, corners);
+        Color topRight = cornerColor(j + 1, i, area, corners);
+        Color bottomLeft = cornerColor(j, i + 1, area, corners);
+        Color bottomRight = cornerColor(j + 1, i + 1, area, corners);
+        // the centers and the corners are traced with their own seeds, so the pixel's samples do not
+        // depend on which of the neighbouring pixels has traced a shared sample first
+        SampleRandom.seed(j, i, 0);
+        return antiAliasing.samplePixel(topLeft, topRight, bottomLeft, bottomRight, center,
+                (x, y) -> traceSubPixel(j - 0.5 + x, i - 0.5 + y));
+    }
+
+    /**
+     * Calculates the color of a pixel by the sample grid of the selective supersampling configuration
+     *
+     * @param j pixel column index
+     * @param i pixel row index
+     * @return the average color of the samples
+     */
+    private Color supersamplePixel(int j, int i) {
+        int grid = selectiveSampling.mode.gridValue;
+        double[] points = SampleSequence.points(selectiveSampling.pattern, grid);
+        Color color = Color.BLACK;
+        for (int k = 0; k < points.length; k += 2)
+            color = color.add(traceSubPixel(j - 0.5 + points[k], i - 0.5 + points[k + 1]));
+        return color.reduce(grid * grid);
+    }
+
+    /**
+     * Records the primary hit of a pixel into the geometry buffer
+     *
+     * @param j pixel column index
+     * @param i pixel row index
+     */
+    private void recordPrimaryHit(int j, int i) {
+        Ray ray = constructRay(nX, nY, j, i);
+        geometryBuffer.record(j, i, rayTracer.findClosestIntersection(ray), position);
+    }
+
+    /**
+     * Gets the color of a pixel's center sample from the cache, tracing it on the first use.
+     * Racing threads may trace the same center twice, which gives the same color
+     *
+     * @param j       pixel column index
+     * @param i       pixel row index
+     * @param area    the rendered area which the cache covers together with its border
+     * @param centers cache of the pixel center colors of the area and its border
+     * @return the color of the pixel's center sample
+     */
+    private Color centerColor(int j, int i, Tile area, AtomicReferenceArray<Color> centers) {
+        int index = (i - area.y0() + 1) * (area.width() + 2) + j - area.x0() + 1;
+        Color color = centers.get(index);
+        if (color == null) {
+            SampleRandom.seed(j, i, CENTER_SAMPLE);
+            color = antiAliasing.sampleCenter((x, y) -> traceSubPixel(j - 0.5 + x, i - 0.5 + y));
+            centers.set(index, color);
+        }
+        return color;
+    }
+
+    /**
+     * Gets the color of a pixel corner from the cache, tracing it on the first use.
+     * Racing threads may trace the same corner twice, which gives the same color
+     *
+     * @param cx      corner column index (the top left corner of pixel (cx, cy))
+     * @param cy      corner row index
+     * @param area    the rendered area which the cache covers
+     * @param corners cache of the area's pixel corner colors
+     * @return the color at the corner
+     */
+    private Color cornerColor(int cx, int cy, Tile area, AtomicReferenceArray<Color> corners) {
+        int index = (cy - area.y0()) * (area.width() + 1) + cx - area.x0();
+        Color color = corners.get(index);
+        if (color == null) {
+            SampleRandom.seed(cx, cy, CORNER_SAMPLE);
+            color = traceSubPixel(cx - 0.5, cy - 0.5);
+            corners.set(index, color);
+        }
+        return color;
+    }
+
+    /**
+     * Traces a ray through any point of the view plane given in pixel coordinates,
+     * where the integer coordinates are the pixel centers (as in {@link #constructRay(int, int, int, int)})
+     *
+     * @param x horizontal pixel coordinate
+     * @param y vertical pixel coordinate
+     * @return the color of the ray
+     */
+    private Color traceSubPixel(double x, double y) {
+        double yI = -(y - (nY - 1) / 2.0) * pixelHeight;
+        double xJ = (x - (nX - 1) / 2.0) * pixelWidth;
+
+        Point pIJ = viewPlaneCenter;
+        if (!isZero(xJ)) pIJ = pIJ.add(vRight.scale(xJ));
+        if (!isZero(yI)) pIJ = pIJ.add(vUp.scale(yI));
+
+        return rayTracer.traceRay(new Ray(position, pIJ.subtract(position).normalize()));
+    }
+
+    /**
+     * Checks the camera's image resolution
+     *
+     * @param nX amount of pixels by Width
+     * @param nY amount of pixels by height
+     * @return true if the camera renders an image of the given resolution
+     */
+    boolean hasResolution(int nX, int nY) {
+        return this.nX == nX && this.nY == nY;
+    }
+
+    /**
+     * Opens the render checkpoint and restores the pixels of its finished tiles
+     */
+    private void openCheckpoint() {
+        Path file = Path.of(ImageWriter.FOLDER_PATH, checkpointName + ".ckpt");
+        checkpoint = new RenderCheckpoint(file, nX, nY, checkpointTileSize, renderFingerprint(), checkpointInterval);
+        if (checkpoint.restoredTiles() == 0) return;
+        for (int i = 0; i < nY; ++i)
+            for (int j = 0; j < nX; ++j)
+                if (checkpoint.isTileDone(j, i))
+                    writePixel(j, i, new Color(new java.awt.Color(checkpoint.getRGB(j, i))));
+    }
+
+    /**
+     * Calculates a fingerprint of the camera, ray tracer, sampling and scene setup,
+     * used to recognize the checkpoint of the same render. The scene is described by the parameters of its
+     * geometries and lights (see {@link geometries.Intersectable#describe(StringBuilder)}) and by its version
+     * (see {@link Builder#setCheckpoint(String, int, double, long)})
+     *
+     * @return the render fingerprint
+     */
+    int renderFingerprint() {
+        StringBuilder setup = new StringBuilder()
+                .append(position).append('|').append(vTo).append('|').append(vUp).append('|')
+                .append(width).append('|').append(height).append('|').append(distance).append('|')
+                .append(nX).append('x').append(nY).append('|').append(checkpointTileSize).append('|')
+                .append(rayTracer.getClass().getName()).append('|').append(iterativeColor).append('|')
+                .append(pathTermination).append('|').append(adaptiveThreshold).append('|')
+                .append(selectiveSampling);
+        for (EffectType type : EffectType.values()) {
+            TargetAreaBase targetArea = targetAreas.get(type);
+            if (targetArea != null)
+                setup.append('|').append(type).append('=').append(targetArea.getClass().getName())
+                        .append(targetArea.getConfiguration());
+        }
+        if (antiAliasing != null)
+            setup.append('|').append(EffectType.ANTI_ALIASING).append('=').append(antiAliasing.getClass().getName())
+                    .append(antiAliasing.getConfiguration());
+        Scene scene = rayTracer.scene;
+        setup.append('|').append(sceneVersion).append('|').append(scene.name).append('|')
+                .append(scene.backgroundColor).append('|').append(scene.ambientLight.getIntensity()).append('|');
+        scene.geometries.describe(setup);
+        for (LightSource light : scene.lights) {
+            setup.append('|');
+            light.describe(setup);
+        }
+        return setup.toString().hashCode();
     }
 
     /**
      * Provides a layout of borderlines with the provided color on the image.
+     * The grid is laid on the full frame, so a cropped region of interest shows its part of the grid
      *
      * @param interval    the size of each square on the view place that should be sounded with the borderlines
      * @param borderColor the color of the borderline
      * @return the caller (camera)
      */
     public Camera printGrid(int interval, Color borderColor) {
-        for (int i = 0; i < nX; i++) {
-            for (int j = 0; j < nY; j++) {
+        requireImageWriter();
+        Tile area = regionOfInterest != null && baseImageName == null ? regionOfInterest : new Tile(0, 0, nX, nY);
+        for (int i = area.y0(); i < area.y0() + area.height(); i++) {
+            for (int j = area.x0(); j < area.x0() + area.width(); j++) {
                 if (i % interval == 0 || j % interval == 0)
-                    imageWriter.writePixel(j, i, borderColor);
+                    writePixel(j, i, borderColor);
             }
         }
         return this;
@@ -466,10 +1420,101 @@ public class Camera implements Cloneable {
      * @return the caller (camera)
      */
     public Camera writeToImage(String imageName) {
+        requireImageWriter();
         imageWriter.writeToImage(imageName);
         return this;
     }
 
+    /**
+     * Sends an instructions to the imageWriter to apply the data on a given named image
+     * in the requested format (e.g. {@link ImageFormat#PPM} or {@link ImageFormat#QOI} for fast previews)
+     *
+     * @param imageName the new image's name
+     * @param encoder   the encoder of the image format
+     * @return the caller (camera)
+     */
+    public Camera writeToImage(String imageName, ImageEncoder encoder) {
+        requireImageWriter();
+        imageWriter.writeToImage(imageName, encoder);
+        return this;
+    }
+
+    /**
+     * Writes the image into a file asynchronously. The pixel color matrix is copied before this
+     * method returns and is encoded on a background thread, so the camera may immediately render
+     * the next frame while the current one is being compressed
+     *
+     * @param imageName the new image's name
+     * @return a future which completes when the image file has been written
+     */
+    public CompletableFuture<Void> writeToImageAsync(String imageName) {
+        return writeToImageAsync(imageName, ImageFormat.PNG, IMAGE_ENCODER);
+    }
+
+    /**
+     * Writes the image into a file of the requested format asynchronously.
+     * The pixel color matrix is copied before this method returns
+     *
+     * @param imageName the new image's name
+     * @param encoder   the encoder of the image format
+     * @return a future which completes when the image file has been written
+     */
+    public CompletableFuture<Void> writeToImageAsync(String imageName, ImageEncoder encoder) {
+        return writeToImageAsync(imageName, encoder, IMAGE_ENCODER);
+    }
+
+    /**
+     * Writes the image into a file of the requested format asynchronously using the given executor
+     * for the encoding. The pixel color matrix is copied before this method returns
+     *
+     * @param imageName the new image's name
+     * @param encoder   the encoder of the image format
+     * @param executor  the executor which encodes and writes the image
+     * @return a future which completes when the image file has been written
+     */
+    public CompletableFuture<Void> writeToImageAsync(String imageName, ImageEncoder encoder, Executor executor) {
+        requireImageWriter();
+        ImageWriter snapshot = imageWriter.snapshot();
+        return CompletableFuture.runAsync(() -> snapshot.writeToImage(imageName, encoder), executor);
+    }
+
+    /**
+     * Checks that the image is kept in memory by the image writer
+     *
+     * @throws IllegalStateException if the image is streamed into a file during rendering
+     */
+    private void requireImageWriter() {
+        if (imageWriter == null)
+            throw new IllegalStateException("The image is streamed into '" + streamingImageName + "' while rendering");
+    }
+
+    /**
+     * Checks that the whole frame is rendered
+     *
+     * @throws IllegalStateException if a region of interest is set
+     */
+    private void requireFullFrame() {
+        if (regionOfInterest != null)
+            throw new IllegalStateException("Region of interest is supported by renderImage() only");
+    }
+
+    /**
+     * Writes a pixel's color either into the image writer or into the streamed image.
+     * The pixel of a cropped region of interest is moved to its place in the cropped image
+     *
+     * @param j     pixel column index
+     * @param i     pixel row index
+     * @param color the pixel's color
+     */
+    private void writePixel(int j, int i, Color color) {
+        if (regionOfInterest != null && baseImageName == null) {
+            j -= regionOfInterest.x0();
+            i -= regionOfInterest.y0();
+        }
+        if (streamingWriter != null) streamingWriter.writePixel(j, i, color);
+        else imageWriter.writePixel(j, i, color);
+    }
+
     /**
      * Sends the ray and gets the intersection data (the point)
      *
@@ -477,54 +1522,147 @@ public class Camera implements Cloneable {
      * @param i the column that the ray should be sent on the ViewPlane
      */
     private void castRay(int j, int i) {
-        Ray ray = constructRay(nX, nY, j, i);
-        Color color = rayTracer.traceRay(ray);
-        imageWriter.writePixel(j, i, color);
+        if (checkpoint != null && checkpoint.isTileDone(j, i)) {
+            pixelManager.pixelDone();
+            return;
+        }
+        Color color = tracePixel(j, i, renderArea, pixelCorners, pixelCenters);
+        writePixel(j, i, color);
+        if (checkpoint != null) checkpoint.pixelDone(j, i, color.getColor().getRGB());
+        pixelManager.pixelDone();
+    }
+
+    /**
+     * Sends the primary rays of a packet of pixels together and writes their colors
+     *
+     * @param pj packet column index in the rendered area
+     * @param pi packet row index in the rendered area
+     */
+    private void castPacket(int pj, int pi) {
+        int x0 = renderArea.x0() + pj * rayPacketSize;
+        int y0 = renderArea.y0() + pi * rayPacketSize;
+        int x1 = Math.min(x0 + rayPacketSize, renderArea.x0() + renderArea.width());
+        int y1 = Math.min(y0 + rayPacketSize, renderArea.y0() + renderArea.height());
+        // the pixels of the tiles restored from the checkpoint are not traced again
+        Ray[] rays = new Ray[(x1 - x0) * (y1 - y0)];
+        boolean[] restored = new boolean[rays.length];
+        int count = 0;
+        for (int i = y0, k = 0; i < y1; ++i)
+            for (int j = x0; j < x1; ++j, ++k)
+                if (checkpoint != null && checkpoint.isTileDone(j, i)) restored[k] = true;
+                else rays[count++] = constructRay(nX, nY, j, i);
+        Ray[] packet = count == rays.length ? rays : Arrays.copyOf(rays, count);
+        SampleRandom.seed(x0, y0, 0);
+        Color[] colors = secondaryRayReordering ? rayTracer.traceRaysReordered(packet) : rayTracer.traceRays(packet);
+        count = 0;
+        for (int i = y0, k = 0; i < y1; ++i)
+            for (int j = x0; j < x1; ++j, ++k)
+                if (!restored[k]) {
+                    Color color = colors[count++];
+                    writePixel(j, i, color);
+                    if (checkpoint != null) checkpoint.pixelDone(j, i, color.getColor().getRGB());
+                }
         pixelManager.pixelDone();
     }
 
+    /**
+     * Action applied to each pixel of the image during a render pass
+     */
+    @FunctionalInterface
+    private interface PixelAction {
+        /**
+         * Applies the action to a pixel
+         *
+         * @param j pixel column index
+         * @param i pixel row index
+         */
+        void apply(int j, int i);
+    }
+
+    /**
+     * Applies an action to all the pixels of an area of the image using the configured multi-threading
+     *
+     * @param area    the area of the image
+     * @param manager the pixel manager of the pass (allocates the area's pixels to raw threads)
+     * @param action  the action to apply to each pixel
+     */
+    private void renderPixels(Tile area, PixelManager manager, PixelAction action) {
+        switch (threadsCount) {
+            case 0 -> renderImageNoThreads(area, manager, action);
+            case -1 -> renderImageStream(area, action);
+            default -> renderImageRawThreads(area, manager, action);
+        }
+    }
+
     /**
      * Render image using multi-threading by parallel streaming
      *
+     * @param area   the area of the image
+     * @param action the action to apply to each pixel
      * @return the camera object itself
      */
-    private Camera renderImageStream() {
-        IntStream.range(0, nY).parallel()
-                .forEach(i -> IntStream.range(0, nX).parallel()
-                        .forEach(j -> castRay(j, i)));
+    private Camera renderImageStream(Tile area, PixelAction action) {
+        IntStream.range(area.y0(), area.y0() + area.height()).parallel()
+                .forEach(i -> IntStream.range(area.x0(), area.x0() + area.width()).parallel()
+                        .forEach(j -> action.apply(j, i)));
         return this;
     }
 
     /**
      * Render image without multi-threading
      *
+     * @param area    the area of the image
+     * @param manager the pixel manager which provides the area's pixels in its order
+     * @param action  the action to apply to each pixel
      * @return the camera object itself
      */
-    private Camera renderImageNoThreads() {
-        for (int i = 0; i < nY; ++i)
-            for (int j = 0; j < nX; ++j)
-                castRay(j, i);
+    private Camera renderImageNoThreads(Tile area, PixelManager manager, PixelAction action) {
+        PixelManager.Pixel pixel;
+        while ((pixel = manager.nextPixel()) != null)
+            action.apply(area.x0() + pixel.col(), area.y0() + pixel.row());
         return this;
     }
 
     /**
-     * Render image using multi-threading by creating and running raw threads
+     * Render image using multi-threading by creating and running raw threads.
+     * The first failure of a thread stops the other threads, and is rethrown once all of them have ended,
+     * so a failed render never looks completed
      *
+     * @param area    the area of the image
+     * @param manager the pixel manager which allocates the area's pixels to the threads
+     * @param action  the action to apply to each pixel
      * @return the camera object itself
+     * @throws IllegalStateException if the rendering thread is interrupted (its interrupt status is kept)
      */
-    private Camera renderImageRawThreads() {
+    private Camera renderImageRawThreads(Tile area, PixelManager manager, PixelAction action) {
         var threads = new LinkedList<Thread>();
-        while (threadsCount-- > 0)
-            threads.add(new Thread(() -> {
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        for (int count = threadsCount; count > 0; --count) {
+            Thread thread = new Thread(() -> {
                 PixelManager.Pixel pixel;
-                while ((pixel = pixelManager.nextPixel()) != null)
-                    castRay(pixel.col(), pixel.row());
-            }));
-        for (var thread : threads) thread.start();
-        try {
-            for (var thread : threads) thread.join();
-        } catch (InterruptedException ignored) {
+                while (failure.get() == null && (pixel = manager.nextPixel()) != null)
+                    action.apply(area.x0() + pixel.col(), area.y0() + pixel.row());
+            });
+            thread.setUncaughtExceptionHandler((failed, exception) -> failure.compareAndSet(null, exception));
+            threads.add(thread);
         }
+        for (var thread : threads) thread.start();
+        // the threads are always joined, so none of them writes a pixel after the render has ended
+        boolean interrupted = false;
+        for (var thread : threads)
+            while (thread.isAlive())
+                try {
+                    thread.join();
+                } catch (InterruptedException exception) {
+                    interrupted = true;
+                    failure.compareAndSet(null, exception);
+                }
+        if (interrupted) Thread.currentThread().interrupt();
+
+        Throwable exception = failure.get();
+        if (exception instanceof RuntimeException runtimeException) throw runtimeException;
+        if (exception instanceof Error error) throw error;
+        if (exception != null) throw new IllegalStateException("Rendering was interrupted", exception);
         return this;
     }
 }
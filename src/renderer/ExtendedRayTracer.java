@@ -1,13 +1,15 @@
 package renderer;
 
+import lighting.AreaLight;
 import primitives.*;
+import sampling.SoftShadowTargetArea;
 import sampling.TargetAreaBase;
 import scene.Scene;
 
-import java.util.List;
 import java.util.Map;
 
 import static geometries.Intersectable.Intersection;
+import static primitives.Util.alignZero;
 
 /**
  * Extended ray tracer with support for advanced visual effects like soft shadows,
@@ -15,6 +17,25 @@ import static geometries.Intersectable.Intersection;
  * Extends the basic ray tracer with distribution ray capabilities.
  */
 public class ExtendedRayTracer extends SimpleRayTracer {
+    /**
+     * Amount of samples in each batch of the adaptive sampling of the distributed effects
+     */
+    private static final int ADAPTIVE_BATCH = 4;
+    /**
+     * Minimal fraction of the samples of the adaptive sampling (but at least 2 batches) -
+     * the first samples may miss a small or rarely hit feature behind the glass entirely and look converged
+     */
+    private static final double ADAPTIVE_MIN_FRACTION = 0.25;
+    /**
+     * The normal quantile of the confidence interval of the adaptive sampling (95%)
+     */
+    private static final double CONFIDENCE_Z = 1.96;
+    /**
+     * Amount of the first soft shadow samples which decide whether the point is in the penumbra -
+     * if all of them see the same transparency, the point is taken as fully lit or fully occluded
+     */
+    private static final int SHADOW_PROBE_SAMPLES = 4;
+
     /**
      * The target area for distributing rays when using effects like depth of field or soft shadows
      */
@@ -23,6 +44,22 @@ public class ExtendedRayTracer extends SimpleRayTracer {
      * Indicates whether advanced features are enabled.
      */
     protected boolean isFeatureEnabled = false;
+    /**
+     * Threshold of the adaptive sampling of diffusive glass and glossy reflection - the half-width of the
+     * confidence interval of the sampled effect's contribution to the pixel (in 8-bit color units) below which the sampling
+     * stops early, 0 to always take all the samples
+     */
+    double adaptiveThreshold = 0;
+    /**
+     * Reusable buffers of the sampled ray directions of each thread, one per recursion depth -
+     * the recursive evaluation samples a deeper hit while the hits above it are still being traced
+     */
+    private final ThreadLocal<double[][]> directionBuffers =
+            ThreadLocal.withInitial(() -> new double[MAX_CALC_COLOR_LEVEL + 1][]);
+    /**
+     * Reusable buffer of the sampled light points of each thread
+     */
+    private final ThreadLocal<double[]> shadowBuffers = new ThreadLocal<>();
 
     //TODO: Effect -> Effects
 
@@ -53,30 +90,220 @@ public class ExtendedRayTracer extends SimpleRayTracer {
      *
      * @param intersection the intersection to calculate effects for
      * @param level        the recursion level
+     * @param bounces      the amount of diffuse bounces of the path before the intersection
      * @param k            the color attenuation factor
      * @return the color contribution from all global effects
      */
-    protected Color calcGlobalEffects(Intersection intersection, int level, Double3 k) {
-        if (!isFeatureEnabled) return super.calcGlobalEffects(intersection, level, k);
+    protected Color calcGlobalEffects(Intersection intersection, int level, int bounces, Double3 k) {
+        if (!isFeatureEnabled) return super.calcGlobalEffects(intersection, level, bounces, k);
 
-        Color refractionColor;
         // Handle transmission/refraction (what goes THROUGH the object)
-        if (intersection.material.roughness <= 0.0)
-            refractionColor = calcGlobalEffect(calcRefractionRay(intersection), level, k, intersection.material.kT);
-        else {
-            // Diffusive transmission: multiple sampled rays going through the object
-            List<Ray> refractionRays = targetArea.get(EffectType.DIFFUSIVE_GLASS).generateRays(intersection);
-
-            refractionColor = refractionRays.stream()
-                    .map(refractionRay -> calcGlobalEffect(refractionRay, level, k, intersection.material.kT))
-                    .reduce(Color.BLACK, Color::add);
-
-            // Average the refraction color
-            if (!refractionRays.isEmpty()) {
-                refractionColor = refractionColor.reduce(refractionRays.size());
+        Color refractionColor = intersection.material.roughness <= 0.0
+                ? calcGlobalEffect(calcRefractionRay(intersection), level, bounces, k, intersection.material.kT)
+                // Diffusive transmission: multiple sampled rays going through the object
+                : calcSampledEffect(intersection, targetArea.get(EffectType.DIFFUSIVE_GLASS),
+                level, bounces, k, intersection.material.kT);
+
+        TargetAreaBase glossy = glossySampler(intersection);
+        Color reflectionColor = glossy == null
+                ? calcGlobalEffect(calcReflectionRay(intersection), level, bounces, k, intersection.material.kR)
+                // Glossy reflection: multiple sampled rays around the mirror direction
+                : calcSampledEffect(intersection, glossy, level, bounces, k, intersection.material.kR);
+        return refractionColor.add(reflectionColor);
+    }
+
+    /**
+     * Calculates the averaged color of a distributed effect (diffusive refraction or glossy reflection)
+     * from the rays of its sampler. The amount of the rays is budgeted by the diffuse bounces of the path
+     * before the intersection, and the intersection is a diffuse bounce of the sampled rays' paths.
+     * When adaptive sampling is on, the sampling stops once the samples
+     * have converged (see {@link #converged(double, int, Double3)})
+     *
+     * @param intersection the intersection to calculate the effect for
+     * @param sampler      the sampler of the effect's rays
+     * @param level        the recursion level
+     * @param bounces      the amount of diffuse bounces of the path before the intersection
+     * @param k            the color attenuation factor
+     * @param kx           the effect coefficient
+     * @return the color contribution from the effect
+     */
+    private Color calcSampledEffect(Intersection intersection, TargetAreaBase sampler, int level, int bounces,
+                                    Double3 k, Double3 kx) {
+        if (kx.product(k).lowerThan(MIN_CALC_COLOR_K)) return Color.BLACK;
+
+        double[] directions = directionBuffer(MAX_CALC_COLOR_LEVEL - level, sampler);
+        int count = sampler.generateDirections(intersection, bounces, directions);
+
+        Color color = Color.BLACK;
+        Color previous = null;
+        double squares = 0;
+        int taken = 0;
+        int minSamples = Math.max(2 * ADAPTIVE_BATCH, (int) (count * ADAPTIVE_MIN_FRACTION));
+        while (taken < count) {
+            Color sample = calcGlobalEffect(sampledRay(intersection, directions, 3 * taken), level, bounces + 1,
+                    k, kx);
+            color = color.add(sample);
+            if (previous != null) {
+                double difference = sample.maxDifference(previous);
+                squares += difference * difference;
             }
+            previous = sample;
+            if (++taken % ADAPTIVE_BATCH == 0 && taken >= minSamples && converged(squares, taken, k))
+                break;
         }
 
-        return refractionColor.add(calcGlobalEffect(calcReflectionRay(intersection), level, k, intersection.material.kR));
+        // Average the sampled color
+        return taken > 0 ? color.reduce(taken) : color;
+    }
+
+    @Override
+    void emitSecondaryRays(Intersection intersection, int level, int bounces, Double3 k, Double3 weight,
+                           int pixel, RayQueue queue) {
+        if (!isFeatureEnabled) {
+            super.emitSecondaryRays(intersection, level, bounces, k, weight, pixel, queue);
+            return;
+        }
+
+        if (intersection.material.roughness <= 0.0)
+            emitSecondaryRay(calcRefractionRay(intersection), level, bounces, k, intersection.material.kT,
+                    weight, pixel, queue);
+        else
+            emitSampledRays(intersection, targetArea.get(EffectType.DIFFUSIVE_GLASS), level, bounces, k,
+                    intersection.material.kT, weight, pixel, queue);
+
+        TargetAreaBase glossy = glossySampler(intersection);
+        if (glossy == null)
+            emitSecondaryRay(calcReflectionRay(intersection), level, bounces, k, intersection.material.kR,
+                    weight, pixel, queue);
+        else
+            emitSampledRays(intersection, glossy, level, bounces, k, intersection.material.kR,
+                    weight, pixel, queue);
+    }
+
+    /**
+     * Queues the rays of a distributed effect (diffusive refraction or glossy reflection) - each sampled ray
+     * carries its share of the averaged color of the effect
+     *
+     * @param intersection the intersection to emit the rays from
+     * @param sampler      the sampler of the effect's rays
+     * @param level        the recursion level at the intersection
+     * @param bounces      the amount of diffuse bounces of the path before the intersection
+     * @param k            the color attenuation factor at the intersection
+     * @param kx           the effect coefficient
+     * @param weight       the weight of the intersection's color in the pixel's color
+     * @param pixel        index of the pixel which the intersection contributes to
+     * @param queue        the queue of the next generation of rays
+     */
+    private void emitSampledRays(Intersection intersection, TargetAreaBase sampler, int level, int bounces,
+                                 Double3 k, Double3 kx, Double3 weight, int pixel, RayQueue queue) {
+        if (kx.product(k).lowerThan(MIN_CALC_COLOR_K)) return;
+
+        double[] directions = directionBuffer(MAX_CALC_COLOR_LEVEL - level, sampler);
+        int count = sampler.generateDirections(intersection, bounces, directions);
+        Double3 sampleWeight = count == 0 ? weight : weight.reduce(count);
+        for (int d = 0; d < 3 * count; d += 3)
+            emitSecondaryRay(sampledRay(intersection, directions, d), level, bounces + 1, k, kx,
+                    sampleWeight, pixel, queue);
+    }
+
+    /**
+     * Gets the sampler of the glossy reflection of an intersection
+     *
+     * @param intersection the intersection
+     * @return the sampler, or null if the reflection is a mirror one
+     */
+    private TargetAreaBase glossySampler(Intersection intersection) {
+        return intersection.material.reflectionRoughness > 0.0
+                ? targetArea.get(EffectType.GLOSSY_REFLECTION)
+                : null;
+    }
+
+    /**
+     * Calculates the transparency factor at the intersection point. The shadows of area lights are soft
+     * when the soft shadow effect is set: shadow rays are cast to the stratified sample points of the light,
+     * and the transparency is their average. If the first {@link #SHADOW_PROBE_SAMPLES} samples all see the
+     * same transparency (the point is fully lit or in the umbra), the rest of the samples are not traced,
+     * so only the penumbra takes all of them.
+     * The points of the light which are below the surface's horizon are occluded
+     *
+     * @param intersection The intersection to calculate transparency for.
+     * @return The transparency factor as a Double3.
+     */
+    @Override
+    protected Double3 transparency(Intersection intersection) {
+        if (!isFeatureEnabled || !(intersection.lightSource instanceof AreaLight)
+                || !(targetArea.get(EffectType.SOFT_SHADOW) instanceof SoftShadowTargetArea softShadow))
+            return super.transparency(intersection);
+
+        double[] points = shadowBuffers.get();
+        if (points == null) {
+            points = new double[3 * softShadow.maxSamples()];
+            shadowBuffers.set(points);
+        }
+        int count = softShadow.samplePoints(intersection, points);
+
+        Point point = intersection.point;
+        Double3 ktr = Double3.ZERO;
+        Double3 probe = null;
+        boolean uniform = true;
+        for (int taken = 0; taken < count; ) {
+            Vector toLight = new Point(points[3 * taken], points[3 * taken + 1], points[3 * taken + 2])
+                    .subtract(point);
+            double distance = toLight.length();
+            Vector direction = toLight.scale(1 / distance);
+            Double3 sample = alignZero(direction.dotProduct(intersection.normal)) * intersection.lightNormalProduct < 0
+                    ? transparency(intersection, direction, distance)
+                    : Double3.ZERO;
+            ktr = ktr.add(sample);
+            if (probe == null) probe = sample;
+            else if (!sample.equals(probe)) uniform = false;
+            if (++taken == SHADOW_PROBE_SAMPLES && uniform) return probe;
+        }
+        return ktr.reduce(count);
+    }
+
+    /**
+     * Checks whether the adaptive sampling of a distributed effect has converged: the half-width of the
+     * confidence interval of the samples' mean contribution to the pixel is below {@link #adaptiveThreshold}.
+     * The variance is estimated from the differences of successive samples (the von Neumann estimator) of
+     * their highest component, as the sample tables are ordered so that successive samples are far apart
+     *
+     * @param squares sum of the squared differences of successive samples
+     * @param taken   amount of the samples taken so far
+     * @param k       the color attenuation factor at the intersection
+     * @return true if no more samples are needed
+     */
+    private boolean converged(double squares, int taken, Double3 k) {
+        if (adaptiveThreshold == 0) return false;
+        double variance = squares / (2.0 * (taken - 1));
+        return CONFIDENCE_Z * Math.sqrt(variance / taken) * maxComponent(k) < adaptiveThreshold;
+    }
+
+    /**
+     * Gets the current thread's buffer of the sampled ray directions of a recursion depth
+     *
+     * @param depth   the recursion depth of the sampled hit
+     * @param sampler the sampler which fills the buffer
+     * @return the buffer
+     */
+    private double[] directionBuffer(int depth, TargetAreaBase sampler) {
+        double[][] buffers = directionBuffers.get();
+        int size = 3 * sampler.maxSamples();
+        if (buffers[depth] == null || buffers[depth].length < size)
+            buffers[depth] = new double[size];
+        return buffers[depth];
+    }
+
+    /**
+     * Creates a sampled ray from an intersection
+     *
+     * @param intersection the sampled intersection
+     * @param directions   the buffer of the sampled directions
+     * @param d            position of the ray's direction in the buffer
+     * @return the ray
+     */
+    private static Ray sampledRay(Intersection intersection, double[] directions, int d) {
+        return new Ray(intersection.point, new Vector(directions[d], directions[d + 1], directions[d + 2]),
+                intersection.normal);
     }
 }
@@ -0,0 +1,127 @@
+package renderer;
+
+import geometries.Geometry;
+import geometries.Intersectable.Intersection;
+import primitives.Point;
+import primitives.Vector;
+
+/**
+ * Per-pixel buffer of the primary hits of the image - the hit geometry (its id), the surface normal and
+ * the depth. It is filled by a cheap visibility pass before shading, and is used to find the pixels
+ * whose neighbourhood shows a discontinuity: a silhouette, a material boundary or a crease.
+ * Only those pixels need supersampling - inside flat areas the extra samples change nothing.
+ */
+final class GeometryBuffer {
+    /**
+     * Minimal cosine of the angle between the normals of neighbouring pixels on a smooth surface (about 25°)
+     */
+    static final double NORMAL_THRESHOLD = 0.9;
+    /**
+     * Maximal relative depth difference between neighbouring pixels on a continuous surface
+     */
+    static final double DEPTH_THRESHOLD = 0.05;
+
+    /**
+     * Horizontal resolution of the image
+     */
+    private final int nX;
+    /**
+     * Vertical resolution of the image
+     */
+    private final int nY;
+    /**
+     * The hit geometry of each pixel, null where the primary ray misses the scene
+     */
+    private final Geometry[] geometries;
+    /**
+     * The surface normal at the hit point of each pixel
+     */
+    private final Vector[] normals;
+    /**
+     * The distance from the camera to the hit point of each pixel
+     */
+    private final double[] depths;
+    /**
+     * Discontinuity flags of the pixels, valid after {@link #detectDiscontinuities()}
+     */
+    private final boolean[] discontinuities;
+
+    /**
+     * Constructs an empty buffer
+     *
+     * @param nX amount of pixels by Width
+     * @param nY amount of pixels by height
+     */
+    GeometryBuffer(int nX, int nY) {
+        this.nX = nX;
+        this.nY = nY;
+        int pixels = nX * nY;
+        geometries = new Geometry[pixels];
+        normals = new Vector[pixels];
+        depths = new double[pixels];
+        discontinuities = new boolean[pixels];
+    }
+
+    /**
+     * Records the primary hit of a pixel, may be called concurrently for different pixels
+     *
+     * @param j      pixel column index
+     * @param i      pixel row index
+     * @param hit    the closest intersection of the pixel's primary ray, null if it misses the scene
+     * @param origin the origin of the primary ray
+     */
+    void record(int j, int i, Intersection hit, Point origin) {
+        if (hit == null) return;
+        int index = i * nX + j;
+        geometries[index] = hit.geometry;
+        normals[index] = hit.geometry.getNormal(hit.point);
+        depths[index] = hit.point.distance(origin);
+    }
+
+    /**
+     * Compares every pixel with its right and bottom neighbours and flags both pixels of each
+     * discontinuous pair
+     *
+     * @return the amount of flagged pixels
+     */
+    int detectDiscontinuities() {
+        for (int i = 0; i < nY; ++i)
+            for (int j = 0; j < nX; ++j) {
+                int index = i * nX + j;
+                if (j + 1 < nX && isDiscontinuous(index, index + 1))
+                    discontinuities[index] = discontinuities[index + 1] = true;
+                if (i + 1 < nY && isDiscontinuous(index, index + nX))
+                    discontinuities[index] = discontinuities[index + nX] = true;
+            }
+        int count = 0;
+        for (boolean flag : discontinuities)
+            if (flag) ++count;
+        return count;
+    }
+
+    /**
+     * Checks whether a pixel's neighbourhood shows a discontinuity
+     *
+     * @param j pixel column index
+     * @param i pixel row index
+     * @return true if the pixel should be supersampled
+     */
+    boolean isDiscontinuity(int j, int i) {
+        return discontinuities[i * nX + j];
+    }
+
+    /**
+     * Checks whether two pixels see different surfaces
+     *
+     * @param a index of the first pixel
+     * @param b index of the second pixel
+     * @return true if the pixels hit different geometries, or the same geometry with a sharp
+     * change of the normal or of the depth
+     */
+    private boolean isDiscontinuous(int a, int b) {
+        if (geometries[a] != geometries[b]) return true;
+        if (geometries[a] == null) return false;
+        return normals[a].dotProduct(normals[b]) < NORMAL_THRESHOLD
+                || Math.abs(depths[a] - depths[b]) > DEPTH_THRESHOLD * Math.min(depths[a], depths[b]);
+    }
+}
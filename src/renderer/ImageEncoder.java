@@ -0,0 +1,28 @@
+package renderer;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Encoder of a rendered image into a specific file format.
+ * The built-in formats are provided by {@link ImageFormat}, other formats may be plugged in
+ * by implementing this interface
+ */
+public interface ImageEncoder {
+    /**
+     * The file name extension of the format (without the dot)
+     *
+     * @return the file extension
+     */
+    String extension();
+
+    /**
+     * Encodes the image and writes it into the channel
+     *
+     * @param image   the image to encode
+     * @param channel the destination channel
+     * @throws IOException on a write failure
+     */
+    void encode(BufferedImage image, WritableByteChannel channel) throws IOException;
+}
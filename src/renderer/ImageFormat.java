@@ -0,0 +1,224 @@
+package renderer;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Built-in image file formats.<br>
+ * PNG is compressed and therefore the slowest to write; the other formats are written without
+ * compression (or with QOI's lightweight run-length and delta coding) and are meant for previews
+ * and for intermediate frames which are fed into other tools
+ */
+public enum ImageFormat implements ImageEncoder {
+    /**
+     * Portable Network Graphics - deflate compressed (written by ImageIO)
+     */
+    PNG("png") {
+        @Override
+        public void encode(BufferedImage image, WritableByteChannel channel) throws IOException {
+            if (!ImageIO.write(image, "png", Channels.newOutputStream(channel)))
+                throw new IOException("No PNG writer is available");
+        }
+    },
+
+    /**
+     * Binary portable pixmap (P6) - uncompressed 8-bit RGB with a tiny text header
+     */
+    PPM("ppm") {
+        @Override
+        public void encode(BufferedImage image, WritableByteChannel channel) throws IOException {
+            int nX = image.getWidth();
+            int nY = image.getHeight();
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            buffer.put(("P6\n" + nX + " " + nY + "\n255\n").getBytes(StandardCharsets.US_ASCII));
+            writeRgbBytes(image, buffer, channel);
+            flush(buffer, channel);
+        }
+    },
+
+    /**
+     * The Quite OK Image format - lossless with fast run-length, index and delta coding
+     */
+    QOI("qoi") {
+        @Override
+        public void encode(BufferedImage image, WritableByteChannel channel) throws IOException {
+            int nX = image.getWidth();
+            int nY = image.getHeight();
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            buffer.put("qoif".getBytes(StandardCharsets.US_ASCII)).putInt(nX).putInt(nY)
+                    .put((byte) 3)  // channels - RGB
+                    .put((byte) 0); // color space - sRGB with linear alpha
+
+            int[] index = new int[64];
+            int[] row = new int[nX];
+            int previous = 0xFF000000;
+            int run = 0;
+            for (int y = 0; y < nY; ++y) {
+                image.getRGB(0, y, nX, 1, row, 0, nX);
+                for (int x = 0; x < nX; ++x) {
+                    int pixel = row[x] | 0xFF000000;
+                    if (buffer.remaining() < 5) flush(buffer, channel);
+                    if (pixel == previous) {
+                        if (++run == 62) {
+                            buffer.put((byte) (QOI_OP_RUN | (run - 1)));
+                            run = 0;
+                        }
+                        continue;
+                    }
+                    if (run > 0) {
+                        buffer.put((byte) (QOI_OP_RUN | (run - 1)));
+                        run = 0;
+                    }
+
+                    int r = (pixel >> 16) & 0xFF;
+                    int g = (pixel >> 8) & 0xFF;
+                    int b = pixel & 0xFF;
+                    int hash = (r * 3 + g * 5 + b * 7 + 255 * 11) % 64;
+                    if (index[hash] == pixel) {
+                        buffer.put((byte) (QOI_OP_INDEX | hash));
+                    } else {
+                        index[hash] = pixel;
+                        int dr = (byte) (r - ((previous >> 16) & 0xFF));
+                        int dg = (byte) (g - ((previous >> 8) & 0xFF));
+                        int db = (byte) (b - (previous & 0xFF));
+                        int drDg = dr - dg;
+                        int dbDg = db - dg;
+                        if (dr >= -2 && dr <= 1 && dg >= -2 && dg <= 1 && db >= -2 && db <= 1)
+                            buffer.put((byte) (QOI_OP_DIFF | (dr + 2) << 4 | (dg + 2) << 2 | (db + 2)));
+                        else if (dg >= -32 && dg <= 31 && drDg >= -8 && drDg <= 7 && dbDg >= -8 && dbDg <= 7)
+                            buffer.put((byte) (QOI_OP_LUMA | (dg + 32))).put((byte) ((drDg + 8) << 4 | (dbDg + 8)));
+                        else
+                            buffer.put((byte) QOI_OP_RGB).put((byte) r).put((byte) g).put((byte) b);
+                    }
+                    previous = pixel;
+                }
+            }
+            if (run > 0) buffer.put((byte) (QOI_OP_RUN | (run - 1)));
+            if (buffer.remaining() < 8) flush(buffer, channel);
+            buffer.put(new byte[]{0, 0, 0, 0, 0, 0, 0, 1});
+            flush(buffer, channel);
+        }
+    },
+
+    /**
+     * Raw headerless dump of 8-bit RGB triads in row-major order
+     */
+    RAW_RGB("rgb") {
+        @Override
+        public void encode(BufferedImage image, WritableByteChannel channel) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            writeRgbBytes(image, buffer, channel);
+            flush(buffer, channel);
+        }
+    },
+
+    /**
+     * Raw headerless dump of 32-bit little-endian float RGB triads in row-major order.
+     * The values are the 8-bit pixel components normalized into [0, 1]
+     */
+    RAW_FLOAT("f32") {
+        @Override
+        public void encode(BufferedImage image, WritableByteChannel channel) throws IOException {
+            int nX = image.getWidth();
+            int nY = image.getHeight();
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            int[] row = new int[nX];
+            for (int y = 0; y < nY; ++y) {
+                image.getRGB(0, y, nX, 1, row, 0, nX);
+                for (int x = 0; x < nX; ++x) {
+                    if (buffer.remaining() < 3 * Float.BYTES) flush(buffer, channel);
+                    int rgb = row[x];
+                    buffer.putFloat(((rgb >> 16) & 0xFF) / 255f)
+                            .putFloat(((rgb >> 8) & 0xFF) / 255f)
+                            .putFloat((rgb & 0xFF) / 255f);
+                }
+            }
+            flush(buffer, channel);
+        }
+    };
+
+    /**
+     * Size of the intermediate write buffer
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+    /**
+     * QOI index operation tag
+     */
+    private static final int QOI_OP_INDEX = 0x00;
+    /**
+     * QOI small difference operation tag
+     */
+    private static final int QOI_OP_DIFF = 0x40;
+    /**
+     * QOI luma difference operation tag
+     */
+    private static final int QOI_OP_LUMA = 0x80;
+    /**
+     * QOI run-length operation tag
+     */
+    private static final int QOI_OP_RUN = 0xC0;
+    /**
+     * QOI full RGB operation tag
+     */
+    private static final int QOI_OP_RGB = 0xFE;
+
+    /**
+     * The file name extension of the format
+     */
+    private final String extension;
+
+    /**
+     * Constructs an image format with its file extension
+     *
+     * @param extension the file name extension (without the dot)
+     */
+    ImageFormat(String extension) {
+        this.extension = extension;
+    }
+
+    @Override
+    public String extension() {
+        return extension;
+    }
+
+    /**
+     * Writes all the pixels of the image as 8-bit RGB triads in row-major order
+     *
+     * @param image   the image to write
+     * @param buffer  the intermediate write buffer
+     * @param channel the destination channel
+     * @throws IOException on a write failure
+     */
+    private static void writeRgbBytes(BufferedImage image, ByteBuffer buffer, WritableByteChannel channel) throws IOException {
+        int nX = image.getWidth();
+        int nY = image.getHeight();
+        int[] row = new int[nX];
+        for (int y = 0; y < nY; ++y) {
+            image.getRGB(0, y, nX, 1, row, 0, nX);
+            for (int x = 0; x < nX; ++x) {
+                if (buffer.remaining() < 3) flush(buffer, channel);
+                int rgb = row[x];
+                buffer.put((byte) (rgb >> 16)).put((byte) (rgb >> 8)).put((byte) rgb);
+            }
+        }
+    }
+
+    /**
+     * Writes the buffered bytes into the channel and clears the buffer
+     *
+     * @param buffer  the intermediate write buffer
+     * @param channel the destination channel
+     * @throws IOException on a write failure
+     */
+    private static void flush(ByteBuffer buffer, WritableByteChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) channel.write(buffer);
+        buffer.clear();
+    }
+}
@@ -4,8 +4,10 @@ import primitives.Color;
 
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
-import java.io.File;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 
 /**
  * Image writer class combines accumulation of pixel color matrix and finally
@@ -29,7 +31,7 @@ final class ImageWriter {
      * Directory path for the image file generation - relative to the user
      * directory
      */
-    private static final String FOLDER_PATH = System.getProperty("user.dir") + "/images";
+    static final String FOLDER_PATH = System.getProperty("user.dir") + "/images";
 
     /**
      * Image generation buffer (the matrix of the pixels)
@@ -51,6 +53,55 @@ final class ImageWriter {
         image = new BufferedImage(nX, nY, BufferedImage.TYPE_INT_RGB);
     }
 
+    /**
+     * Copy constructor - copies the pixel color matrix of another image writer
+     *
+     * @param other the image writer to copy
+     */
+    private ImageWriter(ImageWriter other) {
+        this.nX = other.nX;
+        this.nY = other.nY;
+
+        image = new BufferedImage(other.image.getColorModel(), other.image.copyData(null), false, null);
+    }
+
+    /**
+     * Constructs an image writer holding an existing pixel color matrix
+     *
+     * @param image the pixel color matrix
+     */
+    private ImageWriter(BufferedImage image) {
+        this.nX = image.getWidth();
+        this.nY = image.getHeight();
+        this.image = image;
+    }
+
+    /**
+     * Reads a png image from the images directory, e.g. a previous full render which a region
+     * of interest is composited onto
+     *
+     * @param imageName the name of png file
+     * @param nX        the expected amount of pixels by Width
+     * @param nY        the expected amount of pixels by height
+     * @return an image writer holding the read pixel color matrix
+     * @throws IllegalArgumentException if the image resolution differs from the expected one
+     * @throws IllegalStateException    if the image cannot be read
+     */
+    static ImageWriter readImage(String imageName, int nX, int nY) {
+        BufferedImage read;
+        try {
+            read = ImageIO.read(Path.of(FOLDER_PATH, imageName + ".png").toFile());
+        } catch (IOException e) {
+            throw new IllegalStateException("I/O error while reading the image " + imageName, e);
+        }
+        if (read == null) throw new IllegalStateException("Unsupported image file " + imageName);
+        if (read.getWidth() != nX || read.getHeight() != nY)
+            throw new IllegalArgumentException("Image " + imageName + " resolution differs from " + nX + "x" + nY);
+        BufferedImage image = new BufferedImage(nX, nY, BufferedImage.TYPE_INT_RGB);
+        image.getGraphics().drawImage(read, 0, 0, null);
+        return new ImageWriter(image);
+    }
+
     // ***************** Getters ********************** //
 
     /**
@@ -75,6 +126,16 @@ final class ImageWriter {
 
     // ***************** Operations ******************** //
 
+    /**
+     * Takes a snapshot of the current pixel color matrix. The snapshot is independent of
+     * this image writer, so it may be written to a file while this one keeps being painted
+     *
+     * @return a new image writer holding a copy of the pixel color matrix
+     */
+    ImageWriter snapshot() {
+        return new ImageWriter(this);
+    }
+
     /**
      * Function writeToImage produces unoptimized png file of the image according
      * to pixel color matrix in the directory of the project
@@ -82,9 +143,21 @@ final class ImageWriter {
      * @param imageName the name of png file
      */
     void writeToImage(String imageName) {
-        try {
-            File file = new File(FOLDER_PATH + '/' + imageName + ".png");
-            ImageIO.write(image, "png", file);
+        writeToImage(imageName, ImageFormat.PNG);
+    }
+
+    /**
+     * Function writeToImage produces a file of the image in the requested format according
+     * to pixel color matrix in the directory of the project. The file is written through a file channel
+     *
+     * @param imageName the name of the file (without extension)
+     * @param encoder   the encoder of the requested image format
+     */
+    void writeToImage(String imageName, ImageEncoder encoder) {
+        Path path = Path.of(FOLDER_PATH, imageName + '.' + encoder.extension());
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            encoder.encode(image, channel);
         } catch (IOException e) {
             throw new IllegalStateException("I/O error - may be missing directory " + FOLDER_PATH, e);
         }
@@ -73,6 +73,36 @@ class PixelManager {
      */
     private Object mutexPixels = new Object();
 
+    /**
+     * Order of the tiles and of the pixels inside each tile, null for plain scanline order
+     */
+    private final PixelOrder order;
+    /**
+     * Size of the tile's side in pixels (a power of 2)
+     */
+    private final int tileSize;
+    /**
+     * Amount of tile columns
+     */
+    private final int tilesX;
+    /**
+     * Amount of tile rows
+     */
+    private final int tilesY;
+    /**
+     * Size of the side of the square (a power of 2) which the tiles curve covers
+     */
+    private final int tilesCurveSize;
+    /**
+     * Index of the next tile along the tiles curve
+     */
+    private int nextTile = 0;
+    /**
+     * The tile of each thread and the index of its next pixel along the curve:
+     * tile column, tile row, pixel index (the tile is exhausted when the index reaches the tile area)
+     */
+    private final ThreadLocal<int[]> threadTile;
+
     /**
      * Initialize pixel manager data for multi-threading
      *
@@ -82,7 +112,31 @@ class PixelManager {
      *                 required
      */
     PixelManager(int maxRows, int maxCols, double... interval) {
+        this(maxRows, maxCols, null, 1, interval);
+    }
+
+    /**
+     * Initialize pixel manager data for multi-threading with a space-filling curve order - each
+     * thread takes a whole tile (the tiles are taken in the curve order) and gets its pixels in the
+     * same curve order
+     *
+     * @param maxRows  the amount of pixel rows
+     * @param maxCols  the amount of pixel columns
+     * @param order    the order of the tiles and of the pixels in each tile, null for plain scanline order
+     * @param tileSize size of the tile's side in pixels, a power of 2
+     * @param interval print time interval in seconds, 0 if printing is not
+     *                 required
+     */
+    PixelManager(int maxRows, int maxCols, PixelOrder order, int tileSize, double... interval) {
         if (interval.length > 1) throw new IllegalArgumentException("only up to one interval argument is allowed");
+        if (tileSize <= 0 || Integer.bitCount(tileSize) != 1)
+            throw new IllegalArgumentException("Tile size must be a power of 2");
+        this.order = order;
+        this.tileSize = tileSize;
+        this.tilesX = (maxCols + tileSize - 1) / tileSize;
+        this.tilesY = (maxRows + tileSize - 1) / tileSize;
+        this.tilesCurveSize = Integer.highestOneBit(Math.max(1, Math.max(tilesX, tilesY) * 2 - 1));
+        this.threadTile = ThreadLocal.withInitial(() -> new int[]{0, 0, tileSize * tileSize});
         this.maxRows = maxRows;
         this.maxCols = maxCols;
         totalPixels = (long) maxRows * maxCols;
@@ -100,6 +154,7 @@ class PixelManager {
      * @return true if next pixel is allocated, false if there are no more pixels
      */
     Pixel nextPixel() {
+        if (order != null) return nextTilePixel();
         synchronized (mutexNext) {
             if (cRow == maxRows) return null;
 
@@ -115,6 +170,35 @@ class PixelManager {
         return null;
     }
 
+    /**
+     * Provides the next pixel of the calling thread's tile in the curve order. When the tile is
+     * exhausted the thread takes the next tile along the tiles curve (tiles and pixels outside
+     * the image are skipped)
+     *
+     * @return the next pixel or null if there are no more pixels
+     */
+    private Pixel nextTilePixel() {
+        int[] tile = threadTile.get();
+        int[] xy = new int[2];
+        while (true) {
+            while (tile[2] < tileSize * tileSize) {
+                order.decode(tile[2]++, tileSize, xy);
+                int col = tile[0] * tileSize + xy[0];
+                int row = tile[1] * tileSize + xy[1];
+                if (col < maxCols && row < maxRows) return new Pixel(col, row);
+            }
+            synchronized (mutexNext) {
+                do {
+                    if (nextTile == tilesCurveSize * tilesCurveSize) return null;
+                    order.decode(nextTile++, tilesCurveSize, xy);
+                } while (xy[0] >= tilesX || xy[1] >= tilesY);
+            }
+            tile[0] = xy[0];
+            tile[1] = xy[1];
+            tile[2] = 0;
+        }
+    }
+
     /**
      * Finish pixel processing by updating and printing of progress percentage
      */
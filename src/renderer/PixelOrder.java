@@ -0,0 +1,85 @@
+package renderer;
+
+/**
+ * Order of the pixels handed out to the rendering threads (see {@link Camera.Builder#setPixelOrder}).<br>
+ * With a space-filling curve the image is divided into square tiles which are taken by the threads
+ * in the curve order, and each thread walks the pixels of its tile in the same curve order - so
+ * consecutive rays of a thread hit neighbouring parts of the scene and reuse the cached voxels and
+ * geometry data. The order does not change the rendered image
+ */
+public enum PixelOrder {
+    /**
+     * Row by row, left to right
+     */
+    SCANLINE {
+        @Override
+        void decode(int d, int size, int[] xy) {
+            xy[0] = d % size;
+            xy[1] = d / size;
+        }
+    },
+
+    /**
+     * Z-order (Morton) curve - the bits of the column and the row are interleaved
+     */
+    MORTON {
+        @Override
+        void decode(int d, int size, int[] xy) {
+            xy[0] = compactBits(d);
+            xy[1] = compactBits(d >>> 1);
+        }
+    },
+
+    /**
+     * Hilbert curve - every two consecutive pixels are adjacent
+     */
+    HILBERT {
+        @Override
+        void decode(int d, int size, int[] xy) {
+            int x = 0;
+            int y = 0;
+            for (int s = 1; s < size; s *= 2) {
+                int rx = 1 & (d / 2);
+                int ry = 1 & (d ^ rx);
+                if (ry == 0) {
+                    if (rx == 1) {
+                        x = s - 1 - x;
+                        y = s - 1 - y;
+                    }
+                    int t = x;
+                    x = y;
+                    y = t;
+                }
+                x += s * rx;
+                y += s * ry;
+                d /= 4;
+            }
+            xy[0] = x;
+            xy[1] = y;
+        }
+    };
+
+    /**
+     * Calculates the position of a point along the curve which covers a square
+     *
+     * @param d    index of the point along the curve
+     * @param size size of the square's side, a power of 2
+     * @param xy   receives the column and the row of the point
+     */
+    abstract void decode(int d, int size, int[] xy);
+
+    /**
+     * Collects the even bits of a number into its lower half (inverse of bit interleaving)
+     *
+     * @param value the interleaved number
+     * @return the number made of the even bits
+     */
+    private static int compactBits(int value) {
+        value &= 0x55555555;
+        value = (value | (value >>> 1)) & 0x33333333;
+        value = (value | (value >>> 2)) & 0x0F0F0F0F;
+        value = (value | (value >>> 4)) & 0x00FF00FF;
+        value = (value | (value >>> 8)) & 0x0000FFFF;
+        return value;
+    }
+}
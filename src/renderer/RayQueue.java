@@ -0,0 +1,316 @@
+package renderer;
+
+import geometries.BoundingBox;
+import primitives.Double3;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.util.Arrays;
+
+/**
+ * Queue of the rays of a wavefront - one generation of rays which are traced together, stored in
+ * primitive arrays (structure of arrays).<br>
+ * Every ray carries the pixel which it contributes to, its recursion level, the amount of diffuse bounces
+ * of its path (see {@link sampling.SampleBudget}), its attenuation factor
+ * (the product of the effect coefficients along its path, as the {@code k} of the recursive tracer)
+ * and its weight - the factor of its color in the pixel's color. Before a generation of secondary rays
+ * is traced the queue may be sorted by the cell of the rays' origins in the scene bounds and by the
+ * octant of their directions, so neighbouring rays visit the same parts of the scene.
+ * The queue serves also as the work stack of the iterative color calculation (see {@link #removeLast()})
+ */
+final class RayQueue {
+    /**
+     * Amount of bits of a cell index along each axis (16 cells per axis)
+     */
+    private static final int CELL_BITS = 4;
+    /**
+     * Initial capacity of the queue
+     */
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * Origin coordinates of the rays (x, y, z of each ray)
+     */
+    private double[] origins = new double[3 * INITIAL_CAPACITY];
+    /**
+     * Direction coordinates of the rays (x, y, z of each ray)
+     */
+    private double[] directions = new double[3 * INITIAL_CAPACITY];
+    /**
+     * Attenuation factors of the rays (3 components of each ray)
+     */
+    private double[] factors = new double[3 * INITIAL_CAPACITY];
+    /**
+     * Weights of the rays' colors in their pixels' colors (3 components of each ray)
+     */
+    private double[] weights = new double[3 * INITIAL_CAPACITY];
+    /**
+     * Index of the pixel which each ray contributes to
+     */
+    private int[] pixels = new int[INITIAL_CAPACITY];
+    /**
+     * Recursion level of the color calculation at each ray's hit
+     */
+    private int[] levels = new int[INITIAL_CAPACITY];
+    /**
+     * Amount of diffuse bounces of each ray's path, including the ray's origin
+     */
+    private int[] bounces = new int[INITIAL_CAPACITY];
+    /**
+     * Amount of the rays in the queue
+     */
+    private int size = 0;
+    /**
+     * Sort keys of the rays, reused by the sorts of the queue
+     */
+    private long[] keys = new long[0];
+    /**
+     * Scratch arrays which the rays are sorted into, swapped with the queue's arrays after each sort
+     * so that sorting does not allocate (null until the first sort)
+     */
+    private double[] sortedOrigins, sortedDirections, sortedFactors, sortedWeights;
+    /**
+     * Scratch arrays of the pixels, levels and bounces which the rays are sorted into (see {@link #sortedOrigins})
+     */
+    private int[] sortedPixels, sortedLevels, sortedBounces;
+
+    /**
+     * Adds a ray to the queue
+     *
+     * @param ray    the ray
+     * @param pixel  index of the pixel which the ray contributes to
+     * @param level   recursion level of the color calculation at the ray's hit
+     * @param bounces amount of diffuse bounces of the ray's path, including the ray's origin
+     * @param factor  attenuation factor of the ray
+     * @param weight  weight of the ray's color in the pixel's color
+     */
+    void add(Ray ray, int pixel, int level, int bounces, Double3 factor, Double3 weight) {
+        if (size == pixels.length) {
+            origins = Arrays.copyOf(origins, 6 * size);
+            directions = Arrays.copyOf(directions, 6 * size);
+            factors = Arrays.copyOf(factors, 6 * size);
+            weights = Arrays.copyOf(weights, 6 * size);
+            pixels = Arrays.copyOf(pixels, 2 * size);
+            levels = Arrays.copyOf(levels, 2 * size);
+            this.bounces = Arrays.copyOf(this.bounces, 2 * size);
+        }
+        int offset = 3 * size;
+        Point head = ray.getHead();
+        Vector direction = ray.getDirection();
+        origins[offset] = head.getX();
+        origins[offset + 1] = head.getY();
+        origins[offset + 2] = head.getZ();
+        directions[offset] = direction.getX();
+        directions[offset + 1] = direction.getY();
+        directions[offset + 2] = direction.getZ();
+        factors[offset] = factor.d1();
+        factors[offset + 1] = factor.d2();
+        factors[offset + 2] = factor.d3();
+        weights[offset] = weight.d1();
+        weights[offset + 1] = weight.d2();
+        weights[offset + 2] = weight.d3();
+        pixels[size] = pixel;
+        levels[size] = level;
+        this.bounces[size] = bounces;
+        ++size;
+    }
+
+    /**
+     * Removes the last added ray, so the queue is used as a stack
+     */
+    void removeLast() {
+        --size;
+    }
+
+    /**
+     * Removes all the rays, keeping the allocated arrays for the next generation
+     */
+    void clear() {
+        size = 0;
+    }
+
+    /**
+     * Sorts the rays by the cell of their origins and by the octant of their directions
+     *
+     * @param bounds the scene bounds which are divided into the cells, null to sort by the octants only
+     */
+    void sort(BoundingBox bounds) {
+        if (keys.length < size) keys = new long[pixels.length];
+        for (int r = 0; r < size; ++r) keys[r] = (long) sortKey(r, bounds) << Integer.SIZE | r;
+        Arrays.sort(keys, 0, size);
+
+        if (sortedPixels == null || sortedPixels.length != pixels.length) {
+            sortedOrigins = new double[origins.length];
+            sortedDirections = new double[directions.length];
+            sortedFactors = new double[factors.length];
+            sortedWeights = new double[weights.length];
+            sortedPixels = new int[pixels.length];
+            sortedLevels = new int[levels.length];
+            sortedBounces = new int[bounces.length];
+        }
+        for (int r = 0; r < size; ++r) {
+            int from = (int) keys[r];
+            System.arraycopy(origins, 3 * from, sortedOrigins, 3 * r, 3);
+            System.arraycopy(directions, 3 * from, sortedDirections, 3 * r, 3);
+            System.arraycopy(factors, 3 * from, sortedFactors, 3 * r, 3);
+            System.arraycopy(weights, 3 * from, sortedWeights, 3 * r, 3);
+            sortedPixels[r] = pixels[from];
+            sortedLevels[r] = levels[from];
+            sortedBounces[r] = bounces[from];
+        }
+        double[] swap = origins;
+        origins = sortedOrigins;
+        sortedOrigins = swap;
+        swap = directions;
+        directions = sortedDirections;
+        sortedDirections = swap;
+        swap = factors;
+        factors = sortedFactors;
+        sortedFactors = swap;
+        swap = weights;
+        weights = sortedWeights;
+        sortedWeights = swap;
+        int[] swapped = pixels;
+        pixels = sortedPixels;
+        sortedPixels = swapped;
+        swapped = levels;
+        levels = sortedLevels;
+        sortedLevels = swapped;
+        swapped = bounces;
+        bounces = sortedBounces;
+        sortedBounces = swapped;
+    }
+
+    /**
+     * Amount of the rays in the queue
+     *
+     * @return the amount of the rays
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Gets a ray
+     *
+     * @param index the ray's index
+     * @return the ray
+     */
+    Ray ray(int index) {
+        int offset = 3 * index;
+        return new Ray(new Point(origins[offset], origins[offset + 1], origins[offset + 2]),
+                new Vector(directions[offset], directions[offset + 1], directions[offset + 2]));
+    }
+
+    /**
+     * Gets the direction of a ray
+     *
+     * @param index the ray's index
+     * @return the direction
+     */
+    Vector direction(int index) {
+        int offset = 3 * index;
+        return new Vector(directions[offset], directions[offset + 1], directions[offset + 2]);
+    }
+
+    /**
+     * Gets a range of the rays
+     *
+     * @param from index of the first ray
+     * @param to   index after the last ray
+     * @return the rays
+     */
+    Ray[] rays(int from, int to) {
+        Ray[] rays = new Ray[to - from];
+        for (int r = from; r < to; ++r) rays[r - from] = ray(r);
+        return rays;
+    }
+
+    /**
+     * Gets the pixel which a ray contributes to
+     *
+     * @param index the ray's index
+     * @return index of the pixel
+     */
+    int pixel(int index) {
+        return pixels[index];
+    }
+
+    /**
+     * Gets the recursion level of the color calculation at a ray's hit
+     *
+     * @param index the ray's index
+     * @return the recursion level
+     */
+    int level(int index) {
+        return levels[index];
+    }
+
+    /**
+     * Gets the amount of diffuse bounces of a ray's path
+     *
+     * @param index the ray's index
+     * @return the amount of diffuse bounces, including the ray's origin
+     */
+    int bounces(int index) {
+        return bounces[index];
+    }
+
+    /**
+     * Gets the attenuation factor of a ray
+     *
+     * @param index the ray's index
+     * @return the attenuation factor
+     */
+    Double3 factor(int index) {
+        int offset = 3 * index;
+        return new Double3(factors[offset], factors[offset + 1], factors[offset + 2]);
+    }
+
+    /**
+     * Gets the weight of a ray's color in its pixel's color
+     *
+     * @param index the ray's index
+     * @return the weight
+     */
+    Double3 weight(int index) {
+        int offset = 3 * index;
+        return new Double3(weights[offset], weights[offset + 1], weights[offset + 2]);
+    }
+
+    /**
+     * Calculates the sort key of a ray - the Morton code of its origin's cell followed by its direction's octant
+     *
+     * @param index  the ray's index
+     * @param bounds the scene bounds, null if there are no cells
+     * @return the sort key
+     */
+    private int sortKey(int index, BoundingBox bounds) {
+        int offset = 3 * index;
+        int octant = (directions[offset] < 0 ? 4 : 0) | (directions[offset + 1] < 0 ? 2 : 0)
+                | (directions[offset + 2] < 0 ? 1 : 0);
+        if (bounds == null) return octant;
+        int x = cellOf(origins[offset], bounds.min().getX(), bounds.max().getX());
+        int y = cellOf(origins[offset + 1], bounds.min().getY(), bounds.max().getY());
+        int z = cellOf(origins[offset + 2], bounds.min().getZ(), bounds.max().getZ());
+        int cell = 0;
+        for (int bit = CELL_BITS - 1; bit >= 0; --bit)
+            cell = cell << 3 | (x >> bit & 1) << 2 | (y >> bit & 1) << 1 | (z >> bit & 1);
+        return cell << 3 | octant;
+    }
+
+    /**
+     * Calculates the cell index of a coordinate, clamped into the bounds
+     *
+     * @param coordinate the coordinate
+     * @param min        the bounds minimum along the axis
+     * @param max        the bounds maximum along the axis
+     * @return the cell index
+     */
+    private static int cellOf(double coordinate, double min, double max) {
+        int cells = 1 << CELL_BITS;
+        if (max <= min) return 0;
+        return Math.max(0, Math.min(cells - 1, (int) ((coordinate - min) / (max - min) * cells)));
+    }
+}
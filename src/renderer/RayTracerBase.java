@@ -4,6 +4,8 @@ import primitives.Color;
 import primitives.Ray;
 import scene.Scene;
 
+import static geometries.Intersectable.Intersection;
+
 /**
  * An abstract base class for ray tracers.
  */
@@ -30,5 +32,52 @@ public abstract class RayTracerBase {
      * @return The color at the intersection point.
      */
     public abstract Color traceRay(Ray ray);
-    
+
+    /**
+     * Finds the closest intersection of the given ray with the scene geometries.
+     *
+     * @param ray The ray to check for intersections.
+     * @return The closest intersection, or null if none.
+     */
+    protected abstract Intersection findClosestIntersection(Ray ray);
+
+    /**
+     * Traces a packet of coherent rays (e.g. the primary rays of a block of pixels) and calculates their colors.
+     * By default the rays are traced one by one
+     *
+     * @param rays the rays to trace
+     * @return the color of each ray
+     */
+    public Color[] traceRays(Ray[] rays) {
+        Color[] colors = new Color[rays.length];
+        for (int r = 0; r < rays.length; ++r) colors[r] = traceRay(rays[r]);
+        return colors;
+    }
+
+    /**
+     * Traces a packet of coherent rays like {@link #traceRays(Ray[])}, but follows the secondary rays of all
+     * the packet's hits breadth-first - every generation of secondary rays is sorted by origin and direction
+     * before it is traced, so that rays which travel through the same parts of the scene are traced together.
+     * By default the rays are traced as by {@link #traceRays(Ray[])}
+     *
+     * @param rays the rays to trace
+     * @return the color of each ray
+     */
+    public Color[] traceRaysReordered(Ray[] rays) {
+        return traceRays(rays);
+    }
+
+    /**
+     * Finds the closest intersections of a packet of coherent rays with the scene geometries.
+     * By default the rays are intersected one by one
+     *
+     * @param rays the rays to check for intersections
+     * @return the closest intersection of each ray (null where there is none)
+     */
+    protected Intersection[] findClosestIntersections(Ray[] rays) {
+        Intersection[] intersections = new Intersection[rays.length];
+        for (int r = 0; r < rays.length; ++r) intersections[r] = findClosestIntersection(rays[r]);
+        return intersections;
+    }
+
 }
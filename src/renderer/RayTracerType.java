@@ -22,4 +22,9 @@ public enum RayTracerType {
      * Represents an extended ray tracer that uses a regular grid for acceleration.
      */
     GRID_EXTENDED,
+
+    /**
+     * Represents a wavefront (breadth-first) extended ray tracer that uses a regular grid for acceleration.
+     */
+    WAVEFRONT,
 }
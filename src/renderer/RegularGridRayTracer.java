@@ -5,6 +5,7 @@ import acceleration.VoxelTraverser;
 import geometries.Intersectable;
 import primitives.Double3;
 import primitives.Ray;
+import primitives.Vector;
 import sampling.TargetAreaBase;
 import scene.Scene;
 
@@ -50,9 +51,13 @@ public class RegularGridRayTracer extends ExtendedRayTracer {
     }
 
     @Override
-    protected Double3 transparency(Intersectable.Intersection intersection) {
-        Ray shadowRay = new Ray(intersection.point, intersection.lightDirection.scale(-1), intersection.normal);
-        double maxDistance = intersection.lightSource.getDistance(shadowRay.getHead());
+    protected Intersectable.Intersection[] findClosestIntersections(Ray[] rays) {
+        return voxelTraverser.get().findClosestIntersections(rays);
+    }
+
+    @Override
+    protected Double3 transparency(Intersectable.Intersection intersection, Vector direction, double maxDistance) {
+        Ray shadowRay = new Ray(intersection.point, direction, intersection.normal);
         List<Intersectable.Intersection> intersections = voxelTraverser.get().findIntersections(shadowRay, maxDistance);
         if (intersections == null) return Double3.ONE;
 
@@ -0,0 +1,289 @@
+package renderer;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Checkpoint of a render in progress, kept in a memory-mapped file.<br>
+ * The image is divided into square tiles. Every rendered pixel is stored in the mapped frame buffer,
+ * and when all the pixels of a tile are done the tile is marked as finished. The mapped file is
+ * forced to the disk periodically - the frame buffer first and only then the finished tile flags,
+ * so a flag found in the file always refers to pixels that are already stored.<br>
+ * When a render is started with an existing checkpoint file of the same render, its finished tiles
+ * are restored and are not rendered again.
+ * <p>
+ * File layout: header (magic, version, nX, nY, tile size, render fingerprint), one flag byte per tile,
+ * then the frame buffer - one RGB int per pixel in row-major order.
+ */
+final class RenderCheckpoint implements AutoCloseable {
+    /**
+     * Checkpoint file magic number ("RTCP")
+     */
+    private static final int MAGIC = 0x52544350;
+    /**
+     * Checkpoint file format version
+     */
+    private static final int VERSION = 1;
+    /**
+     * Size of the file header in bytes
+     */
+    private static final int HEADER_SIZE = 24;
+    /**
+     * Maximal size of a single frame buffer mapping in bytes
+     */
+    private static final long MAX_MAPPING_SIZE = 1L << 30;
+    /**
+     * Flag value of a finished tile
+     */
+    private static final byte TILE_DONE = 1;
+
+    /**
+     * The checkpoint file
+     */
+    private final Path file;
+    /**
+     * Horizontal resolution of the image
+     */
+    private final int nX;
+    /**
+     * Vertical resolution of the image
+     */
+    private final int nY;
+    /**
+     * Size of the tile's side in pixels
+     */
+    private final int tileSize;
+    /**
+     * Amount of tile columns
+     */
+    private final int tilesX;
+    /**
+     * Amount of rows in each frame buffer mapping
+     */
+    private final int rowsPerMapping;
+    /**
+     * The file channel
+     */
+    private final FileChannel channel;
+    /**
+     * Mapping of the header and the tile flags
+     */
+    private final MappedByteBuffer flagsBuffer;
+    /**
+     * Mappings of the frame buffer, each covers {@link #rowsPerMapping} rows
+     */
+    private final MappedByteBuffer[] frameBuffers;
+    /**
+     * Finished tile flags in memory - copied into the file only after the frame buffer is forced
+     */
+    private final byte[] tilesDone;
+    /**
+     * Amount of pixels which are still missing in each tile
+     */
+    private final AtomicIntegerArray remaining;
+    /**
+     * Amount of tiles restored from an existing checkpoint file
+     */
+    private final int restoredTiles;
+    /**
+     * Minimal time between two flushes to the disk in nanoseconds
+     */
+    private final long flushInterval;
+    /**
+     * Time of the last flush in nanoseconds
+     */
+    private volatile long lastFlush = System.nanoTime();
+
+    /**
+     * Opens the checkpoint file of a render, or creates it if it does not exist
+     *
+     * @param file          the checkpoint file
+     * @param nX            amount of pixels by Width
+     * @param nY            amount of pixels by height
+     * @param tileSize      size of the tile's side in pixels
+     * @param fingerprint   fingerprint of the render parameters
+     * @param flushInterval minimal time between two flushes to the disk in seconds
+     * @throws IllegalStateException if the existing file belongs to a different render or on an I/O error
+     */
+    RenderCheckpoint(Path file, int nX, int nY, int tileSize, int fingerprint, double flushInterval) {
+        if (tileSize <= 0) throw new IllegalArgumentException("Tile size must be positive");
+        this.file = file;
+        this.nX = nX;
+        this.nY = nY;
+        this.tileSize = tileSize;
+        this.tilesX = (nX + tileSize - 1) / tileSize;
+        int tileCount = tilesX * ((nY + tileSize - 1) / tileSize);
+        this.rowsPerMapping = (int) Math.max(1, MAX_MAPPING_SIZE / (4L * nX));
+        this.flushInterval = (long) (flushInterval * 1e9);
+        this.tilesDone = new byte[tileCount];
+        this.remaining = new AtomicIntegerArray(tileCount);
+
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long flagsSize = HEADER_SIZE + tileCount;
+            flagsBuffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, flagsSize);
+            frameBuffers = new MappedByteBuffer[(nY + rowsPerMapping - 1) / rowsPerMapping];
+            for (int k = 0; k < frameBuffers.length; ++k) {
+                int rows = Math.min(rowsPerMapping, nY - k * rowsPerMapping);
+                frameBuffers[k] = channel.map(FileChannel.MapMode.READ_WRITE,
+                        flagsSize + 4L * nX * k * rowsPerMapping, 4L * nX * rows);
+            }
+
+            if (flagsBuffer.getInt(0) == MAGIC) {
+                if (flagsBuffer.getInt(4) != VERSION
+                        || flagsBuffer.getInt(8) != nX || flagsBuffer.getInt(12) != nY
+                        || flagsBuffer.getInt(16) != tileSize || flagsBuffer.getInt(20) != fingerprint) {
+                    channel.close();
+                    throw new IllegalStateException("Checkpoint file " + file + " belongs to a different render");
+                }
+                flagsBuffer.get(HEADER_SIZE, tilesDone);
+            } else {
+                flagsBuffer.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, nX).putInt(12, nY)
+                        .putInt(16, tileSize).putInt(20, fingerprint);
+                flagsBuffer.force();
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("I/O error while opening the checkpoint file " + file, e);
+        }
+
+        int restored = 0;
+        for (int tile = 0; tile < tileCount; ++tile)
+            if (tilesDone[tile] == TILE_DONE) ++restored;
+            else remaining.set(tile, tilePixels(tile));
+        restoredTiles = restored;
+    }
+
+    /**
+     * Amount of tiles which were restored from an existing checkpoint file
+     *
+     * @return the amount of restored tiles
+     */
+    int restoredTiles() {
+        return restoredTiles;
+    }
+
+    /**
+     * Checks whether the tile of a pixel is finished
+     *
+     * @param j pixel column index
+     * @param i pixel row index
+     * @return true if the pixel's tile is finished
+     */
+    boolean isTileDone(int j, int i) {
+        return remaining.get(tileOf(j, i)) == 0;
+    }
+
+    /**
+     * Checks whether all the tiles are finished
+     *
+     * @return true if the whole image is finished
+     */
+    boolean isComplete() {
+        for (int tile = 0; tile < remaining.length(); ++tile)
+            if (remaining.get(tile) != 0) return false;
+        return true;
+    }
+
+    /**
+     * Gets the stored color of a pixel
+     *
+     * @param j pixel column index
+     * @param i pixel row index
+     * @return RGB value of the pixel
+     */
+    int getRGB(int j, int i) {
+        return frameBuffers[i / rowsPerMapping].getInt(4 * ((i % rowsPerMapping) * nX + j));
+    }
+
+    /**
+     * Stores the color of a finished pixel. When the last pixel of a tile is stored, the tile
+     * is marked as finished, and the checkpoint is flushed if the flush interval has passed
+     *
+     * @param j   pixel column index
+     * @param i   pixel row index
+     * @param rgb RGB value of the pixel
+     */
+    void pixelDone(int j, int i, int rgb) {
+        frameBuffers[i / rowsPerMapping].putInt(4 * ((i % rowsPerMapping) * nX + j), rgb);
+        int tile = tileOf(j, i);
+        if (remaining.decrementAndGet(tile) != 0) return;
+        synchronized (tilesDone) {
+            tilesDone[tile] = TILE_DONE;
+        }
+        if (System.nanoTime() - lastFlush >= flushInterval) flush();
+    }
+
+    /**
+     * Forces the frame buffer to the disk and then stores and forces the finished tile flags.
+     * The flags are taken before the frame buffer is forced, so a tile finished meanwhile
+     * is stored only by the next flush
+     */
+    void flush() {
+        synchronized (flagsBuffer) {
+            lastFlush = System.nanoTime();
+            byte[] snapshot;
+            synchronized (tilesDone) {
+                snapshot = tilesDone.clone();
+            }
+            for (MappedByteBuffer frameBuffer : frameBuffers) frameBuffer.force();
+            flagsBuffer.put(HEADER_SIZE, snapshot);
+            flagsBuffer.force();
+        }
+    }
+
+    /**
+     * Flushes the checkpoint and closes the file, the file is kept for a later resume
+     */
+    @Override
+    public void close() {
+        flush();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new IllegalStateException("I/O error while closing the checkpoint file " + file, e);
+        }
+    }
+
+    /**
+     * Invalidates, closes and deletes the checkpoint file after the render has been completed.
+     * If the file cannot be deleted (e.g. while it is still mapped on some systems), it stays
+     * invalidated and a later render starts from scratch
+     */
+    void delete() {
+        flagsBuffer.putInt(0, 0);
+        flagsBuffer.force();
+        try {
+            channel.close();
+            Files.deleteIfExists(file);
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * Calculates the index of the tile which contains a pixel
+     *
+     * @param j pixel column index
+     * @param i pixel row index
+     * @return the tile index
+     */
+    private int tileOf(int j, int i) {
+        return (i / tileSize) * tilesX + j / tileSize;
+    }
+
+    /**
+     * Calculates the amount of pixels of a tile (the tiles on the right and bottom edges may be smaller)
+     *
+     * @param tile the tile index
+     * @return amount of pixels in the tile
+     */
+    private int tilePixels(int tile) {
+        int x0 = (tile % tilesX) * tileSize;
+        int y0 = (tile / tilesX) * tileSize;
+        return Math.min(tileSize, nX - x0) * Math.min(tileSize, nY - y0);
+    }
+}
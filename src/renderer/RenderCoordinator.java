@@ -0,0 +1,250 @@
+package renderer;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Coordinator of a render distributed over {@link RenderWorker} processes.<br>
+ * The image is divided into tiles which are kept in a shared queue. Every worker connection is served
+ * by its own thread: it sends the scene and camera description once, and then repeatedly takes a tile
+ * from the queue, sends it to the worker and passes the returned pixels to the tile sink.
+ * When a worker dies, fails, or does not answer within the tile timeout, its connection is closed and
+ * the tile it was rendering is returned into the queue and is rendered by one of the remaining workers.
+ * The reason of the first failure is kept, and it is reported if all the workers fail.
+ * <p>
+ * Protocol (big-endian ints over a TCP connection):
+ * <ul>
+ *     <li>coordinator: {@link #MAGIC}, nX, nY, description length, UTF-8 description bytes</li>
+ *     <li>worker: {@link #ACCEPTED} if it has built the same resolution camera from the description,
+ *     otherwise {@link #REJECTED} and the reason (modified UTF-8 string)</li>
+ *     <li>coordinator: tile x0, y0, width, height - or a zero size tile at the end of the render</li>
+ *     <li>worker: {@link #ACCEPTED} and width * height RGB ints of the tile in row-major order,
+ *     or {@link #REJECTED} and the reason if the tile cannot be rendered</li>
+ * </ul>
+ */
+final class RenderCoordinator {
+    /**
+     * Protocol magic number sent by the coordinator ("RTDW")
+     */
+    static final int MAGIC = 0x52544457;
+    /**
+     * Worker's reply when it accepts the render description
+     */
+    static final int ACCEPTED = 1;
+    /**
+     * Worker's reply when it rejects the render description
+     */
+    static final int REJECTED = 0;
+    /**
+     * Timeout of connecting to a worker in milliseconds
+     */
+    private static final int CONNECT_TIMEOUT = 5000;
+    /**
+     * Default timeout of a worker's answer (the camera setup or a rendered tile) in milliseconds
+     */
+    static final int DEFAULT_TILE_TIMEOUT = 10 * 60 * 1000;
+    /**
+     * Interval of checking for a failure of all the workers in milliseconds
+     */
+    private static final long POLL_INTERVAL = 100;
+
+    /**
+     * Receiver of the rendered tiles
+     */
+    @FunctionalInterface
+    interface TileSink {
+        /**
+         * Receives the pixels of a rendered tile, may be called concurrently for different tiles
+         *
+         * @param tile the rendered tile
+         * @param rgb  RGB values of the tile's pixels in row-major order
+         */
+        void tileDone(Tile tile, int[] rgb);
+    }
+
+    /**
+     * UTF-8 bytes of the scene and camera description (XML document of the camera and its scene)
+     */
+    private final byte[] description;
+    /**
+     * Horizontal resolution of the image
+     */
+    private final int nX;
+    /**
+     * Vertical resolution of the image
+     */
+    private final int nY;
+    /**
+     * Receiver of the rendered tiles
+     */
+    private final TileSink sink;
+    /**
+     * Tiles which are waiting for a worker
+     */
+    private final BlockingQueue<Tile> tiles = new LinkedBlockingQueue<>();
+    /**
+     * Counter of the tiles which have not been received yet
+     */
+    private final CountDownLatch remaining;
+    /**
+     * Amount of worker connections which are still alive
+     */
+    private final AtomicInteger activeWorkers = new AtomicInteger();
+    /**
+     * Timeout of a worker's answer in milliseconds
+     */
+    private final int tileTimeout;
+    /**
+     * The first failure of a worker
+     */
+    private final AtomicReference<IOException> failure = new AtomicReference<>();
+
+    /**
+     * Constructs a coordinator of a render
+     *
+     * @param description the camera and scene XML document (see {@link scene.XMLParser#BuildCameraFromXML(InputStream)})
+     * @param nX          amount of pixels by Width
+     * @param nY          amount of pixels by height
+     * @param tileSize    size of the tile's side in pixels
+     * @param sink        receiver of the rendered tiles
+     */
+    RenderCoordinator(String description, int nX, int nY, int tileSize, TileSink sink) {
+        this(description, nX, nY, tileSize, DEFAULT_TILE_TIMEOUT, sink);
+    }
+
+    /**
+     * Constructs a coordinator of a render with a timeout of the workers' answers
+     *
+     * @param description the camera and scene XML document (see {@link scene.XMLParser#BuildCameraFromXML(InputStream)})
+     * @param nX          amount of pixels by Width
+     * @param nY          amount of pixels by height
+     * @param tileSize    size of the tile's side in pixels
+     * @param tileTimeout timeout of a worker's answer in milliseconds - a worker which does not answer
+     *                    in time is dropped and its tile is reassigned
+     * @param sink        receiver of the rendered tiles
+     */
+    RenderCoordinator(String description, int nX, int nY, int tileSize, int tileTimeout, TileSink sink) {
+        if (tileSize <= 0) throw new IllegalArgumentException("Tile size must be positive");
+        if (tileTimeout <= 0) throw new IllegalArgumentException("Tile timeout must be positive");
+        this.tileTimeout = tileTimeout;
+        this.description = description.getBytes(StandardCharsets.UTF_8);
+        this.nX = nX;
+        this.nY = nY;
+        this.sink = sink;
+        for (int y0 = 0; y0 < nY; y0 += tileSize)
+            for (int x0 = 0; x0 < nX; x0 += tileSize)
+                tiles.add(new Tile(x0, y0, Math.min(tileSize, nX - x0), Math.min(tileSize, nY - y0)));
+        remaining = new CountDownLatch(tiles.size());
+    }
+
+    /**
+     * Renders all the tiles by the workers and waits until all of them are received.
+     * An address may appear several times - a separate connection is opened for each appearance,
+     * so a multi-core worker may render several tiles concurrently
+     *
+     * @param workers addresses of the workers
+     * @throws IllegalArgumentException if there are no workers
+     * @throws IllegalStateException    if all the workers have failed before the render is finished
+     */
+    void render(List<InetSocketAddress> workers) {
+        if (workers.isEmpty()) throw new IllegalArgumentException("There must be at least one render worker");
+        activeWorkers.set(workers.size());
+        var threads = new ArrayList<Thread>(workers.size());
+        for (InetSocketAddress address : workers) {
+            Thread thread = new Thread(() -> serveWorker(address), "render-coordinator-" + address);
+            thread.setDaemon(true);
+            threads.add(thread);
+        }
+        for (var thread : threads) thread.start();
+        try {
+            while (!remaining.await(POLL_INTERVAL, TimeUnit.MILLISECONDS))
+                if (activeWorkers.get() == 0 && remaining.getCount() > 0)
+                    throw new IllegalStateException("All render workers have failed, "
+                            + remaining.getCount() + " tiles were not rendered", failure.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Distributed render was interrupted", e);
+        }
+    }
+
+    /**
+     * Serves a single worker connection until there are no more tiles or the connection fails
+     *
+     * @param address the worker's address
+     */
+    private void serveWorker(InetSocketAddress address) {
+        Tile tile = null;
+        try (Socket socket = new Socket()) {
+            socket.connect(address, CONNECT_TIMEOUT);
+            socket.setTcpNoDelay(true);
+            socket.setSoTimeout(tileTimeout);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+
+            out.writeInt(MAGIC);
+            out.writeInt(nX);
+            out.writeInt(nY);
+            out.writeInt(description.length);
+            out.write(description);
+            out.flush();
+            if (in.readInt() != ACCEPTED)
+                throw new IOException("Worker " + address + " rejected the render: " + in.readUTF());
+
+            while ((tile = nextTile()) != null) {
+                out.writeInt(tile.x0());
+                out.writeInt(tile.y0());
+                out.writeInt(tile.width());
+                out.writeInt(tile.height());
+                out.flush();
+                if (in.readInt() != ACCEPTED)
+                    throw new IOException("Worker " + address + " failed: " + in.readUTF());
+                int[] rgb = new int[tile.pixels()];
+                for (int k = 0; k < rgb.length; ++k) rgb[k] = in.readInt();
+                sink.tileDone(tile, rgb);
+                tile = null;
+                remaining.countDown();
+            }
+            for (int k = 0; k < 4; ++k) out.writeInt(0);
+            out.flush();
+        } catch (SocketTimeoutException e) {
+            // the worker hangs - it is dropped and its tile is reassigned to the other workers
+            failure.compareAndSet(null, new IOException("Worker " + address + " did not answer in time", e));
+            if (tile != null) tiles.add(tile);
+        } catch (IOException e) {
+            // the worker is lost - its tile is reassigned to the other workers
+            failure.compareAndSet(null, e);
+            if (tile != null) tiles.add(tile);
+        } finally {
+            activeWorkers.decrementAndGet();
+        }
+    }
+
+    /**
+     * Takes the next tile to render. While there are tiles in progress by other workers it keeps
+     * waiting, since a tile may return to the queue if its worker dies
+     *
+     * @return the next tile or null if the render is finished
+     */
+    private Tile nextTile() {
+        try {
+            while (remaining.getCount() > 0) {
+                Tile tile = tiles.poll(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+                if (tile != null) return tile;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+}
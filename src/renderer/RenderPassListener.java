@@ -0,0 +1,28 @@
+package renderer;
+
+/**
+ * Listener of the passes of a progressive render (see {@link Camera#renderImageProgressive(RenderPassListener)}).
+ * It is called on the rendering thread after each pass, when the camera's image holds the whole frame
+ * at the resolution of the pass
+ */
+@FunctionalInterface
+public interface RenderPassListener {
+    /**
+     * Receives a finished pass of the progressive render
+     *
+     * @param camera    the rendering camera, its image may be written (e.g. by {@link Camera#writeToImageAsync(String)})
+     * @param blockSize size of the side of the pixel blocks which share a sample in this pass, 1 for the final pass
+     */
+    void passDone(Camera camera, int blockSize);
+
+    /**
+     * Creates a listener which writes every pass into its own png file in the background,
+     * the name of a pass file is the image name followed by the block size of the pass
+     *
+     * @param imageName the base name of the pass images
+     * @return the writing listener
+     */
+    static RenderPassListener writingTo(String imageName) {
+        return (camera, blockSize) -> camera.writeToImageAsync(imageName + "_" + blockSize);
+    }
+}
@@ -0,0 +1,18 @@
+package renderer;
+
+import java.time.Duration;
+
+/**
+ * Statistics of a time-budgeted render (see {@link Camera#renderImage(Duration)})
+ *
+ * @param primaryRays        amount of primary (camera) rays traced - one per pixel sample
+ * @param secondaryRays      amount of secondary rays traced from the hits of the primary rays - reflections,
+ *                           refractions and their samples; the shadow rays are not counted
+ * @param samplesPerPixel    average amount of samples per pixel
+ * @param maxSamplesPerPixel the highest amount of samples of a single pixel
+ * @param covered            true if every pixel got at least one sample of its own before the deadline
+ * @param elapsed            the wall-clock duration of the render
+ */
+public record RenderStatistics(long primaryRays, long secondaryRays, double samplesPerPixel,
+                               int maxSamplesPerPixel, boolean covered, Duration elapsed) {
+}
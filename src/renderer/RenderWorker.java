@@ -0,0 +1,128 @@
+package renderer;
+
+import scene.XMLParser;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+/**
+ * Worker process of a distributed render (see {@link Camera#renderImageDistributed}).<br>
+ * The worker listens on a TCP port; for each coordinator connection it builds the camera and
+ * the scene from the received XML description and renders the requested tiles one after the other.
+ * Every connection is served by its own thread.
+ * <p>
+ * Usage: {@code java renderer.RenderWorker [port]} - with port 0 (the default) a free port is chosen.
+ * The listening port is printed on the standard output.
+ */
+public final class RenderWorker {
+    /**
+     * Prefix of the line printed when the worker starts listening
+     */
+    static final String LISTENING = "Render worker listening on port ";
+
+    /**
+     * Don't let anyone instantiate this class.
+     */
+    private RenderWorker() {
+    }
+
+    /**
+     * Starts a worker listening on the loopback interface
+     *
+     * @param args optional port number
+     * @throws IOException if the port cannot be opened
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 0;
+        ServerSocket server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        System.out.println(LISTENING + server.getLocalPort());
+        System.out.flush();
+        serve(server);
+    }
+
+    /**
+     * Accepts coordinator connections until the server socket is closed
+     *
+     * @param server the listening socket
+     */
+    static void serve(ServerSocket server) {
+        try (server) {
+            while (true) {
+                Socket socket = server.accept();
+                Thread thread = new Thread(() -> renderTiles(socket), "render-worker-" + socket.getPort());
+                thread.setDaemon(true);
+                thread.start();
+            }
+        } catch (IOException ignored) {
+            // the server socket was closed
+        }
+    }
+
+    /**
+     * Serves a single coordinator connection. A failure of building the camera or of rendering a tile
+     * is logged and reported to the coordinator with its reason before the connection is closed
+     *
+     * @param socket the coordinator connection
+     */
+    private static void renderTiles(Socket socket) {
+        try (socket) {
+            socket.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+            if (in.readInt() != RenderCoordinator.MAGIC) return;
+            int nX = in.readInt();
+            int nY = in.readInt();
+            byte[] description = new byte[in.readInt()];
+            in.readFully(description);
+            Camera camera;
+            try {
+                camera = XMLParser.BuildCameraFromXML(new ByteArrayInputStream(description));
+            } catch (RuntimeException e) {
+                reject(out, "cannot build the camera: " + e.getMessage(), e);
+                return;
+            }
+            if (!camera.hasResolution(nX, nY)) {
+                reject(out, "the description is not of a " + nX + "x" + nY + " image", null);
+                return;
+            }
+            out.writeInt(RenderCoordinator.ACCEPTED);
+            out.flush();
+
+            while (true) {
+                Tile tile = new Tile(in.readInt(), in.readInt(), in.readInt(), in.readInt());
+                if (tile.pixels() == 0) return;
+                int[] rgb;
+                try {
+                    rgb = camera.renderTile(tile);
+                } catch (RuntimeException e) {
+                    reject(out, "cannot render the tile " + tile + ": " + e, e);
+                    return;
+                }
+                out.writeInt(RenderCoordinator.ACCEPTED);
+                for (int value : rgb) out.writeInt(value);
+                out.flush();
+            }
+        } catch (IOException ignored) {
+            // the connection is closed - the coordinator reassigns the tile
+        }
+    }
+
+    /**
+     * Logs a failure and reports it to the coordinator
+     *
+     * @param out    the stream to the coordinator
+     * @param reason the reason of the failure
+     * @param cause  the exception of the failure, null if there is none
+     * @throws IOException if the report cannot be sent
+     */
+    private static void reject(DataOutputStream out, String reason, Exception cause) throws IOException {
+        System.err.println("Render worker: " + reason);
+        if (cause != null) cause.printStackTrace();
+        out.writeInt(RenderCoordinator.REJECTED);
+        out.writeUTF(reason);
+        out.flush();
+    }
+}
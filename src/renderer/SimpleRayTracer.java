@@ -1,10 +1,17 @@
 package renderer;
 
+import geometries.BoundingBox;
+import geometries.Geometries;
+import geometries.Geometry;
+import geometries.Intersectable;
 import lighting.LightSource;
 import primitives.*;
+import sampling.SampleRandom;
 import scene.Scene;
 
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
 
 import static geometries.Intersectable.Intersection;
 import static primitives.Util.alignZero;
@@ -26,6 +33,50 @@ public class SimpleRayTracer extends RayTracerBase {
      * The initial k value for color calculation.
      */
     private static final Double3 INITIAL_K = Double3.ONE;
+    /**
+     * Bound of the contribution (in 8-bit color levels) below which a secondary ray path is dropped -
+     * half a level, which cannot change the pixel's 8-bit value
+     */
+    private static final double MIN_CONTRIBUTION = 0.5;
+    /**
+     * Bound of the contribution (in 8-bit color levels) below which a secondary ray path plays Russian
+     * roulette - it survives with probability (bound) / ROULETTE_CONTRIBUTION, so a surviving path
+     * adds at most ROULETTE_CONTRIBUTION levels to the pixel
+     */
+    private static final double ROULETTE_CONTRIBUTION = 8.0;
+    /**
+     * The amount of rays of a wavefront which are intersected together
+     */
+    private static final int WAVE_BATCH = 64;
+
+    /**
+     * Bounds of the finite scene geometries for sorting the secondary rays, calculated on the first use
+     */
+    private volatile BoundingBox sceneBounds = null;
+    /**
+     * Work stack of the secondary rays for the iterative color calculation of each thread
+     */
+    private final ThreadLocal<RayQueue> workStack = ThreadLocal.withInitial(RayQueue::new);
+    /**
+     * Whether the colors are calculated iteratively with an explicit work stack
+     * instead of the recursive (reference) calculation
+     */
+    boolean iterative = false;
+    /**
+     * Whether the secondary ray paths are terminated by the bound of their contribution and Russian roulette,
+     * in addition to {@link #MIN_CALC_COLOR_K} and {@link #MAX_CALC_COLOR_LEVEL}
+     */
+    boolean pathTermination = false;
+    /**
+     * Upper bounds of the radiance (in 8-bit color levels) which a ray brings, indexed by the amount of
+     * recursion levels left to it, calculated on the first use
+     */
+    private volatile double[] radianceBounds = null;
+    /**
+     * Counter of the traced secondary rays (reflections, refractions and their samples, but not the shadow rays),
+     * null if they are not counted
+     */
+    LongAdder secondaryRays = null;
 
     /**
      * Initiates the simple ray tracer with a scene containing the objects
@@ -44,12 +95,109 @@ public class SimpleRayTracer extends RayTracerBase {
                 : calcColor(closestIntersection, ray.getDirection());
     }
 
+    @Override
+    public Color[] traceRays(Ray[] rays) {
+        Intersection[] intersections = findClosestIntersections(rays);
+        Color[] colors = new Color[rays.length];
+        for (int r = 0; r < rays.length; ++r)
+            colors[r] = intersections[r] == null
+                    ? scene.backgroundColor
+                    : calcColor(intersections[r], rays[r].getDirection());
+        return colors;
+    }
+
+    @Override
+    public Color[] traceRaysReordered(Ray[] rays) {
+        Color[] colors = new Color[rays.length];
+        Arrays.fill(colors, Color.BLACK);
+
+        // generation stage - the primary rays are the first wavefront
+        RayQueue wave = new RayQueue();
+        for (int r = 0; r < rays.length; ++r) wave.add(rays[r], r, MAX_CALC_COLOR_LEVEL, 0, INITIAL_K, Double3.ONE);
+        RayQueue next = new RayQueue();
+        while (wave.size() > 0) {
+            Intersection[] hits = intersectWave(wave);
+            shadeWave(wave, hits, colors);
+            emitWave(wave, hits, next);
+
+            RayQueue traced = wave;
+            wave = next;
+            next = traced;
+            next.clear();
+            // the secondary rays are sorted for coherence before they are traced
+            wave.sort(sceneBounds());
+            if (secondaryRays != null) secondaryRays.add(wave.size());
+        }
+        return colors;
+    }
+
     /**
-     * Finds the closest intersection of the given ray with the scene geometries.
+     * Intersection stage of a wavefront - finds the closest intersections of the wave's rays in batches.
+     * The ray objects are created for one batch at a time, so only a batch of them is alive at once
      *
-     * @param ray The ray to check for intersections.
-     * @return The closest intersection, or null if none.
+     * @param wave the rays queue of the wave
+     * @return the closest intersection of each ray (null where there is none)
      */
+    private Intersection[] intersectWave(RayQueue wave) {
+        int size = wave.size();
+        if (size <= WAVE_BATCH) return findClosestIntersections(wave.rays(0, size));
+        Intersection[] hits = new Intersection[size];
+        for (int from = 0; from < size; from += WAVE_BATCH) {
+            int to = Math.min(size, from + WAVE_BATCH);
+            System.arraycopy(findClosestIntersections(wave.rays(from, to)), 0, hits, from, to - from);
+        }
+        return hits;
+    }
+
+    /**
+     * Shading stage of a wavefront - adds the weighted local color of each ray's hit (or the background)
+     * to the ray's pixel. The ambient light is added at the primary hits only. Hits which do not
+     * contribute (the ray is parallel to the surface) are removed so they emit no secondary rays
+     *
+     * @param wave   the rays queue of the wave
+     * @param hits   the closest intersection of each ray
+     * @param colors the pixels' colors
+     */
+    private void shadeWave(RayQueue wave, Intersection[] hits, Color[] colors) {
+        for (int s = 0; s < wave.size(); ++s) {
+            Intersection hit = hits[s];
+            int pixel = wave.pixel(s);
+            if (hit == null) colors[pixel] = colors[pixel].add(scene.backgroundColor.scale(wave.weight(s)));
+            else if (!preprocessIntersection(hit, wave.direction(s))) hits[s] = null;
+            else {
+                if (wave.level(s) == MAX_CALC_COLOR_LEVEL)
+                    colors[pixel] = colors[pixel].add(scene.ambientLight.getIntensity().scale(hit.material.kA));
+                colors[pixel] = colors[pixel].add(calcColorLocalEffects(hit, wave.factor(s)).scale(wave.weight(s)));
+            }
+        }
+    }
+
+    /**
+     * Emission stage of a wavefront - queues the secondary rays of the wave's hits into the next wave
+     *
+     * @param wave the rays queue of the wave
+     * @param hits the closest intersection of each ray (null where no secondary rays are emitted)
+     * @param next the rays queue of the next wave
+     */
+    private void emitWave(RayQueue wave, Intersection[] hits, RayQueue next) {
+        for (int s = 0; s < wave.size(); ++s)
+            if (hits[s] != null && wave.level(s) != 1)
+                emitSecondaryRays(hits[s], wave.level(s), wave.bounces(s), wave.factor(s), wave.weight(s),
+                        wave.pixel(s), next);
+    }
+
+    /**
+     * Gets the bounds of the finite scene geometries, calculated on the first use
+     *
+     * @return the scene bounds, null if there are no finite geometries
+     */
+    private BoundingBox sceneBounds() {
+        BoundingBox bounds = sceneBounds;
+        if (bounds == null) sceneBounds = bounds = scene.geometries.getBoundingBox();
+        return bounds;
+    }
+
+    @Override
     protected Intersection findClosestIntersection(Ray ray) {
         return ray.findClosestIntersection(scene.geometries.calculateIntersections(ray));
     }
@@ -62,23 +210,64 @@ public class SimpleRayTracer extends RayTracerBase {
      * @return the calculated color to paint that pixel with
      */
     protected Color calcColor(Intersection intersection, Vector rayDirection) {
+        if (iterative) return calcColorIterative(intersection, rayDirection);
         return preprocessIntersection(intersection, rayDirection)
                 ? this.scene.ambientLight.getIntensity().scale(intersection.material.kA)
-                .add(calcColor(intersection, MAX_CALC_COLOR_LEVEL, INITIAL_K))
+                .add(calcColor(intersection, MAX_CALC_COLOR_LEVEL, 0, INITIAL_K))
                 : Color.BLACK;
     }
 
+    /**
+     * Calculates the color at the intersection point like {@link #calcColor(Intersection, Vector)}, but
+     * without recursion: the secondary rays are pushed onto the thread's work stack with their recursion
+     * level, diffuse bounces, attenuation factor and weight in the color, and are popped and traced depth-first until the
+     * stack is empty
+     *
+     * @param intersection the intersection onto the calculation is made
+     * @param rayDirection the direction of the ray
+     * @return the calculated color to paint that pixel with
+     */
+    private Color calcColorIterative(Intersection intersection, Vector rayDirection) {
+        if (!preprocessIntersection(intersection, rayDirection)) return Color.BLACK;
+        Color color = scene.ambientLight.getIntensity().scale(intersection.material.kA)
+                .add(calcColorLocalEffects(intersection, INITIAL_K));
+        if (MAX_CALC_COLOR_LEVEL == 1) return color;
+
+        RayQueue stack = workStack.get();
+        stack.clear();
+        emitSecondaryRays(intersection, MAX_CALC_COLOR_LEVEL, 0, INITIAL_K, Double3.ONE, 0, stack);
+        while (stack.size() > 0) {
+            int top = stack.size() - 1;
+            Ray ray = stack.ray(top);
+            int level = stack.level(top);
+            int bounces = stack.bounces(top);
+            Double3 k = stack.factor(top);
+            Double3 weight = stack.weight(top);
+            stack.removeLast();
+
+            if (secondaryRays != null) secondaryRays.increment();
+            Intersection hit = findClosestIntersection(ray);
+            if (hit == null) color = color.add(scene.backgroundColor.scale(weight));
+            else if (preprocessIntersection(hit, ray.getDirection())) {
+                color = color.add(calcColorLocalEffects(hit, k).scale(weight));
+                if (level != 1) emitSecondaryRays(hit, level, bounces, k, weight, 0, stack);
+            }
+        }
+        return color;
+    }
+
     /**
      * Calculates the color at the intersection point, including recursive effects.
      *
      * @param intersection the intersection onto the calculation is made
      * @param level        the recursion level
+     * @param bounces      the amount of diffuse bounces of the path before the intersection
      * @param k            the color attenuation factor
      * @return the calculated color to paint that pixel with
      */
-    protected Color calcColor(Intersection intersection, int level, Double3 k) {
+    protected Color calcColor(Intersection intersection, int level, int bounces, Double3 k) {
         Color color = calcColorLocalEffects(intersection, k);
-        return 1 == level ? color : color.add(calcGlobalEffects(intersection, level, k));
+        return 1 == level ? color : color.add(calcGlobalEffects(intersection, level, bounces, k));
     }
 
     /**
@@ -86,17 +275,25 @@ public class SimpleRayTracer extends RayTracerBase {
      *
      * @param interactRay the ray for the effect
      * @param level       the recursion level
+     * @param bounces     the amount of diffuse bounces of the ray's path, including the ray's origin
      * @param k           the color attenuation factor
      * @param kx          the effect coefficient
      * @return the color contribution from the global effect
      */
-    protected Color calcGlobalEffect(Ray interactRay, int level, Double3 k, Double3 kx) {
+    protected Color calcGlobalEffect(Ray interactRay, int level, int bounces, Double3 k, Double3 kx) {
         Double3 kkx = kx.product(k);
         if (kkx.lowerThan(MIN_CALC_COLOR_K)) return Color.BLACK;
+        double survival = pathTermination ? pathSurvival(kkx, level - 1) : 1;
+        if (survival == 0) return Color.BLACK;
+        if (survival < 1) {
+            kx = kx.scale(1 / survival);
+            kkx = kkx.scale(1 / survival);
+        }
+        if (secondaryRays != null) secondaryRays.increment();
         Intersection closestIntersection = findClosestIntersection(interactRay);
         if (closestIntersection == null) return scene.backgroundColor.scale(kx);
         return preprocessIntersection(closestIntersection, interactRay.getDirection())
-                ? calcColor(closestIntersection, level - 1, kkx).scale(kx) : Color.BLACK;
+                ? calcColor(closestIntersection, level - 1, bounces, kkx).scale(kx) : Color.BLACK;
     }
 
     /**
@@ -104,12 +301,133 @@ public class SimpleRayTracer extends RayTracerBase {
      *
      * @param intersection the intersection to calculate effects for
      * @param level        the recursion level
+     * @param bounces      the amount of diffuse bounces of the path before the intersection
      * @param k            the color attenuation factor
      * @return the color contribution from all global effects
      */
-    protected Color calcGlobalEffects(Intersection intersection, int level, Double3 k) {
-        return calcGlobalEffect(calcRefractionRay(intersection), level, k, intersection.material.kT)
-                .add(calcGlobalEffect(calcReflectionRay(intersection), level, k, intersection.material.kR));
+    protected Color calcGlobalEffects(Intersection intersection, int level, int bounces, Double3 k) {
+        return calcGlobalEffect(calcRefractionRay(intersection), level, bounces, k, intersection.material.kT)
+                .add(calcGlobalEffect(calcReflectionRay(intersection), level, bounces, k, intersection.material.kR));
+    }
+
+    /**
+     * Queues the secondary rays (refraction and reflection) of an intersection instead of tracing them
+     * recursively - the breadth-first counterpart of {@link #calcGlobalEffects(Intersection, int, int, Double3)}
+     *
+     * @param intersection the intersection to emit the rays from
+     * @param level        the recursion level at the intersection
+     * @param bounces      the amount of diffuse bounces of the path before the intersection
+     * @param k            the color attenuation factor at the intersection
+     * @param weight       the weight of the intersection's color in the pixel's color
+     * @param pixel        index of the pixel which the intersection contributes to
+     * @param queue        the queue of the next generation of rays
+     */
+    void emitSecondaryRays(Intersection intersection, int level, int bounces, Double3 k, Double3 weight,
+                           int pixel, RayQueue queue) {
+        emitSecondaryRay(calcRefractionRay(intersection), level, bounces, k, intersection.material.kT,
+                weight, pixel, queue);
+        emitSecondaryRay(calcReflectionRay(intersection), level, bounces, k, intersection.material.kR,
+                weight, pixel, queue);
+    }
+
+    /**
+     * Queues a secondary ray unless its contribution is negligible - the breadth-first counterpart of
+     * {@link #calcGlobalEffect(Ray, int, int, Double3, Double3)}
+     *
+     * @param interactRay the ray for the effect
+     * @param level       the recursion level at the ray's origin
+     * @param bounces     the amount of diffuse bounces of the ray's path, including the ray's origin
+     * @param k           the color attenuation factor at the ray's origin
+     * @param kx          the effect coefficient
+     * @param weight      the weight of the origin's color in the pixel's color
+     * @param pixel       index of the pixel which the ray contributes to
+     * @param queue       the queue of the next generation of rays
+     */
+    void emitSecondaryRay(Ray interactRay, int level, int bounces, Double3 k, Double3 kx, Double3 weight,
+                          int pixel, RayQueue queue) {
+        Double3 kkx = kx.product(k);
+        if (kkx.lowerThan(MIN_CALC_COLOR_K)) return;
+        double survival = pathTermination ? pathSurvival(kkx, level - 1) : 1;
+        if (survival == 0) return;
+        if (survival < 1) {
+            kx = kx.scale(1 / survival);
+            kkx = kkx.scale(1 / survival);
+        }
+        queue.add(interactRay, pixel, level - 1, bounces, kkx, weight.product(kx));
+    }
+
+    /**
+     * Decides whether a secondary ray path goes on, by the bound of its contribution to the pixel's 8-bit color:
+     * the path's attenuation factor times the highest radiance which the ray may bring (see
+     * {@link #radianceBound(int)}). A path which cannot change the 8-bit value is dropped, a path of a small
+     * contribution survives by Russian roulette, and its color must be scaled by 1 / (the returned probability),
+     * so that its expected color is unchanged
+     *
+     * @param kkx    the attenuation factor of the ray's path
+     * @param levels the amount of recursion levels left to the ray
+     * @return the probability by which the ray survived (1 if it is not in the roulette), 0 if it is terminated
+     */
+    private double pathSurvival(Double3 kkx, int levels) {
+        double contribution = maxComponent(kkx) * radianceBound(levels);
+        if (contribution < MIN_CONTRIBUTION) return 0;
+        if (contribution >= ROULETTE_CONTRIBUTION) return 1;
+        double survival = contribution / ROULETTE_CONTRIBUTION;
+        return SampleRandom.current().nextDouble() < survival ? survival : 0;
+    }
+
+    /**
+     * Gets the highest radiance which a ray may bring with the further bounces of its path. The color of a hit is
+     * at most the brightest emission plus the highest intensities of all the lights reflected by the most
+     * reflective material, plus the bounded radiance of its secondary rays attenuated by the highest
+     * reflection and transmission coefficients - or the background if the ray misses. The ambient light is
+     * added at the primary hits only, so it is not a part of the bound
+     *
+     * @param levels the amount of recursion levels left to the ray
+     * @return the radiance bound (in 8-bit color levels)
+     */
+    private double radianceBound(int levels) {
+        double[] bounds = radianceBounds;
+        if (bounds == null) {
+            double lights = 0;
+            for (LightSource lightSource : scene.lights) lights += lightSource.getMaxIntensity().maxComponent();
+            // the highest local color of a hit and the highest attenuation of its secondary rays
+            double[] materials = new double[2];
+            materialBounds(scene.geometries, lights, materials);
+            double background = scene.backgroundColor.maxComponent();
+            bounds = new double[MAX_CALC_COLOR_LEVEL + 1];
+            for (int level = 1; level <= MAX_CALC_COLOR_LEVEL; ++level)
+                bounds[level] = Math.max(background, materials[0] + materials[1] * bounds[level - 1]);
+            radianceBounds = bounds;
+        }
+        return bounds[levels];
+    }
+
+    /**
+     * Finds the highest local color and the highest attenuation of the secondary rays of the hits on
+     * a collection of geometries
+     *
+     * @param geometries the geometries
+     * @param lights     the sum of the highest intensities of the lights
+     * @param bounds     the bounds found so far - the local color and the attenuation, updated by the geometries
+     */
+    private static void materialBounds(Geometries geometries, double lights, double[] bounds) {
+        for (Intersectable intersectable : geometries.getGeometries())
+            if (intersectable instanceof Geometry geometry) {
+                Material material = geometry.getMaterial();
+                double local = geometry.getEmission().maxComponent() + lights * maxComponent(material.kD.add(material.kS));
+                bounds[0] = Math.max(bounds[0], local);
+                bounds[1] = Math.max(bounds[1], maxComponent(material.kR.add(material.kT)));
+            } else if (intersectable instanceof Geometries group) materialBounds(group, lights, bounds);
+    }
+
+    /**
+     * Gets the highest component of a triad
+     *
+     * @param triad the triad
+     * @return the highest component
+     */
+    static double maxComponent(Double3 triad) {
+        return Math.max(triad.d1(), Math.max(triad.d2(), triad.d3()));
     }
 
     /**
@@ -226,10 +544,23 @@ public class SimpleRayTracer extends RayTracerBase {
      * @return A list of intersections with shadowing objects, or null if unshaded.
      */
     private List<Intersection> castShadowRay(Intersection intersection) {
+        return castShadowRay(intersection, intersection.lightDirection.scale(-1),
+                intersection.lightSource.getDistance(intersection.point));
+    }
+
+    /**
+     * Casts a shadow ray from the intersection point towards a point of the light to check for occlusion.
+     *
+     * @param intersection The intersection to cast the shadow ray from.
+     * @param direction    The normalized direction from the intersection point to the light.
+     * @param distance     The distance to the light.
+     * @return A list of intersections with shadowing objects, or null if unshaded.
+     */
+    private List<Intersection> castShadowRay(Intersection intersection, Vector direction, double distance) {
         if (intersection.material.kR.greaterThan(MIN_CALC_COLOR_K)) return null;
 
-        Ray shadowRay = new Ray(intersection.point, intersection.lightDirection.scale(-1), intersection.normal);
-        return scene.geometries.calculateIntersections(shadowRay, intersection.lightSource.getDistance(intersection.point));
+        Ray shadowRay = new Ray(intersection.point, direction, intersection.normal);
+        return scene.geometries.calculateIntersections(shadowRay, distance);
     }
 
     /**
@@ -258,8 +589,21 @@ public class SimpleRayTracer extends RayTracerBase {
      * @return The transparency factor as a Double3.
      */
     protected Double3 transparency(Intersection intersection) {
+        return transparency(intersection, intersection.lightDirection.scale(-1),
+                intersection.lightSource.getDistance(intersection.point));
+    }
+
+    /**
+     * Calculates the transparency factor at the intersection point towards a point of the light.
+     *
+     * @param intersection The intersection to calculate transparency for.
+     * @param direction    The normalized direction from the intersection point to the light.
+     * @param distance     The distance to the light.
+     * @return The transparency factor as a Double3.
+     */
+    protected Double3 transparency(Intersection intersection, Vector direction, double distance) {
         Double3 ktr = Double3.ONE;
-        var intersections = castShadowRay(intersection);
+        var intersections = castShadowRay(intersection, direction, distance);
         if (intersections == null) return ktr;
 
         for (Intersection shadowIntersection : intersections) {
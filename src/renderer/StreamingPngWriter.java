@@ -0,0 +1,401 @@
+package renderer;
+
+import primitives.Color;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Streaming PNG writer for images that are too large to be held in memory as a whole.<br>
+ * The image is split into horizontal bands of rows. Every band is buffered only until all of
+ * its pixels are written, then it is compressed on a background thread (each band is an
+ * independent deflate block sequence, so bands are compressed in parallel) and appended to the
+ * file channel in row order. Only the bands that are still being rendered, or that finished
+ * ahead of an earlier band, are resident in memory.
+ */
+final class StreamingPngWriter implements AutoCloseable {
+    /**
+     * PNG file signature
+     */
+    private static final byte[] SIGNATURE = {(byte) 137, 80, 78, 71, 13, 10, 26, 10};
+    /**
+     * Zlib stream header (deflate, 32K window, default compression)
+     */
+    private static final byte[] ZLIB_HEADER = {0x78, (byte) 0x9C};
+    /**
+     * Modulus of the Adler-32 checksum
+     */
+    private static final int ADLER_BASE = 65521;
+    /**
+     * PNG "Sub" scanline filter type
+     */
+    private static final byte FILTER_SUB = 1;
+    /**
+     * Bytes per pixel of the written RGB image
+     */
+    private static final int BYTES_PER_PIXEL = 3;
+
+    /**
+     * Horizontal resolution of the image - number of pixels in row
+     */
+    private final int nX;
+    /**
+     * Vertical resolution of the image - number of pixels in column
+     */
+    private final int nY;
+    /**
+     * Amount of rows in each band (the last band may be shorter)
+     */
+    private final int bandHeight;
+    /**
+     * Amount of bands in the image
+     */
+    private final int bandCount;
+    /**
+     * Destination file
+     */
+    private final Path path;
+    /**
+     * Destination file channel
+     */
+    private final FileChannel channel;
+    /**
+     * Pixel buffers of the bands which are still being written, allocated lazily
+     */
+    private final AtomicReferenceArray<int[]> bands;
+    /**
+     * Amount of pixels which are still missing in each band
+     */
+    private final AtomicIntegerArray remaining;
+    /**
+     * Pending compression tasks
+     */
+    private final ConcurrentLinkedQueue<CompletableFuture<Void>> tasks = new ConcurrentLinkedQueue<>();
+    /**
+     * Compressed bands which are waiting for an earlier band to be written first
+     */
+    private final Map<Integer, CompressedBand> ready = new HashMap<>();
+    /**
+     * Index of the next band to be appended to the file
+     */
+    private int nextBand = 0;
+    /**
+     * Running Adler-32 checksum of all the filtered scanlines appended so far
+     */
+    private long adler = 1L;
+    /**
+     * The first I/O error which occurred on a background thread
+     */
+    private volatile IOException failure = null;
+
+    /**
+     * A band after compression
+     *
+     * @param data   deflated data of the band
+     * @param adler  Adler-32 checksum of the band's filtered scanlines
+     * @param length length of the band's filtered scanlines in bytes
+     */
+    private record CompressedBand(byte[] data, long adler, long length) {
+    }
+
+    // ***************** Constructors ********************** //
+
+    /**
+     * Opens the image file and writes the PNG header
+     *
+     * @param imageName  the name of png file (without extension)
+     * @param nX         amount of pixels by Width
+     * @param nY         amount of pixels by height
+     * @param bandHeight amount of rows in each compressed band
+     */
+    StreamingPngWriter(String imageName, int nX, int nY, int bandHeight) {
+        if (nX <= 0 || nY <= 0) throw new IllegalArgumentException("Image resolution must be positive");
+        if (bandHeight <= 0) throw new IllegalArgumentException("Band height must be positive");
+        this.nX = nX;
+        this.nY = nY;
+        this.bandHeight = bandHeight;
+        this.bandCount = (nY + bandHeight - 1) / bandHeight;
+        this.bands = new AtomicReferenceArray<>(bandCount);
+        this.remaining = new AtomicIntegerArray(bandCount);
+        for (int band = 0; band < bandCount; ++band)
+            remaining.set(band, nX * rowsInBand(band));
+
+        path = Path.of(ImageWriter.FOLDER_PATH, imageName + ".png");
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            ByteBuffer header = ByteBuffer.allocate(13);
+            header.putInt(nX).putInt(nY)
+                    .put((byte) 8)  // bit depth
+                    .put((byte) 2)  // color type - true color RGB
+                    .put((byte) 0)  // compression method - deflate
+                    .put((byte) 0)  // filter method - adaptive
+                    .put((byte) 0); // interlace method - none
+            write(ByteBuffer.wrap(SIGNATURE));
+            writeChunk("IHDR", header.array());
+        } catch (IOException e) {
+            throw new IllegalStateException("I/O error - may be missing directory " + ImageWriter.FOLDER_PATH, e);
+        }
+    }
+
+    // ***************** Getters ********************** //
+
+    /**
+     * Amount of rows in each band
+     *
+     * @return the band height
+     */
+    int bandHeight() {
+        return bandHeight;
+    }
+
+    // ***************** Operations ******************** //
+
+    /**
+     * Writes a color of a specific pixel. When the last missing pixel of a band is written,
+     * the band is handed over for compression and its buffer is released
+     *
+     * @param xIndex X axis index of the pixel
+     * @param yIndex Y axis index of the pixel
+     * @param color  final color of the pixel
+     */
+    void writePixel(int xIndex, int yIndex, Color color) {
+        int band = yIndex / bandHeight;
+        int[] pixels = bands.get(band);
+        if (pixels == null) {
+            bands.compareAndSet(band, null, new int[nX * rowsInBand(band)]);
+            pixels = bands.get(band);
+        }
+        pixels[(yIndex - band * bandHeight) * nX + xIndex] = color.getColor().getRGB();
+        if (remaining.decrementAndGet(band) == 0) {
+            bands.set(band, null);
+            submitBand(band, pixels);
+        }
+    }
+
+    /**
+     * Writes a whole finished band at once (e.g. when a tile row is completed)
+     *
+     * @param band   the band index (band {@code b} starts at row {@code b * bandHeight})
+     * @param pixels RGB values of the band's pixels in row-major order
+     */
+    void writeBand(int band, int[] pixels) {
+        if (band < 0 || band >= bandCount) throw new IllegalArgumentException("Band index out of range: " + band);
+        if (pixels.length != nX * rowsInBand(band))
+            throw new IllegalArgumentException("Band " + band + " must contain exactly " + nX * rowsInBand(band) + " pixels");
+        if (remaining.getAndSet(band, 0) == 0)
+            throw new IllegalStateException("Band " + band + " has already been written");
+        bands.set(band, null);
+        submitBand(band, pixels);
+    }
+
+    /**
+     * Waits for all the bands to be compressed and written, and completes the PNG file.
+     * If the image cannot be completed, it is {@link #abort() aborted}
+     *
+     * @throws IllegalStateException if some bands have not been written, a band's compression has failed
+     *                               or an I/O error occurred
+     */
+    @Override
+    public void close() {
+        boolean completed = false;
+        try {
+            CompletableFuture<Void> task;
+            while ((task = tasks.poll()) != null) task.join();
+            if (failure != null) throw failure;
+            if (nextBand != bandCount)
+                throw new IllegalStateException("Only " + nextBand + " of " + bandCount + " bands were written");
+            writeChunk("IDAT", ByteBuffer.allocate(4).putInt((int) adler).array());
+            writeChunk("IEND", new byte[0]);
+            channel.close();
+            completed = true;
+        } catch (CompletionException e) {
+            throw new IllegalStateException("Compression of a band has failed", e.getCause());
+        } catch (IOException e) {
+            throw new IllegalStateException("I/O error while writing the image", e);
+        } finally {
+            if (!completed) abort();
+        }
+    }
+
+    /**
+     * Abandons an unfinished image (e.g. when the render has failed): waits for the pending compression
+     * tasks, closes the file and deletes it, so no truncated PNG is left behind
+     */
+    void abort() {
+        CompletableFuture<Void> task;
+        while ((task = tasks.poll()) != null) {
+            try {
+                task.join();
+            } catch (CompletionException ignored) {
+            }
+        }
+        try {
+            channel.close();
+            Files.deleteIfExists(path);
+        } catch (IOException ignored) {
+        }
+    }
+
+    // ***************** Helpers ******************** //
+
+    /**
+     * Calculates the amount of rows in a band
+     *
+     * @param band the band index
+     * @return amount of rows in the band
+     */
+    private int rowsInBand(int band) {
+        return Math.min(bandHeight, nY - band * bandHeight);
+    }
+
+    /**
+     * Hands a finished band over to a background compression task
+     *
+     * @param band   the band index
+     * @param pixels RGB values of the band's pixels
+     */
+    private void submitBand(int band, int[] pixels) {
+        tasks.add(CompletableFuture.runAsync(() -> {
+            CompressedBand compressed = compress(pixels, band == bandCount - 1);
+            synchronized (ready) {
+                ready.put(band, compressed);
+                appendReadyBands();
+            }
+        }));
+    }
+
+    /**
+     * Filters and deflates a band. All the bands but the last end with a sync flush so that the
+     * concatenation of the bands forms a single deflate stream
+     *
+     * @param pixels RGB values of the band's pixels
+     * @param last   whether it is the last band of the image
+     * @return the compressed band
+     */
+    private CompressedBand compress(int[] pixels, boolean last) {
+        int rowLength = 1 + nX * BYTES_PER_PIXEL;
+        int rows = pixels.length / nX;
+        byte[] raw = new byte[rows * rowLength];
+        for (int row = 0, offset = 0; row < rows; ++row) {
+            raw[offset++] = FILTER_SUB;
+            int previous = 0;
+            for (int col = 0; col < nX; ++col) {
+                int rgb = pixels[row * nX + col];
+                raw[offset++] = (byte) ((rgb >> 16) - (previous >> 16));
+                raw[offset++] = (byte) ((rgb >> 8) - (previous >> 8));
+                raw[offset++] = (byte) (rgb - previous);
+                previous = rgb;
+            }
+        }
+
+        Adler32 checksum = new Adler32();
+        checksum.update(raw);
+
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        deflater.setInput(raw);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 4 + 64);
+        byte[] buffer = new byte[64 * 1024];
+        if (last) {
+            deflater.finish();
+            while (!deflater.finished())
+                out.write(buffer, 0, deflater.deflate(buffer));
+        } else {
+            int length;
+            do {
+                length = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                out.write(buffer, 0, length);
+            } while (length == buffer.length);
+        }
+        deflater.end();
+        return new CompressedBand(out.toByteArray(), checksum.getValue(), raw.length);
+    }
+
+    /**
+     * Appends to the file all the compressed bands which are next in row order.
+     * Must be called while holding the lock of {@link #ready}
+     */
+    private void appendReadyBands() {
+        CompressedBand compressed;
+        while ((compressed = ready.remove(nextBand)) != null) {
+            try {
+                byte[] data = compressed.data();
+                if (nextBand == 0) {
+                    byte[] withHeader = new byte[data.length + ZLIB_HEADER.length];
+                    System.arraycopy(ZLIB_HEADER, 0, withHeader, 0, ZLIB_HEADER.length);
+                    System.arraycopy(data, 0, withHeader, ZLIB_HEADER.length, data.length);
+                    data = withHeader;
+                }
+                writeChunk("IDAT", data);
+            } catch (IOException e) {
+                if (failure == null) failure = e;
+            }
+            adler = combineAdler(adler, compressed.adler(), compressed.length());
+            ++nextBand;
+        }
+    }
+
+    /**
+     * Combines Adler-32 checksums of two consecutive byte sequences (as zlib's adler32_combine)
+     *
+     * @param adler1  checksum of the first sequence
+     * @param adler2  checksum of the second sequence
+     * @param length2 length of the second sequence
+     * @return checksum of the concatenated sequence
+     */
+    static long combineAdler(long adler1, long adler2, long length2) {
+        long rem = length2 % ADLER_BASE;
+        long sum1 = adler1 & 0xFFFF;
+        long sum2 = (rem * sum1) % ADLER_BASE;
+        sum1 += (adler2 & 0xFFFF) + ADLER_BASE - 1;
+        sum2 += ((adler1 >> 16) & 0xFFFF) + ((adler2 >> 16) & 0xFFFF) + ADLER_BASE - rem;
+        if (sum1 >= ADLER_BASE) sum1 -= ADLER_BASE;
+        if (sum1 >= ADLER_BASE) sum1 -= ADLER_BASE;
+        if (sum2 >= 2L * ADLER_BASE) sum2 -= 2L * ADLER_BASE;
+        if (sum2 >= ADLER_BASE) sum2 -= ADLER_BASE;
+        return sum1 | (sum2 << 16);
+    }
+
+    /**
+     * Writes a PNG chunk (length, type, data and CRC) to the channel
+     *
+     * @param type the chunk type
+     * @param data the chunk data
+     * @throws IOException on a write failure
+     */
+    private void writeChunk(String type, byte[] data) throws IOException {
+        byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+        CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(data);
+        ByteBuffer buffer = ByteBuffer.allocate(12 + data.length);
+        buffer.putInt(data.length).put(typeBytes).put(data).putInt((int) crc.getValue());
+        write(buffer.flip());
+    }
+
+    /**
+     * Writes the whole buffer to the channel
+     *
+     * @param buffer the buffer to write
+     * @throws IOException on a write failure
+     */
+    private void write(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) channel.write(buffer);
+    }
+}
@@ -0,0 +1,20 @@
+package renderer;
+
+/**
+ * Rectangular block of pixels of the view plane
+ *
+ * @param x0     column of the tile's top left pixel
+ * @param y0     row of the tile's top left pixel
+ * @param width  amount of pixel columns in the tile
+ * @param height amount of pixel rows in the tile
+ */
+record Tile(int x0, int y0, int width, int height) {
+    /**
+     * Amount of pixels in the tile
+     *
+     * @return the tile's area in pixels
+     */
+    int pixels() {
+        return width * height;
+    }
+}
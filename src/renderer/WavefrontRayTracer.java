@@ -0,0 +1,55 @@
+package renderer;
+
+import acceleration.RegularGrid;
+import primitives.Color;
+import primitives.Ray;
+import sampling.TargetAreaBase;
+import scene.Scene;
+
+import java.util.Map;
+
+/**
+ * Wavefront (breadth-first) ray tracer with the effects of the extended ray tracer, using a regular grid.<br>
+ * Instead of following each ray's reflections and refractions recursively, every ray is traced in stages
+ * over queues of rays (see {@link RayQueue}): the primary rays are generated into the first wave, then the
+ * whole wave is intersected, shaded and its secondary rays are emitted into the next wave, which is sorted
+ * and traced the same way until no rays are left. Each queued ray carries its accumulated attenuation
+ * factor and its weight in the pixel's color, so the colors are the same as of the recursive tracer.
+ * This holds for the sampled effects as well as long as their sampling pattern is deterministic
+ * ({@link sampling.SamplingPattern#GRID}) - with a randomized pattern the random numbers are drawn breadth-first
+ * instead of depth-first, so the colors are equal only statistically.
+ * The stages work on whole waves, so they are best used with ray packets
+ * ({@link Camera.Builder#setRayPackets(int)}) - a single ray is traced as a wave of its own
+ */
+public class WavefrontRayTracer extends RegularGridRayTracer {
+    /**
+     * Constructs a wavefront ray tracer with the specified scene and grid.
+     *
+     * @param scene The scene to be rendered.
+     * @param grid  The regular grid for acceleration.
+     */
+    public WavefrontRayTracer(Scene scene, RegularGrid grid) {
+        super(scene, grid);
+    }
+
+    /**
+     * Constructs a wavefront ray tracer with the specified scene, grid, and target areas.
+     *
+     * @param scene      The scene to be rendered.
+     * @param grid       The regular grid for acceleration.
+     * @param targetArea Map of effect types to their respective target area implementations.
+     */
+    public WavefrontRayTracer(Scene scene, RegularGrid grid, Map<EffectType, TargetAreaBase> targetArea) {
+        super(scene, grid, targetArea);
+    }
+
+    @Override
+    public Color traceRay(Ray ray) {
+        return traceRaysReordered(new Ray[]{ray})[0];
+    }
+
+    @Override
+    public Color[] traceRays(Ray[] rays) {
+        return traceRaysReordered(rays);
+    }
+}
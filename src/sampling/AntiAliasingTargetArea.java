@@ -0,0 +1,207 @@
+package sampling;
+
+import primitives.Color;
+
+/**
+ * Adaptive anti-aliasing sampler.<br>
+ * Unlike the target areas of {@link TargetAreaBase}, which sample around intersections, it samples
+ * the pixels of the view plane. Every pixel gets a sample of its own at its (jittered) center first,
+ * so a detail smaller than the pixel is caught as without anti-aliasing. When the center is close to
+ * the centers of the neighbouring pixels, the pixel is flat and its center is enough - a flat area
+ * costs about one ray per pixel. Otherwise the pixel is sampled at its four corners too (the corners
+ * are shared with the neighbouring pixels), and when these colors differ beyond the contrast
+ * threshold, the pixel is divided into four sub-cells with new (jittered) samples on their edges,
+ * and each sub-cell is refined the same way recursively, by its corners.
+ * The depth of the recursion is capped by the sampling mode, so the finest sub-cell is never smaller
+ * than a cell of the mode's uniform grid.
+ */
+public class AntiAliasingTargetArea {
+    /**
+     * Default maximal difference of a color component (in the 0-255 range) between samples of a cell
+     * which is still considered flat
+     */
+    public static final double DEFAULT_THRESHOLD = 12;
+
+    /**
+     * Tracer of a single sample inside a pixel
+     */
+    @FunctionalInterface
+    public interface SubPixelTracer {
+        /**
+         * Traces a ray through a point of the pixel
+         *
+         * @param x horizontal offset inside the pixel, from 0 (left edge) to 1 (right edge)
+         * @param y vertical offset inside the pixel, from 0 (top edge) to 1 (bottom edge)
+         * @return the color of the sample
+         */
+        Color trace(double x, double y);
+    }
+
+    /**
+     * Configuration parameters of the sampling - the mode caps the refinement, the pattern defines the jitter
+     */
+    private final SamplingConfiguration config;
+    /**
+     * Maximal difference of a color component between samples of a flat cell
+     */
+    private final double threshold;
+    /**
+     * Maximal depth of the pixel subdivision
+     */
+    private final int maxDepth;
+
+    /**
+     * Constructs an adaptive anti-aliasing sampler with the default contrast threshold
+     *
+     * @param config The sampling configuration - the mode caps the refinement, the pattern defines the jitter
+     */
+    public AntiAliasingTargetArea(SamplingConfiguration config) {
+        this(config, DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * Constructs an adaptive anti-aliasing sampler
+     *
+     * @param config    The sampling configuration - the mode caps the refinement, the pattern defines the jitter
+     * @param threshold maximal difference of a color component (0-255) between samples of a flat cell
+     */
+    public AntiAliasingTargetArea(SamplingConfiguration config, double threshold) {
+        if (threshold < 0) throw new IllegalArgumentException("Contrast threshold must not be negative");
+        this.config = config;
+        this.threshold = threshold;
+        this.maxDepth = 31 - Integer.numberOfLeadingZeros(config.mode.gridValue);
+    }
+
+    /**
+     * Gets the sampling configuration of the sampler
+     *
+     * @return the sampling configuration
+     */
+    public SamplingConfiguration getConfiguration() {
+        return config;
+    }
+
+    /**
+     * Traces the pixel's own sample at its (jittered) center
+     *
+     * @param tracer tracer of the samples inside the pixel
+     * @return the color of the center sample
+     */
+    public Color sampleCenter(SubPixelTracer tracer) {
+        return tracer.trace(0.5 + jitter(0.5), 0.5 + jitter(0.5));
+    }
+
+    /**
+     * Calculates the color of a pixel from its corner samples and its center sample,
+     * refining it where they differ
+     *
+     * @param topLeft     the color at the pixel's top left corner
+     * @param topRight    the color at the pixel's top right corner
+     * @param bottomLeft  the color at the pixel's bottom left corner
+     * @param bottomRight the color at the pixel's bottom right corner
+     * @param center      the color at the pixel's (jittered) center - see {@link #sampleCenter(SubPixelTracer)}
+     * @param tracer      tracer of additional samples inside the pixel
+     * @return the pixel's color
+     */
+    public Color samplePixel(Color topLeft, Color topRight, Color bottomLeft, Color bottomRight, Color center,
+                             SubPixelTracer tracer) {
+        if (maxDepth == 0 || isFlat(topLeft, topRight, bottomLeft, bottomRight, center))
+            // the center sample counts as much as the four corners, which are shared with the neighbours
+            return topLeft.add(topRight, bottomLeft, bottomRight).reduce(4).add(center).reduce(2);
+        return subdivideCell(0, 0, 1, topLeft, topRight, bottomLeft, bottomRight, center, tracer, maxDepth);
+    }
+
+    /**
+     * Calculates the color of a square cell of the pixel, refining it recursively where its corners differ
+     *
+     * @param x           horizontal offset of the cell inside the pixel
+     * @param y           vertical offset of the cell inside the pixel
+     * @param size        size of the cell's side relative to the pixel
+     * @param topLeft     the color at the cell's top left corner
+     * @param topRight    the color at the cell's top right corner
+     * @param bottomLeft  the color at the cell's bottom left corner
+     * @param bottomRight the color at the cell's bottom right corner
+     * @param tracer      tracer of additional samples inside the pixel
+     * @param depth       the remaining subdivision depth
+     * @return the cell's color
+     */
+    private Color sampleCell(double x, double y, double size,
+                             Color topLeft, Color topRight, Color bottomLeft, Color bottomRight,
+                             SubPixelTracer tracer, int depth) {
+        if (depth == 0 || isFlat(topLeft, topRight, bottomLeft, bottomRight))
+            return topLeft.add(topRight, bottomLeft, bottomRight).reduce(4);
+
+        double half = size / 2;
+        Color center = tracer.trace(x + half + jitter(half), y + half + jitter(half));
+        return subdivideCell(x, y, size, topLeft, topRight, bottomLeft, bottomRight, center, tracer, depth);
+    }
+
+    /**
+     * Calculates the color of a square cell of the pixel as the average of its four sub-cells,
+     * tracing new samples in the middle of the cell's edges
+     *
+     * @param x           horizontal offset of the cell inside the pixel
+     * @param y           vertical offset of the cell inside the pixel
+     * @param size        size of the cell's side relative to the pixel
+     * @param topLeft     the color at the cell's top left corner
+     * @param topRight    the color at the cell's top right corner
+     * @param bottomLeft  the color at the cell's bottom left corner
+     * @param bottomRight the color at the cell's bottom right corner
+     * @param center      the color at the cell's (jittered) center
+     * @param tracer      tracer of additional samples inside the pixel
+     * @param depth       the remaining subdivision depth
+     * @return the cell's color
+     */
+    private Color subdivideCell(double x, double y, double size,
+                                Color topLeft, Color topRight, Color bottomLeft, Color bottomRight, Color center,
+                                SubPixelTracer tracer, int depth) {
+        double half = size / 2;
+        Color top = tracer.trace(x + half + jitter(half), y);
+        Color left = tracer.trace(x, y + half + jitter(half));
+        Color right = tracer.trace(x + size, y + half + jitter(half));
+        Color bottom = tracer.trace(x + half + jitter(half), y + size);
+
+        return sampleCell(x, y, half, topLeft, top, left, center, tracer, depth - 1)
+                .add(sampleCell(x + half, y, half, top, topRight, center, right, tracer, depth - 1),
+                        sampleCell(x, y + half, half, left, center, bottomLeft, bottom, tracer, depth - 1),
+                        sampleCell(x + half, y + half, half, center, right, bottom, bottomRight, tracer, depth - 1))
+                .reduce(4);
+    }
+
+    /**
+     * Calculates a random offset of a new sample from the middle of a cell's edge or the cell's center
+     * according to the sampling pattern
+     *
+     * @param half half of the cell's side
+     * @return the offset
+     */
+    private double jitter(double half) {
+        return switch (config.pattern) {
+            case GRID -> 0;
+            // a single new sample per edge or center has no sequence to stratify - the sequences are jittered
+            case JITTERED, SOBOL, HALTON, BLUE_NOISE -> (SampleRandom.current().nextDouble() - 0.5) * half;
+            case RANDOM -> (2 * SampleRandom.current().nextDouble() - 1) * half;
+        };
+    }
+
+    /**
+     * Checks whether the colors of samples (of a cell, or the centers of neighbouring pixels) are close
+     * enough to stop the refinement. The colors are compared after clamping, as they are written into the image
+     *
+     * @param colors the colors of the samples
+     * @return true if no color component differs beyond the threshold
+     */
+    public boolean isFlat(Color... colors) {
+        int minR = 255, minG = 255, minB = 255, maxR = 0, maxG = 0, maxB = 0;
+        for (Color color : colors) {
+            java.awt.Color rgb = color.getColor();
+            minR = Math.min(minR, rgb.getRed());
+            maxR = Math.max(maxR, rgb.getRed());
+            minG = Math.min(minG, rgb.getGreen());
+            maxG = Math.max(maxG, rgb.getGreen());
+            minB = Math.min(minB, rgb.getBlue());
+            maxB = Math.max(maxB, rgb.getBlue());
+        }
+        return maxR - minR <= threshold && maxG - minG <= threshold && maxB - minB <= threshold;
+    }
+}
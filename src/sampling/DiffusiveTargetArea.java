@@ -6,15 +6,15 @@ import primitives.*;
 import java.util.ArrayList;
 import java.util.List;
 
-import static primitives.Util.isZero;
-
 /**
  * A class for generating target points for diffusive glass effects.
  * This class creates scattered sample points around the primary ray direction based on
  * material roughness to simulate imperfect glass transmission.
+ * The sample offsets are taken from the shared {@link SampleTable} of the configuration,
+ * so sampling a hit is a table lookup and a transformation into the refraction direction's basis.
+ * With {@link TargetAreaType#GGX_LOBE} the offsets drive importance sampling of the GGX transmission lobe instead.
  */
 public class DiffusiveTargetArea extends TargetAreaBase {
-
     /**
      * Constructs a diffusive target area for generating scattered ray samples
      *
@@ -26,116 +26,77 @@ public class DiffusiveTargetArea extends TargetAreaBase {
 
     @Override
     protected List<Point> getSamplePoints(Intersectable.Intersection intersection) {
-        // Calculate the perfect refraction direction using Snell's law (transmission through object)
-        Vector vTo = intersection.rayDirection.calcSnellRefraction(intersection.normal, Material.AIR_IOR, intersection.material.ior);
-
-        List<Vector> listOfCoordinates = vTo.getNewCoordinateSystems();
-        Vector u = listOfCoordinates.get(0);
-        Vector v = listOfCoordinates.get(1);
-
-        return switch (this.config.pattern) {
-            case SamplingPattern.JITTERED -> generateSamplesJittered(intersection, vTo, u, v);
-            case SamplingPattern.RANDOM -> generateSamplesRandom(intersection, vTo, u, v);
-            case SamplingPattern.GRID -> generateSamplesGrid(intersection, vTo, u, v);
-        };
-    }
-
-    /**
-     * Generates sample points in a jittered grid pattern around the intersection point.
-     *
-     * @param intersection The intersection point and material properties
-     * @param vTo          The transmission vector calculated from Snell's law
-     * @param u            The first orthogonal vector in the new coordinate system
-     * @param v            The second orthogonal vector in the new coordinate system
-     * @return A list of sample points for the diffusive effect
-     */
-    private List<Point> generateSamplesJittered(Intersectable.Intersection intersection, Vector vTo, Vector u, Vector v) {
-        List<Point> samples = new ArrayList<>(this.config.mode.numberSamples);
-        double sx, sy;
-
-        for (int y = 0; y < this.config.mode.gridValue && samples.size() < this.config.mode.numberSamples; y++) {
-            for (int x = 0; x < this.config.mode.gridValue && samples.size() < this.config.mode.numberSamples; x++) {
-                Vector finalDir = vTo;
-                sx = (2.0 * (x + this.config.random.nextDouble()) / this.config.mode.gridValue) - 1.0;
-                sy = (2.0 * (y + this.config.random.nextDouble()) / this.config.mode.gridValue) - 1.0;
-
-                // Apply shape test
-                if (config.shape == TargetAreaType.CIRCLE && sx * sx + sy * sy > 1.0) continue;
-
-                if (!isZero(sx)) finalDir = finalDir.add(u.scale(sx * intersection.material.roughness));
-                if (!isZero(sy)) finalDir = finalDir.add(v.scale(sy * intersection.material.roughness));
-
-                samples.add(intersection.point.add(finalDir.normalize().scale(this.config.distance)));
-            }
-        }
+        double[] directions = new double[3 * maxSamples()];
+        int count = sampleDirections(intersection, config.mode.gridValue, directions);
+        List<Point> samples = new ArrayList<>(count);
+        for (int k = 0; k < 3 * count; k += 3)
+            samples.add(intersection.point.add(
+                    new Vector(directions[k], directions[k + 1], directions[k + 2]).scale(config.distance)));
         return samples;
     }
 
     /**
-     * Generates sample points in a grid pattern around the intersection point.
+     * Generates the directions of the samples around the refracted direction on a grid of a given size.
+     * A single sample is always taken randomly, so that a single sample per path is not biased
      *
-     * @param intersection The intersection point and material properties
-     * @param vTo          The transmission vector calculated from Snell's law
-     * @param u            The first orthogonal vector in the new coordinate system
-     * @param v            The second orthogonal vector in the new coordinate system
-     * @return A list of sample points for the diffusive effect
+     * @param intersection contains hit point, incoming ray direction, normal, and material info
+     * @param gridValue    the size of one dimension of the sampling grid
+     * @param directions   the buffer of the normalized directions (x, y, z of each sample)
+     * @return the amount of samples
      */
-    private List<Point> generateSamplesGrid(Intersectable.Intersection intersection, Vector vTo, Vector u, Vector v) {
-        List<Point> samples = new ArrayList<>(this.config.mode.numberSamples);
-        double sx, sy;
+    private int sampleDirections(Intersectable.Intersection intersection, int gridValue, double[] directions) {
+        if (config.shape == TargetAreaType.GGX_LOBE) return sampleLobeDirections(intersection, gridValue, directions);
 
-        for (int y = 0; y < this.config.mode.gridValue && samples.size() < this.config.mode.numberSamples; y++) {
-            for (int x = 0; x < this.config.mode.gridValue && samples.size() < this.config.mode.numberSamples; x++) {
-                Vector finalDir = vTo;
-                sx = (2.0 * x + 0.5) / this.config.mode.gridValue - 1.0;
-                sy = (2.0 * y + 0.5) / this.config.mode.gridValue - 1.0;
-
-                // Apply shape test
-                if (config.shape == TargetAreaType.CIRCLE && sx * sx + sy * sy > 1.0) continue;
-
-                if (!isZero(sx)) finalDir = finalDir.add(u.scale(sx * intersection.material.roughness));
-                if (!isZero(sy)) finalDir = finalDir.add(v.scale(sy * intersection.material.roughness));
+        // Calculate the perfect refraction direction using Snell's law (transmission through object)
+        Vector vTo = intersection.rayDirection.calcSnellRefraction(intersection.normal, Material.AIR_IOR, intersection.material.ior);
+        if (vTo == null) return 0; // total internal reflection
 
-                samples.add(intersection.point.add(finalDir.normalize().scale(this.config.distance)));
-            }
-        }
-        return samples;
+        return sampleCone(vTo, intersection.normal, 0, intersection.material.roughness, gridValue, directions);
     }
 
     /**
-     * Generates sample points in a random pattern around the intersection point.
+     * Generates the directions of the samples importance sampled by a GGX lobe around the refracted direction
+     * (see {@link #sampleLobe(Vector, Vector, double, double, int, double[])}).
+     * Samples which turn back to the incoming side of the surface are dropped
      *
-     * @param intersection The intersection point and material properties
-     * @param vTo          The transmission vector calculated from Snell's law
-     * @param u            The first orthogonal vector in the new coordinate system
-     * @param v            The second orthogonal vector in the new coordinate system
-     * @return A list of sample points for the diffusive effect
+     * @param intersection contains hit point, incoming ray direction, normal, and material info
+     * @param gridValue    the size of one dimension of the sampling grid at full roughness
+     * @param directions   the buffer of the normalized directions (x, y, z of each sample)
+     * @return the amount of samples
      */
-    private List<Point> generateSamplesRandom(Intersectable.Intersection intersection, Vector vTo, Vector u, Vector v) {
-        List<Point> samples = new ArrayList<>(this.config.mode.numberSamples);
-        double sx, sy;
-
-        while (samples.size() < this.config.mode.numberSamples) {
-            Vector finalDir = vTo;
-            sx = 2.0 * this.config.random.nextDouble() - 1.0;
-            sy = 2.0 * this.config.random.nextDouble() - 1.0;
+    private int sampleLobeDirections(Intersectable.Intersection intersection, int gridValue, double[] directions) {
+        Vector vTo = intersection.rayDirection.calcSnellRefraction(intersection.normal, Material.AIR_IOR, intersection.material.ior);
+        if (vTo == null) return 0; // total internal reflection
 
-            // Apply shape test
-            if (config.shape == TargetAreaType.CIRCLE && sx * sx + sy * sy > 1.0) continue;
+        // the refracted ray leaves on the side opposite to the incoming ray
+        return sampleLobe(vTo, intersection.normal, Math.signum(intersection.rayDirection.dotProduct(intersection.normal)),
+                intersection.material.roughness, gridValue, directions);
+    }
 
-            if (!isZero(sx)) finalDir = finalDir.add(u.scale(sx * intersection.material.roughness));
-            if (!isZero(sy)) finalDir = finalDir.add(v.scale(sy * intersection.material.roughness));
+    @Override
+    public int maxSamples() {
+        return config.mode.numberSamples;
+    }
 
-            samples.add(intersection.point.add(finalDir.normalize().scale(this.config.distance)));
-        }
-        return samples;
+    @Override
+    public int generateDirections(Intersectable.Intersection intersection, int bounces, double[] directions) {
+        return sampleDirections(intersection, budgetGridValue(bounces), directions);
     }
 
     @Override
     public List<Ray> generateRays(Intersectable.Intersection intersection) {
-        return getSamplePoints(intersection).stream()
-                .map(point -> new Ray(intersection.point, point.subtract(intersection.point).normalize(), intersection.normal))
-                .toList();
+        return generateRays(intersection, 0);
+    }
+
+    @Override
+    public List<Ray> generateRays(Intersectable.Intersection intersection, int bounces) {
+        double[] directions = new double[3 * maxSamples()];
+        int count = generateDirections(intersection, bounces, directions);
+        List<Ray> rays = new ArrayList<>(count);
+        for (int k = 0; k < 3 * count; k += 3)
+            rays.add(new Ray(intersection.point,
+                    new Vector(directions[k], directions[k + 1], directions[k + 2]), intersection.normal));
+        return rays;
     }
 
 }
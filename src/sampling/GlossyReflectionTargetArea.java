@@ -0,0 +1,88 @@
+package sampling;
+
+import geometries.Intersectable;
+import primitives.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A class for generating target points for glossy reflection effects.
+ * This class creates scattered sample directions in a cone around the mirror reflection direction,
+ * whose width is the material's reflection roughness, to simulate brushed and glossy surfaces.
+ * With {@link TargetAreaType#GGX_LOBE} the directions are importance sampled by the GGX reflection lobe instead.<br>
+ * The amount of samples is scaled down for low roughness and by the configuration's {@link SampleBudget}
+ * at the deeper hits, so a nearly polished surface or a reflection seen in another reflection takes
+ * only a few rays. Samples which would go below the surface are dropped, and a hit always takes at least
+ * the mirror direction
+ */
+public class GlossyReflectionTargetArea extends TargetAreaBase {
+
+    /**
+     * Constructs a glossy reflection target area for generating scattered ray samples
+     *
+     * @param config The sampling configuration containing mode, shape, and pattern settings
+     */
+    public GlossyReflectionTargetArea(SamplingConfiguration config) {
+        super(config);
+    }
+
+    @Override
+    protected List<Point> getSamplePoints(Intersectable.Intersection intersection) {
+        double[] directions = new double[3 * maxSamples()];
+        int count = sampleDirections(intersection, config.mode.gridValue, directions);
+        List<Point> samples = new ArrayList<>(count);
+        for (int k = 0; k < 3 * count; k += 3)
+            samples.add(intersection.point.add(
+                    new Vector(directions[k], directions[k + 1], directions[k + 2]).scale(config.distance)));
+        return samples;
+    }
+
+    /**
+     * Generates the directions of the samples around the mirror reflection direction
+     *
+     * @param intersection contains hit point, incoming ray direction, normal, and material info
+     * @param gridValue    the size of one dimension of the sampling grid at full roughness
+     * @param directions   the buffer of the normalized directions (x, y, z of each sample)
+     * @return the amount of samples
+     */
+    private int sampleDirections(Intersectable.Intersection intersection, int gridValue, double[] directions) {
+        Vector normal = intersection.normal;
+        double rayNormal = intersection.rayDirection.dotProduct(normal);
+        Vector mirror = intersection.rayDirection.subtract(normal.scale(2 * rayNormal));
+        double roughness = intersection.material.reflectionRoughness;
+        // the reflected ray leaves on the incoming side of the surface
+        double side = -Math.signum(rayNormal);
+
+        int count = config.shape == TargetAreaType.GGX_LOBE
+                ? sampleLobe(mirror, normal, side, roughness, gridValue, directions)
+                : sampleCone(mirror, normal, side, roughness, roughnessGridValue(gridValue, roughness), directions);
+        if (count > 0) return count;
+
+        directions[0] = mirror.getX();
+        directions[1] = mirror.getY();
+        directions[2] = mirror.getZ();
+        return 1;
+    }
+
+    @Override
+    public int generateDirections(Intersectable.Intersection intersection, int bounces, double[] directions) {
+        return sampleDirections(intersection, budgetGridValue(bounces), directions);
+    }
+
+    @Override
+    public List<Ray> generateRays(Intersectable.Intersection intersection) {
+        return generateRays(intersection, 0);
+    }
+
+    @Override
+    public List<Ray> generateRays(Intersectable.Intersection intersection, int bounces) {
+        double[] directions = new double[3 * maxSamples()];
+        int count = generateDirections(intersection, bounces, directions);
+        List<Ray> rays = new ArrayList<>(count);
+        for (int k = 0; k < 3 * count; k += 3)
+            rays.add(new Ray(intersection.point,
+                    new Vector(directions[k], directions[k + 1], directions[k + 2]), intersection.normal));
+        return rays;
+    }
+}
@@ -0,0 +1,45 @@
+package sampling;
+
+/**
+ * Budget of the sample rays of a distributed effect (e.g. diffusive glass) by the diffuse bounces of the path.<br>
+ * A diffuse bounce is a hit whose effect was sampled by several rays (rough glass or glossy reflection) -
+ * mirror reflections and clear refractions along the path do not count. At the first diffuse bounce of a path
+ * the effect takes all the samples of its {@link SamplingMode}, and at each further diffuse bounce the amount
+ * of samples is multiplied by the budget's ratio (at least one sample is always taken). So nested rough surfaces
+ * do not multiply the amount of rays by the full sample count at each bounce
+ *
+ * @param ratio the factor of the amount of samples per diffuse bounce, between 0 (full splitting at the first
+ *              diffuse bounce and a single sample at any further one) and 1 (full splitting at every bounce)
+ */
+public record SampleBudget(double ratio) {
+    /**
+     * Full splitting at every diffuse bounce - every hit takes all the samples of the sampling mode
+     */
+    public static final SampleBudget FULL = new SampleBudget(1);
+    /**
+     * Full splitting at the first diffuse bounce only and a single sample per path at the further ones
+     */
+    public static final SampleBudget SPLIT_ONCE = new SampleBudget(0);
+
+    /**
+     * Constructs a sample budget
+     *
+     * @param ratio the factor of the amount of samples per diffuse bounce
+     * @throws IllegalArgumentException if the ratio is not between 0 and 1
+     */
+    public SampleBudget {
+        if (!(ratio >= 0 && ratio <= 1)) throw new IllegalArgumentException("Budget ratio must be between 0 and 1");
+    }
+
+    /**
+     * Calculates the amount of samples of a hit
+     *
+     * @param samples the full amount of samples of the sampling mode
+     * @param bounces the amount of diffuse bounces of the path before the hit (0 at its first diffuse bounce)
+     * @return the amount of samples, at least 1
+     */
+    public int samples(int samples, int bounces) {
+        if (bounces <= 0 || ratio == 1) return samples;
+        return Math.max(1, (int) Math.round(samples * Math.pow(ratio, bounces)));
+    }
+}
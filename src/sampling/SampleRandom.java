@@ -0,0 +1,76 @@
+package sampling;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Per-thread stream of random numbers for sampling (SplitMix64).<br>
+ * Each render thread owns its own stream, so the threads do not contend on a shared generator.
+ * The stream is reseeded by {@link #seed(int, int, int)} before a pixel (or a sample of a pixel)
+ * is traced, so the random numbers of a pixel depend only on the pixel and the sample index -
+ * the render is reproducible regardless of the amount of threads and their scheduling
+ */
+public final class SampleRandom implements RandomGenerator {
+    /**
+     * The odd increment of the SplitMix64 state (the golden ratio)
+     */
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+    /**
+     * The stream of each thread
+     */
+    private static final ThreadLocal<SampleRandom> STREAMS =
+            ThreadLocal.withInitial(() -> new SampleRandom(mix(Thread.currentThread().threadId())));
+
+    /**
+     * The generator's state
+     */
+    private long state;
+
+    /**
+     * Constructs a stream with an initial state
+     *
+     * @param state the initial state
+     */
+    private SampleRandom(long state) {
+        this.state = state;
+    }
+
+    /**
+     * Gets the stream of the current thread
+     *
+     * @return the thread's stream
+     */
+    public static SampleRandom current() {
+        return STREAMS.get();
+    }
+
+    /**
+     * Reseeds the stream of the current thread for a pixel's sample
+     *
+     * @param j      pixel column index
+     * @param i      pixel row index
+     * @param sample index of the pixel's sample
+     * @return the thread's stream
+     */
+    public static SampleRandom seed(int j, int i, int sample) {
+        SampleRandom random = STREAMS.get();
+        random.state = mix(mix((long) i << Integer.SIZE ^ j & 0xFFFFFFFFL) + sample * GOLDEN_GAMMA);
+        return random;
+    }
+
+    @Override
+    public long nextLong() {
+        return mix(state += GOLDEN_GAMMA);
+    }
+
+    /**
+     * The SplitMix64 bits mixing function
+     *
+     * @param z the value to mix
+     * @return the mixed value
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,238 @@
+package sampling;
+
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+
+/**
+ * Generator of the sample positions of a sampling pattern in the unit square.<br>
+ * The random numbers (jitter, scrambling and rotations) are taken from the current thread's
+ * {@link SampleRandom} stream, so the positions are reproducible per pixel and decorrelated between pixels
+ */
+public final class SampleSequence {
+    /**
+     * Amount of points in the precomputed blue-noise tile
+     */
+    private static final int BLUE_NOISE_POINTS = 256;
+    /**
+     * Amount of candidates per already placed point in the best-candidate construction of the blue-noise tile
+     */
+    private static final int BLUE_NOISE_CANDIDATES = 10;
+    /**
+     * Seed of the blue-noise tile construction
+     */
+    private static final long BLUE_NOISE_SEED = 0x5EEDL;
+    /**
+     * The precomputed blue-noise tile - coordinates x and y of each point, in the order of their placement,
+     * so every prefix of the tile is well distributed as well
+     */
+    private static final double[] BLUE_NOISE_TILE = createBlueNoiseTile();
+    /**
+     * Scale of a 32-bit unsigned fixed point fraction to the unit interval
+     */
+    private static final double FRACTION_SCALE = 0x1p-32;
+
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private SampleSequence() {
+    }
+
+    /**
+     * Generates the sample positions of a pattern in the unit square.
+     * For {@link SamplingPattern#GRID} and {@link SamplingPattern#JITTERED} the positions are ordered by the
+     * grid cells, row by row
+     *
+     * @param pattern   the sampling pattern
+     * @param gridValue the size of one dimension of the sampling grid - gridValue^2 positions are generated
+     * @return coordinates x and y of each position in [0, 1)
+     */
+    public static double[] points(SamplingPattern pattern, int gridValue) {
+        return points(pattern, gridValue, SampleRandom.current());
+    }
+
+    /**
+     * Generates the sample positions of a pattern in the unit square with the random numbers of a given generator
+     *
+     * @param pattern   the sampling pattern
+     * @param gridValue the size of one dimension of the sampling grid - gridValue^2 positions are generated
+     * @param random    the generator of the jitter, scrambling and rotations
+     * @return coordinates x and y of each position in [0, 1)
+     */
+    static double[] points(SamplingPattern pattern, int gridValue, RandomGenerator random) {
+        if (gridValue < 1) throw new IllegalArgumentException("Grid value must be positive");
+        int count = gridValue * gridValue;
+        double[] points = new double[2 * count];
+        switch (pattern) {
+            case GRID, JITTERED, RANDOM -> {
+                for (int k = 0; k < count; ++k) {
+                    int x = k % gridValue;
+                    int y = k / gridValue;
+                    points[2 * k] = switch (pattern) {
+                        case GRID -> (x + 0.5) / gridValue;
+                        case JITTERED -> (x + random.nextDouble()) / gridValue;
+                        default -> random.nextDouble();
+                    };
+                    points[2 * k + 1] = switch (pattern) {
+                        case GRID -> (y + 0.5) / gridValue;
+                        case JITTERED -> (y + random.nextDouble()) / gridValue;
+                        default -> random.nextDouble();
+                    };
+                }
+            }
+            case SOBOL -> {
+                int seedX = random.nextInt();
+                int seedY = random.nextInt();
+                for (int k = 0; k < count; ++k) {
+                    points[2 * k] = fraction(owenScramble(Integer.reverse(k), seedX));
+                    points[2 * k + 1] = fraction(owenScramble(sobolSecond(k), seedY));
+                }
+            }
+            case HALTON -> {
+                double shiftX = random.nextDouble();
+                double shiftY = random.nextDouble();
+                for (int k = 0; k < count; ++k) {
+                    points[2 * k] = rotate(radicalInverse(k, 2), shiftX);
+                    points[2 * k + 1] = rotate(radicalInverse(k, 3), shiftY);
+                }
+            }
+            case BLUE_NOISE -> {
+                double shiftX = random.nextDouble();
+                double shiftY = random.nextDouble();
+                // more samples than the tile holds are taken from scaled copies of the tile,
+                // rank by rank, so the missing points of the last rank are spread over the copies
+                int copies = (int) Math.ceil(Math.sqrt((double) count / BLUE_NOISE_POINTS));
+                for (int k = 0; k < count; ++k) {
+                    int copy = k % (copies * copies);
+                    int point = k / (copies * copies);
+                    points[2 * k] = (copy % copies + rotate(BLUE_NOISE_TILE[2 * point], shiftX)) / copies;
+                    points[2 * k + 1] = (copy / copies + rotate(BLUE_NOISE_TILE[2 * point + 1], shiftY)) / copies;
+                }
+            }
+        }
+        return points;
+    }
+
+    /**
+     * Maps a position of the square [-1, 1]^2 onto the unit disk by Shirley's concentric mapping,
+     * which keeps the stratification of the positions
+     *
+     * @param sx x coordinate in [-1, 1]
+     * @param sy y coordinate in [-1, 1]
+     * @return coordinates x and y on the unit disk
+     */
+    public static double[] toDisk(double sx, double sy) {
+        if (sx == 0 && sy == 0) return new double[]{0, 0};
+        double radius, angle;
+        if (Math.abs(sx) > Math.abs(sy)) {
+            radius = sx;
+            angle = Math.PI / 4 * (sy / sx);
+        } else {
+            radius = sy;
+            angle = Math.PI / 2 - Math.PI / 4 * (sx / sy);
+        }
+        return new double[]{radius * Math.cos(angle), radius * Math.sin(angle)};
+    }
+
+    /**
+     * Calculates the second dimension of the Sobol sequence (generated by the polynomial x + 1)
+     *
+     * @param index the index in the sequence
+     * @return the value as a 32-bit unsigned fixed point fraction
+     */
+    private static int sobolSecond(int index) {
+        int value = 0;
+        for (int direction = 1 << 31; index != 0; index >>>= 1, direction ^= direction >>> 1)
+            if ((index & 1) != 0) value ^= direction;
+        return value;
+    }
+
+    /**
+     * Owen scrambling of a fixed point fraction by the Laine-Karras hash (on the reversed bits, so each bit
+     * is flipped depending only on the more significant bits)
+     *
+     * @param value the fraction as a 32-bit unsigned fixed point number
+     * @param seed  the scrambling seed
+     * @return the scrambled fraction
+     */
+    private static int owenScramble(int value, int seed) {
+        int x = Integer.reverse(value);
+        x += seed;
+        x ^= x * 0x6C50B47C;
+        x ^= x * 0xB82F1E52;
+        x ^= x * 0xC7AFE638;
+        x ^= x * 0x8D22F6E6;
+        return Integer.reverse(x);
+    }
+
+    /**
+     * Converts a 32-bit unsigned fixed point fraction into a double
+     *
+     * @param value the fraction
+     * @return the fraction in [0, 1)
+     */
+    private static double fraction(int value) {
+        return Integer.toUnsignedLong(value) * FRACTION_SCALE;
+    }
+
+    /**
+     * Calculates the radical inverse of an index in a base (the digits mirrored around the radix point)
+     *
+     * @param index the index
+     * @param base  the base
+     * @return the radical inverse in [0, 1)
+     */
+    private static double radicalInverse(int index, int base) {
+        double inverse = 0;
+        double digitScale = 1.0 / base;
+        for (double scale = digitScale; index > 0; index /= base, scale *= digitScale)
+            inverse += index % base * scale;
+        return inverse;
+    }
+
+    /**
+     * Rotates a coordinate of the unit interval toroidally
+     *
+     * @param value the coordinate in [0, 1)
+     * @param shift the rotation in [0, 1)
+     * @return the rotated coordinate in [0, 1)
+     */
+    private static double rotate(double value, double shift) {
+        double rotated = value + shift;
+        return rotated >= 1 ? rotated - 1 : rotated;
+    }
+
+    /**
+     * Creates the blue-noise tile by Mitchell's best-candidate algorithm on the torus:
+     * each next point is the farthest of several random candidates from the already placed points
+     *
+     * @return coordinates x and y of the tile's points
+     */
+    private static double[] createBlueNoiseTile() {
+        // a private generator - the tile may be created lazily in the middle of a pixel's sampling
+        SplittableRandom random = new SplittableRandom(BLUE_NOISE_SEED);
+        double[] tile = new double[2 * BLUE_NOISE_POINTS];
+        tile[0] = random.nextDouble();
+        tile[1] = random.nextDouble();
+        for (int placed = 1; placed < BLUE_NOISE_POINTS; ++placed) {
+            double bestDistance = -1;
+            for (int candidate = 0; candidate < placed * BLUE_NOISE_CANDIDATES; ++candidate) {
+                double x = random.nextDouble();
+                double y = random.nextDouble();
+                double distance = Double.POSITIVE_INFINITY;
+                for (int k = 0; k < placed && distance > bestDistance; ++k) {
+                    double dx = Math.abs(x - tile[2 * k]);
+                    double dy = Math.abs(y - tile[2 * k + 1]);
+                    dx = Math.min(dx, 1 - dx);
+                    dy = Math.min(dy, 1 - dy);
+                    distance = Math.min(distance, dx * dx + dy * dy);
+                }
+                if (distance > bestDistance) {
+                    bestDistance = distance;
+                    tile[2 * placed] = x;
+                    tile[2 * placed + 1] = y;
+                }
+            }
+        }
+        return tile;
+    }
+}
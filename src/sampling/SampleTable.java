@@ -0,0 +1,207 @@
+package sampling;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Immutable table of sample offsets in the square [-1, 1]^2 (or in the unit disk), shared by all the samplers
+ * of the same grid size, shape and pattern. The tables of {@link TargetAreaType#GGX_LOBE} are square tables
+ * of the lobe's random variables.<br>
+ * The table is created once; at every hit it is randomized by a Cranley-Patterson shift (toroidal, square)
+ * or by a rotation (disk) drawn from the pixel-seeded {@link SampleRandom} stream, so the samples of
+ * different hits and pixels are decorrelated, while sampling a hit is only a table lookup.
+ * {@link SamplingPattern#GRID} tables are not randomized.<br>
+ * The samples are ordered progressively - every prefix of the table is spread over the whole area
+ * (the low-discrepancy sequences are progressive by themselves, the other tables are reordered),
+ * so a sampler may stop early after a part of the samples
+ */
+final class SampleTable {
+    /**
+     * The shared tables by their grid size, shape and pattern
+     */
+    private static final Map<Key, SampleTable> TABLES = new ConcurrentHashMap<>();
+    /**
+     * Seed of the random table contents (the jitter, random positions and scrambling)
+     */
+    private static final long TABLE_SEED = 0x7AB1EL;
+
+    /**
+     * Key of a shared table
+     *
+     * @param gridValue the size of one dimension of the sampling grid
+     * @param shape     the shape of the sampling area
+     * @param pattern   the sampling pattern
+     */
+    private record Key(int gridValue, TargetAreaType shape, SamplingPattern pattern) {
+    }
+
+    /**
+     * Offsets x and y of the samples
+     */
+    private final double[] offsets;
+    /**
+     * The shape of the sampling area
+     */
+    private final TargetAreaType shape;
+    /**
+     * Whether the table is randomized at each use
+     */
+    private final boolean randomized;
+
+    /**
+     * Creates the table of a grid size, shape and pattern
+     *
+     * @param key the table's key
+     */
+    private SampleTable(Key key) {
+        shape = key.shape;
+        randomized = key.pattern != SamplingPattern.GRID;
+        double[] points = SampleSequence.points(key.pattern, key.gridValue, new SplittableRandom(TABLE_SEED));
+        // the regular grids keep the samples inside the circle, the other patterns are mapped onto the disk,
+        // so they keep all their samples and their stratification
+        boolean reject = key.pattern == SamplingPattern.GRID || key.pattern == SamplingPattern.JITTERED;
+        double[] table = new double[points.length];
+        int length = 0;
+        for (int k = 0; k < points.length; k += 2) {
+            double sx = 2 * points[k] - 1;
+            double sy = 2 * points[k + 1] - 1;
+            if (shape == TargetAreaType.CIRCLE) {
+                if (reject) {
+                    if (sx * sx + sy * sy > 1) continue;
+                } else {
+                    double[] disk = SampleSequence.toDisk(sx, sy);
+                    sx = disk[0];
+                    sy = disk[1];
+                }
+            }
+            table[length++] = sx;
+            table[length++] = sy;
+        }
+        offsets = length == table.length ? table : Arrays.copyOf(table, length);
+        if (reject || key.pattern == SamplingPattern.RANDOM)
+            orderProgressively(offsets);
+    }
+
+    /**
+     * Reorders samples by the farthest point strategy: each next sample is the one farthest
+     * from all the samples before it
+     *
+     * @param offsets offsets x and y of the samples
+     */
+    private static void orderProgressively(double[] offsets) {
+        int count = offsets.length / 2;
+        // squared distance of each remaining sample from the nearest ordered sample
+        double[] distances = new double[count];
+        Arrays.fill(distances, Double.POSITIVE_INFINITY);
+        // start from the sample nearest to the center
+        int next = 0;
+        for (int k = 1; k < count; ++k)
+            if (lengthSquared(offsets, k) < lengthSquared(offsets, next)) next = k;
+        for (int ordered = 0; ordered < count; ++ordered) {
+            swap(offsets, distances, ordered, next);
+            double x = offsets[2 * ordered];
+            double y = offsets[2 * ordered + 1];
+            next = ordered + 1;
+            for (int k = ordered + 1; k < count; ++k) {
+                double dx = offsets[2 * k] - x;
+                double dy = offsets[2 * k + 1] - y;
+                distances[k] = Math.min(distances[k], dx * dx + dy * dy);
+                if (distances[k] > distances[next]) next = k;
+            }
+        }
+    }
+
+    /**
+     * Calculates the squared distance of a sample from the center
+     *
+     * @param offsets offsets x and y of the samples
+     * @param k       index of the sample
+     * @return the squared distance
+     */
+    private static double lengthSquared(double[] offsets, int k) {
+        return offsets[2 * k] * offsets[2 * k] + offsets[2 * k + 1] * offsets[2 * k + 1];
+    }
+
+    /**
+     * Swaps two samples with their distances
+     *
+     * @param offsets   offsets x and y of the samples
+     * @param distances distances of the samples
+     * @param a         index of one sample
+     * @param b         index of the other sample
+     */
+    private static void swap(double[] offsets, double[] distances, int a, int b) {
+        double x = offsets[2 * a], y = offsets[2 * a + 1], distance = distances[a];
+        offsets[2 * a] = offsets[2 * b];
+        offsets[2 * a + 1] = offsets[2 * b + 1];
+        distances[a] = distances[b];
+        offsets[2 * b] = x;
+        offsets[2 * b + 1] = y;
+        distances[b] = distance;
+    }
+
+    /**
+     * Gets the shared table of a grid size, shape and pattern
+     *
+     * @param gridValue the size of one dimension of the sampling grid
+     * @param shape     the shape of the sampling area
+     * @param pattern   the sampling pattern
+     * @return the table
+     */
+    static SampleTable of(int gridValue, TargetAreaType shape, SamplingPattern pattern) {
+        return TABLES.computeIfAbsent(new Key(gridValue, shape, pattern), SampleTable::new);
+    }
+
+    /**
+     * Amount of samples in the table
+     *
+     * @return the amount of samples
+     */
+    int size() {
+        return offsets.length / 2;
+    }
+
+    /**
+     * Copies the offsets of the samples into a buffer, randomized for the current hit
+     *
+     * @param buffer the buffer of offsets x and y
+     * @param from   the position of the first offset in the buffer
+     * @return the amount of samples
+     */
+    int offsets(double[] buffer, int from) {
+        if (!randomized) {
+            System.arraycopy(offsets, 0, buffer, from, offsets.length);
+            return size();
+        }
+        SampleRandom random = SampleRandom.current();
+        if (shape == TargetAreaType.CIRCLE) {
+            double angle = 2 * Math.PI * random.nextDouble();
+            double cos = Math.cos(angle);
+            double sin = Math.sin(angle);
+            for (int k = 0; k < offsets.length; k += 2) {
+                buffer[from + k] = cos * offsets[k] - sin * offsets[k + 1];
+                buffer[from + k + 1] = sin * offsets[k] + cos * offsets[k + 1];
+            }
+        } else {
+            double shiftX = 2 * random.nextDouble();
+            double shiftY = 2 * random.nextDouble();
+            for (int k = 0; k < offsets.length; k += 2) {
+                buffer[from + k] = wrap(offsets[k] + shiftX);
+                buffer[from + k + 1] = wrap(offsets[k + 1] + shiftY);
+            }
+        }
+        return size();
+    }
+
+    /**
+     * Wraps a shifted offset back into [-1, 1)
+     *
+     * @param offset the shifted offset in [-1, 3)
+     * @return the wrapped offset
+     */
+    private static double wrap(double offset) {
+        return offset >= 1 ? offset - 2 : offset;
+    }
+}
@@ -21,13 +21,15 @@ public class SamplerFactory {
      * @param effectType The type of effect for which to create a sampler
      * @param config     The sampling configuration containing mode, shape, and pattern settings
      * @return A target area implementation appropriate for the specified effect type
+     * @throws IllegalArgumentException for {@link EffectType#ANTI_ALIASING}, which samples pixels rather than
+     *                                  intersections - see {@link AntiAliasingTargetArea}
      */
     public static TargetAreaBase createSampler(EffectType effectType, SamplingConfiguration config) {
         return switch (effectType) {
             case DIFFUSIVE_GLASS -> new DiffusiveTargetArea(config);
-            case SOFT_SHADOW -> null; // SoftShadowSampler is not implemented yet
-            case ANTI_ALIASING -> null; // AntiAliasingSampler is not implemented yet
-            case GLOSSY_REFLECTION -> null; // GlossyReflectionSampler is not implemented yet
+            case SOFT_SHADOW -> new SoftShadowTargetArea(config);
+            case ANTI_ALIASING -> throw new IllegalArgumentException("Anti-aliasing is not a target area");
+            case GLOSSY_REFLECTION -> new GlossyReflectionTargetArea(config);
             case DEPTH_OF_FIELD -> null; // DepthOfFieldSampler is not implemented yet
         };
     }
@@ -1,10 +1,9 @@
 package sampling;
 
-import java.util.Random;
-
 /**
  * Configuration class for defining sampling parameters used in ray distribution techniques.
  * Encapsulates all settings needed for different sampling strategies.
+ * The random samples are drawn from the render thread's {@link SampleRandom} stream.
  */
 public class SamplingConfiguration {
     /**
@@ -28,9 +27,9 @@ public class SamplingConfiguration {
     public final double distance;
 
     /**
-     * Random number generator used for sampling distributions
+     * The budget of the samples by the diffuse bounces of the path
      */
-    public final Random random;
+    public final SampleBudget budget;
 
     /**
      * Constructs a sampling configuration with specified parameters.
@@ -41,10 +40,30 @@ public class SamplingConfiguration {
      * @param distance The distance from origin to sample points (defaults to 1.0 if 0)
      */
     public SamplingConfiguration(SamplingMode mode, TargetAreaType shape, SamplingPattern pattern, double distance) {
+        this(mode, shape, pattern, distance, SampleBudget.FULL);
+    }
+
+    /**
+     * Constructs a sampling configuration with specified parameters and a budget of the samples by the diffuse bounces.
+     *
+     * @param mode     The sampling mode determining sample density (at the first diffuse bounce)
+     * @param shape    The shape of the sampling area
+     * @param pattern  The distribution pattern of samples
+     * @param distance The distance from origin to sample points (defaults to 1.0 if 0)
+     * @param budget   The budget of the samples at the further diffuse bounces
+     */
+    public SamplingConfiguration(SamplingMode mode, TargetAreaType shape, SamplingPattern pattern, double distance,
+                                 SampleBudget budget) {
+        if (budget == null) throw new IllegalArgumentException("Sample budget must not be null");
         this.mode = mode;
         this.shape = shape;
         this.pattern = pattern;
-        this.random = new Random();
         this.distance = distance == 0 ? 1.0 : distance;
+        this.budget = budget;
+    }
+
+    @Override
+    public String toString() {
+        return "SamplingConfiguration[" + mode + ", " + shape + ", " + pattern + ", " + distance + ", " + budget + "]";
     }
 }
@@ -22,4 +22,22 @@ public enum SamplingPattern {
      * Simple and predictable but can create aliasing artifacts.
      */
     GRID,
+
+    /**
+     * Scrambled Sobol sampling pattern - the first two dimensions of the Sobol sequence with hash-based Owen
+     * scrambling, so every power of 2 of samples is stratified in every elementary interval of the area.
+     */
+    SOBOL,
+
+    /**
+     * Halton sampling pattern - radical inverses in bases 2 and 3 with a random toroidal rotation.
+     * Well stratified in each axis for any amount of samples.
+     */
+    HALTON,
+
+    /**
+     * Blue-noise sampling pattern - points of a precomputed best-candidate tile with a random toroidal rotation.
+     * The samples keep a minimal distance from each other without any regular structure.
+     */
+    BLUE_NOISE,
 }
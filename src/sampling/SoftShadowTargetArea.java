@@ -0,0 +1,83 @@
+package sampling;
+
+import geometries.Intersectable;
+import lighting.AreaLight;
+import primitives.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A class for generating target points for soft shadows of area lights.
+ * The points are stratified over the disk (or square, by the configuration's shape) of the
+ * {@link AreaLight}'s emitting sphere which faces the lit point. The sample offsets are taken from
+ * the shared {@link SampleTable} of the configuration, which is ordered progressively, so the first
+ * points already cover the whole emitter and a shadow test may stop after them
+ */
+public class SoftShadowTargetArea extends TargetAreaBase {
+
+    /**
+     * Constructs a soft shadow target area for sampling area lights
+     *
+     * @param config The sampling configuration containing mode, shape, and pattern settings
+     */
+    public SoftShadowTargetArea(SamplingConfiguration config) {
+        super(config);
+    }
+
+    /**
+     * Generates the sample points on the area light of an intersection into a reusable buffer.
+     * The intersection's light source and light direction must be set
+     *
+     * @param intersection contains hit point, light source and light direction
+     * @param points       the buffer of the points (x, y, z of each point), of at least 3 * {@link #maxSamples()}
+     * @return the amount of points
+     * @throws IllegalArgumentException if the intersection's light source is not an area light
+     */
+    public int samplePoints(Intersectable.Intersection intersection, double[] points) {
+        if (!(intersection.lightSource instanceof AreaLight light))
+            throw new IllegalArgumentException("Soft shadows require an area light");
+
+        List<Vector> listOfCoordinates = intersection.lightDirection.getNewCoordinateSystems();
+        Vector u = listOfCoordinates.get(0);
+        Vector v = listOfCoordinates.get(1);
+
+        // the offsets are placed at the end of the buffer, each point is written over the offsets before it
+        SampleTable table = SampleTable.of(config.mode.gridValue, config.shape, config.pattern);
+        int count = table.size();
+        table.offsets(points, count);
+
+        Point center = light.getPosition();
+        double radius = light.getRadius();
+        double cX = center.getX(), cY = center.getY(), cZ = center.getZ();
+        double uX = u.getX() * radius, uY = u.getY() * radius, uZ = u.getZ() * radius;
+        double vX = v.getX() * radius, vY = v.getY() * radius, vZ = v.getZ() * radius;
+        for (int k = 0; k < count; ++k) {
+            double sx = points[count + 2 * k];
+            double sy = points[count + 2 * k + 1];
+            points[3 * k] = cX + sx * uX + sy * vX;
+            points[3 * k + 1] = cY + sx * uY + sy * vY;
+            points[3 * k + 2] = cZ + sx * uZ + sy * vZ;
+        }
+        return count;
+    }
+
+    @Override
+    protected List<Point> getSamplePoints(Intersectable.Intersection intersection) {
+        double[] points = new double[3 * maxSamples()];
+        int count = samplePoints(intersection, points);
+        List<Point> samples = new ArrayList<>(count);
+        for (int k = 0; k < 3 * count; k += 3)
+            samples.add(new Point(points[k], points[k + 1], points[k + 2]));
+        return samples;
+    }
+
+    @Override
+    public List<Ray> generateRays(Intersectable.Intersection intersection) {
+        List<Point> samples = getSamplePoints(intersection);
+        List<Ray> rays = new ArrayList<>(samples.size());
+        for (Point sample : samples)
+            rays.add(new Ray(intersection.point, sample.subtract(intersection.point).normalize(), intersection.normal));
+        return rays;
+    }
+}
@@ -3,6 +3,7 @@ package sampling;
 import geometries.Intersectable;
 import primitives.Point;
 import primitives.Ray;
+import primitives.Vector;
 
 import java.util.List;
 
@@ -12,6 +13,11 @@ import java.util.List;
  */
 public abstract class TargetAreaBase {
 
+    /**
+     * Roughness from which a lobe is sampled by the whole grid - narrower lobes take a smaller grid
+     */
+    protected static final double FULL_SAMPLES_ROUGHNESS = 0.5;
+
     /**
      * Configuration parameters for the sampling strategy
      */
@@ -26,6 +32,15 @@ public abstract class TargetAreaBase {
         this.config = config;
     }
 
+    /**
+     * Gets the sampling configuration of the target area
+     *
+     * @return the sampling configuration
+     */
+    public SamplingConfiguration getConfiguration() {
+        return config;
+    }
+
     //TODO Implementation should be better for other effects usages
 
     /**
@@ -45,4 +60,204 @@ public abstract class TargetAreaBase {
      */
     public abstract List<Ray> generateRays(Intersectable.Intersection intersection);
 
+    /**
+     * Generates a list of rays like {@link #generateRays(Intersectable.Intersection)}, limited by the
+     * configuration's {@link SampleBudget} at the diffuse bounce of the intersection.
+     * By default the budget is not applied
+     *
+     * @param intersection The intersection point with information about material, normal, etc.
+     * @param bounces      The amount of diffuse bounces of the path before the intersection (0 at its first)
+     * @return A list of rays generated according to the sampling pattern and shape
+     */
+    public List<Ray> generateRays(Intersectable.Intersection intersection, int bounces) {
+        return generateRays(intersection);
+    }
+
+    /**
+     * The maximal amount of samples of a single hit - the size of the buffer of
+     * {@link #generateDirections(Intersectable.Intersection, int, double[])} is 3 times this amount
+     *
+     * @return the maximal amount of samples
+     */
+    public int maxSamples() {
+        return config.mode.numberSamples;
+    }
+
+    /**
+     * Calculates the grid size of the configuration's {@link SampleBudget} at a diffuse bounce
+     * (the budget is rounded to the nearest square grid)
+     *
+     * @param bounces the amount of diffuse bounces of the path before the hit (0 at its first)
+     * @return the size of one dimension of the sampling grid
+     */
+    protected int budgetGridValue(int bounces) {
+        int samples = config.budget.samples(config.mode.numberSamples, bounces);
+        return samples == config.mode.numberSamples
+                ? config.mode.gridValue
+                : Math.max(1, (int) Math.round(Math.sqrt(samples)));
+    }
+
+    /**
+     * Scales a grid size down by the roughness of a lobe, as a narrow lobe needs few samples
+     *
+     * @param gridValue the size of one dimension of the sampling grid at full roughness
+     * @param roughness the roughness of the lobe
+     * @return the size of one dimension of the scaled grid, at least 1
+     */
+    protected static int roughnessGridValue(int gridValue, double roughness) {
+        return Math.max(1, (int) Math.ceil(gridValue * Math.min(1, roughness / FULL_SAMPLES_ROUGHNESS)));
+    }
+
+    /**
+     * Generates the directions of samples spread uniformly in a cone around an axis: the sample offsets
+     * are placed on the plane perpendicular to the axis at the distance 1, scaled by the spread
+     * (the tangent of the cone's half-angle). Samples which leave the surface on the wrong side are dropped
+     *
+     * @param axis       the normalized axis of the cone
+     * @param normal     the normal of the surface
+     * @param side       the sign of the product of the normal and the directions which are kept, 0 to keep all
+     * @param spread     the tangent of the cone's half-angle
+     * @param gridValue  the size of one dimension of the sampling grid
+     * @param directions the buffer of the normalized directions (x, y, z of each sample)
+     * @return the amount of samples
+     */
+    protected int sampleCone(Vector axis, Vector normal, double side, double spread, int gridValue,
+                             double[] directions) {
+        List<Vector> listOfCoordinates = axis.getNewCoordinateSystems();
+        Vector u = listOfCoordinates.get(0);
+        Vector v = listOfCoordinates.get(1);
+
+        int count = sampleOffsets(gridValue, directions);
+
+        double toX = axis.getX(), toY = axis.getY(), toZ = axis.getZ();
+        double uX = u.getX() * spread, uY = u.getY() * spread, uZ = u.getZ() * spread;
+        double vX = v.getX() * spread, vY = v.getY() * spread, vZ = v.getZ() * spread;
+        double nX = normal.getX() * side, nY = normal.getY() * side, nZ = normal.getZ() * side;
+        int written = 0;
+        for (int k = 0; k < count; ++k) {
+            double sx = directions[count + 2 * k];
+            double sy = directions[count + 2 * k + 1];
+            double x = toX + sx * uX + sy * vX;
+            double y = toY + sx * uY + sy * vY;
+            double z = toZ + sx * uZ + sy * vZ;
+            if (side != 0 && x * nX + y * nY + z * nZ <= 0) continue;
+
+            double scale = 1 / Math.sqrt(x * x + y * y + z * z);
+            directions[3 * written] = x * scale;
+            directions[3 * written + 1] = y * scale;
+            directions[3 * written + 2] = z * scale;
+            ++written;
+        }
+        return written;
+    }
+
+    /**
+     * Generates the directions of samples importance sampled by a GGX lobe around an axis:
+     * the angle from the axis is drawn by the GGX distribution of the roughness and the azimuth uniformly,
+     * so the samples are dense where the lobe is strong and all of them are equally weighted.
+     * The grid is scaled down by the roughness (see {@link #roughnessGridValue(int, double)}).
+     * Samples which leave the surface on the wrong side are dropped
+     *
+     * @param axis       the normalized axis of the lobe
+     * @param normal     the normal of the surface
+     * @param side       the sign of the product of the normal and the directions which are kept
+     * @param roughness  the roughness of the lobe
+     * @param gridValue  the size of one dimension of the sampling grid at full roughness
+     * @param directions the buffer of the normalized directions (x, y, z of each sample)
+     * @return the amount of samples
+     */
+    protected int sampleLobe(Vector axis, Vector normal, double side, double roughness, int gridValue,
+                             double[] directions) {
+        List<Vector> listOfCoordinates = axis.getNewCoordinateSystems();
+        Vector u = listOfCoordinates.get(0);
+        Vector v = listOfCoordinates.get(1);
+
+        int count = sampleOffsets(roughnessGridValue(gridValue, roughness), directions);
+
+        double nX = normal.getX() * side, nY = normal.getY() * side, nZ = normal.getZ() * side;
+        double alpha2 = roughness * roughness;
+        int written = 0;
+        for (int k = 0; k < count; ++k) {
+            double u1 = (directions[count + 2 * k] + 1) / 2;
+            double u2 = (directions[count + 2 * k + 1] + 1) / 2;
+            double cos2 = (1 - u1) / (1 + (alpha2 - 1) * u1);
+            double cos = Math.sqrt(cos2);
+            double sin = Math.sqrt(Math.max(0, 1 - cos2));
+            double phi = 2 * Math.PI * u2;
+            double uScale = sin * Math.cos(phi);
+            double vScale = sin * Math.sin(phi);
+            double x = cos * axis.getX() + uScale * u.getX() + vScale * v.getX();
+            double y = cos * axis.getY() + uScale * u.getY() + vScale * v.getY();
+            double z = cos * axis.getZ() + uScale * u.getZ() + vScale * v.getZ();
+            if (x * nX + y * nY + z * nZ <= 0) continue;
+
+            directions[3 * written] = x;
+            directions[3 * written + 1] = y;
+            directions[3 * written + 2] = z;
+            ++written;
+        }
+        return written;
+    }
+
+    /**
+     * Places the sample offsets of a grid size at the end of a directions buffer (offsets x and y of each
+     * sample after the first 'count' entries) - each direction is then written only over the offsets of
+     * itself and of the samples before it. A single sample is always taken randomly, so that a single
+     * sample per path is not biased
+     *
+     * @param gridValue  the size of one dimension of the sampling grid
+     * @param directions the buffer of the directions
+     * @return the amount of samples
+     */
+    protected int sampleOffsets(int gridValue, double[] directions) {
+        if (gridValue == 1) {
+            randomOffset(directions, 1);
+            return 1;
+        }
+        SampleTable table = SampleTable.of(gridValue, config.shape, config.pattern);
+        table.offsets(directions, table.size());
+        return table.size();
+    }
+
+    /**
+     * Draws a single random offset in the sampling area
+     *
+     * @param buffer the buffer of offsets x and y
+     * @param from   the position of the offset in the buffer
+     */
+    private void randomOffset(double[] buffer, int from) {
+        SampleRandom random = SampleRandom.current();
+        double sx = 2.0 * random.nextDouble() - 1.0;
+        double sy = 2.0 * random.nextDouble() - 1.0;
+        if (config.shape == TargetAreaType.CIRCLE) {
+            double[] disk = SampleSequence.toDisk(sx, sy);
+            sx = disk[0];
+            sy = disk[1];
+        }
+        buffer[from] = sx;
+        buffer[from + 1] = sy;
+    }
+
+    /**
+     * Generates the normalized directions of the rays of
+     * {@link #generateRays(Intersectable.Intersection, int)} into a reusable buffer.
+     * The rays start at the intersection point, offset along its normal.
+     * By default the directions are copied from the generated rays
+     *
+     * @param intersection The intersection point with information about material, normal, etc.
+     * @param bounces      The amount of diffuse bounces of the path before the intersection (0 at its first)
+     * @param directions   The buffer of the directions (x, y, z of each ray), of at least 3 * {@link #maxSamples()}
+     * @return The amount of generated directions
+     */
+    public int generateDirections(Intersectable.Intersection intersection, int bounces, double[] directions) {
+        List<Ray> rays = generateRays(intersection, bounces);
+        for (int k = 0; k < rays.size(); ++k) {
+            Vector direction = rays.get(k).getDirection();
+            directions[3 * k] = direction.getX();
+            directions[3 * k + 1] = direction.getY();
+            directions[3 * k + 2] = direction.getZ();
+        }
+        return rays.size();
+    }
+
 }
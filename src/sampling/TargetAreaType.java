@@ -14,4 +14,11 @@ public enum TargetAreaType {
      * Square target area - samples are distributed within a square region
      */
     SQUARE,
+
+    /**
+     * GGX lobe - sample directions are distributed by the GGX distribution around the refracted direction
+     * (with the material's roughness as its width), so they are importance sampled by the transmission lobe
+     * instead of being spread uniformly. The amount of samples is scaled down for low roughness
+     */
+    GGX_LOBE,
 }
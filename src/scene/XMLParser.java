@@ -9,6 +9,7 @@ import renderer.RayTracerType;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -273,76 +274,103 @@ public class XMLParser {
             // Load and parse the XML file
             DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
             DocumentBuilder builder = factory.newDocumentBuilder();
-            Document document = builder.parse(xmlFileName);
-            document.getDocumentElement().normalize();
-
-            Camera.Builder cameraBuilder = new Camera.Builder();
-
-            Element root = (Element) document.getElementsByTagName("Camera").item(0);
+            return BuildCamera(builder.parse(xmlFileName));
+        } catch (Exception e) {
+            e.printStackTrace();
+            throw new RuntimeException("Failed to parse the XML file and build the Camera object.");
+        }
+    }
 
-            // Parse camera position
-            Element position = (Element) root.getElementsByTagName("Position").item(0);
-            double x = Double.parseDouble(position.getElementsByTagName("x").item(0).getTextContent());
-            double y = Double.parseDouble(position.getElementsByTagName("y").item(0).getTextContent());
-            double z = Double.parseDouble(position.getElementsByTagName("z").item(0).getTextContent());
-            cameraBuilder.setLocation(new Point((int) x, (int) y, (int) z));
+    /**
+     * Builds a Camera object from an XML document stream (e.g. a description received over the network).
+     *
+     * @param xml The stream of the XML document to parse.
+     * @return A Camera object built from the XML data.
+     */
+    public static Camera BuildCameraFromXML(InputStream xml) {
+        try {
+            // Load and parse the XML document
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            DocumentBuilder builder = factory.newDocumentBuilder();
+            return BuildCamera(builder.parse(xml));
+        } catch (Exception e) {
+            e.printStackTrace();
+            throw new RuntimeException("Failed to parse the XML document and build the Camera object.");
+        }
+    }
 
-            // Parse camera direction
-            Element directions = (Element) root.getElementsByTagName("Directions").item(0);
-            if (elementExists(directions, "Direction1")) {
-                Element directionTwoVectors = (Element) directions.getElementsByTagName("Direction1").item(0);
-                Vector vToRes = new Vector(parseDouble3((Element) directionTwoVectors.getElementsByTagName("vTo").item(0)));
-                Vector vUpRes = new Vector(parseDouble3((Element) directionTwoVectors.getElementsByTagName("vUp").item(0)));
-                cameraBuilder.setDirection(vToRes, vUpRes);
-            }
+    /**
+     * Builds a Camera object from a parsed XML document.
+     *
+     * @param document The parsed XML document.
+     * @return A Camera object built from the XML data.
+     */
+    private static Camera BuildCamera(Document document) {
+        document.getDocumentElement().normalize();
+
+        Camera.Builder cameraBuilder = new Camera.Builder();
+
+        Element root = (Element) document.getElementsByTagName("Camera").item(0);
+
+        // Parse camera position
+        Element position = (Element) root.getElementsByTagName("Position").item(0);
+        double x = Double.parseDouble(position.getElementsByTagName("x").item(0).getTextContent());
+        double y = Double.parseDouble(position.getElementsByTagName("y").item(0).getTextContent());
+        double z = Double.parseDouble(position.getElementsByTagName("z").item(0).getTextContent());
+        cameraBuilder.setLocation(new Point((int) x, (int) y, (int) z));
+
+        // Parse camera direction
+        Element directions = (Element) root.getElementsByTagName("Directions").item(0);
+        if (elementExists(directions, "Direction1")) {
+            Element directionTwoVectors = (Element) directions.getElementsByTagName("Direction1").item(0);
+            Vector vToRes = new Vector(parseDouble3((Element) directionTwoVectors.getElementsByTagName("vTo").item(0)));
+            Vector vUpRes = new Vector(parseDouble3((Element) directionTwoVectors.getElementsByTagName("vUp").item(0)));
+            cameraBuilder.setDirection(vToRes, vUpRes);
+        }
 
-            // Additional camera directions
-            if (elementExists(directions, "Direction2")) {
-                Element directionTwoVectors = (Element) directions.getElementsByTagName("Direction2").item(0);
-
-                Point pointRes = new Point(
-                        parseDouble3((Element) directionTwoVectors.getElementsByTagName("Point").item(0))
-                );
-                Vector vUpRes2 = new Vector(
-                        parseDouble3((Element) directionTwoVectors.getElementsByTagName("vUp").item(0))
-                );
-                cameraBuilder.setDirection(pointRes, vUpRes2);
-            }
+        // Additional camera directions
+        if (elementExists(directions, "Direction2")) {
+            Element directionTwoVectors = (Element) directions.getElementsByTagName("Direction2").item(0);
+
+            Point pointRes = new Point(
+                    parseDouble3((Element) directionTwoVectors.getElementsByTagName("Point").item(0))
+            );
+            Vector vUpRes2 = new Vector(
+                    parseDouble3((Element) directionTwoVectors.getElementsByTagName("vUp").item(0))
+            );
+            cameraBuilder.setDirection(pointRes, vUpRes2);
+        }
 
-            if (elementExists(directions, "Direction3")) {
-                Element directionTwoVectors = (Element) directions.getElementsByTagName("Direction3").item(0);
+        if (elementExists(directions, "Direction3")) {
+            Element directionTwoVectors = (Element) directions.getElementsByTagName("Direction3").item(0);
 
-                Point pointRes = new Point(
-                        parseDouble3((Element) directionTwoVectors.getElementsByTagName("LookAtPoint").item(0))
-                );
-                cameraBuilder.setDirection(pointRes);
-            }
+            Point pointRes = new Point(
+                    parseDouble3((Element) directionTwoVectors.getElementsByTagName("LookAtPoint").item(0))
+            );
+            cameraBuilder.setDirection(pointRes);
+        }
 
-            // Parse camera view plane size and distance
-            Element size = (Element) root.getElementsByTagName("Size").item(0);
-            double width = Double.parseDouble(size.getElementsByTagName("Width").item(0).getTextContent());
-            double height = Double.parseDouble(size.getElementsByTagName("Height").item(0).getTextContent());
-            cameraBuilder.setVpSize(width, height);
+        // Parse camera view plane size and distance
+        Element size = (Element) root.getElementsByTagName("Size").item(0);
+        double width = Double.parseDouble(size.getElementsByTagName("Width").item(0).getTextContent());
+        double height = Double.parseDouble(size.getElementsByTagName("Height").item(0).getTextContent());
+        cameraBuilder.setVpSize(width, height);
 
-            Element distance = (Element) root.getElementsByTagName("Distance").item(0);
-            double distanceValue = Double.parseDouble(distance.getTextContent());
-            cameraBuilder.setVpDistance(distanceValue);
+        Element distance = (Element) root.getElementsByTagName("Distance").item(0);
+        double distanceValue = Double.parseDouble(distance.getTextContent());
+        cameraBuilder.setVpDistance(distanceValue);
 
-            // Parse camera resolution
-            Element resolution = (Element) root.getElementsByTagName("Resolution").item(0);
-            int xRes = Integer.parseInt(resolution.getElementsByTagName("nX").item(0).getTextContent());
-            int yRes = Integer.parseInt(resolution.getElementsByTagName("nY").item(0).getTextContent());
-            cameraBuilder.setResolution(xRes, yRes);
+        // Parse camera resolution
+        Element resolution = (Element) root.getElementsByTagName("Resolution").item(0);
+        int xRes = Integer.parseInt(resolution.getElementsByTagName("nX").item(0).getTextContent());
+        int yRes = Integer.parseInt(resolution.getElementsByTagName("nY").item(0).getTextContent());
+        cameraBuilder.setResolution(xRes, yRes);
 
-            // Parse camera ray tracer
-            Element rayTracer = (Element) root.getElementsByTagName("RayTracer").item(0);
-            RayTracerType typeRes = RayTracerType.valueOf(rayTracer.getElementsByTagName("RayTracerType").item(0).getTextContent());
-            cameraBuilder.setRayTracer(SceneBuilder((Element) rayTracer.getElementsByTagName("Scene").item(0)), typeRes);
+        // Parse camera ray tracer
+        Element rayTracer = (Element) root.getElementsByTagName("RayTracer").item(0);
+        RayTracerType typeRes = RayTracerType.valueOf(rayTracer.getElementsByTagName("RayTracerType").item(0).getTextContent());
+        cameraBuilder.setRayTracer(SceneBuilder((Element) rayTracer.getElementsByTagName("Scene").item(0)), typeRes);
 
-            return cameraBuilder.build();
-        } catch (Exception e) {
-            e.printStackTrace();
-            throw new RuntimeException("Failed to parse the XML file and build the Camera object.");
-        }
+        return cameraBuilder.build();
     }
 }
@@ -0,0 +1,119 @@
+package acceleration;
+
+import geometries.*;
+import org.junit.jupiter.api.Test;
+import primitives.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static geometries.Intersectable.Intersection;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link acceleration.IntersectionKernel} implementations.
+ */
+public class IntersectionKernelTest {
+
+    /**
+     * Default constructor to disable the warning in the JavaDoc generator
+     */
+    IntersectionKernelTest() {
+    }
+
+    /**
+     * Creates a batch of randomly placed spheres and triangles (amounts which do not fill whole SIMD registers)
+     * and a polygon which is not handled by the kernels
+     *
+     * @param random the random generator
+     * @return the geometries
+     */
+    private static List<Intersectable> createGeometries(Random random) {
+        List<Intersectable> geometries = new ArrayList<>();
+        for (int k = 0; k < 13; ++k)
+            geometries.add(new Sphere(new Point(random.nextDouble() * 40 - 20, random.nextDouble() * 40 - 20,
+                    -random.nextDouble() * 60 - 10), 1 + random.nextDouble() * 5));
+        for (int k = 0; k < 11; ++k) {
+            Point vertex = new Point(random.nextDouble() * 40 - 20, random.nextDouble() * 40 - 20,
+                    -random.nextDouble() * 60 - 10);
+            geometries.add(new Triangle(vertex,
+                    vertex.add(new Vector(random.nextDouble() * 20 - 10, random.nextDouble() * 20 - 10, 3)),
+                    vertex.add(new Vector(random.nextDouble() * 20 - 10, 3, random.nextDouble() * 20 - 10))));
+        }
+        geometries.add(new Polygon(new Point(-5, -5, -30), new Point(5, -5, -30), new Point(5, 5, -30),
+                new Point(-5, 5, -30)));
+        return geometries;
+    }
+
+    /**
+     * Test method for {@link IntersectionKernel#closestSphere} and {@link IntersectionKernel#closestTriangle}
+     * of the scalar kernel and of the selected (SIMD when available) kernel.
+     */
+    @Test
+    void testKernels() {
+        Random random = new Random(3);
+        List<Intersectable> geometries = createGeometries(random);
+        PrimitiveBatch batch = new PrimitiveBatch(geometries);
+        IntersectionKernel scalar = new ScalarIntersectionKernel();
+        IntersectionKernel selected = IntersectionKernel.select();
+
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: the other geometries are kept aside
+        assertEquals(13, batch.spheres.length, "Wrong amount of batched spheres");
+        assertEquals(11, batch.triangles.length, "Wrong amount of batched triangles");
+        assertEquals(1, batch.others.size(), "Wrong amount of other geometries");
+
+        // EP02: the kernels find the same closest hits as the geometries themselves
+        int hits = 0;
+        for (int r = 0; r < 2000; ++r) {
+            Point head = new Point(random.nextDouble() * 10 - 5, random.nextDouble() * 10 - 5, random.nextDouble() * 10);
+            Point target = new Point(random.nextDouble() * 40 - 20, random.nextDouble() * 40 - 20, -40);
+            Ray ray = new Ray(head, target.subtract(head).normalize());
+            Intersection expected = null;
+            for (Intersectable geometry : geometries)
+                if (geometry instanceof Sphere || geometry instanceof Triangle) {
+                    Intersection closest = ray.findClosestIntersection(geometry.calculateIntersections(ray));
+                    if (closest != null && (expected == null
+                            || closest.point.distance(head) < expected.point.distance(head)))
+                        expected = closest;
+                }
+            Intersection actual = batch.findClosestIntersection(ray, PrimitiveBatch.components(ray), scalar,
+                    Double.POSITIVE_INFINITY);
+            if (expected == null) assertNull(actual, "Ray " + r + " must miss");
+            else {
+                ++hits;
+                assertNotNull(actual, "Ray " + r + " must hit");
+                assertSame(expected.geometry, actual.geometry, "Ray " + r + " hit a wrong geometry");
+                assertEquals(0, expected.point.distance(actual.point), 1e-9, "Ray " + r + " hit a wrong point");
+            }
+
+            // EP03: the selected kernel gives exactly the same results as the scalar one
+            double[] components = PrimitiveBatch.components(ray);
+            double[] expectedDistance = new double[1];
+            double[] actualDistance = new double[1];
+            assertEquals(scalar.closestSphere(batch, components, expectedDistance),
+                    selected.closestSphere(batch, components, actualDistance), "Wrong closest sphere");
+            assertEquals(expectedDistance[0], actualDistance[0], "Wrong closest sphere distance");
+            assertEquals(scalar.closestTriangle(batch, components, expectedDistance),
+                    selected.closestTriangle(batch, components, actualDistance), "Wrong closest triangle");
+            assertEquals(expectedDistance[0], actualDistance[0], "Wrong closest triangle distance");
+        }
+        assertTrue(hits > 200, "Too few rays hit the batch");
+
+        // =============== Boundary Values Tests ==================
+        // BV01: empty batch
+        PrimitiveBatch empty = new PrimitiveBatch(List.of());
+        Ray up = new Ray(Point.ZERO, Vector.AXIS_Y);
+        assertNull(empty.findClosestIntersection(up, PrimitiveBatch.components(up), selected, Double.POSITIVE_INFINITY),
+                "Empty batch must not be hit");
+
+        // BV02: ray starting at a sphere's center
+        Sphere sphere = (Sphere) geometries.getFirst();
+        Ray fromCenter = new Ray(sphere.getCenter(), Vector.AXIS_Y);
+        Intersection hit = new PrimitiveBatch(List.of(sphere)).findClosestIntersection(fromCenter,
+                PrimitiveBatch.components(fromCenter), selected, Double.POSITIVE_INFINITY);
+        assertNotNull(hit, "Ray from the center must hit the sphere");
+        assertEquals(sphere.getRadius(), hit.point.distance(sphere.getCenter()), 1e-9, "Wrong hit from the center");
+    }
+}
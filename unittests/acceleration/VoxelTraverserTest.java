@@ -0,0 +1,125 @@
+package acceleration;
+
+import geometries.*;
+import org.junit.jupiter.api.Test;
+import primitives.*;
+import scene.Scene;
+
+import java.util.Random;
+
+import static geometries.Intersectable.Intersection;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link acceleration.VoxelTraverser}.
+ */
+public class VoxelTraverserTest {
+
+    /**
+     * Default constructor to disable the warning in the JavaDoc generator
+     */
+    VoxelTraverserTest() {
+    }
+
+    /**
+     * Size of the side of the tested ray packets
+     */
+    private static final int PACKET = 8;
+
+    /**
+     * Creates a scene of randomly scattered spheres and triangles above a plane
+     *
+     * @return the scene
+     */
+    private static Scene createScene() {
+        Random random = new Random(7);
+        Scene scene = new Scene("Packet traversal test");
+        for (int k = 0; k < 200; ++k) {
+            Point center = new Point(random.nextDouble() * 200 - 100, random.nextDouble() * 200 - 100,
+                    -random.nextDouble() * 300 - 50);
+            if (k % 2 == 0) scene.geometries.add(new Sphere(center, 2 + random.nextDouble() * 8));
+            else scene.geometries.add(new Triangle(center,
+                    center.add(new Vector(random.nextDouble() * 20 - 10, random.nextDouble() * 20 - 10, 5)),
+                    center.add(new Vector(random.nextDouble() * 20 - 10, 5, random.nextDouble() * 20 - 10))));
+        }
+        scene.geometries.add(new Plane(Vector.AXIS_Y, new Point(0, -90, 0)));
+        return scene;
+    }
+
+    /**
+     * Creates a packet of rays from an origin through a square of points on a plane in front of it
+     *
+     * @param origin the origin of the rays
+     * @param x0     the left side of the square
+     * @param y0     the bottom side of the square
+     * @param z      the depth of the square
+     * @param step   the distance between the neighbouring points
+     * @return the packet
+     */
+    private static Ray[] packet(Point origin, double x0, double y0, double z, double step) {
+        Ray[] rays = new Ray[PACKET * PACKET];
+        for (int i = 0; i < PACKET; ++i)
+            for (int j = 0; j < PACKET; ++j)
+                rays[i * PACKET + j] = new Ray(origin,
+                        new Point(x0 + j * step, y0 + i * step, z).subtract(origin).normalize());
+        return rays;
+    }
+
+    /**
+     * Checks the closest intersections of a packet against the intersections of the scene without the grid
+     *
+     * @param scene   the scene
+     * @param rays    the rays of the packet
+     * @param closest the closest intersections of the packet
+     */
+    private static void assertClosest(Scene scene, Ray[] rays, Intersection[] closest) {
+        for (int r = 0; r < rays.length; ++r) {
+            Intersection expected = rays[r].findClosestIntersection(scene.geometries.calculateIntersections(rays[r]));
+            if (expected == null) assertNull(closest[r], "Ray " + r + " must not hit");
+            else {
+                assertNotNull(closest[r], "Ray " + r + " must hit");
+                assertSame(expected.geometry, closest[r].geometry, "Ray " + r + " hit a wrong geometry");
+                assertEquals(0, expected.point.distance(closest[r].point), 1e-9, "Ray " + r + " hit a wrong point");
+            }
+        }
+    }
+
+    /**
+     * Test method for {@link VoxelTraverser#findClosestIntersections(Ray[])}.
+     */
+    @Test
+    void testFindClosestIntersections() {
+        Scene scene = createScene();
+        VoxelTraverser traverser = new VoxelTraverser(new RegularGrid(scene));
+
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: coherent packets from outside the grid, covering the whole view
+        for (int y = -100; y < 100; y += 8 * PACKET)
+            for (int x = -100; x < 100; x += 8 * PACKET) {
+                Ray[] rays = packet(Point.ZERO, x, y, -100, 8);
+                assertClosest(scene, rays, traverser.findClosestIntersections(rays));
+            }
+
+        // EP02: coherent packet from inside the grid, going down to the plane
+        Ray[] inside = packet(new Point(0, 50, -200), -40, -40, -260, 10);
+        for (int r = 0; r < inside.length; ++r)
+            inside[r] = new Ray(inside[r].getHead(), new Vector(inside[r].getDirection().getX(), -1,
+                    inside[r].getDirection().getZ()).normalize());
+        assertClosest(scene, inside, traverser.findClosestIntersections(inside));
+
+        // EP03: diverged packet (different origins) is traced ray by ray
+        Ray[] diverged = packet(Point.ZERO, -20, -20, -100, 5);
+        diverged[5] = new Ray(new Point(1, 2, 3), diverged[5].getDirection());
+        assertClosest(scene, diverged, traverser.findClosestIntersections(diverged));
+
+        // =============== Boundary Values Tests ==================
+        // BV01: packet with a ray going against the others along their dominant axis
+        Ray[] opposite = packet(new Point(0, 0, -200), -10, -10, -250, 5);
+        opposite[0] = new Ray(opposite[0].getHead(), new Vector(0, 0, 1));
+        assertClosest(scene, opposite, traverser.findClosestIntersections(opposite));
+
+        // BV02: single ray packet
+        Ray[] single = {new Ray(Point.ZERO, new Vector(0.1, 0.1, -1).normalize())};
+        assertClosest(scene, single, traverser.findClosestIntersections(single));
+    }
+}
@@ -1,8 +1,38 @@
 package renderer;
 
+import acceleration.RegularGrid;
+import geometries.Geometry;
+import geometries.Plane;
+import geometries.Sphere;
+import lighting.AmbientLight;
+import lighting.LightSource;
+import lighting.PointLight;
 import org.junit.jupiter.api.Test;
 import primitives.*;
+import sampling.DiffusiveTargetArea;
+import sampling.SamplingConfiguration;
+import sampling.SamplingMode;
+import sampling.SamplingPattern;
+import sampling.TargetAreaBase;
+import sampling.TargetAreaType;
+import scene.Scene;
 
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static geometries.Intersectable.Intersection;
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -96,8 +126,619 @@ class CameraTest {
         Vector direction2 = center2.add(up2).subtract(right2).subtract(Point.ZERO);
         assertEquals(new Ray(Point.ZERO, direction2), camera2.constructRay(2, 2, 0, 0));
 
+        // EP03: ray tracing options of a camera do not leak into the cameras built before it
+        Camera.Builder mirrors = facingMirrorsCameraBuilder(20, 20).setPathTermination(true);
+        Camera terminated = mirrors.build();
+        int[] expected = terminated.renderTile(new Tile(0, 0, 20, 20));
+        int[] full = mirrors.setPathTermination(false).build().renderTile(new Tile(0, 0, 20, 20));
+        assertFalse(java.util.Arrays.equals(expected, full), "Path termination must change the test image");
+        assertArrayEquals(expected, terminated.renderTile(new Tile(0, 0, 20, 20)),
+                "Building another camera must not change the options of a built camera");
+
         // =============== Boundary Values Tests ==================
         // BV01: set to a target on Y-axis without up
         assertThrows(IllegalArgumentException.class, () -> cameraBuilder.setDirection(new Point(0, 10, 0)).build());
+        // BV02: selective supersampling together with anti-aliasing
+        SamplingConfiguration sampling = new SamplingConfiguration(SamplingMode.EASY, TargetAreaType.SQUARE,
+                SamplingPattern.GRID, 1);
+        assertThrows(IllegalArgumentException.class,
+                () -> sphereCameraBuilder(8, 8).setSelectiveSupersampling(sampling)
+                        .setEffect(EffectType.ANTI_ALIASING, sampling).build(),
+                "Selective supersampling with anti-aliasing must be rejected");
+        // BV03: ray packets together with per-pixel sampling
+        assertThrows(IllegalArgumentException.class,
+                () -> sphereCameraBuilder(8, 8).setRayPackets(4).setSelectiveSupersampling(sampling).build(),
+                "Ray packets with selective supersampling must be rejected");
+        assertThrows(IllegalArgumentException.class,
+                () -> sphereCameraBuilder(8, 8).setRayPackets(4).setEffect(EffectType.ANTI_ALIASING, sampling).build(),
+                "Ray packets with anti-aliasing must be rejected");
+    }
+
+    /**
+     * Creates a camera builder of {@link RayTracerTest#facingMirrorsScene()} looking between the mirrors
+     *
+     * @param nX amount of pixels by Width
+     * @param nY amount of pixels by height
+     * @return the camera builder
+     */
+    private static Camera.Builder facingMirrorsCameraBuilder(int nX, int nY) {
+        return Camera.getBuilder().setLocation(new Point(0, 0, 100))
+                .setDirection(new Vector(0, 0, -1), Vector.AXIS_Y)
+                .setVpDistance(100).setVpSize(100, 100).setResolution(nX, nY)
+                .setRayTracer(RayTracerTest.facingMirrorsScene(), RayTracerType.SIMPLE);
+    }
+
+    /**
+     * Creates a camera of a small scene with a single sphere on a black background
+     *
+     * @param nX amount of pixels by Width
+     * @param nY amount of pixels by height
+     * @return the camera
+     */
+    private static Camera sphereCamera(int nX, int nY) {
+        return sphereCameraBuilder(nX, nY).build();
+    }
+
+    /**
+     * Creates a camera builder of a small scene with a single sphere on a black background
+     *
+     * @param nX amount of pixels by Width
+     * @param nY amount of pixels by height
+     * @return the camera builder
+     */
+    private static Camera.Builder sphereCameraBuilder(int nX, int nY) {
+        Scene scene = new Scene("Sphere").setAmbientLight(new AmbientLight(new Color(255, 255, 255)));
+        scene.geometries.add(new Sphere(new Point(0, 0, -100), 40)
+                .setEmission(new Color(40, 90, 200)).setMaterial(new Material().setKA(0.2)));
+        return Camera.getBuilder().setLocation(Point.ZERO)
+                .setDirection(new Vector(0, 0, -1), Vector.AXIS_Y)
+                .setVpDistance(100).setVpSize(10 * nX, 10 * nY).setResolution(nX, nY)
+                .setRayTracer(scene, RayTracerType.SIMPLE);
+    }
+
+    /**
+     * Creates a camera builder of a sphere whose intersection calculation runs a hook first, rendered by raw threads
+     * into a streamed image
+     *
+     * @param imageName the name of the streamed image
+     * @param hook      the hook which runs in the rendering threads before each intersection calculation
+     * @return the camera builder
+     */
+    private static Camera.Builder hookedCameraBuilder(String imageName, Runnable hook) {
+        Scene scene = new Scene("Hooked sphere").setAmbientLight(new AmbientLight(new Color(255, 255, 255)));
+        scene.geometries.add(new Sphere(new Point(0, 0, -100), 120) {
+            @Override
+            public List<Intersection> calculateIntersectionsHelper(Ray ray, double maxDistance) {
+                hook.run();
+                return super.calculateIntersectionsHelper(ray, maxDistance);
+            }
+        }.setEmission(new Color(40, 90, 200)));
+        return Camera.getBuilder().setLocation(Point.ZERO)
+                .setDirection(new Vector(0, 0, -1), Vector.AXIS_Y)
+                .setVpDistance(100).setVpSize(320, 320).setResolution(32, 32)
+                .setRayTracer(scene, RayTracerType.SIMPLE).setMultithreading(3)
+                .setStreamingOutput(imageName, 4);
+    }
+
+    /**
+     * Test method for the failures of {@link renderer.Camera#renderImage()} by raw threads.
+     */
+    @Test
+    void testRenderImageFailure() {
+        String name = "Failed render test";
+        File image = new File(ImageWriter.FOLDER_PATH, name + ".png");
+        AtomicInteger calls = new AtomicInteger();
+
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: a geometry throws in a rendering thread in the middle of the render
+        Camera broken = hookedCameraBuilder(name, () -> {
+            if (calls.incrementAndGet() == 300) throw new IllegalStateException("Broken geometry");
+        }).build();
+        IllegalStateException exception = assertThrows(IllegalStateException.class, broken::renderImage,
+                "Failure of a rendering thread must fail the render");
+        assertEquals("Broken geometry", exception.getMessage(), "The rendering thread's failure must be rethrown");
+        assertFalse(image.exists(), "Streamed image of a failed render must be deleted");
+
+        // =============== Boundary Values Tests ==================
+        // BV01: the thread which waits for the rendering threads is interrupted
+        Thread renderer = Thread.currentThread();
+        calls.set(0);
+        Camera interrupted = hookedCameraBuilder(name, () -> {
+            if (calls.incrementAndGet() == 1) renderer.interrupt();
+        }).build();
+        assertThrows(IllegalStateException.class, interrupted::renderImage, "Interrupted render must fail");
+        assertTrue(Thread.interrupted(), "Interrupt status of the rendering thread must be kept");
+        assertFalse(image.exists(), "Streamed image of an interrupted render must be deleted");
+    }
+
+    /**
+     * Calculates the checkpoint fingerprint of a render of a scene with a single geometry and a single light
+     *
+     * @param geometry the geometry of the scene
+     * @param light    the light of the scene
+     * @return the render fingerprint
+     */
+    private static int sceneFingerprint(Geometry geometry, LightSource light) {
+        Scene scene = new Scene("Sphere").setAmbientLight(new AmbientLight(new Color(255, 255, 255)));
+        scene.geometries.add(geometry);
+        scene.lights.add(light);
+        return sphereCameraBuilder(8, 8).setCheckpoint("Fingerprint", 4, 0)
+                .setRayTracer(scene, RayTracerType.SIMPLE).build().renderFingerprint();
+    }
+
+    /**
+     * Test method for the render fingerprint of the checkpoints
+     * ({@link Camera.Builder#setCheckpoint(String, int, double, long)}).
+     */
+    @Test
+    void testCheckpointFingerprint() {
+        int fingerprint = sphereCameraBuilder(8, 8).setCheckpoint("Fingerprint", 4, 0).build().renderFingerprint();
+
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: the same render
+        assertEquals(fingerprint, sphereCameraBuilder(8, 8).setCheckpoint("Fingerprint", 4, 0).build()
+                .renderFingerprint(), "Same render must have the same fingerprint");
+        // EP02: another scene version
+        assertNotEquals(fingerprint, sphereCameraBuilder(8, 8).setCheckpoint("Fingerprint", 4, 0, 1).build()
+                .renderFingerprint(), "Another scene version must change the fingerprint");
+        // EP03: another sampling setup
+        assertNotEquals(fingerprint, sphereCameraBuilder(8, 8).setCheckpoint("Fingerprint", 4, 0)
+                .setEffect(EffectType.ANTI_ALIASING, new SamplingConfiguration(SamplingMode.EASY,
+                        TargetAreaType.SQUARE, SamplingPattern.GRID, 1)).build()
+                .renderFingerprint(), "Another sampling setup must change the fingerprint");
+        // EP04: another scene contents
+        Camera.Builder lit = sphereCameraBuilder(8, 8).setCheckpoint("Fingerprint", 4, 0);
+        Scene scene = new Scene("Sphere").setAmbientLight(new AmbientLight(new Color(255, 255, 255)));
+        scene.geometries.add(new Sphere(new Point(0, 0, -100), 40));
+        scene.lights.add(new PointLight(new Color(100, 100, 100), Point.ZERO));
+        assertNotEquals(fingerprint, lit.setRayTracer(scene, RayTracerType.SIMPLE).build().renderFingerprint(),
+                "Another scene must change the fingerprint");
+        // EP05: the same kinds of geometries and lights with other parameters
+        int scenePrint = sceneFingerprint(new Sphere(new Point(0, 0, -100), 40),
+                new PointLight(new Color(100, 100, 100), Point.ZERO));
+        assertEquals(scenePrint, sceneFingerprint(new Sphere(new Point(0, 0, -100), 40),
+                new PointLight(new Color(100, 100, 100), Point.ZERO)), "Same scene must have the same fingerprint");
+        assertNotEquals(scenePrint, sceneFingerprint(new Sphere(new Point(0, 10, -100), 40),
+                new PointLight(new Color(100, 100, 100), Point.ZERO)), "Moved geometry must change the fingerprint");
+        assertNotEquals(scenePrint, sceneFingerprint(new Sphere(new Point(0, 0, -100), 40)
+                        .setMaterial(new Material().setKD(0.5)), new PointLight(new Color(100, 100, 100), Point.ZERO)),
+                "Another material must change the fingerprint");
+        assertNotEquals(scenePrint, sceneFingerprint(new Sphere(new Point(0, 0, -100), 40),
+                new PointLight(new Color(100, 100, 100), Point.ZERO).setKl(0.1)),
+                "Another light attenuation must change the fingerprint");
+
+        // =============== Boundary Values Tests ==================
+        // BV01: another resolution of the same view plane
+        assertNotEquals(fingerprint, sphereCameraBuilder(8, 8).setResolution(16, 16)
+                .setCheckpoint("Fingerprint", 4, 0).build().renderFingerprint(),
+                "Another resolution must change the fingerprint");
+        // BV02: the renders which are not checkpointed
+        Camera checkpointed = sphereCameraBuilder(8, 8).setCheckpoint("Fingerprint", 4, 0).build();
+        assertThrows(IllegalStateException.class, () -> checkpointed.renderImageProgressive((c, blockSize) -> {
+        }), "Progressive render must reject a checkpoint");
+        assertThrows(IllegalStateException.class, () -> checkpointed.renderImage(Duration.ZERO),
+                "Time-budgeted render must reject a checkpoint");
+        // the workers' connection failure is an IllegalStateException as well - the rejection must come first
+        assertTrue(assertThrows(IllegalStateException.class, () -> checkpointed.renderImageDistributed("<Camera/>",
+                        List.of(new InetSocketAddress(InetAddress.getLoopbackAddress(), 1)), 4),
+                "Distributed render must reject a checkpoint").getMessage().startsWith("Checkpointing"),
+                "Distributed render must reject a checkpoint before connecting the workers");
+    }
+
+    /**
+     * Test method for {@link renderer.Camera#renderImageProgressive(RenderPassListener)}.
+     */
+    @Test
+    void testRenderImageProgressive() throws Exception {
+        int nX = 21;
+        int nY = 13;
+        Camera camera = sphereCamera(nX, nY);
+        int[] expected = camera.renderTile(new Tile(0, 0, nX, nY));
+        String name = "Progressive render test ";
+        List<Integer> passes = new ArrayList<>();
+        camera.renderImageProgressive((c, blockSize) -> {
+            passes.add(blockSize);
+            c.writeToImage(name + blockSize);
+        });
+
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: passes from the coarse blocks to the full resolution
+        assertEquals(List.of(8, 4, 2, 1), passes, "Wrong progressive passes");
+
+        // EP02: coarse pass fills every block with the color of its top left pixel
+        BufferedImage coarse = ImageIO.read(new File(ImageWriter.FOLDER_PATH, name + "8.png"));
+        for (int i = 0; i < nY; ++i)
+            for (int j = 0; j < nX; ++j)
+                assertEquals(expected[(i / 8 * 8) * nX + j / 8 * 8], coarse.getRGB(j, i),
+                        "Wrong coarse pass pixel at (" + j + "," + i + ")");
+
+        // EP03: final pass equals a full render
+        BufferedImage full = ImageIO.read(new File(ImageWriter.FOLDER_PATH, name + "1.png"));
+        for (int i = 0; i < nY; ++i)
+            for (int j = 0; j < nX; ++j)
+                assertEquals(expected[i * nX + j], full.getRGB(j, i), "Wrong final pixel at (" + j + "," + i + ")");
+    }
+
+    /**
+     * Test method for {@link renderer.Camera#writeToImageAsync(String, ImageEncoder, java.util.concurrent.Executor)}.
+     */
+    @Test
+    void testWriteToImageAsync() throws Exception {
+        int n = 16;
+        Camera camera = sphereCamera(n, n).renderImage().writeToImage("Async write sync test");
+        CountDownLatch release = new CountDownLatch(1);
+        // the encoding waits for the release, so the camera paints more pixels before the image is written
+        Executor gated = task -> new Thread(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            task.run();
+        }).start();
+
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: the pixels painted after the call do not change the written image
+        CompletableFuture<Void> future = camera.writeToImageAsync("Async write test", ImageFormat.PNG, gated);
+        camera.printGrid(4, new Color(255, 0, 0));
+        assertFalse(future.isDone(), "The image must not be written before the executor runs");
+        release.countDown();
+        future.get(10, TimeUnit.SECONDS);
+        BufferedImage sync = ImageIO.read(new File(ImageWriter.FOLDER_PATH, "Async write sync test.png"));
+        BufferedImage async = ImageIO.read(new File(ImageWriter.FOLDER_PATH, "Async write test.png"));
+        for (int i = 0; i < n; ++i)
+            for (int j = 0; j < n; ++j)
+                assertEquals(sync.getRGB(j, i), async.getRGB(j, i), "Wrong asynchronous pixel at (" + j + "," + i + ")");
+
+        // EP02: the default encoder thread writes the image
+        sphereCamera(n, n).renderImage().writeToImageAsync("Async write test").get(10, TimeUnit.SECONDS);
+        async = ImageIO.read(new File(ImageWriter.FOLDER_PATH, "Async write test.png"));
+        for (int i = 0; i < n; ++i)
+            for (int j = 0; j < n; ++j)
+                assertEquals(sync.getRGB(j, i), async.getRGB(j, i), "Wrong asynchronous pixel at (" + j + "," + i + ")");
+    }
+
+    /**
+     * Test method for {@link renderer.Camera#renderImage(Duration)}.
+     */
+    @Test
+    void testRenderImageBudget() throws Exception {
+        int nX = 30;
+        int nY = 20;
+
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: enough time - full coverage, refinement of the sphere's edge only
+        RenderStatistics stats = sphereCamera(nX, nY).renderImage(Duration.ofSeconds(30));
+        assertTrue(stats.covered(), "Every pixel must be sampled");
+        assertTrue(stats.primaryRays() > nX * nY, "Contrast pixels must be refined");
+        assertTrue(stats.samplesPerPixel() < 64, "Flat pixels must not be refined");
+        assertTrue(stats.maxSamplesPerPixel() <= 64, "Pixels must not exceed the samples limit");
+        assertTrue(stats.maxSamplesPerPixel() > 1, "Edge pixels must get more than a single sample");
+        assertEquals(0, stats.secondaryRays(), "Matte sphere must not trace secondary rays");
+        // EP02: short budget of a heavy scene - the render stops at the deadline
+        Duration budget = Duration.ofMillis(200);
+        stats = facingMirrorsCameraBuilder(400, 400).build().renderImage(budget);
+        assertFalse(stats.covered(), "Heavy scene cannot be covered in the short budget");
+        assertTrue(stats.secondaryRays() > stats.primaryRays(), "Secondary rays between the mirrors must be counted");
+        assertTrue(stats.elapsed().compareTo(budget.plusMillis(100)) <= 0,
+                "Render must stop at the deadline, but took " + stats.elapsed().toMillis() + " ms");
+
+        // =============== Boundary Values Tests ==================
+        // BV01: no time at all - only the coarse frame of the first pass
+        int[] full = sphereCamera(nX, nY).renderTile(new Tile(0, 0, nX, nY));
+        Camera coarse = sphereCamera(nX, nY);
+        stats = coarse.renderImage(Duration.ZERO);
+        assertFalse(stats.covered(), "Not every pixel can be sampled without time");
+        assertEquals(((nX + 7) / 8) * ((nY + 7) / 8), stats.primaryRays(), "Only the first pass must be traced");
+        coarse.writeToImage("Budget coarse frame test");
+        BufferedImage image = ImageIO.read(new File(ImageWriter.FOLDER_PATH, "Budget coarse frame test.png"));
+        for (int i = 0; i < nY; ++i)
+            for (int j = 0; j < nX; ++j)
+                assertEquals(full[i / 8 * 8 * nX + j / 8 * 8], image.getRGB(j, i),
+                        "Coarse frame must be complete even without time, wrong pixel at (" + j + "," + i + ")");
+        // BV02: options of the pixel sampling which the budgeted render does not apply
+        SamplingConfiguration sampling = new SamplingConfiguration(SamplingMode.EASY, TargetAreaType.SQUARE,
+                SamplingPattern.GRID, 1);
+        assertThrows(IllegalStateException.class, () -> sphereCameraBuilder(nX, nY)
+                        .setEffect(EffectType.ANTI_ALIASING, sampling).build().renderImage(Duration.ZERO),
+                "Anti-aliasing must be rejected");
+        assertThrows(IllegalStateException.class, () -> sphereCameraBuilder(nX, nY)
+                        .setSelectiveSupersampling(sampling).build().renderImage(Duration.ZERO),
+                "Selective supersampling must be rejected");
+        assertThrows(IllegalStateException.class, () -> sphereCameraBuilder(nX, nY)
+                        .setRayPackets(4).build().renderImage(Duration.ZERO),
+                "Ray packets must be rejected");
+        assertThrows(IllegalStateException.class, () -> sphereCameraBuilder(nX, nY)
+                        .setCheckpoint("Budget", 4, 0).build().renderImage(Duration.ZERO),
+                "Checkpointing must be rejected");
+    }
+
+    /**
+     * Test method for {@link renderer.Camera.Builder#setRegionOfInterest(int, int, int, int, String)}.
+     */
+    @Test
+    void testRegionOfInterest() throws Exception {
+        int nX = 30;
+        int nY = 20;
+        Tile roi = new Tile(12, 4, 10, 8);
+        int[] expected = sphereCamera(nX, nY).renderTile(new Tile(0, 0, nX, nY));
+
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: cropped output keeps the full frame geometry
+        sphereCameraBuilder(nX, nY).setRegionOfInterest(roi.x0(), roi.y0(), roi.width(), roi.height())
+                .build().renderImage().writeToImage("Region of interest crop test");
+        BufferedImage crop = ImageIO.read(new File(ImageWriter.FOLDER_PATH, "Region of interest crop test.png"));
+        assertEquals(roi.width(), crop.getWidth(), "Wrong cropped image width");
+        assertEquals(roi.height(), crop.getHeight(), "Wrong cropped image height");
+        for (int y = 0; y < roi.height(); ++y)
+            for (int x = 0; x < roi.width(); ++x)
+                assertEquals(expected[(roi.y0() + y) * nX + roi.x0() + x], crop.getRGB(x, y),
+                        "Wrong cropped pixel at (" + x + "," + y + ")");
+
+        // EP02: region composited onto a previous (here black) full render
+        sphereCamera(nX, nY).writeToImage("Region of interest base test");
+        sphereCameraBuilder(nX, nY).setRegionOfInterest(roi.x0(), roi.y0(), roi.width(), roi.height(),
+                        "Region of interest base test")
+                .build().renderImage().writeToImage("Region of interest composite test");
+        BufferedImage composite = ImageIO.read(new File(ImageWriter.FOLDER_PATH, "Region of interest composite test.png"));
+        for (int i = 0; i < nY; ++i)
+            for (int j = 0; j < nX; ++j) {
+                boolean inside = j >= roi.x0() && j < roi.x0() + roi.width()
+                        && i >= roi.y0() && i < roi.y0() + roi.height();
+                assertEquals(inside ? expected[i * nX + j] : 0xFF000000, composite.getRGB(j, i),
+                        "Wrong composite pixel at (" + j + "," + i + ")");
+            }
+        // EP03: grid on a cropped output keeps the full frame grid
+        int interval = 5;
+        sphereCameraBuilder(nX, nY).setRegionOfInterest(roi.x0(), roi.y0(), roi.width(), roi.height())
+                .build().renderImage().printGrid(interval, new Color(255, 255, 255))
+                .writeToImage("Region of interest grid test");
+        BufferedImage grid = ImageIO.read(new File(ImageWriter.FOLDER_PATH, "Region of interest grid test.png"));
+        for (int y = 0; y < roi.height(); ++y)
+            for (int x = 0; x < roi.width(); ++x) {
+                int j = roi.x0() + x;
+                int i = roi.y0() + y;
+                assertEquals(j % interval == 0 || i % interval == 0 ? 0xFFFFFFFF : expected[i * nX + j],
+                        grid.getRGB(x, y), "Wrong cropped grid pixel at (" + x + "," + y + ")");
+            }
+
+        // =============== Boundary Values Tests ==================
+        // BV01: region exceeding the image
+        assertThrows(IllegalArgumentException.class,
+                () -> sphereCameraBuilder(nX, nY).setRegionOfInterest(25, 0, 6, 5).build(),
+                "Region of interest must be inside the image");
+        // BV02: render mode which needs the full frame
+        assertThrows(IllegalStateException.class,
+                () -> sphereCameraBuilder(nX, nY).setRegionOfInterest(0, 0, 5, 5).build()
+                        .renderImageProgressive((camera, blockSize) -> {
+                        }),
+                "Progressive render of a region of interest must be rejected");
+    }
+
+    /**
+     * Test method for {@link renderer.Camera#renderImageDistributed(String, List, int)}.
+     */
+    @Test
+    void testRenderImageDistributed() {
+        List<InetSocketAddress> workers = List.of(new InetSocketAddress(InetAddress.getLoopbackAddress(), 1));
+
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: sampling effect which the workers' description does not carry
+        assertThrows(IllegalStateException.class,
+                () -> sphereCameraBuilder(8, 8).setEffect(EffectType.ANTI_ALIASING, new SamplingConfiguration(
+                                SamplingMode.EASY, TargetAreaType.SQUARE, SamplingPattern.GRID, 1)).build()
+                        .renderImageDistributed("<Camera/>", workers, 4),
+                "Distributed render with anti-aliasing must be rejected");
+        // EP02: path termination which the workers' description does not carry
+        assertThrows(IllegalStateException.class,
+                () -> sphereCameraBuilder(8, 8).setPathTermination(true).build()
+                        .renderImageDistributed("<Camera/>", workers, 4),
+                "Distributed render with path termination must be rejected");
+    }
+
+    /**
+     * Creates a small scene of a mirror sphere, a transparent sphere and a reflecting floor
+     *
+     * @return the scene
+     */
+    private static Scene mirrorsScene() {
+        return mirrorsScene(0);
+    }
+
+    /**
+     * Creates a small scene of a mirror sphere, a transparent sphere of a given roughness and a reflecting floor
+     *
+     * @param roughness the roughness of the transparent sphere
+     * @return the scene
+     */
+    private static Scene mirrorsScene(double roughness) {
+        Scene scene = new Scene("Mirrors").setAmbientLight(new AmbientLight(new Color(30, 30, 30)))
+                .setBackground(new Color(20, 40, 60));
+        scene.geometries.add(
+                new Sphere(new Point(-25, 0, -100), 20).setEmission(new Color(20, 20, 60))
+                        .setMaterial(new Material().setKD(0.3).setKS(0.5).setShininess(40).setKR(0.6)),
+                new Sphere(new Point(25, 0, -100), 20).setEmission(new Color(60, 20, 20))
+                        .setMaterial(new Material().setKD(0.3).setKS(0.2).setShininess(20).setKT(0.5)
+                                .setRoughness(roughness)),
+                new Plane(Vector.AXIS_Y, new Point(0, -20, 0)).setEmission(new Color(30, 30, 30))
+                        .setMaterial(new Material().setKD(0.5).setKR(0.4)));
+        scene.lights.add(new PointLight(new Color(400, 300, 200), new Point(0, 100, 0)));
+        return scene;
+    }
+
+    /**
+     * Constructs the primary rays of a 12x12 pixels view of {@link #mirrorsScene()}
+     *
+     * @return the rays
+     */
+    private static Ray[] mirrorsRays() {
+        Camera camera = Camera.getBuilder().setLocation(Point.ZERO)
+                .setDirection(new Vector(0, 0, -1), Vector.AXIS_Y)
+                .setVpDistance(100).setVpSize(120, 120).setResolution(12, 12).build();
+        List<Ray> rays = new ArrayList<>();
+        for (int i = 0; i < 12; ++i)
+            for (int j = 0; j < 12; ++j) rays.add(camera.constructRay(12, 12, j, i));
+        return rays.toArray(new Ray[0]);
+    }
+
+    /**
+     * Test method for {@link renderer.Camera.Builder#setSecondaryRayReordering(boolean)}.
+     */
+    @Test
+    void testSecondaryRayReordering() {
+        RayTracerBase rayTracer = new SimpleRayTracer(mirrorsScene());
+        Ray[] packet = mirrorsRays();
+
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: breadth-first tracing of the reordered secondary rays gives the recursive colors
+        Color[] expected = rayTracer.traceRays(packet);
+        Color[] actual = rayTracer.traceRaysReordered(packet);
+        for (int r = 0; r < packet.length; ++r)
+            assertEquals(expected[r].getColor(), actual[r].getColor(), "Wrong reordered color of ray " + r);
+
+        // =============== Boundary Values Tests ==================
+        // BV01: reordering without ray packets
+        assertThrows(IllegalArgumentException.class,
+                () -> sphereCameraBuilder(4, 4).setSecondaryRayReordering(true).build(),
+                "Secondary ray reordering must require ray packets");
+    }
+
+    /**
+     * Test method for {@link renderer.WavefrontRayTracer}.
+     */
+    @Test
+    void testWavefrontRayTracer() {
+        Scene scene = mirrorsScene();
+        RegularGrid grid = new RegularGrid(scene);
+        RayTracerBase expected = new RegularGridRayTracer(scene, grid);
+        RayTracerBase wavefront = new WavefrontRayTracer(scene, grid);
+        Ray[] packet = mirrorsRays();
+
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: a wave of a packet of rays gives the colors of the extended ray tracer
+        Color[] colors = wavefront.traceRays(packet);
+        for (int r = 0; r < packet.length; ++r)
+            assertEquals(expected.traceRay(packet[r]).getColor(), colors[r].getColor(), "Wrong wavefront color of ray " + r);
+        // EP02: diffusive glass sampled by a regular grid gives the colors of the extended ray tracer
+        // (randomized patterns match only statistically - the wavefront draws the random numbers breadth-first)
+        Scene glassScene = mirrorsScene(0.2);
+        RegularGrid glassGrid = new RegularGrid(glassScene);
+        Map<EffectType, TargetAreaBase> glass = Map.of(EffectType.DIFFUSIVE_GLASS,
+                new DiffusiveTargetArea(new SamplingConfiguration(SamplingMode.EASY,
+                        TargetAreaType.SQUARE, SamplingPattern.GRID, 1)));
+        RayTracerBase expectedGlass = new RegularGridRayTracer(glassScene, glassGrid, glass);
+        Color[] glassColors = new WavefrontRayTracer(glassScene, glassGrid, glass).traceRays(packet);
+        for (int r = 0; r < packet.length; ++r)
+            assertEquals(expectedGlass.traceRay(packet[r]).getColor(), glassColors[r].getColor(),
+                    "Wrong wavefront color of diffusive glass ray " + r);
+
+        // =============== Boundary Values Tests ==================
+        // BV01: a wave of a single ray
+        assertEquals(expected.traceRay(packet[0]).getColor(), wavefront.traceRay(packet[0]).getColor(),
+                "Wrong wavefront color of a single ray");
+    }
+
+    /**
+     * Test method for {@link renderer.Camera.Builder#setIterativeColor(boolean)}.
+     */
+    @Test
+    void testIterativeColor() {
+        Scene scene = mirrorsScene();
+        RayTracerBase recursive = new SimpleRayTracer(scene);
+        Ray[] rays = mirrorsRays();
+
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: the iterative calculation gives the recursive colors
+        SimpleRayTracer iterative = new SimpleRayTracer(scene);
+        iterative.iterative = true;
+        for (Ray ray : rays)
+            assertEquals(recursive.traceRay(ray).getColor(), iterative.traceRay(ray).getColor(),
+                    "Wrong iterative color of ray " + ray);
+
+        // EP02: the builder option is applied to the camera's ray tracer
+        Camera camera = Camera.getBuilder().setLocation(Point.ZERO)
+                .setDirection(new Vector(0, 0, -1), Vector.AXIS_Y)
+                .setVpDistance(100).setVpSize(120, 120).setResolution(12, 12)
+                .setRayTracer(scene, RayTracerType.SIMPLE).setIterativeColor(true).build();
+        int[] expected = Camera.getBuilder().setLocation(Point.ZERO)
+                .setDirection(new Vector(0, 0, -1), Vector.AXIS_Y)
+                .setVpDistance(100).setVpSize(120, 120).setResolution(12, 12)
+                .setRayTracer(scene, RayTracerType.SIMPLE).build().renderTile(new Tile(0, 0, 12, 12));
+        assertArrayEquals(expected, camera.renderTile(new Tile(0, 0, 12, 12)), "Wrong iterative render");
+    }
+
+    /**
+     * Test method for the cost of the adaptive anti-aliasing of {@link renderer.Camera#renderTile(Tile)}.
+     */
+    @Test
+    void testAntiAliasingCost() {
+        int nX = 64, nY = 64;
+        AtomicInteger rays = new AtomicInteger();
+        Scene scene = new Scene("Counted sphere").setAmbientLight(new AmbientLight(new Color(255, 255, 255)));
+        scene.geometries.add(new Sphere(new Point(0, 0, -100), 40) {
+            @Override
+            public List<Intersection> calculateIntersectionsHelper(Ray ray, double maxDistance) {
+                rays.incrementAndGet();
+                return super.calculateIntersectionsHelper(ray, maxDistance);
+            }
+        }.setEmission(new Color(40, 90, 200)).setMaterial(new Material().setKA(0.2)));
+        Camera camera = Camera.getBuilder().setLocation(Point.ZERO)
+                .setDirection(new Vector(0, 0, -1), Vector.AXIS_Y)
+                .setVpDistance(100).setVpSize(10 * nX, 10 * nY).setResolution(nX, nY)
+                .setEffect(EffectType.ANTI_ALIASING, new SamplingConfiguration(SamplingMode.MEDIUM,
+                        TargetAreaType.SQUARE, SamplingPattern.JITTERED, 1))
+                .setRayTracer(scene, RayTracerType.SIMPLE).build();
+
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: a mostly flat image costs about one primary ray per pixel
+        camera.renderTile(new Tile(0, 0, nX, nY));
+        assertTrue(rays.get() <= 1.3 * nX * nY,
+                "Anti-aliasing of a mostly flat image traced " + rays.get() + " rays for " + nX * nY + " pixels");
+        assertTrue(rays.get() > nX * nY, "Edges of the sphere must be refined");
+
+        // =============== Boundary Values Tests ==================
+        // BV01: a detail smaller than a pixel, missed by the pixel's corners, is caught by its center
+        Scene dot = new Scene("Dot");
+        dot.geometries.add(new Sphere(new Point(0, 0, -100), 2).setEmission(new Color(200, 200, 200)));
+        Camera.Builder dotCamera = Camera.getBuilder().setLocation(Point.ZERO)
+                .setDirection(new Vector(0, 0, -1), Vector.AXIS_Y)
+                .setVpDistance(100).setVpSize(30, 30).setResolution(3, 3)
+                .setRayTracer(dot, RayTracerType.SIMPLE);
+        assertNotEquals(0xFF000000, dotCamera.build().renderTile(new Tile(1, 1, 1, 1))[0],
+                "Sub-pixel detail must be caught without anti-aliasing");
+        assertNotEquals(0xFF000000, dotCamera.setEffect(EffectType.ANTI_ALIASING, new SamplingConfiguration(
+                        SamplingMode.MEDIUM, TargetAreaType.SQUARE, SamplingPattern.JITTERED, 1))
+                        .build().renderTile(new Tile(1, 1, 1, 1))[0],
+                "Sub-pixel detail must not vanish with anti-aliasing");
+    }
+
+    /**
+     * Test method for the reproducibility of the random sampling of a render
+     */
+    @Test
+    void testReproducibleSampling() {
+        Scene scene = new Scene("Rough glass").setAmbientLight(new AmbientLight(new Color(20, 20, 20)));
+        scene.geometries.add(
+                new Sphere(new Point(0, 0, -80), 15).setEmission(new Color(20, 20, 40))
+                        .setMaterial(new Material().setKD(0.2).setKS(0.2).setKT(0.7).setRoughness(0.3)),
+                new Sphere(new Point(10, 5, -150), 30).setEmission(new Color(120, 40, 40))
+                        .setMaterial(new Material().setKD(0.5)));
+        scene.lights.add(new PointLight(new Color(300, 300, 300), new Point(0, 60, 0)));
+        Camera camera = Camera.getBuilder().setLocation(Point.ZERO)
+                .setDirection(new Vector(0, 0, -1), Vector.AXIS_Y)
+                .setVpDistance(100).setVpSize(40, 40).setResolution(10, 10)
+                .setEffect(EffectType.DIFFUSIVE_GLASS, new SamplingConfiguration(SamplingMode.BASIC,
+                        TargetAreaType.CIRCLE, SamplingPattern.JITTERED, 1))
+                .setRayTracer(scene, RayTracerType.EXTENDED).build();
+
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: the random samples of a pixel do not depend on the order of the rendered pixels
+        int[] whole = camera.renderTile(new Tile(0, 0, 10, 10));
+        int[] bottom = camera.renderTile(new Tile(0, 5, 10, 5));
+        int[] top = camera.renderTile(new Tile(0, 0, 10, 5));
+        for (int k = 0; k < 50; ++k) {
+            assertEquals(whole[k], top[k], "Wrong top pixel " + k);
+            assertEquals(whole[50 + k], bottom[k], "Wrong bottom pixel " + k);
+        }
     }
 }
@@ -0,0 +1,63 @@
+package renderer;
+
+import geometries.Plane;
+import geometries.Sphere;
+import org.junit.jupiter.api.Test;
+import primitives.Point;
+import primitives.Vector;
+
+import static geometries.Intersectable.Intersection;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link renderer.GeometryBuffer}.
+ */
+public class GeometryBufferTest {
+
+    /**
+     * Default constructor to disable the warning in the JavaDoc generator
+     */
+    GeometryBufferTest() {
+    }
+
+    /**
+     * Test method for {@link GeometryBuffer#detectDiscontinuities()}.
+     */
+    @Test
+    void testDetectDiscontinuities() {
+        Point origin = Point.ZERO;
+        Plane floor = new Plane(new Vector(0, 0, 1), new Point(0, 0, -100));
+        Sphere sphere = new Sphere(new Point(0, 0, -100), 50);
+
+        // row of 7 pixels: floor | floor | floor | sphere | miss | floor (far) | floor (much farther)
+        GeometryBuffer buffer = new GeometryBuffer(7, 1);
+        buffer.record(0, 0, new Intersection(floor, new Point(-10, 0, -100)), origin);
+        buffer.record(1, 0, new Intersection(floor, new Point(-9, 0, -100)), origin);
+        buffer.record(2, 0, new Intersection(floor, new Point(-8, 0, -100)), origin);
+        buffer.record(3, 0, new Intersection(sphere, new Point(0, 0, -50)), origin);
+        buffer.record(4, 0, null, origin);
+        buffer.record(5, 0, new Intersection(floor, new Point(0, 200, -100)), origin);
+        buffer.record(6, 0, new Intersection(floor, new Point(0, 400, -100)), origin);
+
+        // ============ Equivalence Partitions Tests ==============
+        assertEquals(5, buffer.detectDiscontinuities(), "Wrong amount of discontinuity pixels");
+        // EP01: continuous surface
+        assertFalse(buffer.isDiscontinuity(0, 0), "Pixel inside a flat area must not be supersampled");
+        assertFalse(buffer.isDiscontinuity(1, 0), "Pixel inside a flat area must not be supersampled");
+        // EP02: different geometries
+        assertTrue(buffer.isDiscontinuity(2, 0), "Pixel next to a silhouette must be supersampled");
+        assertTrue(buffer.isDiscontinuity(3, 0), "Pixel next to a silhouette must be supersampled");
+        // EP03: geometry next to a miss
+        assertTrue(buffer.isDiscontinuity(4, 0), "Pixel next to the background must be supersampled");
+        // EP04: depth jump on the same geometry
+        assertTrue(buffer.isDiscontinuity(5, 0), "Pixel at a depth jump must be supersampled");
+        assertTrue(buffer.isDiscontinuity(6, 0), "Pixel at a depth jump must be supersampled");
+
+        // =============== Boundary Values Tests ==================
+        // BV01: sharp change of the normal at the same depth on the same geometry
+        GeometryBuffer crease = new GeometryBuffer(2, 1);
+        crease.record(0, 0, new Intersection(sphere, new Point(-30, 0, -60)), origin);
+        crease.record(1, 0, new Intersection(sphere, new Point(30, 0, -60)), origin);
+        assertEquals(2, crease.detectDiscontinuities(), "Sharp normal change must be a discontinuity");
+    }
+}
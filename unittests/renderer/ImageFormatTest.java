@@ -0,0 +1,169 @@
+package renderer;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link renderer.ImageFormat}.
+ */
+public class ImageFormatTest {
+
+    /**
+     * Default constructor to disable the warning in the JavaDoc generator
+     */
+    ImageFormatTest() {
+    }
+
+    /**
+     * Width of the test image
+     */
+    private static final int WIDTH = 70;
+    /**
+     * Height of the test image
+     */
+    private static final int HEIGHT = 9;
+    /**
+     * Test image - flat areas (runs), small gradients (differences) and noise (full RGB)
+     */
+    private final BufferedImage image = createImage();
+
+    /**
+     * Creates the test image
+     *
+     * @return the test image
+     */
+    private static BufferedImage createImage() {
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < HEIGHT; ++y)
+            for (int x = 0; x < WIDTH; ++x) {
+                int rgb = switch (y % 3) {
+                    case 0 -> 0x336699;
+                    case 1 -> (x << 16) | (x << 8) | x;
+                    default -> (x * 7919 + y * 104729) & 0xFFFFFF;
+                };
+                image.setRGB(x, y, rgb);
+            }
+        return image;
+    }
+
+    /**
+     * Encodes the test image into memory
+     *
+     * @param format the image format
+     * @return the encoded bytes
+     */
+    private byte[] encode(ImageFormat format) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        format.encode(image, Channels.newChannel(out));
+        return out.toByteArray();
+    }
+
+    /**
+     * Test method for {@link ImageFormat#PPM} and {@link ImageFormat#RAW_RGB}.
+     */
+    @Test
+    void testUncompressedFormats() throws Exception {
+        byte[] raw = encode(ImageFormat.RAW_RGB);
+        byte[] ppm = encode(ImageFormat.PPM);
+        String header = "P6\n" + WIDTH + " " + HEIGHT + "\n255\n";
+
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: raw dump holds 3 bytes per pixel in row-major order
+        assertEquals(WIDTH * HEIGHT * 3, raw.length, "Wrong raw RGB size");
+        for (int y = 0; y < HEIGHT; ++y)
+            for (int x = 0; x < WIDTH; ++x) {
+                int offset = (y * WIDTH + x) * 3;
+                int rgb = (raw[offset] & 0xFF) << 16 | (raw[offset + 1] & 0xFF) << 8 | raw[offset + 2] & 0xFF;
+                assertEquals(image.getRGB(x, y) & 0xFFFFFF, rgb, "Wrong raw RGB pixel");
+            }
+
+        // EP02: PPM is the raw dump after a P6 header
+        assertEquals(header, new String(ppm, 0, header.length(), StandardCharsets.US_ASCII), "Wrong PPM header");
+        assertEquals(header.length() + raw.length, ppm.length, "Wrong PPM size");
+        for (int k = 0; k < raw.length; ++k)
+            assertEquals(raw[k], ppm[header.length() + k], "Wrong PPM pixel data");
+    }
+
+    /**
+     * Test method for {@link ImageFormat#RAW_FLOAT}.
+     */
+    @Test
+    void testRawFloat() throws Exception {
+        ByteBuffer floats = ByteBuffer.wrap(encode(ImageFormat.RAW_FLOAT)).order(ByteOrder.LITTLE_ENDIAN);
+
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: normalized little-endian float triads
+        assertEquals(WIDTH * HEIGHT * 3 * Float.BYTES, floats.remaining(), "Wrong raw float size");
+        int rgb = image.getRGB(5, 2);
+        floats.position((2 * WIDTH + 5) * 3 * Float.BYTES);
+        assertEquals(((rgb >> 16) & 0xFF) / 255f, floats.getFloat(), 1e-7, "Wrong red component");
+        assertEquals(((rgb >> 8) & 0xFF) / 255f, floats.getFloat(), 1e-7, "Wrong green component");
+        assertEquals((rgb & 0xFF) / 255f, floats.getFloat(), 1e-7, "Wrong blue component");
+    }
+
+    /**
+     * Test method for {@link ImageFormat#QOI}. The encoded image is decoded back and compared
+     */
+    @Test
+    void testQoi() throws Exception {
+        ByteBuffer qoi = ByteBuffer.wrap(encode(ImageFormat.QOI));
+
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: header
+        byte[] magic = new byte[4];
+        qoi.get(magic);
+        assertEquals("qoif", new String(magic, StandardCharsets.US_ASCII), "Wrong QOI magic");
+        assertEquals(WIDTH, qoi.getInt(), "Wrong QOI width");
+        assertEquals(HEIGHT, qoi.getInt(), "Wrong QOI height");
+        assertEquals(3, qoi.get(), "Wrong QOI channels");
+        assertEquals(0, qoi.get(), "Wrong QOI color space");
+
+        // EP02: lossless round trip
+        int[] index = new int[64];
+        int r = 0, g = 0, b = 0;
+        int run = 0;
+        for (int k = 0; k < WIDTH * HEIGHT; ++k) {
+            if (run > 0) --run;
+            else {
+                int tag = qoi.get() & 0xFF;
+                if (tag == 0xFE) {
+                    r = qoi.get() & 0xFF;
+                    g = qoi.get() & 0xFF;
+                    b = qoi.get() & 0xFF;
+                } else if ((tag & 0xC0) == 0x00) {
+                    int pixel = index[tag];
+                    r = (pixel >> 16) & 0xFF;
+                    g = (pixel >> 8) & 0xFF;
+                    b = pixel & 0xFF;
+                } else if ((tag & 0xC0) == 0x40) {
+                    r = (r + ((tag >> 4) & 3) - 2) & 0xFF;
+                    g = (g + ((tag >> 2) & 3) - 2) & 0xFF;
+                    b = (b + (tag & 3) - 2) & 0xFF;
+                } else if ((tag & 0xC0) == 0x80) {
+                    int next = qoi.get() & 0xFF;
+                    int dg = (tag & 0x3F) - 32;
+                    r = (r + dg + ((next >> 4) & 0xF) - 8) & 0xFF;
+                    g = (g + dg) & 0xFF;
+                    b = (b + dg + (next & 0xF) - 8) & 0xFF;
+                } else run = tag & 0x3F;
+                index[(r * 3 + g * 5 + b * 7 + 255 * 11) % 64] = r << 16 | g << 8 | b;
+            }
+            int x = k % WIDTH;
+            int y = k / WIDTH;
+            assertEquals(image.getRGB(x, y) & 0xFFFFFF, r << 16 | g << 8 | b,
+                    "Wrong decoded pixel at (" + x + "," + y + ")");
+        }
+
+        // EP03: end marker
+        assertEquals(8, qoi.remaining(), "Wrong QOI end marker length");
+        assertEquals(1L, qoi.getLong(), "Wrong QOI end marker");
+    }
+}
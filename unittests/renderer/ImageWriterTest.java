@@ -3,7 +3,12 @@ package renderer;
 import org.junit.jupiter.api.Test;
 import primitives.Color;
 
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 
 /**
  * Unit tests for {@link renderer.ImageWriter}.
@@ -40,4 +45,27 @@ public class ImageWriterTest {
             imageWriter.writeToImage("Basic Background and Border Image");
         }, "Failed to create image");
     }
+
+    /**
+     * Test method for {@link ImageWriter#snapshot()}.
+     * The snapshot must not be affected by pixels painted after it was taken
+     */
+    @Test
+    void testSnapshot() throws Exception {
+        Color before = new Color(java.awt.Color.BLUE);
+        Color after = new Color(java.awt.Color.GREEN);
+        ImageWriter imageWriter = new ImageWriter(4, 3);
+        for (int i = 0; i < 3; i++)
+            for (int j = 0; j < 4; j++)
+                imageWriter.writePixel(j, i, before);
+
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: the original image is repainted after the snapshot
+        ImageWriter snapshot = imageWriter.snapshot();
+        imageWriter.writePixel(1, 1, after);
+        snapshot.writeToImage("Image writer snapshot test");
+
+        BufferedImage image = ImageIO.read(new File(ImageWriter.FOLDER_PATH, "Image writer snapshot test.png"));
+        assertEquals(before.getColor().getRGB(), image.getRGB(1, 1), "Snapshot was changed by a later pixel");
+    }
 }
@@ -0,0 +1,93 @@
+package renderer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link renderer.PixelManager} with the {@link PixelOrder} pixel orders.
+ */
+public class PixelManagerTest {
+
+    /**
+     * Default constructor to disable the warning in the JavaDoc generator
+     */
+    PixelManagerTest() {
+    }
+
+    /**
+     * Image width of the tests (the last tile column is narrower)
+     */
+    private static final int WIDTH = 37;
+    /**
+     * Image height of the tests (the last tile row is lower)
+     */
+    private static final int HEIGHT = 23;
+    /**
+     * Tile size of the tests
+     */
+    private static final int TILE = 8;
+
+    /**
+     * Takes all the pixels from a pixel manager by several threads and counts the visits of each pixel
+     *
+     * @param manager the pixel manager
+     * @param threads amount of the threads
+     * @return visits count of each pixel in row-major order
+     */
+    private static AtomicIntegerArray visit(PixelManager manager, int threads) throws InterruptedException {
+        AtomicIntegerArray visits = new AtomicIntegerArray(WIDTH * HEIGHT);
+        Thread[] workers = new Thread[threads];
+        for (int k = 0; k < threads; ++k) {
+            workers[k] = new Thread(() -> {
+                PixelManager.Pixel pixel;
+                while ((pixel = manager.nextPixel()) != null)
+                    visits.incrementAndGet(pixel.row() * WIDTH + pixel.col());
+            });
+            workers[k].start();
+        }
+        for (Thread worker : workers) worker.join();
+        return visits;
+    }
+
+    /**
+     * Test method for {@link PixelManager#nextPixel()} with a pixel order.
+     */
+    @Test
+    void testPixelOrder() throws InterruptedException {
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: every pixel is handed out exactly once in each order, by a single and by several threads
+        for (PixelOrder order : PixelOrder.values())
+            for (int threads : new int[]{1, 4}) {
+                AtomicIntegerArray visits = visit(new PixelManager(HEIGHT, WIDTH, order, TILE, 0), threads);
+                for (int k = 0; k < visits.length(); ++k)
+                    assertEquals(1, visits.get(k), "Pixel (" + k % WIDTH + "," + k / WIDTH + ") visited wrong times in "
+                            + order + " order by " + threads + " threads");
+            }
+
+        // EP02: consecutive pixels of a full Hilbert tile are adjacent
+        PixelManager hilbert = new PixelManager(HEIGHT, WIDTH, PixelOrder.HILBERT, TILE, 0);
+        PixelManager.Pixel previous = hilbert.nextPixel();
+        for (int k = 1; k < TILE * TILE; ++k) {
+            PixelManager.Pixel pixel = hilbert.nextPixel();
+            assertEquals(1, Math.abs(pixel.col() - previous.col()) + Math.abs(pixel.row() - previous.row()),
+                    "Consecutive Hilbert pixels must be adjacent");
+            assertTrue(pixel.col() < TILE && pixel.row() < TILE, "Pixel out of the first tile");
+            previous = pixel;
+        }
+
+        // EP03: Morton order walks the quadrants of the tile one after another
+        PixelManager morton = new PixelManager(HEIGHT, WIDTH, PixelOrder.MORTON, TILE, 0);
+        for (int k = 0; k < TILE * TILE / 4; ++k) {
+            PixelManager.Pixel pixel = morton.nextPixel();
+            assertTrue(pixel.col() < TILE / 2 && pixel.row() < TILE / 2, "Pixel out of the first quadrant");
+        }
+
+        // =============== Boundary Values Tests ==================
+        // BV01: tile size which is not a power of 2
+        assertThrows(IllegalArgumentException.class, () -> new PixelManager(HEIGHT, WIDTH, PixelOrder.HILBERT, 6, 0),
+                "Tile size must be a power of 2");
+    }
+}
@@ -0,0 +1,368 @@
+package renderer;
+
+import acceleration.RegularGrid;
+import geometries.Plane;
+import geometries.Sphere;
+import lighting.AmbientLight;
+import lighting.AreaLight;
+import lighting.PointLight;
+import org.junit.jupiter.api.Test;
+import primitives.*;
+import sampling.DiffusiveTargetArea;
+import sampling.GlossyReflectionTargetArea;
+import sampling.SampleBudget;
+import sampling.SampleRandom;
+import sampling.SamplingConfiguration;
+import sampling.SamplingMode;
+import sampling.SamplingPattern;
+import sampling.SoftShadowTargetArea;
+import sampling.TargetAreaBase;
+import sampling.TargetAreaType;
+import scene.Scene;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static geometries.Intersectable.Intersection;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the ray tracers' path termination, sample budgets, adaptive sampling, soft shadows and
+ * glossy reflections.
+ */
+public class RayTracerTest {
+
+    /**
+     * Default constructor to disable the warning in the JavaDoc generator
+     */
+    RayTracerTest() {
+    }
+
+    /**
+     * Counters of the rays traced by a ray tracer of {@link #countingRayTracer}
+     */
+    private static final class RayCounter {
+        /**
+         * Amount of the rays which were intersected with the scene (primary and secondary rays)
+         */
+        int rays = 0;
+        /**
+         * Amount of the shadow rays towards the lights
+         */
+        int shadowRays = 0;
+    }
+
+    /**
+     * Creates a ray tracer which counts the rays it traces
+     *
+     * @param type    the type of the ray tracer - {@link RayTracerType#SIMPLE}, {@link RayTracerType#EXTENDED}
+     *                or {@link RayTracerType#GRID_EXTENDED}
+     * @param scene   the scene
+     * @param effects the sampled effects of the extended ray tracers
+     * @param counter the counters of the traced rays
+     * @return the ray tracer
+     */
+    private static SimpleRayTracer countingRayTracer(RayTracerType type, Scene scene,
+                                                     Map<EffectType, TargetAreaBase> effects, RayCounter counter) {
+        return switch (type) {
+            case SIMPLE -> new SimpleRayTracer(scene) {
+                @Override
+                protected Intersection findClosestIntersection(Ray ray) {
+                    ++counter.rays;
+                    return super.findClosestIntersection(ray);
+                }
+
+                @Override
+                protected Double3 transparency(Intersection intersection, Vector direction, double distance) {
+                    ++counter.shadowRays;
+                    return super.transparency(intersection, direction, distance);
+                }
+            };
+            case EXTENDED -> new ExtendedRayTracer(scene, effects) {
+                @Override
+                protected Intersection findClosestIntersection(Ray ray) {
+                    ++counter.rays;
+                    return super.findClosestIntersection(ray);
+                }
+
+                @Override
+                protected Double3 transparency(Intersection intersection, Vector direction, double distance) {
+                    ++counter.shadowRays;
+                    return super.transparency(intersection, direction, distance);
+                }
+            };
+            case GRID_EXTENDED -> new RegularGridRayTracer(scene, new RegularGrid(scene), effects) {
+                @Override
+                protected Intersection findClosestIntersection(Ray ray) {
+                    ++counter.rays;
+                    return super.findClosestIntersection(ray);
+                }
+
+                @Override
+                protected Double3 transparency(Intersection intersection, Vector direction, double distance) {
+                    ++counter.shadowRays;
+                    return super.transparency(intersection, direction, distance);
+                }
+            };
+            default -> throw new IllegalArgumentException("No counting ray tracer of type " + type);
+        };
+    }
+
+    /**
+     * Constructs the primary rays of a square view along the -Z axis
+     *
+     * @param location   the camera location
+     * @param size       the size of the view plane at distance 100
+     * @param resolution amount of pixels by width and by height
+     * @return the rays in row-major order
+     */
+    private static List<Ray> viewRays(Point location, double size, int resolution) {
+        Camera camera = Camera.getBuilder().setLocation(location)
+                .setDirection(new Vector(0, 0, -1), Vector.AXIS_Y)
+                .setVpDistance(100).setVpSize(size, size).setResolution(resolution, resolution).build();
+        List<Ray> rays = new ArrayList<>();
+        for (int i = 0; i < resolution; ++i)
+            for (int j = 0; j < resolution; ++j) rays.add(camera.constructRay(resolution, resolution, j, i));
+        return rays;
+    }
+
+    /**
+     * Creates a scene of two facing mirrors with a sphere between them, whose rays bounce deeply
+     *
+     * @return the scene
+     */
+    static Scene facingMirrorsScene() {
+        Scene scene = new Scene("Facing mirrors").setAmbientLight(new AmbientLight(new Color(20, 20, 20)))
+                .setBackground(new Color(10, 10, 30));
+        scene.geometries.add(
+                new Plane(new Vector(1, 0, 0.05), new Point(-60, 0, 0)).setEmission(new Color(5, 5, 5))
+                        .setMaterial(new Material().setKD(0.1).setKR(0.5)),
+                new Plane(new Vector(1, 0, -0.05), new Point(60, 0, 0)).setEmission(new Color(5, 5, 5))
+                        .setMaterial(new Material().setKD(0.1).setKR(0.5)),
+                new Sphere(new Point(0, 0, -150), 25).setEmission(new Color(100, 30, 30))
+                        .setMaterial(new Material().setKD(0.5).setKS(0.5).setShininess(50).setKR(0.3)));
+        scene.lights.add(new PointLight(new Color(300, 300, 300), new Point(0, 80, -50)));
+        return scene;
+    }
+
+    /**
+     * Test method for {@link renderer.Camera.Builder#setPathTermination(boolean)}.
+     */
+    @Test
+    void testPathTermination() {
+        Scene scene = facingMirrorsScene();
+        List<Ray> rays = viewRays(new Point(0, 0, 100), 100, 20);
+        RayCounter[] counters = {new RayCounter(), new RayCounter()};
+        Color[][] colors = new Color[2][rays.size()];
+        for (int t = 0; t < 2; ++t) {
+            SimpleRayTracer rayTracer = countingRayTracer(RayTracerType.SIMPLE, scene, null, counters[t]);
+            rayTracer.pathTermination = t == 1;
+            for (int r = 0; r < rays.size(); ++r) {
+                SampleRandom.seed(r, 0, 0);
+                colors[t][r] = rayTracer.traceRay(rays.get(r));
+            }
+        }
+
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: a part of the deep bounces between the mirrors is skipped
+        int secondary = counters[0].rays - rays.size();
+        int terminated = counters[1].rays - rays.size();
+        assertTrue(terminated < secondary * 0.85,
+                "Path termination must skip deep secondary rays: " + terminated + " of " + secondary);
+        // EP02: no pixel changes visibly - the dropped and the reweighted paths change a pixel by rounding only
+        int difference = 0;
+        for (int r = 0; r < rays.size(); ++r) {
+            java.awt.Color full = colors[0][r].getColor();
+            java.awt.Color cut = colors[1][r].getColor();
+            difference = Math.max(difference, Math.max(Math.abs(full.getRed() - cut.getRed()),
+                    Math.max(Math.abs(full.getGreen() - cut.getGreen()), Math.abs(full.getBlue() - cut.getBlue()))));
+        }
+        assertTrue(difference <= 1, "Path termination must not change a pixel visibly: " + difference + " levels");
+    }
+
+    /**
+     * Counts the rays of a primary ray which a mirror reflects up into rough glass panes
+     *
+     * @param budget    the sample budget of the diffusive glass
+     * @param panes     amount of the rough glass panes above the mirror (1 or 2)
+     * @param iterative whether the colors are calculated iteratively
+     * @return the amount of the traced rays
+     */
+    private static int roughPanesRays(SampleBudget budget, int panes, boolean iterative) {
+        Scene scene = new Scene("Rough panes").setBackground(new Color(40, 60, 80));
+        scene.geometries.add(new Plane(new Vector(0, 1, 1), new Point(0, 0, -100))
+                .setMaterial(new Material().setKR(1)));
+        for (int pane = 1; pane <= panes; ++pane)
+            scene.geometries.add(new Plane(Vector.AXIS_Y, new Point(0, 50 * pane, 0)).setEmission(new Color(10, 10, 10))
+                    .setMaterial(new Material().setKT(0.9).setRoughness(0.5)));
+        SamplingConfiguration config = new SamplingConfiguration(SamplingMode.BASIC, TargetAreaType.SQUARE,
+                SamplingPattern.GRID, 1, budget);
+        RayCounter counter = new RayCounter();
+        SimpleRayTracer rayTracer = countingRayTracer(RayTracerType.EXTENDED, scene,
+                Map.of(EffectType.DIFFUSIVE_GLASS, new DiffusiveTargetArea(config)), counter);
+        rayTracer.iterative = iterative;
+        SampleRandom.seed(0, 0, 0);
+        rayTracer.traceRay(new Ray(Point.ZERO, new Vector(0, 0, -1)));
+        return counter.rays;
+    }
+
+    /**
+     * Test method for the {@link SampleBudget} of the sampled effects in {@link ExtendedRayTracer}.
+     */
+    @Test
+    void testSampleBudget() {
+        int samples = SamplingMode.BASIC.numberSamples;
+        for (boolean iterative : new boolean[]{false, true}) {
+            // ============ Equivalence Partitions Tests ==============
+            // EP01: rough glass seen through a mirror is the path's first diffuse bounce - it takes the whole grid
+            assertEquals(2 + samples, roughPanesRays(SampleBudget.SPLIT_ONCE, 1, iterative),
+                    "Mirror must not count as a diffuse bounce");
+            assertEquals(2 + samples, roughPanesRays(SampleBudget.FULL, 1, iterative),
+                    "Full budget must take the whole grid");
+            // EP02: rough glass seen through rough glass is the second diffuse bounce - a single sample per path
+            assertEquals(2 + 2 * samples, roughPanesRays(SampleBudget.SPLIT_ONCE, 2, iterative),
+                    "Second diffuse bounce must take a single sample");
+            assertEquals(2 + samples + samples * samples, roughPanesRays(SampleBudget.FULL, 2, iterative),
+                    "Full budget must split at every diffuse bounce");
+        }
+    }
+
+    /**
+     * Test method for {@link Camera.Builder#setAdaptiveSampling(double)}.
+     */
+    @Test
+    void testAdaptiveSampling() {
+        Scene scene = new Scene("Frosted glass").setAmbientLight(new AmbientLight(new Color(20, 20, 20)))
+                .setBackground(new Color(40, 60, 80));
+        scene.geometries.add(
+                new Sphere(new Point(0, 0, -100), 40).setEmission(new Color(10, 10, 20))
+                        .setMaterial(new Material().setKT(0.8).setRoughness(0.3)),
+                new Sphere(new Point(60, 20, -250), 20).setEmission(new Color(150, 50, 50))
+                        .setMaterial(new Material().setKD(0.5)));
+        scene.lights.add(new PointLight(new Color(300, 300, 300), new Point(0, 80, 0)));
+        SamplingConfiguration config = new SamplingConfiguration(SamplingMode.DEMO, TargetAreaType.CIRCLE,
+                SamplingPattern.SOBOL, 1, SampleBudget.SPLIT_ONCE);
+        Map<EffectType, TargetAreaBase> glass = Map.of(EffectType.DIFFUSIVE_GLASS, new DiffusiveTargetArea(config));
+        List<Ray> rays = viewRays(Point.ZERO, 80, 16);
+        RayCounter[] counters = {new RayCounter(), new RayCounter()};
+        Color[][] colors = new Color[2][rays.size()];
+        for (int t = 0; t < 2; ++t) {
+            ExtendedRayTracer rayTracer =
+                    (ExtendedRayTracer) countingRayTracer(RayTracerType.EXTENDED, scene, glass, counters[t]);
+            rayTracer.adaptiveThreshold = t == 1 ? 1 : 0;
+            for (int r = 0; r < rays.size(); ++r) {
+                SampleRandom.seed(r, 0, 0);
+                colors[t][r] = rayTracer.traceRay(rays.get(r));
+            }
+        }
+
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: the converged hits take fewer samples
+        assertTrue(counters[1].rays < counters[0].rays * 0.6, "Adaptive sampling must trace fewer rays");
+        // EP02: the image does not change visibly - a pixel may differ by the noise of its samples,
+        // e.g. when a rare sample hits a small object behind the glass, but not on average
+        double difference = 0;
+        for (int r = 0; r < rays.size(); ++r) difference += colors[0][r].maxDifference(colors[1][r]);
+        assertTrue(difference / rays.size() < 1, "Adaptive sampling must not change the image on average");
+
+        // =============== Boundary Values Tests ==================
+        // BV01: negative threshold
+        assertThrows(IllegalArgumentException.class, () -> Camera.getBuilder().setAdaptiveSampling(-1),
+                "Negative threshold must be rejected");
+        // BV02: adaptive sampling without the recursive color calculation
+        assertThrows(IllegalArgumentException.class, () -> Camera.getBuilder().setLocation(Point.ZERO)
+                        .setDirection(new Vector(0, 0, -1), Vector.AXIS_Y).setVpDistance(100).setVpSize(80, 80)
+                        .setResolution(16, 16).setAdaptiveSampling(1).setIterativeColor(true).build(),
+                "Adaptive sampling must require the recursive color calculation");
+    }
+
+    /**
+     * Test method for the soft shadows of {@link AreaLight} in {@link ExtendedRayTracer}.
+     * The light and the occluder have the same radius, so the umbra below the occluder has its radius
+     * and the penumbra around it is twice as wide
+     */
+    @Test
+    void testSoftShadows() {
+        Scene scene = new Scene("Soft shadow");
+        scene.geometries.add(
+                new Plane(Vector.AXIS_Y, Point.ZERO).setMaterial(new Material().setKD(0.5)),
+                new Sphere(new Point(0, 50, 0), 10).setMaterial(new Material().setKD(0.5)));
+        SamplingConfiguration config = new SamplingConfiguration(SamplingMode.DEMO, TargetAreaType.CIRCLE,
+                SamplingPattern.SOBOL, 1);
+        RayCounter counter = new RayCounter();
+        RayTracerBase rayTracer = countingRayTracer(RayTracerType.EXTENDED, scene,
+                Map.of(EffectType.SOFT_SHADOW, new SoftShadowTargetArea(config)), counter);
+        Color[] colors = new Color[3];
+        int[] traced = new int[3];
+        // floor points in the umbra, in the penumbra and fully lit
+        double[] xs = {0, 20, 60};
+        scene.lights.add(new AreaLight(new Color(300, 300, 300), new Point(0, 100, 0), 10));
+        for (int p = 0; p < 3; ++p) {
+            counter.shadowRays = 0;
+            SampleRandom.seed(p, 0, 0);
+            colors[p] = rayTracer.traceRay(new Ray(new Point(xs[p], 20, 20), new Vector(0, -1, -1)));
+            traced[p] = counter.shadowRays;
+        }
+
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: a point in the umbra stops after the probe samples
+        assertEquals(4, traced[0], "Umbra must trace only the probe samples");
+        assertEquals(0, colors[0].maxComponent(), 1e-10, "Umbra must be dark");
+        // EP02: a point in the penumbra takes all the samples and is partially lit
+        assertEquals(81, traced[1], "Penumbra must trace all the samples");
+        assertTrue(colors[1].maxComponent() > 0 && colors[1].maxComponent() < colors[2].maxComponent(),
+                "Penumbra must be partially lit");
+        // EP03: a fully lit point stops after the probe samples
+        assertEquals(4, traced[2], "Lit point must trace only the probe samples");
+
+        // =============== Boundary Values Tests ==================
+        // BV01: a point light keeps its single hard shadow ray
+        scene.lights.clear();
+        scene.lights.add(new PointLight(new Color(300, 300, 300), new Point(0, 100, 0)));
+        counter.shadowRays = 0;
+        rayTracer.traceRay(new Ray(new Point(20, 20, 20), new Vector(0, -1, -1)));
+        assertEquals(1, counter.shadowRays, "Point light must trace a single shadow ray");
+    }
+
+    /**
+     * Test method for the glossy reflections of {@link ExtendedRayTracer} and {@link RegularGridRayTracer}
+     */
+    @Test
+    void testGlossyReflection() {
+        Scene scene = new Scene("Brushed metal").setAmbientLight(new AmbientLight(new Color(20, 20, 20)));
+        Material metal = new Material().setKD(0.2).setKR(0.7).setReflectionRoughness(0.3);
+        scene.geometries.add(
+                new Plane(Vector.AXIS_Y, Point.ZERO).setEmission(new Color(10, 10, 10)).setMaterial(metal),
+                new Sphere(new Point(0, 30, -40), 15).setEmission(new Color(120, 40, 40))
+                        .setMaterial(new Material().setKD(0.5)));
+        scene.lights.add(new PointLight(new Color(300, 300, 300), new Point(0, 100, 0)));
+        Map<EffectType, TargetAreaBase> glossy = Map.of(EffectType.GLOSSY_REFLECTION,
+                new GlossyReflectionTargetArea(new SamplingConfiguration(SamplingMode.MEDIUM,
+                        TargetAreaType.CIRCLE, SamplingPattern.SOBOL, 1)));
+        RayCounter[] counters = {new RayCounter(), new RayCounter()};
+        RayTracerBase[] rayTracers = {
+                countingRayTracer(RayTracerType.EXTENDED, scene, glossy, counters[0]),
+                countingRayTracer(RayTracerType.GRID_EXTENDED, scene, glossy, counters[1])};
+        Ray ray = new Ray(new Point(0, 10, 0), new Vector(0, -1, -1));
+        Color[] colors = new Color[2];
+        for (int t = 0; t < 2; ++t) {
+            SampleRandom.seed(0, 0, 0);
+            colors[t] = rayTracers[t].traceRay(ray);
+        }
+
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: the brushed metal takes the samples of its roughness (a 3x3 grid of the 5x5 one)
+        assertEquals(1 + 9, counters[0].rays, "Glossy reflection must trace the samples of its roughness");
+        // EP02: the regular grid traces the same samples through its closest hit traversal
+        assertEquals(counters[0].rays, counters[1].rays, "Grid ray tracer must trace the glossy samples");
+        assertTrue(colors[0].maxDifference(colors[1]) < 1e-6, "Grid ray tracer must give the same color");
+
+        // =============== Boundary Values Tests ==================
+        // BV01: a mirror keeps its single reflection ray
+        metal.setReflectionRoughness(0);
+        counters[0].rays = 0;
+        rayTracers[0].traceRay(ray);
+        assertEquals(2, counters[0].rays, "Mirror must trace a single reflection ray");
+    }
+}
@@ -0,0 +1,79 @@
+package renderer;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link renderer.RenderCheckpoint}.
+ */
+public class RenderCheckpointTest {
+
+    /**
+     * Default constructor to disable the warning in the JavaDoc generator
+     */
+    RenderCheckpointTest() {
+    }
+
+    /**
+     * Image width of the tests (3 tile columns, the last one is narrower)
+     */
+    private static final int WIDTH = 10;
+    /**
+     * Image height of the tests (2 tile rows, the last one is lower)
+     */
+    private static final int HEIGHT = 7;
+    /**
+     * Tile size of the tests
+     */
+    private static final int TILE = 4;
+    /**
+     * Render fingerprint of the tests
+     */
+    private static final int FINGERPRINT = 12345;
+
+    /**
+     * Test method for resuming a render from {@link RenderCheckpoint}.
+     */
+    @Test
+    void testResume() throws Exception {
+        Path file = Files.createTempFile("render", ".ckpt");
+
+        // first run - finishes the top left tile and a part of the next one, then "dies"
+        RenderCheckpoint first = new RenderCheckpoint(file, WIDTH, HEIGHT, TILE, FINGERPRINT, 0);
+        assertEquals(0, first.restoredTiles(), "New checkpoint must not have finished tiles");
+        for (int i = 0; i < TILE; ++i)
+            for (int j = 0; j < TILE + 2; ++j)
+                first.pixelDone(j, i, i * WIDTH + j);
+        first.close();
+
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: only the finished tile is restored with its pixels
+        RenderCheckpoint second = new RenderCheckpoint(file, WIDTH, HEIGHT, TILE, FINGERPRINT, 0);
+        assertEquals(1, second.restoredTiles(), "Wrong amount of restored tiles");
+        assertTrue(second.isTileDone(3, 3), "Finished tile was not restored");
+        assertFalse(second.isTileDone(4, 0), "Partially rendered tile must be rendered again");
+        assertEquals(2 * WIDTH + 1, second.getRGB(1, 2), "Wrong restored pixel");
+        assertFalse(second.isComplete(), "Checkpoint must not be complete");
+
+        // EP02: completing the render deletes the checkpoint
+        for (int i = 0; i < HEIGHT; ++i)
+            for (int j = 0; j < WIDTH; ++j)
+                if (i >= TILE || j >= TILE) second.pixelDone(j, i, 0);
+        assertTrue(second.isComplete(), "Checkpoint must be complete");
+        second.delete();
+        assertFalse(Files.exists(file), "Completed checkpoint file must be deleted");
+
+        // =============== Boundary Values Tests ==================
+        // BV01: checkpoint of a different render
+        Path other = Files.createTempFile("render", ".ckpt");
+        new RenderCheckpoint(other, WIDTH, HEIGHT, TILE, FINGERPRINT, 0).close();
+        assertThrows(IllegalStateException.class,
+                () -> new RenderCheckpoint(other, WIDTH, HEIGHT, TILE, FINGERPRINT + 1, 0),
+                "Checkpoint of a different render must not be resumed");
+        Files.deleteIfExists(other);
+    }
+}
@@ -0,0 +1,201 @@
+package renderer;
+
+import org.junit.jupiter.api.Test;
+import scene.XMLParser;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link renderer.RenderCoordinator} with {@link renderer.RenderWorker} processes.
+ */
+public class RenderCoordinatorTest {
+
+    /**
+     * Default constructor to disable the warning in the JavaDoc generator
+     */
+    RenderCoordinatorTest() {
+    }
+
+    /**
+     * Horizontal resolution of the test image
+     */
+    private static final int NX = 30;
+    /**
+     * Vertical resolution of the test image
+     */
+    private static final int NY = 20;
+    /**
+     * Camera and scene description of the tests - a sphere lit by a point light
+     */
+    private static final String DESCRIPTION = """
+            <Camera>
+                <Position><x>0</x><y>0</y><z>0</z></Position>
+                <Directions>
+                    <Direction1>
+                        <vTo><x>0</x><y>0</y><z>-1</z></vTo>
+                        <vUp><x>0</x><y>1</y><z>0</z></vUp>
+                    </Direction1>
+                </Directions>
+                <Size><Width>150</Width><Height>100</Height></Size>
+                <Distance>100</Distance>
+                <Resolution><nX>30</nX><nY>20</nY></Resolution>
+                <RayTracer>
+                    <RayTracerType>SIMPLE</RayTracerType>
+                    <Scene>
+                        <Name>Distributed</Name>
+                        <AmbientLight><r>30</r><g>30</g><b>30</b></AmbientLight>
+                        <Geometries>
+                            <Sphere>
+                                <Center><x>0</x><y>0</y><z>-200</z></Center>
+                                <Radius>60</Radius>
+                                <Emission><r>40</r><g>0</g><b>80</b></Emission>
+                                <Material>
+                                    <Ambient><x>0.2</x><y>0.2</y><z>0.2</z></Ambient>
+                                    <Diffuse><x>0.5</x><y>0.5</y><z>0.5</z></Diffuse>
+                                    <Specular><x>0.5</x><y>0.5</y><z>0.5</z></Specular>
+                                    <Shininess>30</Shininess>
+                                </Material>
+                            </Sphere>
+                        </Geometries>
+                        <ExternalLights>
+                            <PointLight>
+                                <r>500</r><g>400</g><b>300</b>
+                                <Position><x>-100</x><y>100</y><z>0</z></Position>
+                                <Attenuation><Constant>1</Constant><Linear>0.001</Linear><Quadratic>0.0001</Quadratic></Attenuation>
+                            </PointLight>
+                        </ExternalLights>
+                    </Scene>
+                </RayTracer>
+            </Camera>
+            """;
+
+    /**
+     * Starts a render worker process on the loopback interface
+     *
+     * @return the worker process
+     */
+    private static Process startWorker() throws IOException {
+        String java = ProcessHandle.current().info().command().orElse("java");
+        return new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), RenderWorker.class.getName())
+                .redirectError(ProcessBuilder.Redirect.DISCARD)
+                .start();
+    }
+
+    /**
+     * Reads the listening port of a started worker process
+     *
+     * @param worker the worker process
+     * @return the worker's port
+     */
+    private static int workerPort(Process worker) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(worker.getInputStream(), StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null)
+            if (line.startsWith(RenderWorker.LISTENING))
+                return Integer.parseInt(line.substring(RenderWorker.LISTENING.length()).trim());
+        throw new IOException("Render worker did not start");
+    }
+
+    /**
+     * Starts a fake worker which accepts the render, takes a single tile and either dies or hangs
+     * without answering
+     *
+     * @param hang whether the worker hangs instead of dying
+     * @return the fake worker's listening socket
+     */
+    private static ServerSocket startBrokenWorker(boolean hang) throws IOException {
+        ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+        Thread thread = new Thread(() -> {
+            try (server; Socket socket = server.accept()) {
+                DataInputStream in = new DataInputStream(socket.getInputStream());
+                DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+                in.readInt();
+                in.readInt();
+                in.readInt();
+                in.readFully(new byte[in.readInt()]);
+                out.writeInt(RenderCoordinator.ACCEPTED);
+                out.flush();
+                for (int k = 0; k < 4; ++k) in.readInt();
+                // a hung worker keeps the connection open until the coordinator drops it
+                if (hang) in.read();
+            } catch (IOException ignored) {
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+        return server;
+    }
+
+    /**
+     * Creates a receiver of tiles which copies them into an image
+     *
+     * @param image the pixels of the image in row-major order
+     * @return the receiver
+     */
+    private static RenderCoordinator.TileSink into(int[] image) {
+        return (tile, rgb) -> {
+            int k = 0;
+            for (int i = tile.y0(); i < tile.y0() + tile.height(); ++i)
+                for (int j = tile.x0(); j < tile.x0() + tile.width(); ++j)
+                    image[i * NX + j] = rgb[k++];
+        };
+    }
+
+    /**
+     * Test method for {@link RenderCoordinator#render(List)}.
+     */
+    @Test
+    void testRender() throws Exception {
+        int[] expected = XMLParser.BuildCameraFromXML(new ByteArrayInputStream(DESCRIPTION.getBytes(StandardCharsets.UTF_8)))
+                .renderTile(new Tile(0, 0, NX, NY));
+        Process worker = startWorker();
+        try {
+            InetSocketAddress workerAddress = new InetSocketAddress(InetAddress.getLoopbackAddress(), workerPort(worker));
+
+            // ============ Equivalence Partitions Tests ==============
+            // EP01: one of the workers dies after taking a tile - the tile is reassigned
+            ServerSocket dying = startBrokenWorker(false);
+            int[] image = new int[NX * NY];
+            new RenderCoordinator(DESCRIPTION, NX, NY, 8, into(image))
+                    .render(List.of(new InetSocketAddress(InetAddress.getLoopbackAddress(), dying.getLocalPort()),
+                            workerAddress, workerAddress));
+            assertArrayEquals(expected, image, "Distributed render differs from the local render");
+            // EP02: one of the workers hangs after taking a tile - it times out and the tile is reassigned
+            ServerSocket hung = startBrokenWorker(true);
+            int[] hungImage = new int[NX * NY];
+            new RenderCoordinator(DESCRIPTION, NX, NY, 8, 500, into(hungImage))
+                    .render(List.of(new InetSocketAddress(InetAddress.getLoopbackAddress(), hung.getLocalPort()),
+                            workerAddress));
+            assertArrayEquals(expected, hungImage, "Tile of a hung worker must be reassigned");
+            // EP03: worker cannot build the camera - the render fails with the worker's reason
+            IllegalStateException failure = assertThrows(IllegalStateException.class,
+                    () -> new RenderCoordinator("<Camera/>", NX, NY, 8, into(new int[NX * NY]))
+                            .render(List.of(workerAddress)),
+                    "Render must fail when the worker cannot build the camera");
+            assertNotNull(failure.getCause(), "Render failure must carry the worker's failure");
+            assertTrue(failure.getCause().getMessage().contains("cannot build the camera"),
+                    "Render failure must carry the worker's reason");
+
+            // =============== Boundary Values Tests ==================
+            // BV01: worker rejects a description of a different resolution
+            assertThrows(IllegalStateException.class,
+                    () -> new RenderCoordinator(DESCRIPTION, NX + 1, NY, 8, into(new int[(NX + 1) * NY]))
+                            .render(List.of(workerAddress)),
+                    "Render must fail when no worker accepts it");
+            // BV02: non-positive tile timeout
+            assertThrows(IllegalArgumentException.class,
+                    () -> new RenderCoordinator(DESCRIPTION, NX, NY, 8, 0, into(new int[NX * NY])),
+                    "Zero tile timeout must be rejected");
+        } finally {
+            worker.destroy();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package renderer;
+
+import org.junit.jupiter.api.Test;
+import primitives.Color;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.zip.Adler32;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link renderer.StreamingPngWriter}.
+ */
+public class StreamingPngWriterTest {
+
+    /**
+     * Default constructor to disable the warning in the JavaDoc generator
+     */
+    StreamingPngWriterTest() {
+    }
+
+    /**
+     * Calculates the color of a test pattern pixel
+     *
+     * @param x pixel column
+     * @param y pixel row
+     * @return the pixel color
+     */
+    private static Color patternColor(int x, int y) {
+        return new Color((x * 7) % 256, (y * 13) % 256, ((x + y) * 3) % 256);
+    }
+
+    /**
+     * Test method for {@link StreamingPngWriter#writePixel(int, int, Color)} and
+     * {@link StreamingPngWriter#writeBand(int, int[])}.
+     */
+    @Test
+    void testStreamedImage() throws Exception {
+        int nX = 97;
+        int nY = 61;
+        int bandHeight = 8;
+        String name = "Streaming png writer test";
+
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: bands finish out of order, the first band is written as a whole
+        try (StreamingPngWriter writer = new StreamingPngWriter(name, nX, nY, bandHeight)) {
+            for (int y = nY - 1; y >= bandHeight; --y)
+                for (int x = 0; x < nX; ++x)
+                    writer.writePixel(x, y, patternColor(x, y));
+            int[] firstBand = new int[nX * bandHeight];
+            for (int y = 0; y < bandHeight; ++y)
+                for (int x = 0; x < nX; ++x)
+                    firstBand[y * nX + x] = patternColor(x, y).getColor().getRGB();
+            writer.writeBand(0, firstBand);
+        }
+
+        BufferedImage image = ImageIO.read(new File(ImageWriter.FOLDER_PATH, name + ".png"));
+        assertEquals(nX, image.getWidth(), "Wrong image width");
+        assertEquals(nY, image.getHeight(), "Wrong image height");
+        for (int y = 0; y < nY; ++y)
+            for (int x = 0; x < nX; ++x)
+                assertEquals(patternColor(x, y).getColor().getRGB(), image.getRGB(x, y),
+                        "Wrong pixel color at (" + x + "," + y + ")");
+
+        // =============== Boundary Values Tests ==================
+        // BV01: closing an incomplete image
+        StreamingPngWriter incomplete = new StreamingPngWriter(name, 2, 2, 1);
+        incomplete.writePixel(0, 0, Color.BLACK);
+        assertThrows(IllegalStateException.class, incomplete::close, "Incomplete image must not be closed");
+        assertFalse(new File(ImageWriter.FOLDER_PATH, name + ".png").exists(),
+                "Image which could not be completed must be deleted");
+        // BV02: aborting an incomplete image deletes its file
+        StreamingPngWriter aborted = new StreamingPngWriter(name, 2, 2, 1);
+        aborted.writePixel(0, 0, Color.BLACK);
+        aborted.writePixel(1, 0, Color.BLACK);
+        aborted.abort();
+        assertFalse(new File(ImageWriter.FOLDER_PATH, name + ".png").exists(), "Aborted image must be deleted");
+    }
+
+    /**
+     * Test method for {@link StreamingPngWriter#combineAdler(long, long, long)}.
+     */
+    @Test
+    void testCombineAdler() {
+        byte[] first = "Streaming row-band".getBytes();
+        byte[] second = " PNG encoder for very large images".getBytes();
+        Adler32 adler1 = new Adler32();
+        adler1.update(first);
+        Adler32 adler2 = new Adler32();
+        adler2.update(second);
+        Adler32 whole = new Adler32();
+        whole.update(first);
+        whole.update(second);
+
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: two non-empty sequences
+        assertEquals(whole.getValue(),
+                StreamingPngWriter.combineAdler(adler1.getValue(), adler2.getValue(), second.length),
+                "Wrong combined checksum");
+    }
+}
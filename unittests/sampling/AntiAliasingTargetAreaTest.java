@@ -0,0 +1,102 @@
+package sampling;
+
+import org.junit.jupiter.api.Test;
+import primitives.Color;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link sampling.AntiAliasingTargetArea}.
+ */
+public class AntiAliasingTargetAreaTest {
+
+    /**
+     * Default constructor to disable the warning in the JavaDoc generator
+     */
+    AntiAliasingTargetAreaTest() {
+    }
+
+    /**
+     * White color of the tests
+     */
+    private static final Color WHITE = new Color(255, 255, 255);
+
+    /**
+     * Amount of samples traced by the last test sampling
+     */
+    private int traced;
+
+    /**
+     * Samples a pixel whose white corners miss a black vertical stripe inside it
+     *
+     * @param from horizontal offset of the stripe's left side inside the pixel
+     * @param to   horizontal offset of the stripe's right side inside the pixel
+     * @return the pixel's red component (0-255)
+     */
+    private int sampleStripe(double from, double to) {
+        AntiAliasingTargetArea sampler = new AntiAliasingTargetArea(
+                new SamplingConfiguration(SamplingMode.MEDIUM, TargetAreaType.SQUARE, SamplingPattern.GRID, 1));
+        traced = 0;
+        AntiAliasingTargetArea.SubPixelTracer tracer = (x, y) -> {
+            ++traced;
+            return x > from && x < to ? Color.BLACK : WHITE;
+        };
+        return sampler.samplePixel(WHITE, WHITE, WHITE, WHITE, sampler.sampleCenter(tracer), tracer)
+                .getColor().getRed();
+    }
+
+    /**
+     * Samples a pixel which is black left of a vertical edge and white right of it
+     *
+     * @param mode the sampling mode
+     * @param edge horizontal offset of the edge inside the pixel
+     * @return the pixel's red component (0-255)
+     */
+    private int sampleEdge(SamplingMode mode, double edge) {
+        AntiAliasingTargetArea sampler = new AntiAliasingTargetArea(
+                new SamplingConfiguration(mode, TargetAreaType.SQUARE, SamplingPattern.GRID, 1));
+        traced = 0;
+        Color left = edge > 0 ? Color.BLACK : WHITE;
+        Color right = edge >= 1 ? Color.BLACK : WHITE;
+        AntiAliasingTargetArea.SubPixelTracer tracer = (x, y) -> {
+            ++traced;
+            return x < edge ? Color.BLACK : WHITE;
+        };
+        return sampler.samplePixel(left, right, left, right, sampler.sampleCenter(tracer), tracer)
+                .getColor().getRed();
+    }
+
+    /**
+     * Test method for
+     * {@link AntiAliasingTargetArea#samplePixel(Color, Color, Color, Color, Color, AntiAliasingTargetArea.SubPixelTracer)}.
+     */
+    @Test
+    void testSamplePixel() {
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: flat pixel - the center and the shared corners are enough
+        assertEquals(255, sampleEdge(SamplingMode.MEDIUM, 0), "Wrong flat pixel color");
+        assertEquals(1, traced, "Flat pixel must trace its center only");
+
+        // EP02: pixel with an edge is refined only around the edge
+        int red = sampleEdge(SamplingMode.MEDIUM, 0.4);
+        assertTrue(red > 100 && red < 200, "Edge pixel must be blended, but is " + red);
+        assertTrue(traced > 5 && traced < SamplingMode.MEDIUM.numberSamples,
+                "Edge pixel must be refined adaptively, but traced " + traced + " samples");
+
+        // EP03: a detail between flat corners is caught by the center and refined
+        red = sampleStripe(0.3, 0.7);
+        assertTrue(red > 50 && red < 200, "Stripe between flat corners must be blended, but is " + red);
+        assertTrue(traced > 1, "Stripe caught by the center must be refined");
+
+        // =============== Boundary Values Tests ==================
+        // BV01: the mode caps the refinement depth
+        sampleEdge(SamplingMode.EASY, 0.4);
+        assertEquals(5, traced, "Easy mode allows a single subdivision");
+
+        // BV02: negative contrast threshold
+        assertThrows(IllegalArgumentException.class,
+                () -> new AntiAliasingTargetArea(new SamplingConfiguration(SamplingMode.EASY, TargetAreaType.SQUARE,
+                        SamplingPattern.GRID, 1), -1),
+                "Negative threshold must be rejected");
+    }
+}
@@ -0,0 +1,226 @@
+package sampling;
+
+import geometries.Intersectable;
+import geometries.Sphere;
+import org.junit.jupiter.api.Test;
+import primitives.Material;
+import primitives.Point;
+import primitives.Vector;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link sampling.DiffusiveTargetArea}.
+ */
+public class DiffusiveTargetAreaTest {
+
+    /**
+     * Default constructor to disable the warning in the JavaDoc generator
+     */
+    DiffusiveTargetAreaTest() {
+    }
+
+    /**
+     * Roughness from which the GGX lobe is sampled by the whole grid
+     */
+    private static final double FULL_ROUGHNESS = 0.5;
+
+    /**
+     * Creates a hit of a ray going down into the top of a rough glass sphere
+     *
+     * @return the intersection
+     */
+    private static Intersectable.Intersection roughGlassHit() {
+        return roughGlassHit(0.2);
+    }
+
+    /**
+     * Creates a hit of a ray going down into the top of a glass sphere of a given roughness
+     *
+     * @param roughness the roughness of the glass
+     * @return the intersection
+     */
+    private static Intersectable.Intersection roughGlassHit(double roughness) {
+        Sphere sphere = new Sphere(Point.ZERO, 1);
+        sphere.setMaterial(new Material().setKT(0.8).setRoughness(roughness));
+        Intersectable.Intersection intersection = new Intersectable.Intersection(sphere, new Point(0, 0, 1));
+        intersection.rayDirection = new Vector(0, 0, -1);
+        intersection.normal = Vector.AXIS_Z;
+        return intersection;
+    }
+
+    /**
+     * Test method for {@link DiffusiveTargetArea#generateRays(Intersectable.Intersection, int)}.
+     */
+    @Test
+    void testGenerateRaysBudget() {
+        Intersectable.Intersection intersection = roughGlassHit();
+        DiffusiveTargetArea full = new DiffusiveTargetArea(new SamplingConfiguration(
+                SamplingMode.DEMO, TargetAreaType.SQUARE, SamplingPattern.JITTERED, 1));
+        DiffusiveTargetArea geometric = new DiffusiveTargetArea(new SamplingConfiguration(
+                SamplingMode.DEMO, TargetAreaType.SQUARE, SamplingPattern.JITTERED, 1, new SampleBudget(0.25)));
+        DiffusiveTargetArea splitOnce = new DiffusiveTargetArea(new SamplingConfiguration(
+                SamplingMode.DEMO, TargetAreaType.CIRCLE, SamplingPattern.GRID, 1, SampleBudget.SPLIT_ONCE));
+
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: full splitting at every diffuse bounce
+        assertEquals(81, full.generateRays(intersection, 3).size(), "Full budget must take all the samples");
+        // EP02: budget shrinking geometrically with the diffuse bounces
+        assertEquals(81, geometric.generateRays(intersection, 0).size(),
+                "Wrong amount of samples at the first diffuse bounce");
+        assertEquals(16, geometric.generateRays(intersection, 1).size(), "Wrong amount of samples at bounce 1");
+        assertEquals(1, geometric.generateRays(intersection, 4).size(), "Wrong amount of samples at bounce 4");
+        // EP03: single sample per path after the first diffuse bounce (also for a circle, which rejects samples)
+        for (int k = 0; k < 20; ++k)
+            assertEquals(1, splitOnce.generateRays(intersection, 1).size(), "Wrong amount of samples at bounce 1");
+
+        // =============== Boundary Values Tests ==================
+        // BV01: budget ratio out of range
+        assertThrows(IllegalArgumentException.class, () -> new SampleBudget(1.5), "Ratio above 1 must be rejected");
+        assertThrows(IllegalArgumentException.class, () -> new SampleBudget(-0.1), "Negative ratio must be rejected");
+    }
+
+    /**
+     * Test method for {@link DiffusiveTargetArea#generateDirections(Intersectable.Intersection, int, double[])}.
+     */
+    @Test
+    void testGenerateDirections() {
+        Intersectable.Intersection intersection = roughGlassHit();
+        SamplingConfiguration config = new SamplingConfiguration(
+                SamplingMode.MEDIUM, TargetAreaType.CIRCLE, SamplingPattern.SOBOL, 1);
+        DiffusiveTargetArea sampler = new DiffusiveTargetArea(config);
+        double[] directions = new double[3 * sampler.maxSamples()];
+
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: normalized directions inside the roughness cone around the refracted direction
+        int count = sampler.generateDirections(intersection, 0, directions);
+        assertEquals(25, count, "Wrong amount of directions");
+        for (int d = 0; d < 3 * count; d += 3) {
+            assertEquals(1, Math.sqrt(directions[d] * directions[d] + directions[d + 1] * directions[d + 1]
+                    + directions[d + 2] * directions[d + 2]), 1e-12, "Direction must be normalized");
+            assertTrue(Math.hypot(directions[d], directions[d + 1]) <= 0.2 * -directions[d + 2] + 1e-12,
+                    "Direction out of the roughness cone");
+        }
+        // EP02: samplers of the same grid, shape and pattern share their table
+        assertSame(SampleTable.of(5, TargetAreaType.CIRCLE, SamplingPattern.SOBOL),
+                SampleTable.of(5, TargetAreaType.CIRCLE, SamplingPattern.SOBOL), "Sample table must be shared");
+        // EP03: the table is randomized for each hit
+        double first = directions[0];
+        sampler.generateDirections(intersection, 0, directions);
+        assertNotEquals(first, directions[0], "Sample table must be randomized for each hit");
+
+        // =============== Boundary Values Tests ==================
+        // BV01: a regular grid is not randomized and rejects the samples out of the circle
+        DiffusiveTargetArea grid = new DiffusiveTargetArea(new SamplingConfiguration(
+                SamplingMode.MEDIUM, TargetAreaType.CIRCLE, SamplingPattern.GRID, 1));
+        assertEquals(21, grid.generateDirections(intersection, 0, directions), "Wrong amount of grid directions");
+        first = directions[0];
+        grid.generateDirections(intersection, 0, directions);
+        assertEquals(first, directions[0], "Grid directions must not be randomized");
+    }
+
+    /**
+     * Test method for {@link DiffusiveTargetArea#generateDirections(Intersectable.Intersection, int, double[])}
+     * with the {@link TargetAreaType#GGX_LOBE} importance sampling.
+     */
+    @Test
+    void testGenerateLobeDirections() {
+        DiffusiveTargetArea sampler = new DiffusiveTargetArea(new SamplingConfiguration(
+                SamplingMode.DEMO, TargetAreaType.GGX_LOBE, SamplingPattern.SOBOL, 1));
+        double[] directions = new double[3 * sampler.maxSamples()];
+
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: normalized transmitted directions, concentrated around the refracted direction
+        int count = sampler.generateDirections(roughGlassHit(0.2), 0, directions);
+        assertTrue(count > 0 && count <= 36, "Wrong amount of directions for roughness 0.2: " + count);
+        int inner = 0;
+        for (int d = 0; d < 3 * count; d += 3) {
+            assertEquals(1, Math.sqrt(directions[d] * directions[d] + directions[d + 1] * directions[d + 1]
+                    + directions[d + 2] * directions[d + 2]), 1e-12, "Direction must be normalized");
+            assertTrue(directions[d + 2] < 0, "Direction must go through the surface");
+            // 80% of the GGX lobe is within twice the roughness (by the tangent of the angle)
+            if (Math.hypot(directions[d], directions[d + 1]) <= 0.4 * -directions[d + 2]) ++inner;
+        }
+        assertTrue(inner >= 0.7 * count, "Directions must be concentrated around the refracted direction");
+        // EP02: a nearly smooth surface takes a single sample
+        assertEquals(1, sampler.generateDirections(roughGlassHit(0.01), 0, directions),
+                "Nearly smooth surface must take a single sample");
+
+        // =============== Boundary Values Tests ==================
+        // BV01: full roughness takes the whole grid (without the samples refracted back)
+        count = sampler.generateDirections(roughGlassHit(FULL_ROUGHNESS), 0, directions);
+        assertTrue(count > 70 && count <= 81, "Wrong amount of directions for full roughness: " + count);
+    }
+
+    /**
+     * Brightness seen through the glass in a direction - a bright disk slightly off the refracted direction
+     *
+     * @param x the x component of the normalized direction
+     * @param y the y component of the normalized direction
+     * @param z the z component of the normalized direction
+     * @return 1 in the disk, 0 elsewhere
+     */
+    private static double behindGlass(double x, double y, double z) {
+        return Math.hypot(x - 0.15 * -z, y) <= 0.1 * -z ? 1 : 0;
+    }
+
+    /**
+     * Density of the GGX lobe around the -Z axis (the distribution times the cosine of the angle from the axis),
+     * which integrates to 1 over the hemisphere
+     *
+     * @param roughness the roughness of the lobe
+     * @param cos       the cosine of the angle from the axis
+     * @return the density per solid angle
+     */
+    private static double lobeDensity(double roughness, double cos) {
+        double alpha2 = roughness * roughness;
+        double denominator = cos * cos * (alpha2 - 1) + 1;
+        return alpha2 / (Math.PI * denominator * denominator) * cos;
+    }
+
+    /**
+     * Test method for {@link DiffusiveTargetArea#generateDirections(Intersectable.Intersection, int, double[])}
+     * with the {@link TargetAreaType#GGX_LOBE} importance sampling against uniform sampling of the same lobe:
+     * both estimate the lobe-weighted brightness behind the glass with the same amount of random directions
+     */
+    @Test
+    void testLobeImportanceSampling() {
+        double roughness = 0.3;
+        DiffusiveTargetArea sampler = new DiffusiveTargetArea(new SamplingConfiguration(
+                SamplingMode.MEDIUM, TargetAreaType.GGX_LOBE, SamplingPattern.RANDOM, 1));
+        double[] directions = new double[3 * sampler.maxSamples()];
+        int trials = 400;
+        double[][] estimates = new double[2][trials];
+        for (int t = 0; t < trials; ++t) {
+            SampleRandom random = SampleRandom.seed(t, 0, 0);
+            int count = sampler.generateDirections(roughGlassHit(roughness), 0, directions);
+            double important = 0;
+            for (int d = 0; d < 3 * count; d += 3)
+                important += behindGlass(directions[d], directions[d + 1], directions[d + 2]);
+            estimates[0][t] = important / count;
+            // the same amount of directions drawn uniformly on the hemisphere, weighted by the lobe's density
+            double uniform = 0;
+            for (int d = 0; d < count; ++d) {
+                double cos = random.nextDouble();
+                double sin = Math.sqrt(1 - cos * cos);
+                double phi = 2 * Math.PI * random.nextDouble();
+                uniform += 2 * Math.PI * lobeDensity(roughness, cos)
+                        * behindGlass(sin * Math.cos(phi), sin * Math.sin(phi), -cos);
+            }
+            estimates[1][t] = uniform / count;
+        }
+        double[] mean = new double[2];
+        double[] variance = new double[2];
+        for (int e = 0; e < 2; ++e) {
+            for (double estimate : estimates[e]) mean[e] += estimate / trials;
+            for (double estimate : estimates[e]) variance[e] += (estimate - mean[e]) * (estimate - mean[e]) / (trials - 1);
+        }
+
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: both samplings estimate the same lobe
+        assertEquals(mean[1], mean[0], 0.05, "Importance sampling must estimate the same lobe");
+        // EP02: importance sampling has a much lower variance for the same amount of rays
+        assertTrue(variance[0] < variance[1] / 4,
+                "Importance sampling must reduce the variance: " + variance[0] + " vs " + variance[1]);
+    }
+}
@@ -0,0 +1,92 @@
+package sampling;
+
+import geometries.Intersectable;
+import geometries.Plane;
+import org.junit.jupiter.api.Test;
+import primitives.Material;
+import primitives.Point;
+import primitives.Vector;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link sampling.GlossyReflectionTargetArea}.
+ */
+public class GlossyReflectionTargetAreaTest {
+
+    /**
+     * Default constructor to disable the warning in the JavaDoc generator
+     */
+    GlossyReflectionTargetAreaTest() {
+    }
+
+    /**
+     * Creates a hit of a ray going down onto a brushed metal floor
+     *
+     * @param roughness the reflection roughness of the metal
+     * @param direction the direction of the ray
+     * @return the intersection
+     */
+    private static Intersectable.Intersection metalHit(double roughness, Vector direction) {
+        Plane floor = new Plane(Vector.AXIS_Y, Point.ZERO);
+        floor.setMaterial(new Material().setKR(0.8).setReflectionRoughness(roughness));
+        Intersectable.Intersection intersection = new Intersectable.Intersection(floor, Point.ZERO);
+        intersection.rayDirection = direction.normalize();
+        intersection.normal = Vector.AXIS_Y;
+        return intersection;
+    }
+
+    /**
+     * Generates the sample directions of a hit and checks that all of them leave the surface upwards
+     *
+     * @param sampler      the sampler
+     * @param intersection the hit
+     * @param bounces      the amount of diffuse bounces of the path before the hit
+     * @param directions   the buffer of the directions
+     * @return the amount of directions
+     */
+    private static int upwardDirections(GlossyReflectionTargetArea sampler, Intersectable.Intersection intersection,
+                                        int bounces, double[] directions) {
+        int count = sampler.generateDirections(intersection, bounces, directions);
+        for (int k = 0; k < 3 * count; k += 3)
+            assertTrue(directions[k + 1] > 0, "Reflected direction must not go below the surface");
+        return count;
+    }
+
+    /**
+     * Test method for
+     * {@link GlossyReflectionTargetArea#generateDirections(Intersectable.Intersection, int, double[])}.
+     */
+    @Test
+    void testGenerateDirections() {
+        GlossyReflectionTargetArea sampler = new GlossyReflectionTargetArea(new SamplingConfiguration(
+                SamplingMode.MEDIUM, TargetAreaType.CIRCLE, SamplingPattern.SOBOL, 1, new SampleBudget(0.25)));
+        double[] directions = new double[3 * sampler.maxSamples()];
+        Vector down = new Vector(0, -1, -1);
+        Vector mirror = new Vector(0, 1, -1).normalize();
+        SampleRandom.seed(0, 0, 0);
+
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: rough metal takes all the samples in the cone of the roughness around the mirror direction
+        int count = upwardDirections(sampler, metalHit(0.5, down), 0, directions);
+        assertEquals(25, count, "Rough metal must take all the samples");
+        for (int k = 0; k < 3 * count; k += 3) {
+            double cos = new Vector(directions[k], directions[k + 1], directions[k + 2]).dotProduct(mirror);
+            assertTrue(Math.sqrt(1 - cos * cos) / cos <= 0.5 + 1e-10, "Sample direction must be in the cone");
+        }
+        // EP02: smoother metal takes fewer samples
+        assertEquals(9, upwardDirections(sampler, metalHit(0.25, down), 0, directions),
+                "Wrong amount of samples of smooth metal");
+        // EP03: further diffuse bounces take the budget of their bounce
+        assertEquals(4, upwardDirections(sampler, metalHit(0.5, down), 1, directions),
+                "Wrong amount of samples at bounce 1");
+
+        // =============== Boundary Values Tests ==================
+        // BV01: nearly polished metal takes a single sample
+        assertEquals(1, upwardDirections(sampler, metalHit(0.05, down), 0, directions),
+                "Nearly polished metal must take a single sample");
+        // BV02: a grazing ray loses the samples below the surface
+        int grazing = upwardDirections(sampler, metalHit(0.5, new Vector(0, -1e-6, -1)), 0, directions);
+        assertTrue(grazing > 0 && grazing < 25, "Grazing ray must drop the samples below the surface");
+    }
+}
@@ -0,0 +1,69 @@
+package sampling;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link sampling.SampleRandom}.
+ */
+public class SampleRandomTest {
+
+    /**
+     * Default constructor to disable the warning in the JavaDoc generator
+     */
+    SampleRandomTest() {
+    }
+
+    /**
+     * Amount of numbers drawn from each stream
+     */
+    private static final int DRAWS = 8;
+
+    /**
+     * Draws numbers from the current thread's stream after seeding it for a pixel's sample
+     *
+     * @param j      pixel column index
+     * @param i      pixel row index
+     * @param sample index of the pixel's sample
+     * @return the drawn numbers
+     */
+    private static double[] draw(int j, int i, int sample) {
+        SampleRandom random = SampleRandom.seed(j, i, sample);
+        double[] numbers = new double[DRAWS];
+        for (int k = 0; k < DRAWS; ++k) {
+            numbers[k] = random.nextDouble();
+            assertTrue(numbers[k] >= 0 && numbers[k] < 1, "Random number out of [0, 1)");
+        }
+        return numbers;
+    }
+
+    /**
+     * Test method for {@link SampleRandom#seed(int, int, int)}.
+     */
+    @Test
+    void testSeed() throws Exception {
+        double[] expected = draw(3, 5, 0);
+
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: the same pixel's sample gives the same numbers, also on another thread
+        assertEquals(Arrays.toString(expected), Arrays.toString(draw(3, 5, 0)),
+                "Reseeded stream must repeat its numbers");
+        double[][] other = new double[1][];
+        Thread thread = new Thread(() -> other[0] = draw(3, 5, 0));
+        thread.start();
+        thread.join();
+        assertEquals(Arrays.toString(expected), Arrays.toString(other[0]),
+                "Stream of another thread must repeat the numbers");
+
+        // EP02: other pixels and samples give other numbers
+        assertNotEquals(expected[0], draw(5, 3, 0)[0], "Transposed pixel must have another stream");
+        assertNotEquals(expected[0], draw(3, 5, 1)[0], "Next sample must have another stream");
+
+        // =============== Boundary Values Tests ==================
+        // BV01: negative sample index (e.g. a pixel corner)
+        assertNotEquals(expected[0], draw(3, 5, -1)[0], "Negative sample must have another stream");
+    }
+}
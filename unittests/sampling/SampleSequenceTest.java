@@ -0,0 +1,103 @@
+package sampling;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link sampling.SampleSequence}.
+ */
+public class SampleSequenceTest {
+
+    /**
+     * Default constructor to disable the warning in the JavaDoc generator
+     */
+    SampleSequenceTest() {
+    }
+
+    /**
+     * Counts the positions in each cell of a regular grid over the unit square
+     *
+     * @param points coordinates x and y of the positions
+     * @param nX     amount of cell columns
+     * @param nY     amount of cell rows
+     * @return amount of positions in each cell, row by row
+     */
+    private static int[] cellCounts(double[] points, int nX, int nY) {
+        int[] counts = new int[nX * nY];
+        for (int k = 0; k < points.length; k += 2) {
+            assertTrue(points[k] >= 0 && points[k] < 1 && points[k + 1] >= 0 && points[k + 1] < 1,
+                    "Position out of the unit square");
+            ++counts[(int) (points[k + 1] * nY) * nX + (int) (points[k] * nX)];
+        }
+        return counts;
+    }
+
+    /**
+     * Test method for {@link SampleSequence#points(SamplingPattern, int)}.
+     */
+    @Test
+    void testPoints() {
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: every pattern gives the whole grid of positions in the unit square
+        for (SamplingPattern pattern : SamplingPattern.values())
+            assertEquals(2 * 25, SampleSequence.points(pattern, 5).length, "Wrong amount of positions of " + pattern);
+
+        // EP02: scrambled Sobol - each elementary interval of 16 samples holds a single sample
+        SampleRandom.seed(7, 11, 0);
+        double[] sobol = SampleSequence.points(SamplingPattern.SOBOL, 4);
+        for (int columns = 1; columns <= 16; columns *= 2)
+            for (int count : cellCounts(sobol, columns, 16 / columns))
+                assertEquals(1, count, "Sobol samples are not stratified in " + columns + " columns");
+
+        // EP03: Halton - stratified in each axis
+        double[] halton = SampleSequence.points(SamplingPattern.HALTON, 3);
+        for (int count : cellCounts(halton, 1, 9))
+            assertTrue(count <= 2, "Halton samples are not stratified by y");
+        for (int count : cellCounts(halton, 8, 1))
+            assertTrue(count >= 1 && count <= 2, "Halton samples are not stratified by x");
+
+        // EP04: blue noise - the samples keep a distance from each other
+        double[] blueNoise = SampleSequence.points(SamplingPattern.BLUE_NOISE, 8);
+        double minDistance = Double.POSITIVE_INFINITY;
+        for (int a = 0; a < blueNoise.length; a += 2)
+            for (int b = a + 2; b < blueNoise.length; b += 2)
+                minDistance = Math.min(minDistance,
+                        Math.hypot(blueNoise[a] - blueNoise[b], blueNoise[a + 1] - blueNoise[b + 1]));
+        assertTrue(minDistance > 0.5 / 8, "Blue-noise samples are too close: " + minDistance);
+
+        // EP05: the same seed gives the same positions
+        SampleRandom.seed(7, 11, 0);
+        double[] again = SampleSequence.points(SamplingPattern.SOBOL, 4);
+        for (int k = 0; k < sobol.length; ++k)
+            assertEquals(sobol[k], again[k], "Reseeded Sobol positions differ");
+
+        // =============== Boundary Values Tests ==================
+        // BV01: more blue-noise samples than the precomputed tile holds
+        for (int count : cellCounts(SampleSequence.points(SamplingPattern.BLUE_NOISE, 33), 3, 3))
+            assertEquals(121, count, "Blue-noise samples are not spread over the tile copies");
+        // BV02: grid value out of range
+        assertThrows(IllegalArgumentException.class, () -> SampleSequence.points(SamplingPattern.SOBOL, 0),
+                "Grid value 0 must be rejected");
+    }
+
+    /**
+     * Test method for {@link SampleSequence#toDisk(double, double)}.
+     */
+    @Test
+    void testToDisk() {
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: a corner of the square is mapped onto the circle
+        double[] corner = SampleSequence.toDisk(1, 1);
+        assertEquals(1, Math.hypot(corner[0], corner[1]), 1e-12, "Corner must be mapped onto the circle");
+        // EP02: a point inside the square is mapped at its distance along the square's "rings"
+        double[] inside = SampleSequence.toDisk(-0.5, 0.2);
+        assertEquals(0.5, Math.hypot(inside[0], inside[1]), 1e-12, "Wrong radius of the mapped point");
+
+        // =============== Boundary Values Tests ==================
+        // BV01: the center
+        double[] center = SampleSequence.toDisk(0, 0);
+        assertEquals(0, center[0], "Center must stay in place");
+        assertEquals(0, center[1], "Center must stay in place");
+    }
+}
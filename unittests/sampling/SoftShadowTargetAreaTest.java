@@ -0,0 +1,79 @@
+package sampling;
+
+import geometries.Intersectable;
+import geometries.Plane;
+import lighting.AreaLight;
+import lighting.PointLight;
+import org.junit.jupiter.api.Test;
+import primitives.Color;
+import primitives.Point;
+import primitives.Vector;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link sampling.SoftShadowTargetArea}.
+ */
+public class SoftShadowTargetAreaTest {
+
+    /**
+     * Default constructor to disable the warning in the JavaDoc generator
+     */
+    SoftShadowTargetAreaTest() {
+    }
+
+    /**
+     * Creates a hit on the floor lit by a light above it
+     *
+     * @param light the light source
+     * @return the intersection
+     */
+    private static Intersectable.Intersection floorHit(PointLight light) {
+        Intersectable.Intersection intersection =
+                new Intersectable.Intersection(new Plane(Vector.AXIS_Y, Point.ZERO), new Point(3, 0, 4));
+        intersection.normal = Vector.AXIS_Y;
+        intersection.lightSource = light;
+        intersection.lightDirection = light.getL(intersection.point);
+        return intersection;
+    }
+
+    /**
+     * Test method for {@link SoftShadowTargetArea#samplePoints(Intersectable.Intersection, double[])}.
+     */
+    @Test
+    void testSamplePoints() {
+        Point center = new Point(0, 10, 0);
+        AreaLight light = new AreaLight(new Color(100, 100, 100), center, 2);
+        Intersectable.Intersection intersection = floorHit(light);
+        SoftShadowTargetArea disk = new SoftShadowTargetArea(new SamplingConfiguration(
+                SamplingMode.MEDIUM, TargetAreaType.CIRCLE, SamplingPattern.SOBOL, 1));
+        double[] points = new double[3 * disk.maxSamples()];
+        SampleRandom.seed(0, 0, 0);
+        int count = disk.samplePoints(intersection, points);
+
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: the points are on the light's disk which faces the lit point
+        assertEquals(25, count, "Wrong amount of sample points");
+        for (int k = 0; k < 3 * count; k += 3) {
+            Vector offset = new Point(points[k], points[k + 1], points[k + 2]).subtract(center);
+            assertTrue(offset.length() <= 2 + 1e-10, "Sample point must be on the light");
+            assertEquals(0, offset.dotProduct(intersection.lightDirection), 1e-10,
+                    "Sample point must be on the disk facing the lit point");
+        }
+        // EP02: the first samples already cover the whole disk - one of them in each half of it
+        Vector u = intersection.lightDirection.getNewCoordinateSystems().get(0);
+        int positive = 0;
+        for (int k = 0; k < 12; k += 3)
+            if (new Point(points[k], points[k + 1], points[k + 2]).subtract(center).dotProduct(u) > 0) ++positive;
+        assertTrue(positive > 0 && positive < 4, "First samples must be spread over the light");
+
+        // =============== Boundary Values Tests ==================
+        // BV01: a point light has no area to sample
+        assertThrows(IllegalArgumentException.class,
+                () -> disk.samplePoints(floorHit(new PointLight(new Color(100, 100, 100), center)), points),
+                "Point light must be rejected");
+        // BV02: non-positive radius
+        assertThrows(IllegalArgumentException.class, () -> new AreaLight(new Color(100, 100, 100), center, 0),
+                "Zero radius must be rejected");
+    }
+}